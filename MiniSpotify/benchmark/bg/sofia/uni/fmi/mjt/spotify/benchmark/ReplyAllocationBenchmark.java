@@ -0,0 +1,151 @@
+package bg.sofia.uni.fmi.mjt.spotify.benchmark;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPool;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExtractor;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.IODatabaseException;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCodec;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.ReplyWriter;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongEntity;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Measures the heap allocated per {@code search} and {@code top} reply, from the query to a frame in pooled
+ * output buffers, in two ways: building the reply as a {@code String}, encoding it to a byte array and copying that
+ * into a pooled buffer, as replies used to be sent, and rendering it with a {@link ReplyWriter}, which encodes
+ * straight into the pooled buffers. The allocation is read from the thread's allocation counter, so the numbers
+ * are exact for the measured thread and do not depend on the collector.
+ *
+ * <p>Run from the MiniSpotify directory:
+ * {@code java -cp <classes> bg.sofia.uni.fmi.mjt.spotify.benchmark.ReplyAllocationBenchmark [iterations]}
+ */
+public class ReplyAllocationBenchmark {
+
+    private static final int[] CATALOG_SIZES = {10, 100, 1_000};
+    private static final int DEFAULT_ITERATIONS = 2_000;
+    private static final double NANOS_PER_MICRO = 1_000.0;
+    private static final long BUFFER_POOL_CAPACITY = 16L << 20;
+
+    private static final String TITLE_LABEL = " Title: ";
+    private static final String ARTIST_LABEL = " Artist: ";
+    private static final String DURATION_LABEL = " Duration (in seconds): ";
+    private static final String GENRE_LABEL = " Genre: ";
+    private static final String TIMES_SIGN = "# ";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IODatabaseException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        BufferPool bufferPool = new BufferPool(BUFFER_POOL_CAPACITY);
+
+        System.out.printf("%-8s %-8s %10s %14s %14s %10s %12s %12s%n", "songs", "command", "reply B",
+            "string B/op", "writer B/op", "saved", "string us", "writer us");
+
+        for (int catalogSize : CATALOG_SIZES) {
+            StreamingPlatform streamingPlatform = new StreamingPlatform(new StringReader("[]"), new StringWriter(),
+                new StringReader(ReplyCompressionBenchmark.generateCatalog(catalogSize)), new StringWriter());
+            CommandExecutor commandExecutor = new CommandExecutor(streamingPlatform, new AuthenticationService(),
+                null);
+
+            measure("search", catalogSize, iterations, bufferPool,
+                () -> renderSearch(streamingPlatform.searchSongs("e")), commandExecutor,
+                CommandExtractor.newCommand("search e"));
+            measure("top", catalogSize, iterations, bufferPool,
+                () -> renderTop(streamingPlatform.getTopNMostListenedSongs(catalogSize)), commandExecutor,
+                CommandExtractor.newCommand("top " + catalogSize));
+        }
+    }
+
+    private static void measure(String commandName, int catalogSize, int iterations, BufferPool bufferPool,
+                                StringRenderer stringRenderer, CommandExecutor commandExecutor, Command command) {
+        Session session = new Session(null);
+        ReplyWriter replyWriter = new ReplyWriter(bufferPool);
+
+        Runnable viaString = () -> {
+            Frame reply = Frame.of(FrameType.REPLY, stringRenderer.render());
+            ByteBuffer buffer = bufferPool.lease(FrameCodec.HEADER_SIZE + reply.payload().length);
+            FrameCodec.encode(reply.type(), reply.payload(), 0, reply.payload().length, buffer);
+            bufferPool.release(buffer);
+        };
+        Runnable viaWriter = () -> {
+            commandExecutor.executeCommand(command, session, replyWriter);
+            replyWriter.finish(FrameType.REPLY).forEach(bufferPool::release);
+        };
+
+        int replySize = Frame.of(FrameType.REPLY, stringRenderer.render()).payload().length;
+        long[] string = run(viaString, iterations);
+        long[] writer = run(viaWriter, iterations);
+
+        System.out.printf("%-8d %-8s %10d %14d %14d %9.0f%% %12.2f %12.2f%n", catalogSize, commandName, replySize,
+            string[0] / iterations, writer[0] / iterations, 100.0 * (string[0] - writer[0]) / string[0],
+            string[1] / NANOS_PER_MICRO / iterations, writer[1] / NANOS_PER_MICRO / iterations);
+    }
+
+    /**
+     * Runs the task, first to warm it up, and returns the bytes it allocated and the CPU time it took.
+     */
+    private static long[] run(Runnable task, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long cpuBefore = THREADS.getCurrentThreadCpuTime();
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+
+        return new long[] {THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore,
+            THREADS.getCurrentThreadCpuTime() - cpuBefore};
+    }
+
+    /**
+     * The {@code search} reply as it was built before the {@link ReplyWriter}.
+     */
+    private static String renderSearch(List<SongEntity> songs) {
+        StringBuilder reply = new StringBuilder("Songs:").append(System.lineSeparator());
+        forEachSong(songs, songEntity -> reply.append(TITLE_LABEL).append(songEntity.getSong().getTitle())
+            .append(ARTIST_LABEL).append(songEntity.getSong().getArtist()).append(GENRE_LABEL)
+            .append(songEntity.getSong().getGenre()).append(DURATION_LABEL).append(songEntity.getSong().getDuration())
+            .append(System.lineSeparator()));
+
+        return reply.toString();
+    }
+
+    /**
+     * The {@code top} reply as it was built before the {@link ReplyWriter}, a {@code String} per line included.
+     */
+    private static String renderTop(List<SongEntity> songs) {
+        StringBuilder reply = new StringBuilder("Top songs:").append(System.lineSeparator());
+        forEachSong(songs, songEntity -> reply.append(TIMES_SIGN + songEntity.getListeningTimes() + TITLE_LABEL +
+            songEntity.getSong().getTitle() + ARTIST_LABEL + songEntity.getSong().getArtist() + GENRE_LABEL +
+            songEntity.getSong().getGenre() + DURATION_LABEL + songEntity.getSong().getDuration() +
+            System.lineSeparator()));
+
+        return reply.toString();
+    }
+
+    private static void forEachSong(List<SongEntity> songs, Consumer<SongEntity> action) {
+        for (SongEntity currentSongEntity : songs) {
+            action.accept(currentSongEntity);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StringRenderer {
+        String render();
+    }
+}
@@ -0,0 +1,101 @@
+package bg.sofia.uni.fmi.mjt.spotify.benchmark;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExtractor;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.IODatabaseException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCompression;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures how much the {@code search} and {@code top} replies shrink when they are deflated and how much CPU time
+ * deflating and inflating them costs. The replies come from a {@link CommandExecutor} over a generated catalog, so
+ * they have the same labels on every line as the real ones.
+ *
+ * <p>Run from the MiniSpotify directory:
+ * {@code java -cp <classes> bg.sofia.uni.fmi.mjt.spotify.benchmark.ReplyCompressionBenchmark [iterations]}
+ */
+public class ReplyCompressionBenchmark {
+
+    private static final int[] CATALOG_SIZES = {10, 100, 1_000};
+    private static final String[] ARTISTS = {"Hans Zimmer", "Billie Eilish", "Adele", "Ludovico Einaudi",
+        "Imagine Dragons", "The Weeknd", "Dua Lipa", "Max Richter"};
+    private static final String[] GENRES = {"classical", "pop", "rock", "soundtrack", "electronic"};
+    private static final String[] WORDS = {"Night", "River", "Golden", "Echo", "Main", "Title", "Theme", "Light",
+        "Storm", "Dream", "Variation", "Die"};
+    private static final int DEFAULT_ITERATIONS = 2_000;
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IODatabaseException, MalformedFrameException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        System.out.printf("%-8s %-10s %10s %10s %8s %14s %14s%n", "songs", "command", "plain B", "deflated B",
+            "ratio", "deflate us", "inflate us");
+
+        for (int catalogSize : CATALOG_SIZES) {
+            CommandExecutor commandExecutor = new CommandExecutor(new StreamingPlatform(new StringReader("[]"),
+                new StringWriter(), new StringReader(generateCatalog(catalogSize)), new StringWriter()),
+                new AuthenticationService(), null);
+
+            measure(commandExecutor, catalogSize, "search e", iterations);
+            measure(commandExecutor, catalogSize, "top " + catalogSize, iterations);
+        }
+    }
+
+    private static void measure(CommandExecutor commandExecutor, int catalogSize, String command, int iterations)
+        throws MalformedFrameException {
+        Frame reply = Frame.of(FrameType.REPLY,
+            commandExecutor.executeCommand(CommandExtractor.newCommand(command), new Session(null)));
+
+        Frame compressed = FrameCompression.deflate(reply);
+        for (int i = 0; i < iterations; i++) {
+            FrameCompression.inflate(FrameCompression.deflate(reply));
+        }
+
+        long start = THREADS.getCurrentThreadCpuTime();
+        for (int i = 0; i < iterations; i++) {
+            compressed = FrameCompression.deflate(reply);
+        }
+        long deflateNanos = THREADS.getCurrentThreadCpuTime() - start;
+
+        start = THREADS.getCurrentThreadCpuTime();
+        for (int i = 0; i < iterations; i++) {
+            FrameCompression.inflate(compressed);
+        }
+        long inflateNanos = THREADS.getCurrentThreadCpuTime() - start;
+
+        System.out.printf("%-8d %-10s %10d %10d %7.1fx %14.2f %14.2f%n", catalogSize, command.split(" ")[0],
+            reply.payload().length, compressed.payload().length,
+            (double) reply.payload().length / compressed.payload().length,
+            deflateNanos / NANOS_PER_MICRO / iterations, inflateNanos / NANOS_PER_MICRO / iterations);
+    }
+
+    static String generateCatalog(int size) {
+        StringBuilder catalog = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                catalog.append(',');
+            }
+
+            String title = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+            catalog.append("{\"song\":{\"title\":\"").append(title)
+                .append("\",\"artist\":\"").append(ARTISTS[i % ARTISTS.length])
+                .append("\",\"duration\":").append(120 + i % 180)
+                .append(",\"genre\":\"").append(GENRES[i % GENRES.length])
+                .append("\"},\"listeningTimes\":").append(i * 7 % 1000).append('}');
+        }
+
+        return catalog.append(']').toString();
+    }
+}
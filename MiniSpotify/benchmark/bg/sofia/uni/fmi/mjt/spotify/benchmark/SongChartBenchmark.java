@@ -0,0 +1,95 @@
+package bg.sofia.uni.fmi.mjt.spotify.benchmark;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.Song;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongChart;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongEntity;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Compares {@code top} through the {@link SongChart} with the sort of the whole catalog it replaced, and measures
+ * what the chart adds to every play. The catalog is built directly, without the JSON storage, so that it can reach
+ * a million songs. Both ways are checked to return the same songs before they are timed.
+ *
+ * <p>Run from the MiniSpotify directory:
+ * {@code java -Xmx2g -cp <classes> bg.sofia.uni.fmi.mjt.spotify.benchmark.SongChartBenchmark [iterations]}
+ */
+public class SongChartBenchmark {
+
+    private static final int[] CATALOG_SIZES = {10_000, 100_000, 1_000_000};
+    private static final int[] TOP_SIZES = {10, 100, 1_000};
+    private static final int DEFAULT_ITERATIONS = 20;
+    private static final int PLAYS = 1_000_000;
+    private static final int MAX_INITIAL_PLAYS = 10_000;
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        System.out.printf("%-9s %-6s %12s %12s %10s %12s%n", "songs", "top", "sort us", "chart us", "speedup",
+            "play ns");
+
+        for (int catalogSize : CATALOG_SIZES) {
+            Random random = new Random(catalogSize);
+            List<SongEntity> songs = new ArrayList<>(catalogSize);
+            for (int i = 0; i < catalogSize; i++) {
+                songs.add(new SongEntity(new Song("Song " + i, "Artist " + i % 1_000, 180, "pop"),
+                    random.nextInt(MAX_INITIAL_PLAYS)));
+            }
+            SongChart songChart = new SongChart(songs);
+
+            long playStart = THREADS.getCurrentThreadCpuTime();
+            for (int i = 0; i < PLAYS; i++) {
+                songChart.recordPlay(songs.get(random.nextInt(catalogSize)));
+            }
+            double playNanos = (double) (THREADS.getCurrentThreadCpuTime() - playStart) / PLAYS;
+
+            for (int topSize : TOP_SIZES) {
+                if (!sort(songs, topSize).equals(songChart.top(topSize))) {
+                    throw new IllegalStateException("The chart and the sort disagree on the top " + topSize + ".");
+                }
+
+                long sortNanos = run(k -> sort(songs, k), topSize, iterations);
+                long chartNanos = run(songChart::top, topSize, iterations);
+
+                System.out.printf("%-9d %-6d %12.2f %12.2f %9.0fx %12.1f%n", catalogSize, topSize,
+                    sortNanos / NANOS_PER_MICRO / iterations, chartNanos / NANOS_PER_MICRO / iterations,
+                    (double) sortNanos / Math.max(1, chartNanos), playNanos);
+            }
+        }
+    }
+
+    /**
+     * The {@code top} as it was before the {@link SongChart}.
+     */
+    private static List<SongEntity> sort(List<SongEntity> songs, int n) {
+        return songs.stream()
+            .sorted((content1, content2) -> Integer.compare(content2.getListeningTimes(),
+                content1.getListeningTimes()))
+            .limit(n)
+            .toList();
+    }
+
+    /**
+     * Runs the query, first to warm it up, and returns the CPU time it took.
+     */
+    private static long run(IntFunction<List<SongEntity>> top, int topSize, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            top.apply(topSize);
+        }
+
+        long start = THREADS.getCurrentThreadCpuTime();
+        for (int i = 0; i < iterations; i++) {
+            top.apply(topSize);
+        }
+
+        return THREADS.getCurrentThreadCpuTime() - start;
+    }
+}
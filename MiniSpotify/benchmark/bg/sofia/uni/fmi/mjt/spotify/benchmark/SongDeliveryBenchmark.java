@@ -0,0 +1,114 @@
+package bg.sofia.uni.fmi.mjt.spotify.benchmark;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerConfiguration;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ClientConnection;
+import bg.sofia.uni.fmi.mjt.spotify.server.player.ConnectionAudioSink;
+import bg.sofia.uni.fmi.mjt.spotify.server.player.PlaySongThread;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongFile;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Compares the CPU time the server spends per stream when a song is decoded and copied by {@link PlaySongThread}
+ * with the time spent when the song file is sent with {@code FileChannel.transferTo}. Every stream is sent unpaced
+ * over loopback to a client which discards it, and only the CPU time of the sending thread is counted.
+ *
+ * <p>Run from the MiniSpotify directory, so that {@code data/music} is found:
+ * {@code java -cp <classes> bg.sofia.uni.fmi.mjt.spotify.benchmark.SongDeliveryBenchmark [streams]}
+ */
+public class SongDeliveryBenchmark {
+
+    private static final String HOST = "localhost";
+    private static final String SONG_NAME = "Hans Zimmer_The Crown - Main title";
+    private static final Path SONG_PATH = Path.of("data", "music", SONG_NAME + ".wav");
+    private static final Duration UNPACED = Duration.ofDays(1);
+    private static final int DEFAULT_STREAMS = 50;
+    private static final int WARMUP_STREAMS = 10;
+    private static final int DRAIN_BUFFER_SIZE = 64 * 1024;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException, UnsupportedAudioFileException {
+        int streams = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_STREAMS;
+
+        try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(HOST, 0));
+             SongFile songFile = SongFile.ingest(SONG_PATH)) {
+            measure(serverSocketChannel, null, WARMUP_STREAMS);
+            measure(serverSocketChannel, songFile, WARMUP_STREAMS);
+
+            double copyMillis = measure(serverSocketChannel, null, streams);
+            double transferMillis = measure(serverSocketChannel, songFile, streams);
+
+            System.out.printf("Song: %s (%d bytes of PCM), %d streams per path%n", SONG_NAME,
+                songFile.getDataLength(), streams);
+            System.out.printf("copy loop:   %8.3f ms CPU per stream%n", copyMillis);
+            System.out.printf("transferTo:  %8.3f ms CPU per stream%n", transferMillis);
+            System.out.printf("ratio:       %8.2fx%n", copyMillis / transferMillis);
+        }
+    }
+
+    /**
+     * Returns the average CPU time in milliseconds spent by the sending thread per stream. A {@code null} song file
+     * makes {@link PlaySongThread} decode and copy the song.
+     */
+    private static double measure(ServerSocketChannel serverSocketChannel, SongFile songFile, int streams)
+        throws IOException {
+        long totalCpuNanos = 0;
+
+        for (int i = 0; i < streams; i++) {
+            try (SocketChannel clientSide = SocketChannel.open(serverSocketChannel.getLocalAddress());
+                 SocketChannel serverSide = serverSocketChannel.accept()) {
+                Thread drainer = new Thread(() -> drain(clientSide));
+                drainer.setDaemon(true);
+                drainer.start();
+
+                ClientConnection connection = new ClientConnection(serverSide, Runnable::run,
+                    new ServerConfiguration());
+                connection.bindWriteRequest(() -> flush(connection));
+
+                PlaySongThread playSongThread = new PlaySongThread(SONG_NAME, new Session(connection), null,
+                    new ConnectionAudioSink(connection, UNPACED), songFile);
+
+                long start = THREADS.getCurrentThreadCpuTime();
+                playSongThread.run();
+                totalCpuNanos += THREADS.getCurrentThreadCpuTime() - start;
+            }
+        }
+
+        return totalCpuNanos / NANOS_PER_MILLI / streams;
+    }
+
+    private static void flush(ClientConnection connection) {
+        try {
+            synchronized (connection) {
+                connection.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void drain(SocketChannel channel) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(DRAIN_BUFFER_SIZE);
+        try {
+            while (channel.read(buffer.clear()) >= 0) {
+                // Discard
+            }
+        } catch (IOException e) {
+            // The stream has been measured
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package bg.sofia.uni.fmi.mjt.spotify.benchmark;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.IODatabaseException;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongEntity;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongIndex;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares {@code search} through the {@link SongIndex} with the scan of the whole catalog it replaced, which
+ * lower-cased the title and the artist of every song for every word of the query. Both are run on the same
+ * catalogs and queries, and their results are checked to be the same before they are timed.
+ *
+ * <p>Run from the MiniSpotify directory:
+ * {@code java -cp <classes> bg.sofia.uni.fmi.mjt.spotify.benchmark.SongSearchBenchmark [iterations]}
+ */
+public class SongSearchBenchmark {
+
+    private static final int[] CATALOG_SIZES = {1_000, 10_000, 100_000};
+    private static final String[] QUERIES = {"golden", "hans zimmer", "title 4242", "no such song", "e"};
+    private static final int DEFAULT_ITERATIONS = 200;
+    private static final double NANOS_PER_MICRO = 1_000.0;
+    private static final String INTERVAL_REGEX = " ";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IODatabaseException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+
+        System.out.printf("%-8s %-14s %8s %12s %12s %10s %14s %14s%n", "songs", "query", "found", "scan us",
+            "index us", "speedup", "scan B/op", "index B/op");
+
+        for (int catalogSize : CATALOG_SIZES) {
+            StreamingPlatform streamingPlatform = new StreamingPlatform(new StringReader("[]"), new StringWriter(),
+                new StringReader(ReplyCompressionBenchmark.generateCatalog(catalogSize)), new StringWriter());
+            Collection<SongEntity> songs = streamingPlatform.getSongs();
+
+            for (String query : QUERIES) {
+                List<SongEntity> scanned = scan(songs, query);
+                if (!scanned.equals(streamingPlatform.searchSongs(query))) {
+                    throw new IllegalStateException("The index and the scan disagree on \"" + query + "\".");
+                }
+
+                long[] scan = run(() -> scan(songs, query), iterations);
+                long[] index = run(() -> streamingPlatform.searchSongs(query), iterations);
+
+                System.out.printf("%-8d %-14s %8d %12.2f %12.2f %9.1fx %14d %14d%n", catalogSize, query,
+                    scanned.size(), scan[0] / NANOS_PER_MICRO / iterations, index[0] / NANOS_PER_MICRO / iterations,
+                    (double) scan[0] / Math.max(1, index[0]), scan[1] / iterations, index[1] / iterations);
+            }
+        }
+    }
+
+    /**
+     * The {@code search} as it was before the {@link SongIndex}.
+     */
+    private static List<SongEntity> scan(Collection<SongEntity> songs, String word) {
+        List<SongEntity> result = new ArrayList<>();
+        for (SongEntity currentSongEntity : songs) {
+            boolean contains = true;
+            for (String currentWord : word.split(INTERVAL_REGEX)) {
+                if (!currentSongEntity.getSong().getTitle().toLowerCase().contains(currentWord.toLowerCase()) &&
+                    !currentSongEntity.getSong().getArtist().toLowerCase().contains(currentWord.toLowerCase())) {
+                    contains = false;
+                    break;
+                }
+            }
+
+            if (contains) {
+                result.add(currentSongEntity);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Runs the search, first to warm it up, and returns the CPU time it took and the bytes it allocated.
+     */
+    private static long[] run(Supplier<List<SongEntity>> search, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            search.get();
+        }
+
+        long cpuBefore = THREADS.getCurrentThreadCpuTime();
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            search.get();
+        }
+
+        return new long[] {THREADS.getCurrentThreadCpuTime() - cpuBefore,
+            THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore};
+    }
+}
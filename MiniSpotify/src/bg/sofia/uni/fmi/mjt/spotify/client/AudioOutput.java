@@ -0,0 +1,24 @@
+package bg.sofia.uni.fmi.mjt.spotify.client;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * Where the client plays the audio streamed by the server.
+ */
+public interface AudioOutput {
+
+    void open(AudioFormat format) throws LineUnavailableException;
+
+    void write(byte[] data);
+
+    /**
+     * Plays whatever is still buffered and releases the output.
+     */
+    void finish();
+
+    /**
+     * Discards whatever is still buffered and releases the output.
+     */
+    void stop();
+}
@@ -0,0 +1,120 @@
+package bg.sofia.uni.fmi.mjt.spotify.client;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.AudioEnd;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.AudioHeader;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+
+import javax.sound.sampled.LineUnavailableException;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays the audio frames received from the server on an {@link AudioOutput}. The output is driven by a player
+ * thread of its own, so that a full output never delays the replies read from the same connection. A stopped stream
+ * drops whatever of it has not been played yet.
+ */
+public class AudioReceiver implements AutoCloseable {
+
+    private static final String PLAYER_THREAD_NAME = "spotify-audio-player";
+    private static final String UNABLE_TO_PLAY_MESSAGE = "Unable to play the song on this machine.";
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final AudioOutput audioOutput;
+    private final ExecutorService player;
+    private final AtomicInteger currentStream;
+    private boolean isOutputOpen;
+
+    public AudioReceiver(AudioOutput audioOutput) {
+        this.audioOutput = Objects.requireNonNull(audioOutput, "The audio output cannot be null.");
+        this.player = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, PLAYER_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.currentStream = new AtomicInteger(0);
+    }
+
+    /**
+     * Handles an {@code AUDIO_FORMAT}, {@code AUDIO_DATA} or {@code AUDIO_END} frame. Returns {@code false} for
+     * frames of any other type.
+     */
+    public boolean accept(Frame frame) {
+        switch (frame.type()) {
+            case AUDIO_FORMAT -> startStream(AudioHeader.parse(frame.text()));
+            case AUDIO_DATA -> play(frame.payload());
+            case AUDIO_END -> endStream(AudioEnd.parse(frame.text()));
+            default -> {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops the output and waits a while for the player thread to finish. An interrupted wait gives up on the
+     * player, which is a daemon thread, and leaves the thread interrupted for the caller to notice.
+     */
+    @Override
+    public void close() {
+        currentStream.incrementAndGet();
+        player.execute(this::stopOutput);
+        player.shutdown();
+        try {
+            player.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void startStream(AudioHeader header) {
+        int stream = currentStream.incrementAndGet();
+        player.execute(() -> {
+            stopOutput();
+            if (stream != currentStream.get()) {
+                return;
+            }
+
+            try {
+                audioOutput.open(header.toAudioFormat());
+                isOutputOpen = true;
+            } catch (LineUnavailableException | IllegalArgumentException e) {
+                System.out.println(UNABLE_TO_PLAY_MESSAGE);
+            }
+        });
+    }
+
+    private void play(byte[] data) {
+        int stream = currentStream.get();
+        player.execute(() -> {
+            if (isOutputOpen && stream == currentStream.get()) {
+                audioOutput.write(data);
+            }
+        });
+    }
+
+    private void endStream(AudioEnd end) {
+        if (end == AudioEnd.STOPPED) {
+            currentStream.incrementAndGet();
+            player.execute(this::stopOutput);
+            return;
+        }
+
+        player.execute(() -> {
+            if (isOutputOpen) {
+                isOutputOpen = false;
+                audioOutput.finish();
+            }
+        });
+    }
+
+    private void stopOutput() {
+        if (isOutputOpen) {
+            isOutputOpen = false;
+            audioOutput.stop();
+        }
+    }
+}
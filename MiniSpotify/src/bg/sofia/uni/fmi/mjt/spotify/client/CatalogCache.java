@@ -0,0 +1,52 @@
+package bg.sofia.uni.fmi.mjt.spotify.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the replies of the latest {@code search} and {@code top} commands with the catalog version each was
+ * rendered from, evicting the least recently used one once full. The version is sent along with a repeated command,
+ * so that the server only has to confirm that the cached reply is still current. Not thread-safe.
+ */
+public class CatalogCache {
+
+    private static final String NOT_POSITIVE_CAPACITY_MESSAGE = "The capacity of the cache must be positive.";
+
+    private final Map<String, CachedReply> replies;
+
+    public CatalogCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_CAPACITY_MESSAGE);
+        }
+
+        this.replies = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedReply> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached reply of the command, or {@code null} when there is none.
+     */
+    public CachedReply get(String command) {
+        Objects.requireNonNull(command, "The command cannot be null.");
+
+        return replies.get(command);
+    }
+
+    public void put(String command, long version, String reply) {
+        Objects.requireNonNull(command, "The command cannot be null.");
+        Objects.requireNonNull(reply, "The reply cannot be null.");
+
+        replies.put(command, new CachedReply(version, reply));
+    }
+
+    public int size() {
+        return replies.size();
+    }
+
+    public record CachedReply(long version, String reply) { }
+}
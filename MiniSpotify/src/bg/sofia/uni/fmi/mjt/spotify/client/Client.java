@@ -1,34 +1,79 @@
 package bg.sofia.uni.fmi.mjt.spotify.client;
 
 import bg.sofia.uni.fmi.mjt.spotify.server.ServerReply;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandName;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
 import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
-
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Capability;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.CatalogQuery;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.CatalogVersion;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Event;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCodec;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameReader;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Handshake;
+
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 public class Client {
     private static final int SERVER_PORT = 7600;
     private static final String SERVER_HOST = "localhost";
-    private static final int BUFFER_SIZE = 2048;
-    private static ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private static final FrameReader FRAME_READER = new FrameReader();
+    private static final int CATALOG_CACHE_CAPACITY = 64;
+    private static final CatalogCache CATALOG_CACHE = new CatalogCache(CATALOG_CACHE_CAPACITY);
+    private static final String INTERVAL_REGEX = " ";
 
     private static final String TO_SERVER_CONNECTED = "Connected to the server";
+    private static final String LISTENER_THREAD_NAME = "spotify-server-listener";
+    private static final String DATA_LISTENER_THREAD_NAME = "spotify-data-listener";
+    private static final String HEARTBEAT_THREAD_NAME = "spotify-heartbeat";
+    private static final long HEARTBEAT_INTERVAL_SECONDS = 20;
     private static final String CLIENT_PROMPT = "Enter command: ";
     private static final String NETWORK_COMMUNICATION_PROBLEM_MESSAGE =
         "Unable to connect to the server. Try again later or contact administrator";
+    private static final String CONNECTION_CLOSED_MESSAGE = "The server has closed the connection.";
+    private static final String TRACK_STARTED_MESSAGE = "Now playing: %s";
+    private static final String TRACK_FINISHED_MESSAGE = "Finished playing: %s";
+    private static final String PLAYLIST_FINISHED_MESSAGE = "Finished playing the playlist %s";
 
     public static void main(String[] args) {
 
-        try (SocketChannel socketChannel = SocketChannel.open(); Scanner scanner = new Scanner(System.in)) {
+        try (SocketChannel socketChannel = SocketChannel.open(); Scanner scanner = new Scanner(System.in);
+             AudioReceiver audioReceiver = new AudioReceiver(new LineAudioOutput())) {
             socketChannel.connect(new InetSocketAddress(SERVER_HOST, SERVER_PORT));
 
+            writeFrame(socketChannel, Handshake.current().toFrame());
+            Frame handshakeReply = readFrame(socketChannel, FRAME_READER);
+            if (handshakeReply.type() != FrameType.HANDSHAKE) {
+                System.out.println(handshakeReply.text());
+                return;
+            }
+
+            Handshake accepted = Handshake.parse(handshakeReply.text());
+            boolean versioningCatalog = accepted != null && accepted.hasCapability(Capability.CATALOG_VERSIONS);
             System.out.println(TO_SERVER_CONNECTED);
 
+            SocketChannel dataChannel = openDataChannel(socketChannel);
+            if (dataChannel != null) {
+                startListener(new ServerListener(dataChannel, new FrameReader(), audioReceiver),
+                    DATA_LISTENER_THREAD_NAME);
+            }
+
+            ServerListener serverListener = new ServerListener(socketChannel, FRAME_READER, audioReceiver,
+                Client::showEvent);
+            startListener(serverListener, LISTENER_THREAD_NAME);
+            startHeartbeat(socketChannel);
+
             while (true) {
 
                 System.out.print(CLIENT_PROMPT);
@@ -38,30 +83,144 @@ public class Client {
                     continue;
                 }
 
-                buffer.clear();
-                buffer.put(message.getBytes());
-                buffer.flip();
-                socketChannel.write(buffer);
-
-                buffer.clear();
-                socketChannel.read(buffer);
-                buffer.flip();
-
-                byte[] byteArray = new byte[buffer.remaining()];
-                buffer.get(byteArray);
-                String reply = new String(byteArray, StandardCharsets.UTF_8);
+                String reply;
+                if (versioningCatalog && CommandName.isCatalogQuery(message.split(INTERVAL_REGEX)[0])) {
+                    reply = queryCatalog(socketChannel, serverListener, message);
+                } else {
+                    writeFrame(socketChannel, Frame.of(FrameType.COMMAND, message));
+                    reply = serverListener.takeReply().text();
+                }
 
                 System.out.println(reply);
 
-                if (reply.equals(ServerReply.DISCONNECT_COMMAND_SUCCESSFULLY_REPLY.getReply())) {
+                if (reply.equals(ServerReply.DISCONNECT_COMMAND_SUCCESSFULLY_REPLY.getReply()) ||
+                    serverListener.isConnectionClosed()) {
                     break;
                 }
             }
 
-        } catch (IOException e) {
+        } catch (IOException | MalformedFrameException e) {
             SpotifyLogger spotifyLogger = new SpotifyLogger("SpotifyLogger.log");
             spotifyLogger.log(Level.SEVERE, NETWORK_COMMUNICATION_PROBLEM_MESSAGE, e);
             System.out.println(NETWORK_COMMUNICATION_PROBLEM_MESSAGE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends a {@code search} or {@code top} with the catalog version of its cached reply, if any. The server
+     * answers with a {@link FrameType#NOT_MODIFIED} frame while that reply is current, or with the current
+     * {@link CatalogVersion} followed by a fresh reply, which replaces the cached one.
+     */
+    private static String queryCatalog(SocketChannel socketChannel, ServerListener serverListener, String command)
+        throws IOException, MalformedFrameException, InterruptedException {
+        CatalogCache.CachedReply cached = CATALOG_CACHE.get(command);
+        long cachedVersion = cached == null ? CatalogQuery.NO_VERSION : cached.version();
+        writeFrame(socketChannel, new CatalogQuery(cachedVersion, command).toFrame());
+
+        Frame answer = serverListener.takeReply();
+        if (answer.type() == FrameType.NOT_MODIFIED && cached != null) {
+            return cached.reply();
+        }
+
+        if (answer.type() != FrameType.CATALOG_VERSION) {
+            return answer.text();
+        }
+
+        long version = CatalogVersion.parse(answer).version();
+        String reply = serverListener.takeReply().text();
+        if (!serverListener.isConnectionClosed()) {
+            CATALOG_CACHE.put(command, version, reply);
+        }
+
+        return reply;
+    }
+
+    /**
+     * Opens the connection audio is streamed on, so that large audio frames never delay command replies. Returns
+     * {@code null} when the server does not grant one, in which case audio arrives over the control connection.
+     */
+    private static SocketChannel openDataChannel(SocketChannel controlChannel)
+        throws IOException, MalformedFrameException {
+        writeFrame(controlChannel, new Frame(FrameType.DATA_CHANNEL, new byte[0]));
+        Frame token = readFrame(controlChannel, FRAME_READER);
+        if (token.type() != FrameType.DATA_CHANNEL) {
+            return null;
         }
+
+        SocketChannel dataChannel = SocketChannel.open(controlChannel.getRemoteAddress());
+        writeFrame(dataChannel, token);
+
+        Frame attachReply = readFrame(dataChannel, new FrameReader());
+        if (attachReply.type() != FrameType.DATA_CHANNEL) {
+            System.out.println(attachReply.text());
+            dataChannel.close();
+            return null;
+        }
+
+        return dataChannel;
+    }
+
+    /**
+     * Shows the event as soon as it arrives, even while the user is typing, and prompts again for the command.
+     */
+    private static void showEvent(Event event) {
+        String message = switch (event.type()) {
+            case TRACK_STARTED -> TRACK_STARTED_MESSAGE.formatted(event.subject());
+            case TRACK_FINISHED -> TRACK_FINISHED_MESSAGE.formatted(event.subject());
+            case PLAYLIST_FINISHED -> PLAYLIST_FINISHED_MESSAGE.formatted(event.subject());
+            case SESSION_EXPIRED -> event.subject();
+        };
+
+        System.out.print(System.lineSeparator() + message + System.lineSeparator() + CLIENT_PROMPT);
+        System.out.flush();
+    }
+
+    private static void startListener(ServerListener serverListener, String threadName) {
+        Thread listenerThread = new Thread(serverListener, threadName);
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    /**
+     * Keeps the connection alive while the user is not typing commands, so that the server does not take it for
+     * a dead one.
+     */
+    private static void startHeartbeat(SocketChannel socketChannel) {
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread heartbeatThread = new Thread(runnable, HEARTBEAT_THREAD_NAME);
+            heartbeatThread.setDaemon(true);
+            return heartbeatThread;
+        });
+
+        heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                writeFrame(socketChannel, new Frame(FrameType.HEARTBEAT, new byte[0]));
+            } catch (IOException e) {
+                heartbeat.shutdown();
+            }
+        }, HEARTBEAT_INTERVAL_SECONDS, HEARTBEAT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void writeFrame(SocketChannel socketChannel, Frame frame) throws IOException {
+        ByteBuffer encoded = FrameCodec.encode(frame);
+        synchronized (socketChannel) {
+            while (encoded.hasRemaining()) {
+                socketChannel.write(encoded);
+            }
+        }
+    }
+
+    private static Frame readFrame(SocketChannel socketChannel, FrameReader frameReader)
+        throws IOException, MalformedFrameException {
+        Frame frame;
+        while ((frame = frameReader.nextFrame()) == null) {
+            if (frameReader.readFrom(socketChannel) < 0) {
+                throw new EOFException(CONNECTION_CLOSED_MESSAGE);
+            }
+        }
+
+        return frame;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package bg.sofia.uni.fmi.mjt.spotify.client;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Plays the streamed audio on a {@link SourceDataLine} of the client machine.
+ */
+public class LineAudioOutput implements AudioOutput {
+
+    private static final int BUFFERED_SECONDS = 2;
+
+    private SourceDataLine line;
+
+    @Override
+    public void open(AudioFormat format) throws LineUnavailableException {
+        int bufferSize = Math.round(format.getFrameRate() * format.getFrameSize()) * BUFFERED_SECONDS;
+        SourceDataLine.Info info = new DataLine.Info(SourceDataLine.class, format, bufferSize);
+
+        line = (SourceDataLine) AudioSystem.getLine(info);
+        line.open(format, bufferSize);
+        line.start();
+    }
+
+    @Override
+    public void write(byte[] data) {
+        int offset = 0;
+        while (offset < data.length) {
+            offset += line.write(data, offset, data.length - offset);
+        }
+    }
+
+    @Override
+    public void finish() {
+        line.drain();
+        close();
+    }
+
+    @Override
+    public void stop() {
+        line.flush();
+        close();
+    }
+
+    private void close() {
+        line.stop();
+        line.close();
+        line = null;
+    }
+}
@@ -0,0 +1,121 @@
+package bg.sofia.uni.fmi.mjt.spotify.client;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Event;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCompression;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameReader;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Reconnect;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Reads every frame the server sends, handing replies to the thread waiting in {@link #takeReply()}, audio to the
+ * {@link AudioReceiver} and events to the event listener, so that a song can be streamed and its progress shown
+ * while the user keeps entering commands. Compressed replies are inflated on the way, so the waiting thread always
+ * gets plain ones.
+ */
+public class ServerListener implements Runnable {
+
+    private static final String CONNECTION_CLOSED_MESSAGE = "The server has closed the connection.";
+    private static final String SERVER_RESTARTING_MESSAGE = "The server is restarting. Please, reconnect in " +
+        "%d seconds.";
+
+    private final ReadableByteChannel channel;
+    private final FrameReader frameReader;
+    private final AudioReceiver audioReceiver;
+    private final Consumer<Event> eventListener;
+    private final BlockingQueue<Frame> replies;
+    private volatile boolean isConnectionClosed;
+    private String closingMessage;
+
+    public ServerListener(ReadableByteChannel channel, FrameReader frameReader, AudioReceiver audioReceiver) {
+        this(channel, frameReader, audioReceiver, event -> { });
+    }
+
+    /**
+     * The event listener is called on the listener's thread as soon as an event arrives, so it must not block.
+     */
+    public ServerListener(ReadableByteChannel channel, FrameReader frameReader, AudioReceiver audioReceiver,
+                          Consumer<Event> eventListener) {
+        this.channel = channel;
+        this.frameReader = frameReader;
+        this.audioReceiver = audioReceiver;
+        this.eventListener = eventListener;
+        this.replies = new LinkedBlockingQueue<>();
+        this.closingMessage = CONNECTION_CLOSED_MESSAGE;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Frame frame = frameReader.nextFrame();
+                if (frame == null) {
+                    if (frameReader.readFrom(channel) < 0) {
+                        break;
+                    }
+
+                    continue;
+                }
+
+                if (frame.type() == FrameType.RECONNECT) {
+                    rememberReconnectDelay(frame);
+                    continue;
+                }
+
+                if (frame.type() == FrameType.EVENT) {
+                    notifyEvent(frame);
+                    continue;
+                }
+
+                if (frame.type() == FrameType.COMPRESSED_REPLY) {
+                    frame = FrameCompression.inflate(frame);
+                }
+
+                if (!audioReceiver.accept(frame)) {
+                    replies.add(frame);
+                }
+            }
+        } catch (IOException | MalformedFrameException | IllegalArgumentException e) {
+            // The connection is unusable, the waiting thread is told below
+        }
+
+        isConnectionClosed = true;
+        replies.add(Frame.of(FrameType.REPLY, closingMessage));
+    }
+
+    /**
+     * A server which is shutting down says when to come back; that is what the user is told once the connection is
+     * closed.
+     */
+    private void rememberReconnectDelay(Frame frame) {
+        Reconnect reconnect = Reconnect.parse(frame.text());
+        if (reconnect != null) {
+            closingMessage = SERVER_RESTARTING_MESSAGE.formatted(reconnect.delay().toSeconds());
+        }
+    }
+
+    private void notifyEvent(Frame frame) {
+        Event event = Event.parse(frame.text());
+        if (event != null) {
+            eventListener.accept(event);
+        }
+    }
+
+    /**
+     * Waits for the next reply. Once the connection is closed a reply saying so is returned.
+     */
+    public Frame takeReply() throws InterruptedException {
+        return replies.take();
+    }
+
+    public boolean isConnectionClosed() {
+        return isConnectionClosed;
+    }
+}
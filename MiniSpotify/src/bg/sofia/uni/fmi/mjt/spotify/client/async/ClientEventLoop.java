@@ -0,0 +1,122 @@
+package bg.sofia.uni.fmi.mjt.spotify.client.async;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single thread which does all the I/O of a set of {@link SpotifyConnection}s over one selector. Other threads
+ * never touch a connection's channel or buffers; they hand work over through {@link #execute}, which the loop runs
+ * in submission order. Every connection also gets a heartbeat from here once it has been quiet for a while, so that
+ * the server does not take it for a dead one.
+ */
+class ClientEventLoop implements AutoCloseable {
+
+    private static final long HEARTBEAT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(20);
+    private static final long SELECT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final String CLOSED_MESSAGE = "The client has been closed.";
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks;
+    private final List<SpotifyConnection> connections;
+    private final Thread thread;
+    private volatile boolean isRunning;
+
+    ClientEventLoop(String threadName) throws IOException {
+        this.selector = Selector.open();
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.connections = new ArrayList<>();
+        this.isRunning = true;
+        this.thread = new Thread(this::run, threadName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Runs the task on the loop thread, after every task submitted before it. Safe to call from any thread.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    void add(SpotifyConnection connection) {
+        connections.add(connection);
+    }
+
+    void remove(SpotifyConnection connection) {
+        connections.remove(connection);
+    }
+
+    /**
+     * Stops the loop once the tasks already submitted have run, failing whatever is still in flight on the
+     * connections it drives.
+     */
+    @Override
+    public void close() {
+        isRunning = false;
+        selector.wakeup();
+
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        try (selector) {
+            while (isRunning) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+
+                runTasks();
+                processSelectedKeys();
+                sendHeartbeats(System.nanoTime());
+            }
+
+            runTasks();
+            for (SpotifyConnection currentConnection : List.copyOf(connections)) {
+                currentConnection.closeWith(new IOException(CLOSED_MESSAGE));
+            }
+        } catch (IOException e) {
+            for (SpotifyConnection currentConnection : List.copyOf(connections)) {
+                currentConnection.closeWith(e);
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+
+            ((SpotifyConnection) key.attachment()).process(key);
+        }
+    }
+
+    private void sendHeartbeats(long now) {
+        for (SpotifyConnection currentConnection : List.copyOf(connections)) {
+            currentConnection.sendHeartbeatIfIdle(now, HEARTBEAT_INTERVAL_NANOS);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package bg.sofia.uni.fmi.mjt.spotify.client.async;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Capability;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCodec;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCompression;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameReader;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Handshake;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Request;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Response;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A non-blocking connection to the server on which any number of commands can be in flight at once. Each command
+ * is sent as a {@link Request} with an id of its own and its future completes when the {@link Response} with that
+ * id arrives. The server still runs the commands of a connection one after another and answers them in order, so
+ * matching responses by id only readies the client for a server which answers out of order. A server which does
+ * not agree on {@link Capability#REQUEST_IDS} gets plain commands instead, and the replies complete the futures in
+ * the order the commands were sent.
+ *
+ * <p>The session of the server belongs to the connection: after a {@code login} sent over it, the later commands
+ * sent over it run as the logged-in user. The futures are completed on the thread doing the I/O of the connection,
+ * so the stages depending on them must not block, or must run on an executor of their own through the
+ * {@code *Async} methods of {@link CompletableFuture}.
+ */
+public class SpotifyConnection implements AutoCloseable {
+
+    private static final String EVENT_LOOP_THREAD_NAME = "spotify-connection-io";
+    private static final Handshake HANDSHAKE = new Handshake(Handshake.CURRENT_VERSION,
+        EnumSet.of(Capability.REQUEST_IDS, Capability.DEFLATE));
+    private static final Frame HEARTBEAT_FRAME = new Frame(FrameType.HEARTBEAT, new byte[0]);
+    private static final String CLOSED_MESSAGE = "The connection is closed.";
+    private static final String CLOSED_BY_SERVER_MESSAGE = "The server has closed the connection.";
+    private static final String SERVER_RESTARTING_MESSAGE = "The server is shutting down.";
+
+    private final SocketChannel channel;
+    private final InetSocketAddress address;
+    private final ClientEventLoop eventLoop;
+    private final boolean ownsEventLoop;
+    private final FrameReader frameReader;
+    private final Queue<ByteBuffer> outbound;
+    private final Map<Integer, CompletableFuture<String>> pendingRequests;
+    private final Queue<CompletableFuture<String>> pendingReplies;
+    private final CompletableFuture<SpotifyConnection> opened;
+    private final AtomicInteger commandsInFlight;
+    private SelectionKey key;
+    private int nextRequestId;
+    private boolean usingRequestIds;
+    private long lastWriteNanos;
+    private volatile boolean isClosed;
+
+    private SpotifyConnection(SocketChannel channel, InetSocketAddress address, ClientEventLoop eventLoop,
+                              boolean ownsEventLoop) {
+        this.channel = channel;
+        this.address = address;
+        this.eventLoop = eventLoop;
+        this.ownsEventLoop = ownsEventLoop;
+        this.frameReader = new FrameReader();
+        this.outbound = new ArrayDeque<>();
+        this.pendingRequests = new HashMap<>();
+        this.pendingReplies = new ArrayDeque<>();
+        this.opened = new CompletableFuture<>();
+        this.commandsInFlight = new AtomicInteger(0);
+    }
+
+    /**
+     * Connects to the server with an I/O thread of the connection's own. The future completes once the server has
+     * accepted the handshake.
+     */
+    public static CompletableFuture<SpotifyConnection> open(InetSocketAddress address) {
+        try {
+            return open(address, new ClientEventLoop(EVENT_LOOP_THREAD_NAME), true);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    static CompletableFuture<SpotifyConnection> open(InetSocketAddress address, ClientEventLoop eventLoop,
+                                                     boolean ownsEventLoop) {
+        Objects.requireNonNull(address, "The address of the server cannot be null.");
+
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            if (ownsEventLoop) {
+                eventLoop.close();
+            }
+            return CompletableFuture.failedFuture(e);
+        }
+
+        SpotifyConnection connection = new SpotifyConnection(channel, address, eventLoop, ownsEventLoop);
+        eventLoop.execute(connection::connect);
+        return connection.opened;
+    }
+
+    /**
+     * Sends the command and returns the future of its reply. Safe to call from any thread, any number of times
+     * without waiting for the replies. The future fails with an {@link IOException} when the connection is closed
+     * before the reply arrives.
+     */
+    public CompletableFuture<String> send(String command) {
+        Objects.requireNonNull(command, "The command cannot be null.");
+
+        if (isClosed) {
+            return CompletableFuture.failedFuture(new IOException(CLOSED_MESSAGE));
+        }
+
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        commandsInFlight.incrementAndGet();
+        reply.whenComplete((text, failure) -> commandsInFlight.decrementAndGet());
+
+        eventLoop.execute(() -> submit(command, reply));
+        return reply;
+    }
+
+    /**
+     * Returns the number of commands sent which have not been answered yet.
+     */
+    public int getCommandsInFlight() {
+        return commandsInFlight.get();
+    }
+
+    public boolean isOpen() {
+        return !isClosed;
+    }
+
+    /**
+     * Closes the connection, failing the futures of the commands still in flight.
+     */
+    @Override
+    public void close() {
+        eventLoop.execute(() -> closeWith(new IOException(CLOSED_MESSAGE)));
+
+        if (ownsEventLoop) {
+            eventLoop.close();
+        }
+    }
+
+    void process(SelectionKey selectedKey) {
+        try {
+            if (selectedKey.isValid() && selectedKey.isConnectable()) {
+                channel.finishConnect();
+                selectedKey.interestOps(SelectionKey.OP_READ);
+                write(HANDSHAKE.toFrame());
+            }
+
+            if (selectedKey.isValid() && selectedKey.isWritable()) {
+                flush();
+            }
+
+            if (selectedKey.isValid() && selectedKey.isReadable()) {
+                read();
+            }
+        } catch (IOException e) {
+            closeWith(e);
+        } catch (MalformedFrameException e) {
+            closeWith(new IOException(e.getMessage(), e));
+        }
+    }
+
+    void sendHeartbeatIfIdle(long now, long intervalNanos) {
+        if (opened.isDone() && !isClosed && now - lastWriteNanos >= intervalNanos) {
+            try {
+                write(HEARTBEAT_FRAME);
+            } catch (IOException e) {
+                closeWith(e);
+            }
+        }
+    }
+
+    /**
+     * Fails everything still waiting on the connection and closes it. Runs on the loop thread only.
+     */
+    void closeWith(IOException cause) {
+        if (isClosed) {
+            return;
+        }
+
+        isClosed = true;
+        eventLoop.remove(this);
+        if (key != null) {
+            key.cancel();
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+
+        opened.completeExceptionally(cause);
+        pendingRequests.values().forEach(reply -> reply.completeExceptionally(cause));
+        pendingRequests.clear();
+        pendingReplies.forEach(reply -> reply.completeExceptionally(cause));
+        pendingReplies.clear();
+
+        if (ownsEventLoop) {
+            eventLoop.close();
+        }
+    }
+
+    private void connect() {
+        try {
+            eventLoop.add(this);
+            boolean isConnected = channel.connect(address);
+            key = channel.register(eventLoop.getSelector(),
+                isConnected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+
+            if (isConnected) {
+                write(HANDSHAKE.toFrame());
+            }
+        } catch (IOException e) {
+            closeWith(e);
+        }
+    }
+
+    private void submit(String command, CompletableFuture<String> reply) {
+        if (isClosed) {
+            reply.completeExceptionally(new IOException(CLOSED_MESSAGE));
+            return;
+        }
+
+        try {
+            if (usingRequestIds) {
+                int requestId = nextRequestId++;
+                pendingRequests.put(requestId, reply);
+                write(new Request(requestId, command).toFrame());
+            } else {
+                pendingReplies.add(reply);
+                write(Frame.of(FrameType.COMMAND, command));
+            }
+        } catch (IOException e) {
+            closeWith(e);
+        }
+    }
+
+    private void read() throws IOException, MalformedFrameException {
+        if (frameReader.readFrom(channel) < 0) {
+            closeWith(new EOFException(CLOSED_BY_SERVER_MESSAGE));
+            return;
+        }
+
+        Frame frame;
+        while (!isClosed && (frame = frameReader.nextFrame()) != null) {
+            if (!opened.isDone()) {
+                processHandshakeReply(frame);
+                continue;
+            }
+
+            switch (frame.type()) {
+                case RESPONSE, COMPRESSED_RESPONSE -> processResponse(Response.parse(frame));
+                case REPLY, COMPRESSED_REPLY -> processReply(frame);
+                case RECONNECT -> closeWith(new IOException(SERVER_RESTARTING_MESSAGE));
+                default -> {
+                    // Audio, events and heartbeats are not answers to commands
+                }
+            }
+        }
+    }
+
+    private void processHandshakeReply(Frame frame) {
+        if (frame.type() != FrameType.HANDSHAKE) {
+            closeWith(new IOException(frame.text()));
+            return;
+        }
+
+        Handshake accepted = Handshake.parse(frame.text());
+        usingRequestIds = accepted != null && accepted.hasCapability(Capability.REQUEST_IDS);
+        opened.complete(this);
+    }
+
+    private void processResponse(Response response) throws MalformedFrameException {
+        CompletableFuture<String> reply = pendingRequests.remove(response.requestId());
+        if (reply != null) {
+            reply.complete(textOf(response.reply()));
+        }
+    }
+
+    /**
+     * A plain reply answers the oldest command sent without an id. When requests carry ids, a plain reply is one
+     * the server sends on its own, like the notice of an expired session, and there is nobody to hand it to.
+     */
+    private void processReply(Frame frame) throws MalformedFrameException {
+        CompletableFuture<String> reply = pendingReplies.poll();
+        if (reply != null) {
+            reply.complete(textOf(frame));
+        }
+    }
+
+    private void write(Frame frame) throws IOException {
+        outbound.add(FrameCodec.encode(frame));
+        lastWriteNanos = System.nanoTime();
+        flush();
+    }
+
+    private void flush() throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = outbound.peek()) != null) {
+            channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                break;
+            }
+            outbound.poll();
+        }
+
+        if (key != null && key.isValid()) {
+            key.interestOps(outbound.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private static String textOf(Frame reply) throws MalformedFrameException {
+        return reply.type() == FrameType.COMPRESSED_REPLY ? FrameCompression.inflate(reply).text() : reply.text();
+    }
+}
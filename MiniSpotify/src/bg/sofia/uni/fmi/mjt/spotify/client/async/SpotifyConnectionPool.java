@@ -0,0 +1,100 @@
+package bg.sofia.uni.fmi.mjt.spotify.client.async;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A few {@link SpotifyConnection}s to the same server sharing one I/O thread. Each command goes over the open
+ * connection with the fewest commands in flight, so one large reply does not hold up the commands behind it.
+ * Consecutive commands may go over different connections, and so run in different sessions: the pool is meant for
+ * the commands which need no login, like {@code search} and {@code top}. A connection the server closes is left
+ * out of the pool; once every connection is closed, sending fails.
+ */
+public class SpotifyConnectionPool implements AutoCloseable {
+
+    private static final String EVENT_LOOP_THREAD_NAME = "spotify-pool-io";
+    private static final String NOT_POSITIVE_SIZE_MESSAGE = "The size of the pool must be positive.";
+    private static final String NO_OPEN_CONNECTION_MESSAGE = "None of the connections of the pool is open.";
+
+    private final ClientEventLoop eventLoop;
+    private final List<SpotifyConnection> connections;
+
+    private SpotifyConnectionPool(ClientEventLoop eventLoop, List<SpotifyConnection> connections) {
+        this.eventLoop = eventLoop;
+        this.connections = List.copyOf(connections);
+    }
+
+    /**
+     * Opens the given number of connections to the server. The future completes once every one of them has been
+     * accepted, or fails, with every connection closed, as soon as one of them fails.
+     */
+    public static CompletableFuture<SpotifyConnectionPool> open(InetSocketAddress address, int size) {
+        Objects.requireNonNull(address, "The address of the server cannot be null.");
+
+        if (size <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_SIZE_MESSAGE);
+        }
+
+        ClientEventLoop eventLoop;
+        try {
+            eventLoop = new ClientEventLoop(EVENT_LOOP_THREAD_NAME);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        List<CompletableFuture<SpotifyConnection>> opening = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            opening.add(SpotifyConnection.open(address, eventLoop, false));
+        }
+
+        return CompletableFuture.allOf(opening.toArray(new CompletableFuture<?>[0]))
+            .whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    eventLoop.close();
+                }
+            })
+            .thenApply(ignored -> new SpotifyConnectionPool(eventLoop,
+                opening.stream().map(CompletableFuture::join).toList()));
+    }
+
+    /**
+     * Sends the command over the least busy open connection and returns the future of its reply.
+     */
+    public CompletableFuture<String> send(String command) {
+        Objects.requireNonNull(command, "The command cannot be null.");
+
+        SpotifyConnection leastBusy = null;
+        for (SpotifyConnection currentConnection : connections) {
+            if (currentConnection.isOpen() && (leastBusy == null ||
+                currentConnection.getCommandsInFlight() < leastBusy.getCommandsInFlight())) {
+                leastBusy = currentConnection;
+            }
+        }
+
+        if (leastBusy == null) {
+            return CompletableFuture.failedFuture(new IOException(NO_OPEN_CONNECTION_MESSAGE));
+        }
+
+        return leastBusy.send(command);
+    }
+
+    public int getOpenConnections() {
+        return (int) connections.stream().filter(SpotifyConnection::isOpen).count();
+    }
+
+    /**
+     * Closes every connection, failing the commands still in flight, and stops the I/O thread.
+     */
+    @Override
+    public void close() {
+        for (SpotifyConnection currentConnection : connections) {
+            currentConnection.close();
+        }
+
+        eventLoop.close();
+    }
+}
@@ -0,0 +1,136 @@
+package bg.sofia.uni.fmi.mjt.spotify.loadtest;
+
+import java.util.Objects;
+
+/**
+ * Counts latencies in buckets laid out like an HDR histogram: values below {@code 2 * SUB_BUCKET_HALF} have a
+ * bucket each and every further power of two is split into {@code SUB_BUCKET_HALF} equal buckets. The error of a
+ * reported percentile is therefore below one part in {@code SUB_BUCKET_HALF} whatever the magnitude, with a fixed
+ * number of buckets and no allocation per recorded value. Values above the highest trackable one are counted in the
+ * last bucket, but the maximum is kept exactly.
+ *
+ * <p>The histogram does not care about the unit of the values. It is not thread-safe; each load generator worker
+ * keeps its own and they are merged at the end.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKET_HALF << 1;
+    private static final double PERCENT = 100.0;
+
+    private static final String NOT_POSITIVE_HIGHEST_VALUE_MESSAGE = "The highest trackable value must be positive.";
+    private static final String NEGATIVE_VALUE_MESSAGE = "The recorded value cannot be negative.";
+    private static final String INVALID_PERCENTILE_MESSAGE = "The percentile must be between 0 and 100.";
+    private static final String DIFFERENT_LAYOUT_MESSAGE = "Only histograms with the same highest trackable value " +
+        "can be merged.";
+
+    private final long highestTrackableValue;
+    private final long[] counts;
+    private long totalCount;
+    private long totalValue;
+    private long minValue;
+    private long maxValue;
+
+    public LatencyHistogram(long highestTrackableValue) {
+        if (highestTrackableValue <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_HIGHEST_VALUE_MESSAGE);
+        }
+
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new long[indexOf(highestTrackableValue) + 1];
+        this.minValue = Long.MAX_VALUE;
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(NEGATIVE_VALUE_MESSAGE);
+        }
+
+        counts[indexOf(Math.min(value, highestTrackableValue))]++;
+        totalCount++;
+        totalValue += value;
+        minValue = Math.min(minValue, value);
+        maxValue = Math.max(maxValue, value);
+    }
+
+    /**
+     * Adds the values recorded by the other histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        Objects.requireNonNull(other, "The histogram to add cannot be null.");
+
+        if (other.highestTrackableValue != highestTrackableValue) {
+            throw new IllegalArgumentException(DIFFERENT_LAYOUT_MESSAGE);
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        totalCount += other.totalCount;
+        totalValue += other.totalValue;
+        minValue = Math.min(minValue, other.minValue);
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    /**
+     * Returns the smallest value which the given percentage of the recorded values do not exceed, rounded up to the
+     * end of its bucket, as an HDR histogram reports it, but never above the largest recorded value.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > PERCENT) {
+            throw new IllegalArgumentException(INVALID_PERCENTILE_MESSAGE);
+        }
+
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / PERCENT * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), maxValue);
+            }
+        }
+
+        return maxValue;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMinValue() {
+        return totalCount == 0 ? 0 : minValue;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) totalValue / totalCount;
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_HALF + (int) (value >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_HALF + 1;
+        long lowest = (long) ((index - LINEAR_LIMIT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
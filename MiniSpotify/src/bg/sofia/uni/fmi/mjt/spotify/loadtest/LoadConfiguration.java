@@ -0,0 +1,186 @@
+package bg.sofia.uni.fmi.mjt.spotify.loadtest;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public class LoadConfiguration {
+
+    private static final String DEFAULT_HOST = "localhost";
+    private static final int DEFAULT_PORT = 7600;
+    private static final int DEFAULT_CONNECTIONS = 1000;
+    private static final Duration DEFAULT_WARMUP = Duration.ofSeconds(5);
+    private static final Duration DEFAULT_DURATION = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_THINK_TIME = Duration.ofMillis(100);
+    private static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final String NEGATIVE_PORT_MESSAGE = "The port cannot be negative.";
+    private static final String NOT_POSITIVE_CONNECTIONS_MESSAGE = "The number of connections must be positive.";
+    private static final String NOT_POSITIVE_WORKER_COUNT_MESSAGE = "The number of workers must be positive.";
+    private static final String NEGATIVE_DURATION_MESSAGE = "The %s cannot be negative.";
+    private static final String NOT_POSITIVE_DURATION_MESSAGE = "The %s must be positive.";
+
+    private String host;
+    private int port;
+    private int connections;
+    private int workerCount;
+    private Duration warmup;
+    private Duration duration;
+    private Duration thinkTime;
+    private Duration drainTimeout;
+    private LoadScript script;
+    private long seed;
+
+    public LoadConfiguration() {
+        this.host = DEFAULT_HOST;
+        this.port = DEFAULT_PORT;
+        this.connections = DEFAULT_CONNECTIONS;
+        this.workerCount = Runtime.getRuntime().availableProcessors();
+        this.warmup = DEFAULT_WARMUP;
+        this.duration = DEFAULT_DURATION;
+        this.thinkTime = DEFAULT_THINK_TIME;
+        this.drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+        this.script = LoadScript.defaultScript();
+        this.seed = System.nanoTime();
+    }
+
+    public LoadConfiguration host(String host) {
+        this.host = Objects.requireNonNull(host, "The host cannot be null.");
+        return this;
+    }
+
+    public LoadConfiguration port(int port) {
+        if (port < 0) {
+            throw new IllegalArgumentException(NEGATIVE_PORT_MESSAGE);
+        }
+
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * The number of simulated users, each with a connection of its own.
+     */
+    public LoadConfiguration connections(int connections) {
+        if (connections <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_CONNECTIONS_MESSAGE);
+        }
+
+        this.connections = connections;
+        return this;
+    }
+
+    /**
+     * The number of threads the connections are spread across, each running a selector over its share.
+     */
+    public LoadConfiguration workerCount(int workerCount) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_WORKER_COUNT_MESSAGE);
+        }
+
+        this.workerCount = workerCount;
+        return this;
+    }
+
+    /**
+     * How long the users send commands before latencies start being recorded, so that the report does not include
+     * connecting, the setup commands or the warm-up of either side.
+     */
+    public LoadConfiguration warmup(Duration warmup) {
+        this.warmup = requireNotNegative(warmup, "warm-up");
+        return this;
+    }
+
+    /**
+     * How long latencies are recorded for after the warm-up.
+     */
+    public LoadConfiguration duration(Duration duration) {
+        Objects.requireNonNull(duration, "The duration cannot be null.");
+
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException(NOT_POSITIVE_DURATION_MESSAGE.formatted("duration"));
+        }
+
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * How long each user waits after a reply before it sends its next command. Every user has at most one command
+     * in flight, so this bounds the rate each connection offers; the server throttles users which are too fast.
+     */
+    public LoadConfiguration thinkTime(Duration thinkTime) {
+        this.thinkTime = requireNotNegative(thinkTime, "think time");
+        return this;
+    }
+
+    /**
+     * How long to wait for the replies to the commands in flight when the run is over.
+     */
+    public LoadConfiguration drainTimeout(Duration drainTimeout) {
+        this.drainTimeout = requireNotNegative(drainTimeout, "drain timeout");
+        return this;
+    }
+
+    public LoadConfiguration script(LoadScript script) {
+        this.script = Objects.requireNonNull(script, "The script cannot be null.");
+        return this;
+    }
+
+    /**
+     * The seed the commands are drawn with, so that a run can be repeated with the same sequence of commands.
+     */
+    public LoadConfiguration seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getThinkTime() {
+        return thinkTime;
+    }
+
+    public Duration getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    public LoadScript getScript() {
+        return script;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    private static Duration requireNotNegative(Duration duration, String name) {
+        Objects.requireNonNull(duration, "The " + name + " cannot be null.");
+
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException(NEGATIVE_DURATION_MESSAGE.formatted(name));
+        }
+
+        return duration;
+    }
+}
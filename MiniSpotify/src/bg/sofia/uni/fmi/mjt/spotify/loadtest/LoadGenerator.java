@@ -0,0 +1,140 @@
+package bg.sofia.uni.fmi.mjt.spotify.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts a running server under the load of many users at once. Each simulated user opens a non-blocking connection,
+ * shakes hands, runs the setup commands of the {@link LoadScript} and then keeps sending commands drawn from it,
+ * one at a time with a think time in between. The users are spread across a few worker threads, each with a
+ * selector of its own, so thousands of connections need only a handful of threads.
+ *
+ * <p>The latency of every command sent after the warm-up is recorded per command in a {@link LatencyHistogram} and
+ * the outcome is returned as a {@link LoadReport}. Users wait for each reply before sending again, so when the
+ * server slows down they send less; the throughput shows it, but the latencies do not include the commands which
+ * were never sent.
+ *
+ * <p>Run against a server started separately:
+ * {@code java -cp <classes> bg.sofia.uni.fmi.mjt.spotify.loadtest.LoadGenerator
+ * [connections] [duration-seconds] [script-file] [report-file]}
+ */
+public class LoadGenerator {
+
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private static final String WORKER_THREAD_NAME = "load-worker-";
+    private static final String DEFAULT_REPORT_FILE = "load-report.json";
+    private static final String DEFAULT_SCRIPT_FILE = "-";
+    private static final String SUMMARY_HEADER_FORMAT = "%-16s %10s %10s %10s %10s %10s %10s %10s%n";
+    private static final String SUMMARY_LINE_FORMAT = "%-16s %10d %10d %10.1f %10d %10d %10d %10d%n";
+    private static final String REPORT_WRITTEN_MESSAGE = "The report was written to %s%n";
+
+    private final LoadConfiguration configuration;
+
+    public LoadGenerator(LoadConfiguration configuration) {
+        this.configuration = Objects.requireNonNull(configuration, "The configuration cannot be null.");
+    }
+
+    /**
+     * Runs the load for the warm-up and the duration of the configuration and returns the report once every
+     * connection has been closed.
+     */
+    public LoadReport run() throws IOException, InterruptedException {
+        long measureFrom = System.nanoTime() + configuration.getWarmup().toNanos();
+        long measureUntil = measureFrom + configuration.getDuration().toNanos();
+
+        List<LoadWorker> workers = new ArrayList<>();
+        int workerCount = Math.min(configuration.getWorkerCount(), configuration.getConnections());
+        for (int i = 0; i < workerCount; i++) {
+            List<Integer> userIds = new ArrayList<>();
+            for (int currentId = i; currentId < configuration.getConnections(); currentId += workerCount) {
+                userIds.add(currentId);
+            }
+
+            workers.add(new LoadWorker(configuration, userIds, configuration.getSeed() + i, measureFrom,
+                measureUntil));
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < workers.size(); i++) {
+            Thread workerThread = new Thread(workers.get(i), WORKER_THREAD_NAME + i);
+            threads.add(workerThread);
+            workerThread.start();
+        }
+
+        for (Thread currentThread : threads) {
+            currentThread.join();
+        }
+
+        return merge(workers);
+    }
+
+    private LoadReport merge(List<LoadWorker> workers) throws IOException {
+        Map<String, LatencyHistogram> histograms = new HashMap<>();
+        Map<String, Long> throttled = new HashMap<>();
+        long connectionFailures = 0;
+        long disconnects = 0;
+        long unanswered = 0;
+
+        for (LoadWorker currentWorker : workers) {
+            if (currentWorker.getFailure() != null) {
+                throw currentWorker.getFailure();
+            }
+
+            currentWorker.getHistograms().forEach((command, histogram) ->
+                histograms.computeIfAbsent(command, name -> new LatencyHistogram(HIGHEST_TRACKABLE_MICROS))
+                    .add(histogram));
+            currentWorker.getThrottled().forEach((command, count) -> throttled.merge(command, count, Long::sum));
+
+            connectionFailures += currentWorker.getConnectionFailures();
+            disconnects += currentWorker.getDisconnects();
+            unanswered += currentWorker.getUnanswered();
+        }
+
+        return LoadReport.of(configuration, histograms, throttled, connectionFailures, disconnects, unanswered);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadConfiguration configuration = new LoadConfiguration();
+        if (args.length > 0) {
+            configuration.connections(Integer.parseInt(args[0]));
+        }
+        if (args.length > 1) {
+            configuration.duration(Duration.ofSeconds(Long.parseLong(args[1])));
+        }
+        if (args.length > 2 && !args[2].equals(DEFAULT_SCRIPT_FILE)) {
+            try (Reader reader = Files.newBufferedReader(Path.of(args[2]), StandardCharsets.UTF_8)) {
+                configuration.script(LoadScript.parse(reader));
+            }
+        }
+        Path reportPath = Path.of(args.length > 3 ? args[3] : DEFAULT_REPORT_FILE);
+
+        LoadReport report = new LoadGenerator(configuration).run();
+        printSummary(report);
+        report.writeTo(reportPath);
+        System.out.printf(REPORT_WRITTEN_MESSAGE, reportPath);
+    }
+
+    private static void printSummary(LoadReport report) {
+        System.out.printf(SUMMARY_HEADER_FORMAT, "command", "count", "throttled", "per sec", "p50 us", "p99 us",
+            "p999 us", "max us");
+
+        List<LoadReport.CommandStatistics> lines = new ArrayList<>(report.commands().values());
+        lines.add(report.total());
+        for (LoadReport.CommandStatistics currentLine : lines) {
+            System.out.printf(SUMMARY_LINE_FORMAT, currentLine.command(), currentLine.count(),
+                currentLine.throttled(), currentLine.throughput(), currentLine.p50Micros(), currentLine.p99Micros(),
+                currentLine.p999Micros(), currentLine.maxMicros());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package bg.sofia.uni.fmi.mjt.spotify.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The outcome of a load run. It is written as JSON with the commands in alphabetical order and the latencies in
+ * microseconds, so that the reports of two releases can be compared with a plain diff.
+ */
+public record LoadReport(int connections, int workers, long seed, double warmupSeconds, double durationSeconds,
+                         long connectionFailures, long disconnects, long unanswered, CommandStatistics total,
+                         SortedMap<String, CommandStatistics> commands) {
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final long NANOS_PER_MICRO = 1_000;
+    private static final String TOTAL_NAME = "total";
+
+    public LoadReport {
+        Objects.requireNonNull(total, "The total statistics cannot be null.");
+        Objects.requireNonNull(commands, "The statistics of the commands cannot be null.");
+
+        commands = new TreeMap<>(commands);
+    }
+
+    /**
+     * The latencies of one command, or of all of them, over the measured part of the run. The throughput is the
+     * number of replies per second.
+     */
+    public record CommandStatistics(String command, long count, long throttled, double throughput, long minMicros,
+                                    double meanMicros, long p50Micros, long p90Micros, long p99Micros,
+                                    long p999Micros, long maxMicros) {
+
+        static CommandStatistics of(String command, LatencyHistogram histogram, long throttled, double seconds) {
+            return new CommandStatistics(command, histogram.getTotalCount(), throttled,
+                histogram.getTotalCount() / seconds, histogram.getMinValue(), histogram.getMean(),
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9),
+                histogram.getMaxValue());
+        }
+    }
+
+    static LoadReport of(LoadConfiguration configuration, Map<String, LatencyHistogram> histograms,
+                         Map<String, Long> throttled, long connectionFailures, long disconnects, long unanswered) {
+        double seconds = seconds(configuration.getDuration());
+
+        LatencyHistogram all = new LatencyHistogram(LoadGenerator.HIGHEST_TRACKABLE_MICROS);
+        SortedMap<String, CommandStatistics> commands = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            all.add(entry.getValue());
+            commands.put(entry.getKey(), CommandStatistics.of(entry.getKey(), entry.getValue(),
+                throttled.getOrDefault(entry.getKey(), 0L), seconds));
+        }
+
+        long allThrottled = throttled.values().stream().mapToLong(Long::longValue).sum();
+
+        return new LoadReport(configuration.getConnections(), configuration.getWorkerCount(),
+            configuration.getSeed(), seconds(configuration.getWarmup()), seconds, connectionFailures, disconnects,
+            unanswered, CommandStatistics.of(TOTAL_NAME, all, allThrottled, seconds), commands);
+    }
+
+    public String toJson() {
+        return GSON.toJson(this);
+    }
+
+    public void writeTo(Path path) throws IOException {
+        Objects.requireNonNull(path, "The path of the report cannot be null.");
+
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            GSON.toJson(this, writer);
+        }
+    }
+
+    static long toMicros(long nanos) {
+        return nanos / NANOS_PER_MICRO;
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toNanos() / (double) Duration.ofSeconds(1).toNanos();
+    }
+}
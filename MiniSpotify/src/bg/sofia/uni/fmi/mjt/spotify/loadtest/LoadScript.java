@@ -0,0 +1,164 @@
+package bg.sofia.uni.fmi.mjt.spotify.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+/**
+ * What every simulated user sends. A script has one command per line: lines starting with {@code setup} are sent
+ * once, in order, right after the handshake, and every other line starts with a positive weight and is drawn at
+ * random in proportion to it for the rest of the run. Blank lines and lines starting with {@code #} are skipped.
+ * In every command {@code {user}} is replaced by the number of the simulated user and {@code {iteration}} by the
+ * number of commands it has sent so far, so that each user can register and fill its own playlists:
+ *
+ * <pre>
+ * setup register load{user}@loadtest.com secret
+ * setup login load{user}@loadtest.com secret
+ * 40 search Crown
+ * 10 top 10
+ * </pre>
+ */
+public class LoadScript {
+
+    private static final String SETUP_KEYWORD = "setup";
+    private static final String COMMENT_PREFIX = "#";
+    private static final String USER_PLACEHOLDER = "{user}";
+    private static final String ITERATION_PLACEHOLDER = "{iteration}";
+    private static final String SEPARATOR = " ";
+
+    private static final String DEFAULT_SCRIPT = """
+        setup register load{user}@loadtest.com password{user}
+        setup login load{user}@loadtest.com password{user}
+        setup create-playlist load-{user}
+        40 search Crown
+        20 top 10
+        10 create-playlist load-{user}-{iteration}
+        15 add-song-to load-{user} No Time To Die
+        10 play Vivaldi Variation
+        5 stop
+        """;
+
+    private static final String INVALID_LINE_MESSAGE = "Line %d of the script must be a setup command or " +
+        "a positive weight followed by a command: %s";
+    private static final String NO_WEIGHTED_COMMANDS_MESSAGE = "The script must have at least one weighted command.";
+
+    private final List<String> setupCommands;
+    private final List<String> commands;
+    private final long[] cumulativeWeights;
+
+    private LoadScript(List<String> setupCommands, List<String> commands, List<Long> weights) {
+        if (commands.isEmpty()) {
+            throw new IllegalArgumentException(NO_WEIGHTED_COMMANDS_MESSAGE);
+        }
+
+        this.setupCommands = List.copyOf(setupCommands);
+        this.commands = List.copyOf(commands);
+        this.cumulativeWeights = new long[weights.size()];
+
+        long total = 0;
+        for (int i = 0; i < weights.size(); i++) {
+            total += weights.get(i);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Returns a mix of the commands a listener sends most: searching, browsing the top songs, building playlists
+     * and playing songs from the catalog which ships with the server.
+     */
+    public static LoadScript defaultScript() {
+        return parse(new StringReader(DEFAULT_SCRIPT));
+    }
+
+    public static LoadScript parse(Reader reader) {
+        Objects.requireNonNull(reader, "The reader of the script cannot be null.");
+
+        List<String> setupCommands = new ArrayList<>();
+        List<String> commands = new ArrayList<>();
+        List<Long> weights = new ArrayList<>();
+
+        try (BufferedReader bufferedReader = new BufferedReader(reader)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = bufferedReader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith(COMMENT_PREFIX)) {
+                    continue;
+                }
+
+                int separator = line.indexOf(SEPARATOR);
+                String rest = separator < 0 ? "" : line.substring(separator + 1).strip();
+                if (rest.isEmpty()) {
+                    throw new IllegalArgumentException(INVALID_LINE_MESSAGE.formatted(lineNumber, line));
+                }
+
+                String first = line.substring(0, separator);
+                if (first.equals(SETUP_KEYWORD)) {
+                    setupCommands.add(rest);
+                } else {
+                    weights.add(parseWeight(first, lineNumber, line));
+                    commands.add(rest);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new LoadScript(setupCommands, commands, weights);
+    }
+
+    public int getSetupCount() {
+        return setupCommands.size();
+    }
+
+    public String getSetupCommand(int index, int user) {
+        return substitute(setupCommands.get(index), user, index);
+    }
+
+    /**
+     * Draws the next command of the user in proportion to the weights.
+     */
+    public String nextCommand(int user, long iteration, RandomGenerator random) {
+        long draw = random.nextLong(cumulativeWeights[cumulativeWeights.length - 1]);
+
+        int index = 0;
+        while (cumulativeWeights[index] <= draw) {
+            index++;
+        }
+
+        return substitute(commands.get(index), user, iteration);
+    }
+
+    /**
+     * Returns the name a command is reported under: its first word.
+     */
+    public static String commandName(String command) {
+        int separator = command.indexOf(SEPARATOR);
+        return separator < 0 ? command : command.substring(0, separator);
+    }
+
+    private static long parseWeight(String weight, int lineNumber, String line) {
+        try {
+            long parsed = Long.parseLong(weight);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below together with the weights which are not positive
+        }
+
+        throw new IllegalArgumentException(INVALID_LINE_MESSAGE.formatted(lineNumber, line));
+    }
+
+    private static String substitute(String command, int user, long iteration) {
+        return command.replace(USER_PLACEHOLDER, Integer.toString(user))
+            .replace(ITERATION_PLACEHOLDER, Long.toString(iteration));
+    }
+}
@@ -0,0 +1,295 @@
+package bg.sofia.uni.fmi.mjt.spotify.loadtest;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerReply;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCodec;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Handshake;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a share of the simulated users over a selector of its own, the way a reactor of the server drives its
+ * connections. It records the latency of each command sent in the measured window from the moment the command is
+ * queued until its reply is decoded, so a slow write counts against the server. The histograms are owned by the
+ * worker thread and read only after it has finished.
+ */
+class LoadWorker implements Runnable {
+
+    private static final Frame HANDSHAKE_FRAME = new Handshake(Handshake.CURRENT_VERSION).toFrame();
+    private static final long MIN_SELECT_MILLIS = 1;
+
+    private final LoadConfiguration configuration;
+    private final List<Integer> userIds;
+    private final long measureFrom;
+    private final long measureUntil;
+    private final Selector selector;
+    private final SplittableRandom random;
+    private final PriorityQueue<VirtualUser> waiting;
+    private final List<VirtualUser> users;
+    private final Map<String, LatencyHistogram> histograms;
+    private final Map<String, Long> throttled;
+    private long connectionFailures;
+    private long disconnects;
+    private long unanswered;
+    private IOException failure;
+
+    LoadWorker(LoadConfiguration configuration, List<Integer> userIds, long seed, long measureFrom,
+               long measureUntil) throws IOException {
+        this.configuration = configuration;
+        this.userIds = userIds;
+        this.measureFrom = measureFrom;
+        this.measureUntil = measureUntil;
+        this.selector = Selector.open();
+        this.random = new SplittableRandom(seed);
+        this.waiting = new PriorityQueue<>(Comparator.comparingLong(VirtualUser::getNextSendAt));
+        this.users = new ArrayList<>();
+        this.histograms = new HashMap<>();
+        this.throttled = new HashMap<>();
+    }
+
+    @Override
+    public void run() {
+        try (selector) {
+            connectAll();
+
+            long drainUntil = measureUntil + configuration.getDrainTimeout().toNanos();
+            long now = System.nanoTime();
+            while (now < measureUntil || (hasCommandsInFlight() && now < drainUntil)) {
+                selector.select(selectTimeoutMillis(now));
+                now = System.nanoTime();
+
+                processSelectedKeys(now);
+                sendDueCommands(now);
+            }
+
+            for (VirtualUser currentUser : users) {
+                if (currentUser.hasCommandInFlight()) {
+                    unanswered++;
+                }
+                closeQuietly(currentUser);
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    Map<String, LatencyHistogram> getHistograms() {
+        return histograms;
+    }
+
+    Map<String, Long> getThrottled() {
+        return throttled;
+    }
+
+    long getConnectionFailures() {
+        return connectionFailures;
+    }
+
+    long getDisconnects() {
+        return disconnects;
+    }
+
+    long getUnanswered() {
+        return unanswered;
+    }
+
+    IOException getFailure() {
+        return failure;
+    }
+
+    private void connectAll() throws IOException {
+        InetSocketAddress address = new InetSocketAddress(configuration.getHost(), configuration.getPort());
+
+        for (int currentId : userIds) {
+            SocketChannel channel = SocketChannel.open();
+            VirtualUser user = new VirtualUser(currentId, channel);
+
+            try {
+                channel.configureBlocking(false);
+                boolean connected = channel.connect(address);
+                user.setKey(channel.register(selector, connected ? 0 : SelectionKey.OP_CONNECT, user));
+                users.add(user);
+
+                if (connected) {
+                    send(user, HANDSHAKE_FRAME);
+                }
+            } catch (IOException e) {
+                connectionFailures++;
+                channel.close();
+            }
+        }
+    }
+
+    private void processSelectedKeys(long now) {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+
+            VirtualUser user = (VirtualUser) key.attachment();
+            try {
+                if (key.isValid() && key.isConnectable()) {
+                    user.getChannel().finishConnect();
+                    key.interestOps(SelectionKey.OP_READ);
+                    send(user, HANDSHAKE_FRAME);
+                }
+
+                if (key.isValid() && key.isWritable()) {
+                    flush(user);
+                }
+
+                if (key.isValid() && key.isReadable()) {
+                    read(user, now);
+                }
+            } catch (IOException | MalformedFrameException e) {
+                if (user.isHandshaken()) {
+                    lose(user, now);
+                } else {
+                    connectionFailures++;
+                    closeQuietly(user);
+                }
+            }
+        }
+    }
+
+    private void read(VirtualUser user, long now) throws IOException, MalformedFrameException {
+        if (user.getFrameReader().readFrom(user.getChannel()) < 0) {
+            lose(user, now);
+            return;
+        }
+
+        Frame frame;
+        while (user.getKey().isValid() && (frame = user.getFrameReader().nextFrame()) != null) {
+            switch (frame.type()) {
+                case HANDSHAKE -> {
+                    user.setHandshaken();
+                    schedule(user, now);
+                }
+                case REPLY -> onReply(user, frame, now);
+                case RECONNECT -> lose(user, now);
+                default -> {
+                    // Audio, events and heartbeats are not replies; the users drop them
+                }
+            }
+        }
+    }
+
+    private void onReply(VirtualUser user, Frame reply, long now) {
+        if (!user.isHandshaken()) {
+            connectionFailures++;
+            closeQuietly(user);
+            return;
+        }
+
+        if (!user.hasCommandInFlight()) {
+            return;
+        }
+
+        String commandName = user.getInFlightCommand();
+        if (user.getSentAt() >= measureFrom && user.getSentAt() < measureUntil) {
+            LatencyHistogram histogram = histograms.computeIfAbsent(commandName,
+                name -> new LatencyHistogram(LoadGenerator.HIGHEST_TRACKABLE_MICROS));
+            histogram.record(LoadReport.toMicros(now - user.getSentAt()));
+
+            if (reply.text().equals(ServerReply.COMMAND_THROTTLED_REPLY.getReply())) {
+                throttled.merge(commandName, 1L, Long::sum);
+            }
+        }
+
+        user.replyReceived();
+        schedule(user, now + configuration.getThinkTime().toNanos());
+    }
+
+    private void sendDueCommands(long now) {
+        while (now < measureUntil && !waiting.isEmpty() && waiting.peek().getNextSendAt() <= now) {
+            VirtualUser user = waiting.poll();
+            if (!user.getKey().isValid()) {
+                continue;
+            }
+
+            String command = user.nextCommand(configuration.getScript(), random);
+            user.commandSent(LoadScript.commandName(command), now);
+            try {
+                send(user, Frame.of(FrameType.COMMAND, command));
+            } catch (IOException e) {
+                lose(user, now);
+            }
+        }
+    }
+
+    private void send(VirtualUser user, Frame frame) throws IOException {
+        user.setOutput(FrameCodec.encode(frame));
+        flush(user);
+    }
+
+    private void flush(VirtualUser user) throws IOException {
+        user.getChannel().write(user.getOutput());
+
+        int interestOps = user.getOutput().hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+            : SelectionKey.OP_READ;
+        user.getKey().interestOps(interestOps);
+    }
+
+    private void schedule(VirtualUser user, long sendAt) {
+        user.setNextSendAt(sendAt);
+        waiting.add(user);
+    }
+
+    /**
+     * Closes the connection of a user which the server has closed or dropped in the middle of the run.
+     */
+    private void lose(VirtualUser user, long now) {
+        if (now < measureUntil) {
+            disconnects++;
+        }
+        if (user.hasCommandInFlight()) {
+            unanswered++;
+            user.replyReceived();
+        }
+
+        closeQuietly(user);
+    }
+
+    private boolean hasCommandsInFlight() {
+        for (VirtualUser currentUser : users) {
+            if (currentUser.getKey().isValid() && currentUser.hasCommandInFlight()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private long selectTimeoutMillis(long now) {
+        long until = measureUntil + configuration.getDrainTimeout().toNanos();
+        if (now < measureUntil && !waiting.isEmpty()) {
+            until = Math.min(waiting.peek().getNextSendAt(), measureUntil);
+        }
+
+        return Math.max(MIN_SELECT_MILLIS, TimeUnit.NANOSECONDS.toMillis(until - now));
+    }
+
+    private static void closeQuietly(VirtualUser user) {
+        try {
+            user.getKey().cancel();
+            user.getChannel().close();
+        } catch (IOException e) {
+            // The connection is being dropped anyway
+        }
+    }
+}
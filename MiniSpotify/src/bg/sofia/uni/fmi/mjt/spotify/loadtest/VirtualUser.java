@@ -0,0 +1,109 @@
+package bg.sofia.uni.fmi.mjt.spotify.loadtest;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameReader;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.random.RandomGenerator;
+
+/**
+ * One simulated user: its connection and where it is in its script. A user has at most one command in flight and
+ * sends the next one only after the reply and its think time, like someone at the REPL of the client would.
+ */
+class VirtualUser {
+
+    private final int id;
+    private final SocketChannel channel;
+    private final FrameReader frameReader;
+    private SelectionKey key;
+    private ByteBuffer output;
+    private boolean handshaken;
+    private int setupIndex;
+    private long iteration;
+    private String inFlightCommand;
+    private long sentAt;
+    private long nextSendAt;
+
+    VirtualUser(int id, SocketChannel channel) {
+        this.id = id;
+        this.channel = channel;
+        this.frameReader = new FrameReader();
+    }
+
+    int getId() {
+        return id;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    FrameReader getFrameReader() {
+        return frameReader;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    ByteBuffer getOutput() {
+        return output;
+    }
+
+    void setOutput(ByteBuffer output) {
+        this.output = output;
+    }
+
+    boolean isHandshaken() {
+        return handshaken;
+    }
+
+    void setHandshaken() {
+        this.handshaken = true;
+    }
+
+    /**
+     * Returns the next command of the script: the setup commands first, then the drawn ones.
+     */
+    String nextCommand(LoadScript script, RandomGenerator random) {
+        String command = setupIndex < script.getSetupCount() ? script.getSetupCommand(setupIndex++, id)
+            : script.nextCommand(id, iteration, random);
+        iteration++;
+
+        return command;
+    }
+
+    boolean hasCommandInFlight() {
+        return inFlightCommand != null;
+    }
+
+    String getInFlightCommand() {
+        return inFlightCommand;
+    }
+
+    long getSentAt() {
+        return sentAt;
+    }
+
+    void commandSent(String commandName, long now) {
+        this.inFlightCommand = commandName;
+        this.sentAt = now;
+    }
+
+    void replyReceived() {
+        this.inFlightCommand = null;
+    }
+
+    long getNextSendAt() {
+        return nextSendAt;
+    }
+
+    void setNextSendAt(long nextSendAt) {
+        this.nextSendAt = nextSendAt;
+    }
+}
@@ -1,59 +1,111 @@
 package bg.sofia.uni.fmi.mjt.spotify.server;
 
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPool;
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPoolStatistics;
 import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExecutor;
-import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExtractor;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.DataChannelRegistry;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.Reactor;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ThrottlingCounters;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.IODatabaseException;
+import bg.sofia.uni.fmi.mjt.spotify.server.http.HttpGateway;
 import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
 import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCodec;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.logging.Level;
 
 public class Server {
 
-    private static final int SERVER_PORT = 7600;
-    private static final int BUFFER_SIZE = 2048;
     private static final String HOST = "localhost";
+    private static final String REACTOR_THREAD_NAME = "spotify-reactor-";
+    private static final int REJECT_DRAIN_BUFFER_SIZE = 512;
 
     private static final String ERROR_CLIENT_REQUEST = "Error occurred while processing your request. " +
         "Please, try again later or contact administrator";
 
     private static final String UNABLE_TO_START_SERVER = "A problem arise in starting the server";
+    private static final String UNABLE_TO_FLUSH_STATE = "A problem arise in saving the state of the server";
+    private static final String SHUTDOWN_REPORT_LABEL = "The server has shut down: ";
+    private static final String SHUTDOWN_HOOK_THREAD_NAME = "spotify-shutdown";
 
-    private static final String CLIENT_LABEL = "Client ";
-    private static final String CLOSE_CONNECTION_LABEL = " has closed the connection.";
     private final CommandExecutor commandExecutor;
-    private final int port;
-    private boolean isServerWorking;
+    private final ServerConfiguration configuration;
+    private volatile boolean isServerWorking;
+    private volatile boolean isAcceptorStarted;
 
-    private ByteBuffer buffer;
     private Selector selector;
     private final AtomicInteger numberOfConnection;
+    private final AtomicInteger acceptedConnections;
     private final SpotifyLogger spotifyLogger;
+    private final List<Reactor> reactors;
+    private final List<Thread> reactorThreads;
+    private final CountDownLatch startedLatch;
+    private final ExecutorService commandWorkers;
+    private final DataChannelRegistry dataChannelRegistry;
+    private final ThrottlingCounters throttlingCounters;
+    private final BufferPool bufferPool;
+    private final CountDownLatch acceptorStopped;
+    private final AtomicBoolean isShutdownStarted;
+    private final CompletableFuture<ShutdownReport> shutdownReport;
+    private volatile int localPort;
 
     public Server(int port, CommandExecutor commandExecutor, SpotifyLogger spotifyLogger) {
-        this.port = port;
+        this(new ServerConfiguration().port(port), commandExecutor, spotifyLogger);
+    }
+
+    public Server(ServerConfiguration configuration, CommandExecutor commandExecutor, SpotifyLogger spotifyLogger) {
+        this.configuration = configuration;
         this.commandExecutor = commandExecutor;
         this.numberOfConnection = new AtomicInteger(0);
+        this.acceptedConnections = new AtomicInteger(0);
         this.spotifyLogger = spotifyLogger;
+        this.reactors = new ArrayList<>();
+        this.reactorThreads = new ArrayList<>();
+        this.startedLatch = new CountDownLatch(1);
+        this.commandWorkers = Executors.newVirtualThreadPerTaskExecutor();
+        this.dataChannelRegistry = new DataChannelRegistry();
+        this.throttlingCounters = new ThrottlingCounters();
+        this.bufferPool = new BufferPool(configuration.getBufferPoolCapacity());
+        this.acceptorStopped = new CountDownLatch(1);
+        this.isShutdownStarted = new AtomicBoolean(false);
+        this.shutdownReport = new CompletableFuture<>();
     }
 
     public void start() {
+        isAcceptorStarted = true;
         try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
             selector = Selector.open();
             configureServerSocketChannel(serverSocketChannel, selector);
-            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            startReactors();
             isServerWorking = true;
+            startedLatch.countDown();
 
             while (isServerWorking) {
                 try {
@@ -67,31 +119,8 @@ public class Server {
 
                         SelectionKey key = keyIterator.next();
 
-                        if (key.isReadable()) {
-                            SocketChannel clientChannel = (SocketChannel) key.channel();
-                            try {
-                                String clientInput = getClientInput(clientChannel);
-
-                                if (clientInput == null) {
-                                    key.channel().close();
-                                    key.cancel();
-                                    keyIterator.remove();
-                                    continue;
-                                }
-
-                                String output = commandExecutor.executeCommand(CommandExtractor.newCommand(clientInput),
-                                    key);
-                                writeClientOutput(clientChannel, output);
-
-                            } catch (SocketException e) {
-                                key.channel().close();
-                                key.cancel();
-                                keyIterator.remove();
-                                continue;
-                            }
-
-                        } else if (key.isAcceptable()) {
-                            accept(selector, key);
+                        if (key.isAcceptable()) {
+                            accept(key);
                         }
 
                         keyIterator.remove();
@@ -104,67 +133,272 @@ public class Server {
         } catch (IOException e) {
             spotifyLogger.log(Level.SEVERE, UNABLE_TO_START_SERVER, e);
             System.out.println(ERROR_CLIENT_REQUEST);
+        } finally {
+            acceptorStopped.countDown();
+            if (isShutdownStarted.compareAndSet(false, true)) {
+                stopReactors();
+                commandWorkers.shutdown();
+                shutdownReport.complete(new ShutdownReport(Map.of(), Set.of()));
+            }
+            startedLatch.countDown();
         }
     }
 
     public void stop() {
-        isServerWorking = false;
-        if (selector.isOpen()) {
-            selector.wakeup();
+        shutdown();
+    }
+
+    /**
+     * Shuts the server down gracefully, one {@link ShutdownPhase} after another: it stops accepting connections,
+     * lets the commands already accepted finish, tells the clients when to reconnect, logs every session out, which
+     * stops its playback, closes the connections once their output is written and finally saves the state of the
+     * streaming platform. Each waiting phase gives up after the shutdown timeout. Calling it again only waits for
+     * the first shutdown and returns its report.
+     */
+    public ShutdownReport shutdown() {
+        if (!isShutdownStarted.compareAndSet(false, true)) {
+            return shutdownReport.join();
+        }
+
+        Map<ShutdownPhase, Duration> phaseDurations = new EnumMap<>(ShutdownPhase.class);
+        Set<ShutdownPhase> timedOutPhases = EnumSet.noneOf(ShutdownPhase.class);
+        long timeoutNanos = configuration.getShutdownTimeout().toNanos();
+
+        long phaseStart = System.nanoTime();
+        if (!stopAccepting(timeoutNanos)) {
+            timedOutPhases.add(ShutdownPhase.STOP_ACCEPTING);
+        }
+        phaseStart = completePhase(ShutdownPhase.STOP_ACCEPTING, phaseStart, phaseDurations);
+
+        if (!awaitReactors(Reactor::drain, timeoutNanos)) {
+            timedOutPhases.add(ShutdownPhase.DRAIN_COMMANDS);
+        }
+        phaseStart = completePhase(ShutdownPhase.DRAIN_COMMANDS, phaseStart, phaseDurations);
+
+        if (!awaitReactors(reactor -> reactor.announceRestart(configuration.getReconnectDelay(),
+            configuration.getReconnectJitter()), timeoutNanos)) {
+            timedOutPhases.add(ShutdownPhase.NOTIFY_CLIENTS);
+        }
+        phaseStart = completePhase(ShutdownPhase.NOTIFY_CLIENTS, phaseStart, phaseDurations);
+
+        if (!awaitReactors(Reactor::endSessions, timeoutNanos)) {
+            timedOutPhases.add(ShutdownPhase.STOP_PLAYBACK);
+        }
+        phaseStart = completePhase(ShutdownPhase.STOP_PLAYBACK, phaseStart, phaseDurations);
+
+        boolean isEveryConnectionClosed = awaitReactors(Reactor::closeConnections, timeoutNanos);
+        if (!stopWorkers(timeoutNanos) || !isEveryConnectionClosed) {
+            timedOutPhases.add(ShutdownPhase.CLOSE_CONNECTIONS);
         }
+        phaseStart = completePhase(ShutdownPhase.CLOSE_CONNECTIONS, phaseStart, phaseDurations);
+
+        flushState();
+        completePhase(ShutdownPhase.FLUSH_STATE, phaseStart, phaseDurations);
+
+        ShutdownReport report = new ShutdownReport(phaseDurations, timedOutPhases);
+        spotifyLogger.log(Level.INFO, SHUTDOWN_REPORT_LABEL + report, null);
+        shutdownReport.complete(report);
+
+        return report;
+    }
+
+    public boolean awaitStarted(long timeout, TimeUnit unit) throws InterruptedException {
+        return startedLatch.await(timeout, unit) && isServerWorking;
+    }
+
+    public int getLocalPort() {
+        return localPort;
+    }
+
+    public ThrottlingCounters getThrottlingCounters() {
+        return throttlingCounters;
+    }
+
+    public BufferPoolStatistics getBufferPoolStatistics() {
+        return bufferPool.getStatistics();
+    }
+
+    public List<Integer> getConnectionsPerReactor() {
+        return reactors.stream()
+            .map(Reactor::getConnectionCount)
+            .toList();
     }
 
     private void configureServerSocketChannel(ServerSocketChannel channel, Selector selector) throws IOException {
-        channel.bind(new InetSocketAddress(HOST, port));
+        channel.bind(new InetSocketAddress(HOST, configuration.getPort()), configuration.getAcceptBacklog());
         channel.configureBlocking(false);
         channel.register(selector, SelectionKey.OP_ACCEPT);
+        localPort = ((InetSocketAddress) channel.getLocalAddress()).getPort();
     }
 
-    private String getClientInput(SocketChannel clientChannel) throws IOException {
-        buffer.clear();
+    private void startReactors() throws IOException {
+        for (int i = 0; i < configuration.getReactorCount(); i++) {
+            Reactor reactor = new Reactor(configuration, commandExecutor, commandWorkers, spotifyLogger,
+                numberOfConnection, dataChannelRegistry, throttlingCounters, bufferPool);
+            Thread reactorThread = new Thread(reactor, REACTOR_THREAD_NAME + i);
 
-        int readBytes = clientChannel.read(buffer);
-        if (readBytes < 0) {
-            System.out.println(CLIENT_LABEL + numberOfConnection.incrementAndGet() + CLOSE_CONNECTION_LABEL);
-            SelectionKey key = clientChannel.keyFor(selector);
-            clientChannel.close();
-            if (key != null) {
-                key.cancel();
-            }
-            return null;
+            reactors.add(reactor);
+            reactorThreads.add(reactorThread);
+            reactorThread.start();
+        }
+    }
+
+    /**
+     * Stops the acceptor loop and waits until it has left. Returns {@code false} when the timeout elapses first.
+     * There is nothing to wait for when the server has never been started.
+     */
+    private boolean stopAccepting(long timeoutNanos) {
+        isServerWorking = false;
+        if (selector != null && selector.isOpen()) {
+            selector.wakeup();
         }
 
-        buffer.flip();
+        if (!isAcceptorStarted) {
+            return true;
+        }
 
-        byte[] clientInputBytes = new byte[buffer.remaining()];
-        buffer.get(clientInputBytes);
+        try {
+            return acceptorStopped.await(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 
-        return new String(clientInputBytes, StandardCharsets.UTF_8);
+    /**
+     * Starts the step on every reactor and waits until all of them have completed it. Returns {@code false} when
+     * the timeout elapses first.
+     */
+    private boolean awaitReactors(Function<Reactor, CompletableFuture<Void>> step, long timeoutNanos) {
+        CompletableFuture<?>[] steps = reactors.stream()
+            .map(step)
+            .toArray(CompletableFuture[]::new);
+
+        try {
+            CompletableFuture.allOf(steps).get(timeoutNanos, TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
-    private void writeClientOutput(SocketChannel clientChannel, String output) throws IOException {
-        buffer.clear();
-        buffer.put(output.getBytes());
-        buffer.flip();
+    private boolean stopWorkers(long timeoutNanos) {
+        stopReactors();
+        commandWorkers.shutdown();
 
-        clientChannel.write(buffer);
+        try {
+            return commandWorkers.awaitTermination(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void flushState() {
+        try {
+            commandExecutor.persistState();
+        } catch (IODatabaseException e) {
+            spotifyLogger.log(Level.SEVERE, UNABLE_TO_FLUSH_STATE, e);
+        } finally {
+            commandExecutor.closeSongFiles();
+        }
+    }
+
+    private static long completePhase(ShutdownPhase phase, long phaseStart, Map<ShutdownPhase, Duration> durations) {
+        long now = System.nanoTime();
+        durations.put(phase, Duration.ofNanos(now - phaseStart));
+        return now;
+    }
+
+    private void stopReactors() {
+        reactors.forEach(Reactor::stop);
+
+        for (Thread currentThread : reactorThreads) {
+            try {
+                currentThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                spotifyLogger.log(Level.WARNING, ERROR_CLIENT_REQUEST, e);
+            }
+        }
     }
 
-    private void accept(Selector selector, SelectionKey key) throws IOException {
+    private void accept(SelectionKey key) throws IOException {
         ServerSocketChannel sockChannel = (ServerSocketChannel) key.channel();
-        SocketChannel accept = sockChannel.accept();
 
-        accept.configureBlocking(false);
-        accept.register(selector, SelectionKey.OP_READ);
+        SocketChannel accept;
+        while ((accept = sockChannel.accept()) != null) {
+            if (getOpenConnections() >= configuration.getMaxConnections()) {
+                reject(accept);
+                continue;
+            }
+
+            configuration.getReactorSelectionStrategy()
+                .select(reactors, acceptedConnections)
+                .register(accept);
+        }
+    }
+
+    private int getOpenConnections() {
+        int openConnections = 0;
+        for (Reactor currentReactor : reactors) {
+            openConnections += currentReactor.getConnectionCount();
+        }
+
+        return openConnections;
+    }
+
+    /**
+     * Tells a connection accepted above the limit that the server is full and closes it. The reply is small enough
+     * to fit in the empty send buffer of the new socket, so it is written without blocking the acceptor. Whatever
+     * the client has already sent is read and dropped, so that closing does not reset the connection before the
+     * client has read the reply.
+     */
+    private void reject(SocketChannel channel) {
+        throttlingCounters.recordRejectedConnection();
+
+        try (channel) {
+            channel.configureBlocking(false);
+            channel.write(FrameCodec.encode(Frame.of(FrameType.REPLY, ServerReply.SERVER_FULL_REPLY.getReply())));
+            channel.shutdownOutput();
+
+            ByteBuffer discarded = ByteBuffer.allocate(REJECT_DRAIN_BUFFER_SIZE);
+            while (channel.read(discarded.clear()) > 0) {
+                // Drop the handshake of the rejected client
+            }
+        } catch (IOException e) {
+            spotifyLogger.log(Level.INFO, ServerReply.SERVER_FULL_REPLY.getReply(), e);
+        }
     }
 
     public static void main(String[] args) throws InterruptedException, IODatabaseException, IOException {
         SpotifyLogger spotifyLogger = new SpotifyLogger("SpotifyLogger.log");
 
-        Server s = new Server(SERVER_PORT, new CommandExecutor(new StreamingPlatform(spotifyLogger),
-            new AuthenticationService(), spotifyLogger),
+        ServerConfiguration configuration = new ServerConfiguration();
+        if (args.length > 0) {
+            configuration.reactorCount(Integer.parseInt(args[0]));
+        }
+        if (args.length > 1) {
+            configuration.playlistShards(Integer.parseInt(args[1]));
+        }
+
+        StreamingPlatform streamingPlatform = new StreamingPlatform(spotifyLogger,
+            configuration.getPlaylistShardCount());
+        AuthenticationService authenticationService = new AuthenticationService();
+        Server s = new Server(configuration, new CommandExecutor(streamingPlatform, authenticationService,
+            spotifyLogger), spotifyLogger);
+
+        HttpGateway httpGateway = new HttpGateway(configuration, streamingPlatform, authenticationService,
             spotifyLogger);
+        httpGateway.start();
 
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            httpGateway.stop();
+            s.shutdown();
+        }, SHUTDOWN_HOOK_THREAD_NAME));
         s.start();
     }
-}
\ No newline at end of file
+}
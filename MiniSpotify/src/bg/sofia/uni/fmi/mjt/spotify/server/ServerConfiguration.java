@@ -0,0 +1,391 @@
+package bg.sofia.uni.fmi.mjt.spotify.server;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ReactorSelectionStrategy;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public class ServerConfiguration {
+
+    private static final int DEFAULT_PORT = 7600;
+    private static final int DEFAULT_HTTP_PORT = 7601;
+    private static final int DEFAULT_ACCEPT_BACKLOG = 1024;
+    private static final long DEFAULT_OUTBOUND_HIGH_WATER_MARK = 1L << 20;
+    private static final long DEFAULT_OUTBOUND_LOW_WATER_MARK = 1L << 18;
+    private static final int DEFAULT_MAX_PENDING_COMMANDS = 64;
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    private static final Duration DEFAULT_HEARTBEAT_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration DEFAULT_TIMER_TICK = Duration.ofMillis(100);
+    private static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+    private static final double DEFAULT_COMMAND_TOKENS_PER_SECOND = 20;
+    private static final double DEFAULT_COMMAND_BURST = 40;
+    private static final long DEFAULT_BUFFER_POOL_CAPACITY = 64L << 20;
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    private static final Duration DEFAULT_SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_RECONNECT_DELAY = Duration.ofSeconds(5);
+    private static final Duration DEFAULT_RECONNECT_JITTER = Duration.ofSeconds(10);
+
+    private static final String NEGATIVE_PORT_MESSAGE = "The port cannot be negative.";
+    private static final String NOT_POSITIVE_REACTOR_COUNT_MESSAGE = "The number of reactors must be positive.";
+    private static final String NOT_POSITIVE_BACKLOG_MESSAGE = "The accept backlog must be positive.";
+    private static final String INVALID_WATER_MARKS_MESSAGE = "The water marks must satisfy " +
+        "0 <= low-water mark <= high-water mark.";
+    private static final String NOT_POSITIVE_PENDING_COMMANDS_MESSAGE = "The maximum number of pending commands " +
+        "must be positive.";
+    private static final String NOT_POSITIVE_MAX_CONNECTIONS_MESSAGE = "The maximum number of connections " +
+        "must be positive.";
+    private static final String NOT_POSITIVE_COMMAND_RATE_MESSAGE = "The command rate and burst must be positive.";
+    private static final String NEGATIVE_BUFFER_POOL_CAPACITY_MESSAGE = "The capacity of the buffer pool " +
+        "cannot be negative.";
+    private static final String NOT_POSITIVE_COMPRESSION_THRESHOLD_MESSAGE = "The compression threshold " +
+        "must be positive.";
+    private static final String NEGATIVE_RECONNECT_JITTER_MESSAGE = "The reconnect jitter cannot be negative.";
+    private static final String NEGATIVE_PLAYLIST_SHARDS_MESSAGE = "The number of playlist shards " +
+        "cannot be negative.";
+    private static final String NOT_POSITIVE_DURATION_MESSAGE = "The %s must be positive.";
+
+    private int port;
+    private int httpPort;
+    private int reactorCount;
+    private int acceptBacklog;
+    private ReactorSelectionStrategy reactorSelectionStrategy;
+    private long outboundHighWaterMark;
+    private long outboundLowWaterMark;
+    private int maxPendingCommands;
+    private Duration idleTimeout;
+    private Duration heartbeatTimeout;
+    private Duration timerTick;
+    private int maxConnections;
+    private double commandTokensPerSecond;
+    private double commandBurst;
+    private long bufferPoolCapacity;
+    private boolean compressionEnabled;
+    private boolean eventsEnabled;
+    private int compressionThreshold;
+    private Duration shutdownTimeout;
+    private Duration reconnectDelay;
+    private Duration reconnectJitter;
+    private int playlistShardCount;
+
+    public ServerConfiguration() {
+        this.port = DEFAULT_PORT;
+        this.httpPort = DEFAULT_HTTP_PORT;
+        this.reactorCount = Runtime.getRuntime().availableProcessors();
+        this.acceptBacklog = DEFAULT_ACCEPT_BACKLOG;
+        this.reactorSelectionStrategy = ReactorSelectionStrategy.ROUND_ROBIN;
+        this.outboundHighWaterMark = DEFAULT_OUTBOUND_HIGH_WATER_MARK;
+        this.outboundLowWaterMark = DEFAULT_OUTBOUND_LOW_WATER_MARK;
+        this.maxPendingCommands = DEFAULT_MAX_PENDING_COMMANDS;
+        this.idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        this.heartbeatTimeout = DEFAULT_HEARTBEAT_TIMEOUT;
+        this.timerTick = DEFAULT_TIMER_TICK;
+        this.maxConnections = DEFAULT_MAX_CONNECTIONS;
+        this.commandTokensPerSecond = DEFAULT_COMMAND_TOKENS_PER_SECOND;
+        this.commandBurst = DEFAULT_COMMAND_BURST;
+        this.bufferPoolCapacity = DEFAULT_BUFFER_POOL_CAPACITY;
+        this.compressionEnabled = true;
+        this.eventsEnabled = true;
+        this.compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+        this.shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+        this.reconnectDelay = DEFAULT_RECONNECT_DELAY;
+        this.reconnectJitter = DEFAULT_RECONNECT_JITTER;
+        this.playlistShardCount = StreamingPlatform.UNPARTITIONED;
+    }
+
+    public ServerConfiguration port(int port) {
+        if (port < 0) {
+            throw new IllegalArgumentException(NEGATIVE_PORT_MESSAGE);
+        }
+
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * The port of the HTTP gateway, which serves the catalog, the playlists and the song files over HTTP.
+     */
+    public ServerConfiguration httpPort(int httpPort) {
+        if (httpPort < 0) {
+            throw new IllegalArgumentException(NEGATIVE_PORT_MESSAGE);
+        }
+
+        this.httpPort = httpPort;
+        return this;
+    }
+
+    public ServerConfiguration reactorCount(int reactorCount) {
+        if (reactorCount <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_REACTOR_COUNT_MESSAGE);
+        }
+
+        this.reactorCount = reactorCount;
+        return this;
+    }
+
+    public ServerConfiguration acceptBacklog(int acceptBacklog) {
+        if (acceptBacklog <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_BACKLOG_MESSAGE);
+        }
+
+        this.acceptBacklog = acceptBacklog;
+        return this;
+    }
+
+    public ServerConfiguration reactorSelectionStrategy(ReactorSelectionStrategy reactorSelectionStrategy) {
+        this.reactorSelectionStrategy = Objects.requireNonNull(reactorSelectionStrategy,
+            "The reactor selection strategy cannot be null.");
+        return this;
+    }
+
+    public ServerConfiguration outboundWaterMarks(long lowWaterMark, long highWaterMark) {
+        if (lowWaterMark < 0 || lowWaterMark > highWaterMark) {
+            throw new IllegalArgumentException(INVALID_WATER_MARKS_MESSAGE);
+        }
+
+        this.outboundLowWaterMark = lowWaterMark;
+        this.outboundHighWaterMark = highWaterMark;
+        return this;
+    }
+
+    public ServerConfiguration maxPendingCommands(int maxPendingCommands) {
+        if (maxPendingCommands <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_PENDING_COMMANDS_MESSAGE);
+        }
+
+        this.maxPendingCommands = maxPendingCommands;
+        return this;
+    }
+
+    /**
+     * How long a client may go without sending a command, while no song is playing for it, before its session is
+     * logged out and its connection closed.
+     */
+    public ServerConfiguration idleTimeout(Duration idleTimeout) {
+        this.idleTimeout = requirePositive(idleTimeout, "idle timeout");
+        return this;
+    }
+
+    /**
+     * How long a connection may stay silent, receiving not even a heartbeat, before it is considered dead.
+     */
+    public ServerConfiguration heartbeatTimeout(Duration heartbeatTimeout) {
+        this.heartbeatTimeout = requirePositive(heartbeatTimeout, "heartbeat timeout");
+        return this;
+    }
+
+    /**
+     * The resolution of the timeouts above.
+     */
+    public ServerConfiguration timerTick(Duration timerTick) {
+        this.timerTick = requirePositive(timerTick, "timer tick");
+        return this;
+    }
+
+    /**
+     * How many connections the server keeps open at most. Connections accepted above the limit are told that the
+     * server is full and closed.
+     */
+    public ServerConfiguration maxConnections(int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_MAX_CONNECTIONS_MESSAGE);
+        }
+
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * The rate limit of every connection: it may spend {@code tokensPerSecond} tokens per second on commands and up
+     * to {@code burst} at once, each command costing {@link
+     * bg.sofia.uni.fmi.mjt.spotify.server.command.CommandName#getCost()} tokens.
+     */
+    public ServerConfiguration commandRateLimit(double tokensPerSecond, double burst) {
+        if (tokensPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_COMMAND_RATE_MESSAGE);
+        }
+
+        this.commandTokensPerSecond = tokensPerSecond;
+        this.commandBurst = burst;
+        return this;
+    }
+
+    /**
+     * The direct memory, in bytes, the server may set aside for pooled connection buffers. Once it is used up,
+     * connections fall back to heap buffers, so zero turns pooling off.
+     */
+    public ServerConfiguration bufferPoolCapacity(long bufferPoolCapacity) {
+        if (bufferPoolCapacity < 0) {
+            throw new IllegalArgumentException(NEGATIVE_BUFFER_POOL_CAPACITY_MESSAGE);
+        }
+
+        this.bufferPoolCapacity = bufferPoolCapacity;
+        return this;
+    }
+
+    /**
+     * Whether replies may be deflated for clients which offer {@link
+     * bg.sofia.uni.fmi.mjt.spotify.server.protocol.Capability#DEFLATE} in their handshake.
+     */
+    public ServerConfiguration compressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+        return this;
+    }
+
+    /**
+     * Whether playback and session events are pushed to clients which offer {@link
+     * bg.sofia.uni.fmi.mjt.spotify.server.protocol.Capability#EVENTS} in their handshake.
+     */
+    public ServerConfiguration eventsEnabled(boolean eventsEnabled) {
+        this.eventsEnabled = eventsEnabled;
+        return this;
+    }
+
+    /**
+     * The size, in bytes, from which replies are deflated. Smaller replies fit in a single packet anyway, so
+     * deflating them only costs CPU.
+     */
+    public ServerConfiguration compressionThreshold(int compressionThreshold) {
+        if (compressionThreshold <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_COMPRESSION_THRESHOLD_MESSAGE);
+        }
+
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    /**
+     * How long each phase of a graceful shutdown may wait, for instance for the queued commands to finish, before
+     * the server moves on to the next one.
+     */
+    public ServerConfiguration shutdownTimeout(Duration shutdownTimeout) {
+        this.shutdownTimeout = requirePositive(shutdownTimeout, "shutdown timeout");
+        return this;
+    }
+
+    /**
+     * When shutting down, every client is told to reconnect after {@code delay} plus a random part of
+     * {@code jitter}, which spreads the reconnects of all clients over the jitter.
+     */
+    public ServerConfiguration reconnectDelay(Duration delay, Duration jitter) {
+        Objects.requireNonNull(jitter, "The reconnect jitter cannot be null.");
+
+        if (jitter.isNegative()) {
+            throw new IllegalArgumentException(NEGATIVE_RECONNECT_JITTER_MESSAGE);
+        }
+
+        this.reconnectDelay = requirePositive(delay, "reconnect delay");
+        this.reconnectJitter = jitter;
+        return this;
+    }
+
+    /**
+     * Splits the playlists into that many shards, each owned by a single thread, or keeps them in one locked map
+     * when the number is {@link StreamingPlatform#UNPARTITIONED}.
+     */
+    public ServerConfiguration playlistShards(int playlistShardCount) {
+        if (playlistShardCount < 0) {
+            throw new IllegalArgumentException(NEGATIVE_PLAYLIST_SHARDS_MESSAGE);
+        }
+
+        this.playlistShardCount = playlistShardCount;
+        return this;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getHttpPort() {
+        return httpPort;
+    }
+
+    public int getReactorCount() {
+        return reactorCount;
+    }
+
+    public int getAcceptBacklog() {
+        return acceptBacklog;
+    }
+
+    public ReactorSelectionStrategy getReactorSelectionStrategy() {
+        return reactorSelectionStrategy;
+    }
+
+    public long getOutboundHighWaterMark() {
+        return outboundHighWaterMark;
+    }
+
+    public long getOutboundLowWaterMark() {
+        return outboundLowWaterMark;
+    }
+
+    public int getMaxPendingCommands() {
+        return maxPendingCommands;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public Duration getHeartbeatTimeout() {
+        return heartbeatTimeout;
+    }
+
+    public Duration getTimerTick() {
+        return timerTick;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public double getCommandTokensPerSecond() {
+        return commandTokensPerSecond;
+    }
+
+    public double getCommandBurst() {
+        return commandBurst;
+    }
+
+    public long getBufferPoolCapacity() {
+        return bufferPoolCapacity;
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public boolean isEventsEnabled() {
+        return eventsEnabled;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public Duration getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public Duration getReconnectDelay() {
+        return reconnectDelay;
+    }
+
+    public Duration getReconnectJitter() {
+        return reconnectJitter;
+    }
+
+    public int getPlaylistShardCount() {
+        return playlistShardCount;
+    }
+
+    private static Duration requirePositive(Duration duration, String name) {
+        Objects.requireNonNull(duration, "The " + name + " cannot be null.");
+
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException(NOT_POSITIVE_DURATION_MESSAGE.formatted(name));
+        }
+
+        return duration;
+    }
+}
@@ -26,6 +26,7 @@ public enum ServerReply {
     DISCONNECT_COMMAND_ERROR_REPLY("There was a problem in disconnecting from the server. Please, try again later."),
     SEARCH_COMMAND_SUCCESSFULLY_REPLY("We could find the following results:"),
     SEARCH_COMMAND_NO_SONGS_REPLY("We couldn't find any songs related to your search."),
+    SEARCH_COMMAND_SIMILAR_SONGS_REPLY("We couldn't find exact results, but found the following similar ones:"),
     TOP_COMMAND_SUCCESSFULLY_REPLY("We could find the following results:"),
     TOP_COMMAND_INVALID_ARGUMENT_REPLY("We couldn't process the command as the provided argument is invalid. " +
         "Please, try with whole positive number."),
@@ -86,6 +87,8 @@ public enum ServerReply {
         "delete-playlist <name_of_the_playlist> : Delete <playlist>. The titles of the playlists are case-sensitive" +
         System.lineSeparator() +
         "disconnect : Disconnect from Spotify" + System.lineSeparator() +
+        "fuzzy-search <words> : Retrieve all songs whose title or artist contain all the words or words which " +
+        "differ from them by a typing mistake or two" + System.lineSeparator() +
         "help : List the current info" + System.lineSeparator() +
         "login <email> <password> : Log in Spotify" + System.lineSeparator() +
         "logout : Log out of Spotify" + System.lineSeparator() +
@@ -102,6 +105,14 @@ public enum ServerReply {
         "show-playlists : List the titles of all created playlists" + System.lineSeparator() +
         "stop : Stop playing the current song" + System.lineSeparator() +
         "top <number> : Retrieve list of the top <number> most listened songs"),
+    PROTOCOL_VERSION_NOT_SUPPORTED_REPLY("The protocol version of your client is not supported by the server. " +
+        "Please, update your client and try again."),
+    DATA_CHANNEL_UNKNOWN_TOKEN_REPLY("The data channel could not be opened as its session token is not valid."),
+    SESSION_EXPIRED_REPLY("Your session has expired due to inactivity and you have been logged out. " +
+        "Please, connect again."),
+    COMMAND_THROTTLED_REPLY("You are sending commands too fast. Please, wait a moment and try again."),
+    REPLY_TOO_LARGE_REPLY("The reply to your command is too large to be sent. Please, narrow it down and try again."),
+    SERVER_FULL_REPLY("The server cannot accept more connections at the moment. Please, try again later."),
     UNKNOWN_COMMAND_REPLY("The inserted command is not correct or in the right " +
         "format. Please, try to enter it again or refer to the <help> command for more info."),
     LOGIN_COMMAND("login");
@@ -0,0 +1,14 @@
+package bg.sofia.uni.fmi.mjt.spotify.server;
+
+/**
+ * The phases of a graceful shutdown of the {@link Server}, in the order they run.
+ */
+public enum ShutdownPhase {
+
+    STOP_ACCEPTING,
+    DRAIN_COMMANDS,
+    NOTIFY_CLIENTS,
+    STOP_PLAYBACK,
+    CLOSE_CONNECTIONS,
+    FLUSH_STATE
+}
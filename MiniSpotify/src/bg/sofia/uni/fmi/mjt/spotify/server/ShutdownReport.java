@@ -0,0 +1,45 @@
+package bg.sofia.uni.fmi.mjt.spotify.server;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * How long every phase of a graceful shutdown took and which of them gave up waiting at the shutdown timeout.
+ */
+public record ShutdownReport(Map<ShutdownPhase, Duration> phaseDurations, Set<ShutdownPhase> timedOutPhases) {
+
+    private static final String PHASE_FORMAT = "%s: %d ms%s";
+    private static final String TIMED_OUT_LABEL = " (timed out)";
+    private static final String SEPARATOR = ", ";
+
+    public ShutdownReport {
+        phaseDurations = phaseDurations.isEmpty() ? Map.of() :
+            Collections.unmodifiableMap(new EnumMap<>(phaseDurations));
+        timedOutPhases = timedOutPhases.isEmpty() ? Set.of() :
+            Collections.unmodifiableSet(EnumSet.copyOf(timedOutPhases));
+    }
+
+    public Duration getTotalDuration() {
+        return phaseDurations.values().stream()
+            .reduce(Duration.ZERO, Duration::plus);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<ShutdownPhase, Duration> currentPhase : phaseDurations.entrySet()) {
+            if (!report.isEmpty()) {
+                report.append(SEPARATOR);
+            }
+
+            report.append(PHASE_FORMAT.formatted(currentPhase.getKey(), currentPhase.getValue().toMillis(),
+                timedOutPhases.contains(currentPhase.getKey()) ? TIMED_OUT_LABEL : ""));
+        }
+
+        return report.toString();
+    }
+}
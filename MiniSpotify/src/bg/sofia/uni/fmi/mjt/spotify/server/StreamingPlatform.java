@@ -1,5 +1,6 @@
 package bg.sofia.uni.fmi.mjt.spotify.server;
 
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ClientConnection;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.IODatabaseException;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.NoSongPlayingException;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.NoSongsInPlaylistException;
@@ -12,27 +13,36 @@ import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.SongIsAlreadyPlayingExcept
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.SpotifyException;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.UserNotLoggedException;
 import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
-import bg.sofia.uni.fmi.mjt.spotify.server.login.User;
+import bg.sofia.uni.fmi.mjt.spotify.server.player.AudioSink;
+import bg.sofia.uni.fmi.mjt.spotify.server.player.ConnectionAudioSink;
+import bg.sofia.uni.fmi.mjt.spotify.server.player.LocalLineAudioSink;
 import bg.sofia.uni.fmi.mjt.spotify.server.player.PlayPlaylistThread;
 import bg.sofia.uni.fmi.mjt.spotify.server.player.PlaySongThread;
+import bg.sofia.uni.fmi.mjt.spotify.server.player.PlaybackMode;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
+import bg.sofia.uni.fmi.mjt.spotify.server.shard.PlaylistShards;
+import bg.sofia.uni.fmi.mjt.spotify.server.shard.PlaylistTask;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.Playlist;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.Song;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongChart;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongEntity;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongFile;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongIndex;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 
+import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.lang.reflect.Type;
-import java.nio.channels.SelectionKey;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -40,59 +50,78 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class StreamingPlatform {
 
-    private static final String INTERVAL_REGEX = " ";
     private static final String UNDERSCORE = "_";
-    private static final String EMPTY_STRING = "";
     private static final String PLAYLISTS_LIST_PATH = "data" + File.separator + "PlaylistsList.json";
     private static final String SONGS_LIST_PATH = "data" + File.separator + "SongsList.json";
+    private static final String MUSIC_PATH = "data" + File.separator + "music" + File.separator;
+    private static final String WAV_FORMAT = ".wav";
     private static final String NEGATIVE_N_ARGUMENT = "The provided argument cannot be negative.";
+    private static final String NEGATIVE_SHARD_COUNT = "The number of playlist shards cannot be negative.";
+
+    /**
+     * Keeps every playlist in one map, guarded by the platform's lock.
+     */
+    public static final int UNPARTITIONED = 0;
 
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final int VERSIONS_PER_MILLISECOND_SHIFT = 20;
 
     private Set<SongEntity> songs;
-    private User user;
+    private SongIndex songIndex;
+    private SongChart songChart;
+    private Map<Song, SongFile> songFiles;
     private Map<String, Set<Playlist>> playlists;
-    private final Map<SelectionKey, PlaySongThread> alreadyRunning;
-    private final Set<SelectionKey> alreadyLogged;
+    private final long catalogVersion = versionEpoch();
+    private final AtomicLong chartVersion = new AtomicLong(catalogVersion);
+    private PlaylistShards playlistShards;
 
     private Reader playlistsReader;
     private Writer playlistsWriter;
     private Reader songsReader;
     private Writer songsWriter;
     private SpotifyLogger spotifyLogger;
+    private volatile PlaybackMode playbackMode = PlaybackMode.STREAM_TO_CLIENT;
 
     public StreamingPlatform(SpotifyLogger spotifyLogger) throws IODatabaseException {
+        this(spotifyLogger, UNPARTITIONED);
+    }
+
+    /**
+     * Creates a platform whose playlists are split into the given number of shards, each owned by a thread of its
+     * own, or kept in one locked map when the number is {@link #UNPARTITIONED}. The song catalog is shared by all
+     * shards.
+     */
+    public StreamingPlatform(SpotifyLogger spotifyLogger, int playlistShardCount) throws IODatabaseException {
         this.playlists = new LinkedHashMap<>();
-        this.alreadyRunning = new ConcurrentHashMap<>();
-        this.alreadyLogged = new HashSet<>();
         this.spotifyLogger = spotifyLogger;
 
-        this.user = new User(EMPTY_STRING, EMPTY_STRING);
-
         readSongs();
         readPlaylists();
+        partitionPlaylists(playlistShardCount);
     }
 
-    public StreamingPlatform(Reader playlistsReader, Writer playlistsWriter, Reader songsReader, Writer songsWriter,
-                             Set<SelectionKey> alreadyLogged, Map<SelectionKey, PlaySongThread> alreadyRunning)
+    public StreamingPlatform(Reader playlistsReader, Writer playlistsWriter, Reader songsReader, Writer songsWriter)
         throws IODatabaseException {
+        this(playlistsReader, playlistsWriter, songsReader, songsWriter, UNPARTITIONED);
+    }
+
+    public StreamingPlatform(Reader playlistsReader, Writer playlistsWriter, Reader songsReader, Writer songsWriter,
+                             int playlistShardCount) throws IODatabaseException {
         this.playlists = new LinkedHashMap<>();
         this.playlistsReader = playlistsReader;
         this.playlistsWriter = playlistsWriter;
         this.songsReader = songsReader;
         this.songsWriter = songsWriter;
 
-        this.user = new User(EMPTY_STRING, EMPTY_STRING);
-
-        this.alreadyLogged = alreadyLogged;
-        this.alreadyRunning = alreadyRunning;
-
         readSongs();
         readPlaylists();
+        partitionPlaylists(playlistShardCount);
     }
 
     public List<SongEntity> getTopNMostListenedSongs(int n) {
@@ -100,92 +129,86 @@ public class StreamingPlatform {
             throw new IllegalArgumentException(NEGATIVE_N_ARGUMENT);
         }
 
-        if (n == 0) {
-            return new ArrayList<>();
-        }
-
-        return songs.stream()
-            .sorted((content1, content2) -> Integer.compare(content2.getListeningTimes(),
-                content1.getListeningTimes()))
-            .limit(n)
-            .toList();
+        return songChart.top(n);
     }
 
     public List<SongEntity> searchSongs(String word) {
         Objects.requireNonNull(word, "The given word cannot be null.");
 
-        List<SongEntity> result = new ArrayList<>();
-        for (SongEntity currentSongEntity : songs) {
-            boolean contains = true;
-            for (String currentWord : word.split(INTERVAL_REGEX)) {
-                if (!currentSongEntity.getSong().getTitle().toLowerCase().contains(currentWord.toLowerCase()) &&
-                    !currentSongEntity.getSong().getArtist().toLowerCase().contains(currentWord.toLowerCase())) {
-                    contains = false;
-                    break;
-                }
-            }
+        return songIndex.search(word);
+    }
 
-            if (contains) {
-                result.add(currentSongEntity);
-            }
-        }
+    /**
+     * Searches like {@link #searchSongs(String)}, but also finds songs whose title or artist holds a word a few
+     * typing mistakes away from a searched one.
+     */
+    public List<SongEntity> fuzzySearchSongs(String words) {
+        Objects.requireNonNull(words, "The given words cannot be null.");
 
-        return result;
+        return songIndex.fuzzySearch(words);
     }
 
-    public synchronized void createPlaylist(String playlistTitle, SelectionKey selectionKey) throws SpotifyException {
+    public void createPlaylist(String playlistTitle, Session session) throws SpotifyException {
 
         Objects.requireNonNull(playlistTitle, "The given playlist title cannot be null");
-        Objects.requireNonNull(selectionKey, "The given selection key cannot be null.");
+        Objects.requireNonNull(session, "The given session cannot be null.");
 
-        if (!alreadyLogged.contains(selectionKey)) {
+        if (!session.isLoggedIn()) {
             throw new UserNotLoggedException(ServerReply.CREATE_PLAYLIST_NOT_LOGGED_REPLY.getReply());
         }
 
-        Playlist toAdd = new Playlist(user.getEmail(), playlistTitle);
-        if (playlists.containsKey(user.getEmail())) {
+        String emailCreator = session.getUser().getEmail();
+        Playlist toAdd = new Playlist(emailCreator, playlistTitle);
+        withPlaylistsOf(emailCreator, playlists -> {
+            if (playlists.containsKey(emailCreator)) {
 
-            if (playlists.get(user.getEmail()).contains(toAdd)) {
-                throw new PlaylistAlreadyExistException(ServerReply.CREATE_PLAYLIST_ALREADY_EXIST_REPLY.getReply());
-            }
+                if (playlists.get(emailCreator).contains(toAdd)) {
+                    throw new PlaylistAlreadyExistException(ServerReply.CREATE_PLAYLIST_ALREADY_EXIST_REPLY
+                        .getReply());
+                }
 
-            playlists.get(user.getEmail()).add(toAdd);
-        } else {
+                playlists.get(emailCreator).add(toAdd);
+            } else {
 
-            playlists.put(user.getEmail(), new LinkedHashSet<>());
-            playlists.get(user.getEmail()).add(toAdd);
-        }
+                playlists.put(emailCreator, new LinkedHashSet<>());
+                playlists.get(emailCreator).add(toAdd);
+            }
 
-        writePlaylists();
+            playlistsChanged();
+            return null;
+        });
     }
 
-    public void deletePlaylist(String playlistTitle, SelectionKey selectionKey) throws SpotifyException {
+    public void deletePlaylist(String playlistTitle, Session session) throws SpotifyException {
 
         Objects.requireNonNull(playlistTitle, "The given playlist title cannot be null.");
-        Objects.requireNonNull(selectionKey, "The given selection key cannot be null.");
+        Objects.requireNonNull(session, "The given session cannot be null.");
 
-        if (!alreadyLogged.contains(selectionKey)) {
+        if (!session.isLoggedIn()) {
             throw new UserNotLoggedException(ServerReply.DELETE_PLAYLIST_NOT_LOGGED_REPLY.getReply());
         }
 
-        String emailCreator = user.getEmail();
-        if (!playlists.containsKey(emailCreator) || !playlists.get(emailCreator)
-            .contains(new Playlist(emailCreator, playlistTitle))) {
-            throw new NoSuchPlaylistException(ServerReply.DELETE_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply());
-        }
+        String emailCreator = session.getUser().getEmail();
+        withPlaylistsOf(emailCreator, playlists -> {
+            if (!playlists.containsKey(emailCreator) || !playlists.get(emailCreator)
+                .contains(new Playlist(emailCreator, playlistTitle))) {
+                throw new NoSuchPlaylistException(ServerReply.DELETE_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply());
+            }
 
-        removePlaylistFromPlaylists(emailCreator, playlistTitle);
-        writePlaylists();
+            removePlaylistFromPlaylists(playlists, emailCreator, playlistTitle);
+            playlistsChanged();
+            return null;
+        });
     }
 
-    public void addSongToPlaylist(String playlistTitle, String songTitle, SelectionKey selectionKey)
+    public void addSongToPlaylist(String playlistTitle, String songTitle, Session session)
         throws SpotifyException {
 
         Objects.requireNonNull(playlistTitle, "The given playlist title cannot be null.");
         Objects.requireNonNull(songTitle, "The given song title cannot be null.");
-        Objects.requireNonNull(selectionKey, "The given selection key cannot be null");
+        Objects.requireNonNull(session, "The given session cannot be null.");
 
-        if (!alreadyLogged.contains(selectionKey)) {
+        if (!session.isLoggedIn()) {
             throw new UserNotLoggedException(ServerReply.ADD_SONG_TO_NOT_LOGGED_REPLY.getReply());
         }
 
@@ -195,116 +218,149 @@ public class StreamingPlatform {
             throw new NoSuchSongException(ServerReply.ADD_SONG_TO_NO_SUCH_SONG_REPLY.getReply());
         }
 
-        String emailCreator = user.getEmail();
-        if (!playlists.containsKey(emailCreator) || !playlists.get(emailCreator)
-            .contains(new Playlist(emailCreator, playlistTitle))) {
-            throw new NoSuchPlaylistException(ServerReply.ADD_SONG_TO_NO_SUCH_PLAYLIST_REPLY.getReply());
-        }
+        String emailCreator = session.getUser().getEmail();
+        withPlaylistsOf(emailCreator, playlists -> {
+            if (!playlists.containsKey(emailCreator) || !playlists.get(emailCreator)
+                .contains(new Playlist(emailCreator, playlistTitle))) {
+                throw new NoSuchPlaylistException(ServerReply.ADD_SONG_TO_NO_SUCH_PLAYLIST_REPLY.getReply());
+            }
 
-        addSongInPlaylist(emailCreator, playlistTitle, songToAdd);
+            addSongInPlaylist(playlists, emailCreator, playlistTitle, songToAdd);
+            return null;
+        });
     }
 
-    public void removeSongFromPlaylist(String playlistTitle, String songTitle, SelectionKey selectionKey)
+    public void removeSongFromPlaylist(String playlistTitle, String songTitle, Session session)
         throws SpotifyException {
 
         Objects.requireNonNull(playlistTitle, "The given playlist title cannot be null.");
         Objects.requireNonNull(songTitle, "The given playlist title cannot be null");
-        Objects.requireNonNull(selectionKey, "The given selection key cannot be null.");
+        Objects.requireNonNull(session, "The given session cannot be null.");
 
-        if (!alreadyLogged.contains(selectionKey)) {
+        if (!session.isLoggedIn()) {
             throw new UserNotLoggedException(ServerReply.REMOVE_SONG_FROM_NOT_LOGGED_REPLY.getReply());
         }
 
-        String emailCreator = user.getEmail();
-        if (!playlists.containsKey(emailCreator) ||
-            !playlists.get(emailCreator).contains(new Playlist(emailCreator, playlistTitle))) {
-            throw new NoSuchPlaylistException(ServerReply.REMOVE_SONG_FROM_NO_SUCH_PLAYLIST_REPLY.getReply());
-        }
+        String emailCreator = session.getUser().getEmail();
+        withPlaylistsOf(emailCreator, playlists -> {
+            if (!playlists.containsKey(emailCreator) ||
+                !playlists.get(emailCreator).contains(new Playlist(emailCreator, playlistTitle))) {
+                throw new NoSuchPlaylistException(ServerReply.REMOVE_SONG_FROM_NO_SUCH_PLAYLIST_REPLY.getReply());
+            }
 
-        removeSongFromPlaylists(emailCreator, playlistTitle, songTitle);
+            removeSongFromPlaylists(playlists, emailCreator, playlistTitle, songTitle);
+            return null;
+        });
     }
 
-    public Playlist showPlaylist(String playlistTitle, SelectionKey selectionKey)
+    public Playlist showPlaylist(String playlistTitle, Session session)
         throws UserNotLoggedException, NoSuchPlaylistException {
 
         Objects.requireNonNull(playlistTitle, "The given playlist title cannot be null.");
-        Objects.requireNonNull(selectionKey, "The given selection key cannot be null.");
+        Objects.requireNonNull(session, "The given session cannot be null.");
 
-        if (!alreadyLogged.contains(selectionKey)) {
+        if (!session.isLoggedIn()) {
             throw new UserNotLoggedException(ServerReply.SHOW_PLAYLIST_NOT_LOGGED_REPLY.getReply());
         }
 
-        String emailCreator = user.getEmail();
-        if (!playlists.containsKey(emailCreator) || !playlists.get(emailCreator)
-            .contains(new Playlist(emailCreator, playlistTitle))) {
-            throw new NoSuchPlaylistException(ServerReply.SHOW_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply());
-        }
+        String emailCreator = session.getUser().getEmail();
+        return withPlaylistsOf(emailCreator, playlists -> {
+            if (!playlists.containsKey(emailCreator) || !playlists.get(emailCreator)
+                .contains(new Playlist(emailCreator, playlistTitle))) {
+                throw new NoSuchPlaylistException(ServerReply.SHOW_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply());
+            }
 
-        Set<Playlist> allPlaylists =  playlists.get(emailCreator);
-        for (Playlist currentPlaylist : allPlaylists) {
+            Set<Playlist> allPlaylists =  playlists.get(emailCreator);
+            for (Playlist currentPlaylist : allPlaylists) {
 
-            if (currentPlaylist.getTitle().equals(playlistTitle)) {
-                return currentPlaylist;
+                if (currentPlaylist.getTitle().equals(playlistTitle)) {
+                    return copyOf(currentPlaylist);
+                }
             }
-        }
-        return new Playlist();
+            return new Playlist();
+        });
     }
 
-    public List<String> showPlaylists(SelectionKey selectionKey)
+    /**
+     * Returns a copy of the songs of the user's playlist, taken by the owner of the playlists, so that they can be
+     * walked on any thread while the playlist keeps changing. Returns an empty list when there is no such playlist.
+     */
+    public List<Song> getPlaylistSongs(String emailCreator, String playlistTitle) {
+        Objects.requireNonNull(emailCreator, "The given email of the creator cannot be null.");
+        Objects.requireNonNull(playlistTitle, "The given playlist title cannot be null.");
+
+        return withPlaylistsOf(emailCreator, playlists -> {
+            for (Playlist currentPlaylist : playlists.getOrDefault(emailCreator, Set.of())) {
+
+                if (currentPlaylist.getTitle().equals(playlistTitle)) {
+                    return List.copyOf(currentPlaylist.getPlaylistSongs());
+                }
+            }
+            return List.of();
+        });
+    }
+
+    public List<String> showPlaylists(Session session)
         throws UserNotLoggedException {
 
-        Objects.requireNonNull(selectionKey, "The given selection key cannot be null.");
+        Objects.requireNonNull(session, "The given session cannot be null.");
 
-        if (!alreadyLogged.contains(selectionKey)) {
+        if (!session.isLoggedIn()) {
             throw new UserNotLoggedException(ServerReply.SHOW_PLAYLIST_NOT_LOGGED_REPLY.getReply());
         }
 
-        String emailCreator = user.getEmail();
+        String emailCreator = session.getUser().getEmail();
 
-        if (!playlists.containsKey(emailCreator)) {
+        return withPlaylistsOf(emailCreator, playlists -> {
+            if (!playlists.containsKey(emailCreator)) {
 
-            return new ArrayList<>();
-        }
+                return new ArrayList<>();
+            }
 
-        return playlists.get(emailCreator).stream()
-            .map(Playlist::getTitle)
-            .toList();
+            return playlists.get(emailCreator).stream()
+                .map(Playlist::getTitle)
+                .toList();
+        });
     }
 
-    public void playPlaylist(String playlistTitle, SelectionKey selectionKey) throws SpotifyException {
+    public void playPlaylist(String playlistTitle, Session session) throws SpotifyException {
 
         Objects.requireNonNull(playlistTitle, "The given playlist title cannot be null.");
-        Objects.requireNonNull(selectionKey, "The given selection key cannot be null.");
+        Objects.requireNonNull(session, "The given session cannot be null.");
 
-        if (!alreadyLogged.contains(selectionKey)) {
+        if (!session.isLoggedIn()) {
             throw new UserNotLoggedException(ServerReply.PLAY_SONG_NOT_LOGGED_REPLY.getReply());
         }
 
-        if (!playlists.containsKey(user.getEmail()) || !playlists.get(user.getEmail())
-            .contains(new Playlist(user.getEmail(), playlistTitle))) {
-            throw new NoSuchPlaylistException(ServerReply.PLAY_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply());
-        }
+        String emailCreator = session.getUser().getEmail();
+        withPlaylistsOf(emailCreator, playlists -> {
+            if (!playlists.containsKey(emailCreator) || !playlists.get(emailCreator)
+                .contains(new Playlist(emailCreator, playlistTitle))) {
+                throw new NoSuchPlaylistException(ServerReply.PLAY_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply());
+            }
 
-        if (alreadyRunning.containsKey(selectionKey)) {
-            throw new SongIsAlreadyPlayingException(ServerReply.PLAY_SONG_IS_ALREADY_RUNNING_REPLY.getReply());
-        }
+            if (session.isPlaying()) {
+                throw new SongIsAlreadyPlayingException(ServerReply.PLAY_SONG_IS_ALREADY_RUNNING_REPLY.getReply());
+            }
 
-        validateNoSongsInPlaylistException(playlistTitle);
-        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread(playlistTitle, selectionKey, this,
+            validateNoSongsInPlaylistException(playlists, emailCreator, playlistTitle);
+            return null;
+        });
+        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread(playlistTitle, session, this,
             spotifyLogger);
         playPlaylistThread.start();
     }
 
-    public void playSong(String songTitle, SelectionKey selectionKey) throws SpotifyException {
+    public void playSong(String songTitle, Session session) throws SpotifyException {
 
         Objects.requireNonNull(songTitle, "The given playlist title cannot be null.");
-        Objects.requireNonNull(selectionKey, "The given selection key cannot be null.");
+        Objects.requireNonNull(session, "The given session cannot be null.");
 
-        if (!alreadyLogged.contains(selectionKey)) {
+        if (!session.isLoggedIn()) {
             throw new UserNotLoggedException(ServerReply.PLAY_SONG_NOT_LOGGED_REPLY.getReply());
         }
 
-        if (alreadyRunning.containsKey(selectionKey)) {
+        if (session.isPlaying()) {
             throw new SongIsAlreadyPlayingException(ServerReply.PLAY_SONG_IS_ALREADY_RUNNING_REPLY.getReply());
         }
 
@@ -313,65 +369,137 @@ public class StreamingPlatform {
             throw new NoSuchSongException(ServerReply.PLAY_SONG_NO_SUCH_SONG_REPLY.getReply());
         }
 
-        PlaySongThread playSongThread = new PlaySongThread(songToPlay.getArtist() + UNDERSCORE + songToPlay.getTitle(),
-            selectionKey, this, spotifyLogger);
-        alreadyRunning.put(selectionKey, playSongThread);
+        PlaySongThread playSongThread = new PlaySongThread(songToPlay, session, spotifyLogger,
+            createAudioSink(session), songFiles.get(songToPlay));
+        if (!session.startPlayback(playSongThread)) {
+            throw new SongIsAlreadyPlayingException(ServerReply.PLAY_SONG_IS_ALREADY_RUNNING_REPLY.getReply());
+        }
+
         playSongThread.start();
         increaseSongPlays(songToPlay);
         writeSongs();
     }
 
-    public void logout(SelectionKey selectionKey) throws SpotifyException, InterruptedException {
+    public void logout(Session session) throws SpotifyException, InterruptedException {
 
-        Objects.requireNonNull(selectionKey, "The given selection key cannot be null.");
+        Objects.requireNonNull(session, "The given session cannot be null.");
 
-        if (!alreadyLogged.contains(selectionKey)) {
+        if (!session.isLoggedIn()) {
             throw new UserNotLoggedException(ServerReply.LOGOUT_COMMAND_USER_NOT_LOGGED_REPLY.getReply());
         }
 
-        if (alreadyRunning.containsKey(selectionKey)) {
+        if (session.isPlaying()) {
 
-            stopSong(selectionKey);
+            stopSong(session);
         }
 
-        alreadyLogged.remove(selectionKey);
+        session.logout();
     }
 
-    public void stopSong(SelectionKey selectionKey) throws SpotifyException, InterruptedException {
+    public void stopSong(Session session) throws SpotifyException, InterruptedException {
 
-        Objects.requireNonNull(selectionKey, "The given selection key cannot be null.");
+        Objects.requireNonNull(session, "The given session cannot be null.");
 
-        if (!alreadyLogged.contains(selectionKey)) {
+        if (!session.isLoggedIn()) {
             throw new UserNotLoggedException(ServerReply.STOP_COMMAND_NOT_LOGGED_REPLY.getReply());
         }
 
-        if (!alreadyRunning.containsKey(selectionKey)) {
+        PlaySongThread playback = session.getPlayback();
+        if (playback == null) {
             throw new NoSongPlayingException(ServerReply.STOP_COMMAND_NO_SONG_PLAYING.getReply());
         }
 
-        alreadyRunning.get(selectionKey).terminateSong();
+        playback.terminateSong();
 
-        alreadyRunning.get(selectionKey).join();
+        playback.join();
     }
 
-    public void setUser(User user) {
-        this.user = user;
+    /**
+     * Returns the path of the audio file of the song with the given title, or {@code null} when there is no such
+     * song. The file itself may be missing.
+     */
+    public Path getSongPath(String songTitle) {
+        Objects.requireNonNull(songTitle, "The given song title cannot be null.");
+
+        Song song = isFound(songTitle);
+        if (song == null) {
+            return null;
+        }
+
+        return Paths.get(MUSIC_PATH + song.getArtist() + UNDERSCORE + song.getTitle() + WAV_FORMAT);
     }
 
-    public User getUser() {
-        return user;
+    /**
+     * Writes the songs, with their play counts, and the playlists to storage. Called once by the server when it shuts
+     * down, after every playback has stopped.
+     */
+    public synchronized void persist() throws IODatabaseException {
+        writeSongs();
+        writePlaylists();
+    }
+
+    /**
+     * Closes the files the songs are sent from. Called once by the server when it shuts down, after every connection
+     * is closed. A song played afterwards opens its file again.
+     */
+    public void closeSongFiles() {
+        for (SongFile currentSongFile : songFiles.values()) {
+            try {
+                currentSongFile.close();
+            } catch (IOException e) {
+                // Nothing is left to be sent from the file
+            }
+        }
+    }
+
+    /**
+     * Returns the version of the songs of the catalog, which the results of {@code search} depend on. The songs are
+     * only read at start-up, so the version stays the same for the life of the platform.
+     */
+    public long getCatalogVersion() {
+        return catalogVersion;
     }
 
-    public Set<SelectionKey> getAlreadyLogged() {
-        return alreadyLogged;
+    /**
+     * Returns the version of the chart, which grows with every play, since any play may reorder the results of
+     * {@code top}. Read it before the chart, so that results are never labelled newer than they are.
+     */
+    public long getChartVersion() {
+        return chartVersion.get();
     }
 
+    public void setPlaybackMode(PlaybackMode playbackMode) {
+        this.playbackMode = Objects.requireNonNull(playbackMode, "The playback mode cannot be null.");
+    }
+
+    public PlaybackMode getPlaybackMode() {
+        return playbackMode;
+    }
+
+    /**
+     * Returns the playlists of every user. When they are split into shards, the map is a copy taken shard by shard.
+     */
     public Map<String, Set<Playlist>> getPlaylists() {
+        if (playlistShards != null) {
+            return playlistShards.snapshot();
+        }
+
         return playlists;
     }
 
-    public Map<SelectionKey, PlaySongThread> getAlreadyRunning() {
-        return alreadyRunning;
+    /**
+     * Returns the thread owning the playlists of the session's user, so that its playlist commands can run there
+     * without handing each operation over. Returns {@code null} when the playlists are not split into shards or
+     * nobody is logged in.
+     */
+    public Executor getPlaylistExecutor(Session session) {
+        Objects.requireNonNull(session, "The given session cannot be null.");
+
+        if (playlistShards == null || !session.isLoggedIn()) {
+            return null;
+        }
+
+        return playlistShards.shardOf(session.getUser().getEmail());
     }
 
     public Reader getPlaylistsReader() {
@@ -432,12 +560,40 @@ public class StreamingPlatform {
             List<SongEntity> songCollection;
             songCollection = GSON.fromJson(getAppropriateSongsReader(), type);
             songs = new LinkedHashSet<>(songCollection);
+            songIndex = new SongIndex(songs);
+            songChart = new SongChart(songs);
+            songFiles = ingestSongFiles();
         } catch (IOException e) {
 
             throw new IODatabaseException(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), e);
         }
     }
 
+    /**
+     * Locates the PCM data of every song file once, so that playing a song can send it without parsing its header.
+     * Songs whose files are missing or compressed are left to be decoded when played.
+     */
+    private Map<Song, SongFile> ingestSongFiles() {
+        Map<Song, SongFile> ingested = new ConcurrentHashMap<>();
+        for (SongEntity currentSongEntity : songs) {
+            Song currentSong = currentSongEntity.getSong();
+            Path songPath = Paths.get(MUSIC_PATH + currentSong.getArtist() + UNDERSCORE + currentSong.getTitle() +
+                WAV_FORMAT);
+
+            if (!Files.isRegularFile(songPath)) {
+                continue;
+            }
+
+            try {
+                ingested.put(currentSong, SongFile.ingest(songPath));
+            } catch (IOException | UnsupportedAudioFileException e) {
+                // The song is decoded when played instead
+            }
+        }
+
+        return ingested;
+    }
+
     private Writer getAppropriatePlaylistsWriter() throws IOException {
         if (playlistsWriter == null) {
             return new FileWriter(PLAYLISTS_LIST_PATH);
@@ -448,7 +604,7 @@ public class StreamingPlatform {
 
     private synchronized void writePlaylists() throws IODatabaseException {
         List<Playlist> allPlaylists = new ArrayList<>();
-        for (Map.Entry<String, Set<Playlist>> currentEntry : playlists.entrySet()) {
+        for (Map.Entry<String, Set<Playlist>> currentEntry : getPlaylists().entrySet()) {
 
             allPlaylists.addAll(currentEntry.getValue());
         }
@@ -484,7 +640,7 @@ public class StreamingPlatform {
         }
     }
 
-    private synchronized void allocatePlaylists(Set<Playlist> toAllocate) {
+    private void allocatePlaylists(Set<Playlist> toAllocate) {
         Map<String, List<Playlist>> resultWithList = toAllocate.stream()
             .collect(Collectors.groupingBy(Playlist::getEmailCreator));
 
@@ -498,8 +654,53 @@ public class StreamingPlatform {
         playlists = resultWithSet;
     }
 
-    private synchronized void removePlaylistFromPlaylists(String emailCreator, String playlistTitle)
-        throws SpotifyException {
+    private void partitionPlaylists(int playlistShardCount) {
+        if (playlistShardCount < 0) {
+            throw new IllegalArgumentException(NEGATIVE_SHARD_COUNT);
+        }
+
+        if (playlistShardCount != UNPARTITIONED) {
+            playlistShards = new PlaylistShards(playlistShardCount, playlists);
+            playlistShards.start();
+            playlists = null;
+        }
+    }
+
+    /**
+     * Runs the task on the map holding the playlists of the given user: under the platform's lock when the
+     * playlists are kept together, or on the thread owning the user's shard, without any lock, when they are split.
+     */
+    private <T, E extends Exception> T withPlaylistsOf(String emailCreator, PlaylistTask<T, E> task) throws E {
+        if (playlistShards != null) {
+            return playlistShards.shardOf(emailCreator).call(task);
+        }
+
+        synchronized (this) {
+            return task.run(playlists);
+        }
+    }
+
+    /**
+     * Writes the playlists after a change. Split playlists are only written by {@link #persist()}, since writing
+     * them after every change would take all the shards in turn.
+     */
+    private void playlistsChanged() throws IODatabaseException {
+        if (playlistShards == null) {
+            writePlaylists();
+        }
+    }
+
+    /**
+     * Copies the playlist for a caller outside the owner of the playlists, which keeps changing the original.
+     */
+    private static Playlist copyOf(Playlist playlist) {
+        Playlist copy = new Playlist(playlist.getEmailCreator(), playlist.getTitle());
+        playlist.getPlaylistSongs().forEach(copy::addSong);
+        return copy;
+    }
+
+    private void removePlaylistFromPlaylists(Map<String, Set<Playlist>> playlists, String emailCreator,
+                                             String playlistTitle) throws SpotifyException {
         Set<Playlist> allPlaylists =  playlists.get(emailCreator);
         for (Playlist currentPlaylist : allPlaylists) {
 
@@ -517,16 +718,12 @@ public class StreamingPlatform {
     }
 
     private Song isFound(String songTitle) {
-        for (SongEntity currentSongEntity : songs) {
-            if (currentSongEntity.getSong().getTitle().equalsIgnoreCase(songTitle)) {
-                return currentSongEntity.getSong();
-            }
-        }
-        return null;
+        SongEntity songEntity = songIndex.findByTitle(songTitle);
+        return songEntity == null ? null : songEntity.getSong();
     }
 
-    private synchronized void removeSongFromPlaylists(String emailCreator, String playlistTitle, String songTitle)
-        throws SpotifyException {
+    private void removeSongFromPlaylists(Map<String, Set<Playlist>> playlists, String emailCreator,
+                                         String playlistTitle, String songTitle) throws SpotifyException {
         Song songToRemove = isFound(songTitle);
         if (songToRemove == null) {
             throw new NoSuchSongException(ServerReply.REMOVE_SONG_FROM_NO_SUCH_SONG_REPLY.getReply());
@@ -544,11 +741,11 @@ public class StreamingPlatform {
             }
         }
 
-        writePlaylists();
+        playlistsChanged();
     }
 
-    private synchronized void addSongInPlaylist(String emailCreator, String playlistTitle, Song songToAdd)
-        throws SpotifyException {
+    private void addSongInPlaylist(Map<String, Set<Playlist>> playlists, String emailCreator, String playlistTitle,
+                                   Song songToAdd) throws SpotifyException {
         Set<Playlist> allPlaylists =  playlists.get(emailCreator);
         for (Playlist currentPlaylist : allPlaylists) {
 
@@ -563,11 +760,12 @@ public class StreamingPlatform {
             }
         }
 
-        writePlaylists();
+        playlistsChanged();
     }
 
-    private void validateNoSongsInPlaylistException(String playlistTitle) throws NoSongsInPlaylistException {
-        for (Playlist currentPlaylist : playlists.get(user.getEmail())) {
+    private void validateNoSongsInPlaylistException(Map<String, Set<Playlist>> playlists, String emailCreator,
+                                                    String playlistTitle) throws NoSongsInPlaylistException {
+        for (Playlist currentPlaylist : playlists.get(emailCreator)) {
 
             if (currentPlaylist.getTitle().equals(playlistTitle)) {
 
@@ -581,11 +779,30 @@ public class StreamingPlatform {
         }
     }
 
+    private AudioSink createAudioSink(Session session) {
+        ClientConnection connection = session.getConnection();
+        if (playbackMode == PlaybackMode.STREAM_TO_CLIENT && connection != null) {
+            return new ConnectionAudioSink(connection.getAudioConnection());
+        }
+
+        return new LocalLineAudioSink();
+    }
+
     private void increaseSongPlays(Song songToPlay) {
-        for (SongEntity currentSongEntity : songs) {
-            if (currentSongEntity.getSong().equals(songToPlay)) {
-                currentSongEntity.increaseListeningTimes();
-            }
+        SongEntity songEntity = songIndex.findBySong(songToPlay);
+        if (songEntity != null) {
+            songChart.recordPlay(songEntity);
         }
+
+        chartVersion.incrementAndGet();
+    }
+
+    /**
+     * The first version of a platform started now. Versions start from the start-up time, scaled so that a run
+     * would need a million plays per millisecond of uptime to reach the versions of the next one, so a client
+     * never mistakes a reply cached from an earlier run for a current one.
+     */
+    private static long versionEpoch() {
+        return System.currentTimeMillis() << VERSIONS_PER_MILLISECOND_SHIFT;
     }
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.buffer;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCodec;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of direct buffers for connection I/O. Buffers come in a few size classes, for reads, replies and audio
+ * chunks, and each class carves its buffers out of large direct slabs, so that direct memory is allocated rarely
+ * and in big pieces. Free buffers are reused most recently released first, while they are still warm in the
+ * cache. Buffers are leased for as long as a connection has something to read or write and returned
+ * afterwards, so idle connections hold no buffers at all.
+ *
+ * <p>A lease which finds no free buffer is a miss. The pool then allocates another slab, unless that would take it
+ * beyond its capacity or the requested size is larger than the largest class, in which case the caller gets a plain
+ * heap buffer which is simply dropped when it is released. Safe to use from any thread.
+ */
+public class BufferPool {
+
+    public static final int READ_BUFFER_SIZE = 2 * 1024;
+    public static final int REPLY_BUFFER_SIZE = 8 * 1024;
+    public static final int AUDIO_BUFFER_SIZE = 16 * 1024 + FrameCodec.HEADER_SIZE;
+
+    private static final int SLAB_SIZE = 256 * 1024;
+    private static final String NEGATIVE_CAPACITY_MESSAGE = "The capacity of the pool cannot be negative.";
+    private static final String NO_SIZE_CLASSES_MESSAGE = "The pool needs at least one positive size class.";
+
+    private final SizeClass[] sizeClasses;
+    private final long capacity;
+    private final AtomicLong allocatedBytes;
+    private final LongAdder leases;
+    private final LongAdder misses;
+
+    public BufferPool(long capacity) {
+        this(capacity, READ_BUFFER_SIZE, REPLY_BUFFER_SIZE, AUDIO_BUFFER_SIZE);
+    }
+
+    public BufferPool(long capacity, int... bufferSizes) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(NEGATIVE_CAPACITY_MESSAGE);
+        }
+
+        if (bufferSizes.length == 0 || Arrays.stream(bufferSizes).anyMatch(size -> size <= 0)) {
+            throw new IllegalArgumentException(NO_SIZE_CLASSES_MESSAGE);
+        }
+
+        this.sizeClasses = Arrays.stream(bufferSizes)
+            .sorted()
+            .distinct()
+            .mapToObj(SizeClass::new)
+            .toArray(SizeClass[]::new);
+        this.capacity = capacity;
+        this.allocatedBytes = new AtomicLong(0);
+        this.leases = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Returns a cleared buffer of at least the given capacity. It should be given back with {@link #release}.
+     */
+    public ByteBuffer lease(int minCapacity) {
+        leases.increment();
+
+        SizeClass sizeClass = sizeClassFor(minCapacity);
+        if (sizeClass != null) {
+            ByteBuffer buffer = sizeClass.free.poll();
+            if (buffer == null) {
+                misses.increment();
+                buffer = sizeClass.allocateSlab(this);
+            }
+
+            if (buffer != null) {
+                sizeClass.leased.increment();
+                return buffer.clear();
+            }
+        } else {
+            misses.increment();
+        }
+
+        return ByteBuffer.allocate(minCapacity);
+    }
+
+    /**
+     * Gives a leased buffer back to the pool. Buffers which did not come from the pool are ignored.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+
+        SizeClass sizeClass = sizeClassFor(buffer.capacity());
+        if (sizeClass != null && sizeClass.bufferSize == buffer.capacity()) {
+            sizeClass.leased.decrement();
+            sizeClass.free.push(buffer);
+        }
+    }
+
+    public BufferPoolStatistics getStatistics() {
+        long leasedBytes = 0;
+        for (SizeClass currentClass : sizeClasses) {
+            leasedBytes += currentClass.leased.sum() * currentClass.bufferSize;
+        }
+
+        return new BufferPoolStatistics(capacity, allocatedBytes.get(), leasedBytes, leases.sum(), misses.sum());
+    }
+
+    private SizeClass sizeClassFor(int size) {
+        for (SizeClass currentClass : sizeClasses) {
+            if (size <= currentClass.bufferSize) {
+                return currentClass;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean reserve(long bytes) {
+        long allocated;
+        do {
+            allocated = allocatedBytes.get();
+            if (allocated + bytes > capacity) {
+                return false;
+            }
+        } while (!allocatedBytes.compareAndSet(allocated, allocated + bytes));
+
+        return true;
+    }
+
+    private static final class SizeClass {
+
+        private final int bufferSize;
+        private final int buffersPerSlab;
+        private final Deque<ByteBuffer> free;
+        private final LongAdder leased;
+
+        private SizeClass(int bufferSize) {
+            this.bufferSize = bufferSize;
+            this.buffersPerSlab = Math.max(1, SLAB_SIZE / bufferSize);
+            this.free = new ConcurrentLinkedDeque<>();
+            this.leased = new LongAdder();
+        }
+
+        /**
+         * Allocates one more slab, keeps one of its buffers for the caller and puts the rest on the free list.
+         * Returns {@code null} when the pool has no capacity left for another slab.
+         */
+        private synchronized ByteBuffer allocateSlab(BufferPool pool) {
+            ByteBuffer buffer = free.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+
+            int slabSize = bufferSize * buffersPerSlab;
+            if (!pool.reserve(slabSize)) {
+                return null;
+            }
+
+            ByteBuffer slab = ByteBuffer.allocateDirect(slabSize);
+            for (int i = 1; i < buffersPerSlab; i++) {
+                free.add(slab.slice(i * bufferSize, bufferSize));
+            }
+
+            return slab.slice(0, bufferSize);
+        }
+    }
+}
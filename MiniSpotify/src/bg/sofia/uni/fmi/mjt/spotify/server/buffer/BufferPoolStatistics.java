@@ -0,0 +1,19 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.buffer;
+
+/**
+ * A snapshot of a {@link BufferPool}: how much direct memory its slabs take, how much of it is leased right now and
+ * how many leases it could not serve from its free lists.
+ */
+public record BufferPoolStatistics(long capacity, long allocatedBytes, long leasedBytes, long leases, long misses) {
+
+    /**
+     * The share of the allocated slab memory which is leased at the moment.
+     */
+    public double utilization() {
+        return allocatedBytes == 0 ? 0 : (double) leasedBytes / allocatedBytes;
+    }
+
+    public double missRate() {
+        return leases == 0 ? 0 : (double) misses / leases;
+    }
+}
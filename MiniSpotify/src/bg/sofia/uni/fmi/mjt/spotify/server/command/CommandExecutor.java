@@ -2,6 +2,7 @@ package bg.sofia.uni.fmi.mjt.spotify.server.command;
 
 import bg.sofia.uni.fmi.mjt.spotify.server.ServerReply;
 import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPool;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.EmailAlreadyRegisteredException;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.IODatabaseException;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.NoSongPlayingException;
@@ -19,14 +20,17 @@ import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.UserNotLoggedException;
 import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
 import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
 import bg.sofia.uni.fmi.mjt.spotify.server.login.User;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.ReplyWriter;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.Playlist;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.Song;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongEntity;
 
-import java.nio.channels.SelectionKey;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 
 public class CommandExecutor {
@@ -34,6 +38,7 @@ public class CommandExecutor {
     private static final String REGISTER_COMMAND_NAME = "register";
     private static final String LOGIN_COMMAND_NAME = "login";
     private static final String SEARCH_COMMAND_NAME = "search";
+    private static final String FUZZY_SEARCH_COMMAND_NAME = "fuzzy-search";
     private static final String TOP_COMMAND_NAME = "top";
     private static final String CREATE_PLAYLIST_COMMAND_NAME = "create-playlist";
     private static final String ADD_SONG_TO_COMMAND_NAME = "add-song-to";
@@ -57,6 +62,7 @@ public class CommandExecutor {
     private static final String ZERO_CHARACTER = "0";
     private static final String TIMES_SIGN = "# ";
     private static final String POSITIVE_NUMBER_REGEX = "^[0-9]+$";
+    private static final BufferPool HEAP_BUFFERS = new BufferPool(0);
 
     private final StreamingPlatform streamingPlatform;
     private final AuthenticationService authenticationService;
@@ -69,38 +75,97 @@ public class CommandExecutor {
         this.spotifyLogger = spotifyLogger;
     }
 
-    public String executeCommand(Command cmd, SelectionKey selectionKey) {
+    public String executeCommand(Command cmd, Session session) {
+        ReplyWriter replyWriter = new ReplyWriter(HEAP_BUFFERS);
+        executeCommand(cmd, session, replyWriter);
+
+        return replyWriter.toFrame(FrameType.REPLY).text();
+    }
+
+    /**
+     * Renders the reply of the command into the writer. Listings of songs and playlists are encoded line by line as
+     * they are rendered, instead of being built as one {@code String} first.
+     */
+    public void executeCommand(Command cmd, Session session, ReplyWriter replyWriter) {
         Objects.requireNonNull(cmd, "The provided command cannot be null.");
-        Objects.requireNonNull(selectionKey, "The provided selectionKey cannot be null.");
+        Objects.requireNonNull(session, "The provided session cannot be null.");
+        Objects.requireNonNull(replyWriter, "The provided reply writer cannot be null.");
+
+        switch (cmd.command()) {
+            case SEARCH_COMMAND_NAME -> processSearchCommand(cmd.arguments(), replyWriter);
+            case FUZZY_SEARCH_COMMAND_NAME -> processFuzzySearchCommand(cmd.arguments(), replyWriter);
+            case TOP_COMMAND_NAME -> processTopCommand(cmd.arguments(), replyWriter);
+            case SHOW_PLAYLIST_COMMAND_NAME -> processShowPlaylistCommand(cmd.arguments(), session, replyWriter);
+            case SHOW_PLAYLISTS_COMMAND_NAME -> processShowPlaylistsCommand(session, replyWriter);
+            default -> replyWriter.append(executeStatusCommand(cmd, session));
+        }
+    }
 
+    private String executeStatusCommand(Command cmd, Session session) {
         return switch(cmd.command()) {
             case REGISTER_COMMAND_NAME -> processRegisterCommand(cmd.arguments());
-            case LOGIN_COMMAND_NAME -> processLoginCommand(cmd.arguments(), selectionKey);
-            case LOGOUT_COMMAND_NAME -> processLogoutCommand(selectionKey);
-            case DISCONNECT_COMMAND_NAME -> processDisconnectCommand(selectionKey);
-            case SEARCH_COMMAND_NAME -> processSearchCommand(cmd.arguments());
-            case TOP_COMMAND_NAME -> processTopCommand(cmd.arguments());
-            case CREATE_PLAYLIST_COMMAND_NAME -> processCreatePlaylistCommand(cmd.arguments(), selectionKey);
-            case DELETE_PLAYLIST_COMMAND_NAME -> processDeletePlaylistCommand(cmd.arguments(), selectionKey);
-            case ADD_SONG_TO_COMMAND_NAME -> processAddSongToCommand(cmd.arguments(), selectionKey);
-            case REMOVE_SONG_FROM_COMMAND_NAME -> processRemoveSongFromCommand(cmd.arguments(), selectionKey);
-            case SHOW_PLAYLIST_COMMAND_NAME -> processShowPlaylistCommand(cmd.arguments(), selectionKey);
-            case SHOW_PLAYLISTS_COMMAND_NAME -> processShowPlaylistsCommand(selectionKey);
-            case PLAY_SONG_COMMAND_NAME -> processPlayCommand(cmd.arguments(), selectionKey);
-            case PLAY_PLAYLIST_COMMAND_NAME -> processPlayPlaylistCommand(cmd.arguments(), selectionKey);
-            case STOP_COMMAND_NAME -> processStopCommand(selectionKey);
+            case LOGIN_COMMAND_NAME -> processLoginCommand(cmd.arguments(), session);
+            case LOGOUT_COMMAND_NAME -> processLogoutCommand(session);
+            case DISCONNECT_COMMAND_NAME -> processDisconnectCommand(session);
+            case CREATE_PLAYLIST_COMMAND_NAME -> processCreatePlaylistCommand(cmd.arguments(), session);
+            case DELETE_PLAYLIST_COMMAND_NAME -> processDeletePlaylistCommand(cmd.arguments(), session);
+            case ADD_SONG_TO_COMMAND_NAME -> processAddSongToCommand(cmd.arguments(), session);
+            case REMOVE_SONG_FROM_COMMAND_NAME -> processRemoveSongFromCommand(cmd.arguments(), session);
+            case PLAY_SONG_COMMAND_NAME -> processPlayCommand(cmd.arguments(), session);
+            case PLAY_PLAYLIST_COMMAND_NAME -> processPlayPlaylistCommand(cmd.arguments(), session);
+            case STOP_COMMAND_NAME -> processStopCommand(session);
             case HELP_COMMAND_NAME -> processHelpCommand();
             default -> ServerReply.UNKNOWN_COMMAND_REPLY.getReply();
         };
     }
 
+    /**
+     * Ends the session of a client which is going away, logging it out the same way the disconnect command does.
+     */
+    public String closeSession(Session session) {
+        Objects.requireNonNull(session, "The provided session cannot be null.");
+
+        return processDisconnectCommand(session);
+    }
+
+    /**
+     * Writes the state of the streaming platform to storage. Called by the server once all sessions have ended.
+     */
+    public void persistState() throws IODatabaseException {
+        streamingPlatform.persist();
+    }
+
+    /**
+     * Closes the files the platform sends songs from. Called by the server once all connections are closed.
+     */
+    public void closeSongFiles() {
+        streamingPlatform.closeSongFiles();
+    }
+
+    /**
+     * Returns the version of what the reply of the catalog query is rendered from: the chart for {@code top}, whose
+     * ranking moves with every play, and the songs of the catalog for the searches, which plays do not change.
+     */
+    public long getVersionOf(String commandName) {
+        return TOP_COMMAND_NAME.equalsIgnoreCase(commandName) ?
+            streamingPlatform.getChartVersion() : streamingPlatform.getCatalogVersion();
+    }
+
+    /**
+     * Returns the thread which owns the playlists of the session's user, or {@code null} when playlist commands
+     * may run anywhere.
+     */
+    public Executor getPlaylistExecutor(Session session) {
+        return streamingPlatform.getPlaylistExecutor(session);
+    }
+
     private String processHelpCommand() {
         return ServerReply.HELP_COMMAND_REPLY.getReply();
     }
 
-    private String processDisconnectCommand(SelectionKey selectionKey) {
-        if (streamingPlatform.getAlreadyLogged().contains(selectionKey)) {
-            String result = processLogoutCommand(selectionKey);
+    private String processDisconnectCommand(Session session) {
+        if (session.isLoggedIn()) {
+            String result = processLogoutCommand(session);
             if (!result.equals(ServerReply.SERVER_EXCEPTION.getReply())) {
                 return ServerReply.DISCONNECT_COMMAND_SUCCESSFULLY_REPLY.getReply();
             }
@@ -111,9 +176,9 @@ public class CommandExecutor {
         return ServerReply.DISCONNECT_COMMAND_SUCCESSFULLY_REPLY.getReply();
     }
 
-    private String processLogoutCommand(SelectionKey selectionKey) {
+    private String processLogoutCommand(Session session) {
         try {
-            streamingPlatform.logout(selectionKey);
+            streamingPlatform.logout(session);
         } catch (UserNotLoggedException e) {
 
             return getCorrectReply(Level.INFO, ServerReply.LOGOUT_COMMAND_USER_NOT_LOGGED_REPLY.getReply(), e);
@@ -125,151 +190,155 @@ public class CommandExecutor {
         return ServerReply.LOGOUT_COMMAND_SUCCESSFULLY_REPLY.getReply();
     }
 
-    private String processStopCommand(SelectionKey selectionKey) {
+    private String processStopCommand(Session session) {
 
         try {
-            streamingPlatform.stopSong(selectionKey);
+            streamingPlatform.stopSong(session);
         } catch (UserNotLoggedException e) {
             return getCorrectReply(Level.INFO, ServerReply.STOP_COMMAND_NOT_LOGGED_REPLY.getReply(), e);
         } catch (NoSongPlayingException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.STOP_COMMAND_NO_SONG_PLAYING.getReply(), e);
         } catch (Exception e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.STOP_COMMAND_ERROR_REPLY.getReply(), e);
         }
 
         return ServerReply.STOP_COMMAND_SUCCESSFULLY_REPLY.getReply();
     }
 
-    private String processPlayCommand(List<String> arguments, SelectionKey selectionKey) {
+    private String processPlayCommand(List<String> arguments, Session session) {
         Objects.requireNonNull(arguments, "The provided list of arguments cannot be null.");
 
         String songName = arguments.get(0);
         try {
-            streamingPlatform.playSong(songName, selectionKey);
+            streamingPlatform.playSong(songName, session);
         } catch (UserNotLoggedException e) {
             return getCorrectReply(Level.INFO, ServerReply.PLAY_SONG_NOT_LOGGED_REPLY.getReply(), e);
         } catch (NoSuchSongException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.PLAY_SONG_NO_SUCH_SONG_REPLY.getReply(), e);
         } catch (SongIsAlreadyPlayingException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.PLAY_SONG_IS_ALREADY_RUNNING_REPLY.getReply(), e);
         } catch (IODatabaseException e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), e);
         } catch (Exception e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.SERVER_EXCEPTION.getReply(), e);
         }
 
         return ServerReply.PLAY_SONG_SUCCESSFULLY_REPLY.getReply();
     }
 
-    private String processPlayPlaylistCommand(List<String> arguments, SelectionKey selectionKey) {
+    private String processPlayPlaylistCommand(List<String> arguments, Session session) {
 
         Objects.requireNonNull(arguments, "The provided list of arguments cannot be null.");
 
         String playlistName = arguments.get(0);
 
         try {
-            streamingPlatform.playPlaylist(playlistName, selectionKey);
+            streamingPlatform.playPlaylist(playlistName, session);
         } catch (UserNotLoggedException e) {
             return getCorrectReply(Level.INFO, ServerReply.PLAY_PLAYLIST_NOT_LOGGED_REPLY.getReply(), e);
         } catch (SongIsAlreadyPlayingException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.PLAY_PLAYLIST_ALREADY_PLAYING.getReply(), e);
         } catch (NoSuchPlaylistException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.PLAY_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply(), e);
         } catch (NoSongsInPlaylistException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.PLAY_PLAYLIST_NO_SONGS_IN_PLAYLIST_REPLY.getReply(), e);
         } catch (Exception e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.SERVER_EXCEPTION.getReply(), e);
         }
 
         return ServerReply.PLAY_PLAYLIST_SUCCESSFULLY_REPLY.getReply();
     }
 
-    private String generateOutputShowPlaylistCommand(Playlist toReturn) {
+    private void generateOutputShowPlaylistCommand(Playlist toReturn, ReplyWriter replyWriter) {
         Objects.requireNonNull(toReturn, "The provided playlist cannot be null.");
 
         if (toReturn.getPlaylistSongs().isEmpty()) {
-            return ServerReply.SHOW_PLAYLIST_NO_SONGS_REPLY.getReply();
+            replyWriter.append(ServerReply.SHOW_PLAYLIST_NO_SONGS_REPLY.getReply());
+            return;
         }
 
-        StringBuilder resultString = new StringBuilder();
-        resultString.append(ServerReply.SHOW_PLAYLIST_SUCCESSFULLY_REPLY.getReply()).append(toReturn.getTitle())
-            .append(System.lineSeparator());
+        replyWriter.append(ServerReply.SHOW_PLAYLIST_SUCCESSFULLY_REPLY.getReply()).append(toReturn.getTitle())
+            .newLine();
 
         int counter = 1;
         for (Song currentSong : toReturn.getPlaylistSongs()) {
 
-            resultString.append(counter).append(TITLE_LABEL).append(currentSong.getTitle()).append(ARTIST_LABEL)
+            replyWriter.append(counter).append(TITLE_LABEL).append(currentSong.getTitle()).append(ARTIST_LABEL)
                 .append(currentSong.getArtist()).append(GENRE_LABEL).append(currentSong.getGenre())
-                .append(DURATION_LABEL).append(currentSong.getDuration()).append(System.lineSeparator());
+                .append(DURATION_LABEL).append(currentSong.getDuration()).newLine();
 
             ++counter;
         }
-
-        return resultString.toString();
     }
 
-    private String processShowPlaylistCommand(List<String> arguments, SelectionKey selectionKey) {
+    private void processShowPlaylistCommand(List<String> arguments, Session session, ReplyWriter replyWriter) {
         Objects.requireNonNull(arguments, "The provided list of arguments cannot be null.");
 
         String playlistTitle = arguments.get(0);
+        Playlist toReturn;
         try {
-            Playlist toReturn = streamingPlatform.showPlaylist(playlistTitle, selectionKey);
-            return generateOutputShowPlaylistCommand(toReturn);
+            toReturn = streamingPlatform.showPlaylist(playlistTitle, session);
         } catch (UserNotLoggedException e) {
-            return getCorrectReply(Level.INFO, ServerReply.SHOW_PLAYLIST_NOT_LOGGED_REPLY.getReply(), e);
+            replyWriter.append(getCorrectReply(Level.INFO, ServerReply.SHOW_PLAYLIST_NOT_LOGGED_REPLY.getReply(), e));
+            return;
         } catch (NoSuchPlaylistException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
-                ServerReply.SHOW_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply(), e);
+            replyWriter.append(getCorrectReply(Level.INFO, session.getUser().getEmail(),
+                ServerReply.SHOW_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply(), e));
+            return;
         } catch (Exception e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
-                ServerReply.SERVER_EXCEPTION.getReply(), e);
+            replyWriter.append(getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
+                ServerReply.SERVER_EXCEPTION.getReply(), e));
+            return;
         }
+
+        generateOutputShowPlaylistCommand(toReturn, replyWriter);
     }
 
-    private String generateOutputShowPlaylistsCommand(List<String> playlistTitles) {
+    private void generateOutputShowPlaylistsCommand(List<String> playlistTitles, ReplyWriter replyWriter) {
         Objects.requireNonNull(playlistTitles, "The provided list of playlist titles cannot be null.");
 
         if (playlistTitles.isEmpty()) {
-            return ServerReply.SHOW_PLAYLISTS_NO_PLAYLISTS_REPLY.getReply();
+            replyWriter.append(ServerReply.SHOW_PLAYLISTS_NO_PLAYLISTS_REPLY.getReply());
+            return;
         }
 
-        StringBuilder resultString = new StringBuilder();
-        resultString.append(ServerReply.SHOW_PLAYLISTS_SUCCESSFULLY_REPLY.getReply()).append(System.lineSeparator());
+        replyWriter.append(ServerReply.SHOW_PLAYLISTS_SUCCESSFULLY_REPLY.getReply()).newLine();
         int counter = 1;
         for (String currentPlaylistTitle : playlistTitles) {
-            resultString.append(counter).append(TITLE_LABEL).append(currentPlaylistTitle)
-                .append(System.lineSeparator());
+            replyWriter.append(counter).append(TITLE_LABEL).append(currentPlaylistTitle).newLine();
 
             ++counter;
         }
-
-        return resultString.toString();
     }
 
-    private String processShowPlaylistsCommand(SelectionKey selectionKey) {
+    private void processShowPlaylistsCommand(Session session, ReplyWriter replyWriter) {
 
+        List<String> playlistTitles;
         try {
-            List<String> playlistTitles = streamingPlatform.showPlaylists(selectionKey);
-            return generateOutputShowPlaylistsCommand(playlistTitles);
+            playlistTitles = streamingPlatform.showPlaylists(session);
         } catch (UserNotLoggedException e) {
-            return getCorrectReply(Level.INFO, ServerReply.SHOW_PLAYLISTS_NOT_LOGGED_REPLY.getReply(), e);
+            replyWriter.append(getCorrectReply(Level.INFO, ServerReply.SHOW_PLAYLISTS_NOT_LOGGED_REPLY.getReply(), e));
+            return;
         } catch (Exception e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
-                ServerReply.SERVER_EXCEPTION.getReply(), e);
+            replyWriter.append(getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
+                ServerReply.SERVER_EXCEPTION.getReply(), e));
+            return;
         }
+
+        generateOutputShowPlaylistsCommand(playlistTitles, replyWriter);
     }
 
-    private String processAddSongToCommand(List<String> arguments, SelectionKey selectionKey) {
+    private String processAddSongToCommand(List<String> arguments, Session session) {
 
         Objects.requireNonNull(arguments, "The provided list of arguments cannot be null.");
 
@@ -277,127 +346,148 @@ public class CommandExecutor {
         String songTitle = arguments.get(1);
 
         try {
-            streamingPlatform.addSongToPlaylist(playlistTitle, songTitle, selectionKey);
+            streamingPlatform.addSongToPlaylist(playlistTitle, songTitle, session);
         } catch (UserNotLoggedException e) {
             return getCorrectReply(Level.INFO, ServerReply.ADD_SONG_TO_NOT_LOGGED_REPLY.getReply(), e);
         } catch (NoSuchSongException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.ADD_SONG_TO_NO_SUCH_SONG_REPLY.getReply(), e);
         } catch (NoSuchPlaylistException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.ADD_SONG_TO_NO_SUCH_PLAYLIST_REPLY.getReply(), e);
         } catch (SongAlreadyInPlaylistException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.ADD_SONG_TO_SONG_ALREADY_EXIST_REPLY.getReply(), e);
         } catch (IODatabaseException e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), e);
         } catch (Exception e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.SERVER_EXCEPTION.getReply(), e);
         }
 
         return ServerReply.ADD_SONG_TO_SUCCESSFULLY_REPLY.getReply();
     }
 
-    private String processRemoveSongFromCommand(List<String> arguments, SelectionKey selectionKey) {
+    private String processRemoveSongFromCommand(List<String> arguments, Session session) {
 
         Objects.requireNonNull(arguments, "The provided list of arguments cannot be null.");
 
         String playlistTitle = arguments.get(0);
         String songTitle = arguments.get(1);
         try {
-            streamingPlatform.removeSongFromPlaylist(playlistTitle, songTitle, selectionKey);
+            streamingPlatform.removeSongFromPlaylist(playlistTitle, songTitle, session);
         } catch (UserNotLoggedException e) {
             return getCorrectReply(Level.INFO, ServerReply.REMOVE_SONG_FROM_NOT_LOGGED_REPLY.getReply(), e);
         } catch (NoSuchSongException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.REMOVE_SONG_FROM_NO_SUCH_SONG_REPLY.getReply(), e);
         } catch (NoSuchPlaylistException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.REMOVE_SONG_FROM_NO_SUCH_PLAYLIST_REPLY.getReply(), e);
         } catch (IODatabaseException e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), e);
         } catch (Exception e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.SERVER_EXCEPTION.getReply(), e);
         }
 
         return ServerReply.REMOVE_SONG_FROM_SUCCESSFULLY_REPLY.getReply();
     }
 
-    private String processCreatePlaylistCommand(List<String> arguments, SelectionKey selectionKey) {
+    private String processCreatePlaylistCommand(List<String> arguments, Session session) {
 
         Objects.requireNonNull(arguments, "The provided list of arguments cannot be null.");
 
         String playlistTitle = arguments.get(0);
         try {
-            streamingPlatform.createPlaylist(playlistTitle, selectionKey);
+            streamingPlatform.createPlaylist(playlistTitle, session);
         } catch (UserNotLoggedException e) {
             return getCorrectReply(Level.INFO, ServerReply.CREATE_PLAYLIST_NOT_LOGGED_REPLY.getReply(), e);
         } catch (IODatabaseException e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), e);
         } catch (PlaylistAlreadyExistException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.CREATE_PLAYLIST_ALREADY_EXIST_REPLY.getReply(), e);
         } catch (Exception e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.SERVER_EXCEPTION.getReply(), e);
         }
 
         return ServerReply.CREATE_PLAYLIST_SUCCESSFULLY_REPLY.getReply();
     }
 
-    private String processDeletePlaylistCommand(List<String> arguments, SelectionKey selectionKey) {
+    private String processDeletePlaylistCommand(List<String> arguments, Session session) {
 
         Objects.requireNonNull(arguments, "The provided list of arguments cannot be null.");
 
         String playlistTitle = arguments.get(0);
         try {
-            streamingPlatform.deletePlaylist(playlistTitle, selectionKey);
+            streamingPlatform.deletePlaylist(playlistTitle, session);
         } catch (UserNotLoggedException e) {
             return getCorrectReply(Level.INFO, ServerReply.DELETE_PLAYLIST_NOT_LOGGED_REPLY.getReply(), e);
         } catch (IODatabaseException e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), e);
         } catch (NoSuchPlaylistException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.DELETE_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply(), e);
         } catch (PlaylistNotEmptyException e) {
-            return getCorrectReply(Level.INFO, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.INFO, session.getUser().getEmail(),
                 ServerReply.DELETE_PLAYLIST_NOT_EMPTY_PLAYLIST_REPLY.getReply(), e);
         } catch (Exception e) {
-            return getCorrectReply(Level.SEVERE, streamingPlatform.getUser().getEmail(),
+            return getCorrectReply(Level.SEVERE, session.getUser().getEmail(),
                 ServerReply.SERVER_EXCEPTION.getReply(), e);
         }
 
         return ServerReply.DELETE_PLAYLIST_SUCCESSFULLY_REPLY.getReply();
     }
 
-    private String processSearchCommand(List<String> arguments) {
+    private void processSearchCommand(List<String> arguments, ReplyWriter replyWriter) {
         Objects.requireNonNull(arguments, "The provided list of arguments cannot be null.");
 
         String wordToSearch = arguments.get(0);
         List<SongEntity> searchedSongs = streamingPlatform.searchSongs(wordToSearch);
 
+        if (!searchedSongs.isEmpty()) {
+            renderSongs(ServerReply.SEARCH_COMMAND_SUCCESSFULLY_REPLY, searchedSongs, replyWriter);
+            return;
+        }
+
+        List<SongEntity> similarSongs = streamingPlatform.fuzzySearchSongs(wordToSearch);
+        if (similarSongs.isEmpty()) {
+            replyWriter.append(ServerReply.SEARCH_COMMAND_NO_SONGS_REPLY.getReply());
+            return;
+        }
+
+        renderSongs(ServerReply.SEARCH_COMMAND_SIMILAR_SONGS_REPLY, similarSongs, replyWriter);
+    }
+
+    private void processFuzzySearchCommand(List<String> arguments, ReplyWriter replyWriter) {
+        Objects.requireNonNull(arguments, "The provided list of arguments cannot be null.");
+
+        List<SongEntity> searchedSongs = streamingPlatform.fuzzySearchSongs(arguments.get(0));
+
         if (searchedSongs.isEmpty()) {
-            return ServerReply.SEARCH_COMMAND_NO_SONGS_REPLY.getReply();
+            replyWriter.append(ServerReply.SEARCH_COMMAND_NO_SONGS_REPLY.getReply());
+            return;
         }
 
-        StringBuilder toReturn = new StringBuilder();
-        toReturn.append(ServerReply.SEARCH_COMMAND_SUCCESSFULLY_REPLY.getReply()).append(System.lineSeparator());
-        for (SongEntity currentSongEntity : searchedSongs) {
+        renderSongs(ServerReply.SEARCH_COMMAND_SUCCESSFULLY_REPLY, searchedSongs, replyWriter);
+    }
+
+    private static void renderSongs(ServerReply header, List<SongEntity> songs, ReplyWriter replyWriter) {
+        replyWriter.append(header.getReply()).newLine();
+        for (SongEntity currentSongEntity : songs) {
 
-            toReturn.append(TITLE_LABEL).append(currentSongEntity.getSong().getTitle()).append(ARTIST_LABEL)
+            replyWriter.append(TITLE_LABEL).append(currentSongEntity.getSong().getTitle()).append(ARTIST_LABEL)
                 .append(currentSongEntity.getSong().getArtist()).append(GENRE_LABEL)
                 .append(currentSongEntity.getSong().getGenre()).append(DURATION_LABEL)
-                .append(currentSongEntity.getSong().getDuration()).append(System.lineSeparator());
+                .append(currentSongEntity.getSong().getDuration()).newLine();
 
         }
-
-        return toReturn.toString();
     }
 
     private String processRegisterCommand(List<String> arguments) {
@@ -427,8 +517,8 @@ public class CommandExecutor {
         return ServerReply.REGISTER_COMMAND_SUCCESSFULLY_REPLY.getReply();
     }
 
-    private void validateIsLogged(SelectionKey selectionKey) throws UserAlreadyLoggedException {
-        if (streamingPlatform.getAlreadyLogged().contains(selectionKey)) {
+    private void validateIsLogged(Session session) throws UserAlreadyLoggedException {
+        if (session.isLoggedIn()) {
             throw new UserAlreadyLoggedException(ServerReply.LOGIN_COMMAND_USER_ALREADY_LOGGED_REPLY.getReply());
         }
     }
@@ -444,16 +534,15 @@ public class CommandExecutor {
         return message;
     }
 
-    private String processLoginCommand(List<String> arguments, SelectionKey selectionKey) {
+    private String processLoginCommand(List<String> arguments, Session session) {
         Objects.requireNonNull(arguments, "The provided list of arguments cannot be null.");
 
         String emailToLogin = arguments.get(0);
         String passwordToLogin = arguments.get(1);
         try {
-            validateIsLogged(selectionKey);
+            validateIsLogged(session);
             User toLog = authenticationService.login(emailToLogin, passwordToLogin);
-            streamingPlatform.setUser(toLog);
-            streamingPlatform.getAlreadyLogged().add(selectionKey);
+            session.login(toLog);
         } catch (UserNotFoundException e) {
             return getCorrectReply(Level.INFO, emailToLogin,
                 ServerReply.LOGIN_COMMAND_USER_NOT_EXIST_REPLY.getReply(), e);
@@ -474,30 +563,30 @@ public class CommandExecutor {
         return ServerReply.LOGIN_COMMAND_SUCCESSFULLY_REPLY.getReply();
     }
 
-    private String processTopCommand(List<String> arguments) {
+    private void processTopCommand(List<String> arguments, ReplyWriter replyWriter) {
         Objects.requireNonNull(arguments, "The provided list of arguments cannot be null.");
 
         if (arguments.get(0).equals(ZERO_CHARACTER) || !arguments.get(0).matches(POSITIVE_NUMBER_REGEX)) {
-            return getCorrectReply(Level.INFO, ServerReply.TOP_COMMAND_INVALID_ARGUMENT_REPLY.getReply(),
-                new IllegalArgumentException(ServerReply.TOP_COMMAND_INVALID_ARGUMENT_REPLY.getReply()));
+            replyWriter.append(getCorrectReply(Level.INFO, ServerReply.TOP_COMMAND_INVALID_ARGUMENT_REPLY.getReply(),
+                new IllegalArgumentException(ServerReply.TOP_COMMAND_INVALID_ARGUMENT_REPLY.getReply())));
+            return;
         }
 
+        List<SongEntity> result;
         try {
-            List<SongEntity> result = streamingPlatform.getTopNMostListenedSongs(
-                Integer.parseInt(arguments.get(0)));
-            StringBuilder toReturn = new StringBuilder();
-            toReturn.append(ServerReply.TOP_COMMAND_SUCCESSFULLY_REPLY.getReply()).append(System.lineSeparator());
-            for (SongEntity currentSongEntity : result) {
-                String toAppend = TIMES_SIGN + currentSongEntity.getListeningTimes() + TITLE_LABEL +
-                    currentSongEntity.getSong().getTitle() + ARTIST_LABEL + currentSongEntity.getSong().getArtist() +
-                    GENRE_LABEL + currentSongEntity.getSong().getGenre() + DURATION_LABEL +
-                    currentSongEntity.getSong().getDuration() + System.lineSeparator();
-                toReturn.append(toAppend);
-            }
-
-            return toReturn.toString();
+            result = streamingPlatform.getTopNMostListenedSongs(Integer.parseInt(arguments.get(0)));
         } catch (NumberFormatException e) {
-            return getCorrectReply(Level.WARNING, ServerReply.SERVER_EXCEPTION.getReply(), e);
+            replyWriter.append(getCorrectReply(Level.WARNING, ServerReply.SERVER_EXCEPTION.getReply(), e));
+            return;
+        }
+
+        replyWriter.append(ServerReply.TOP_COMMAND_SUCCESSFULLY_REPLY.getReply()).newLine();
+        for (SongEntity currentSongEntity : result) {
+            replyWriter.append(TIMES_SIGN).append(currentSongEntity.getListeningTimes()).append(TITLE_LABEL)
+                .append(currentSongEntity.getSong().getTitle()).append(ARTIST_LABEL)
+                .append(currentSongEntity.getSong().getArtist()).append(GENRE_LABEL)
+                .append(currentSongEntity.getSong().getGenre()).append(DURATION_LABEL)
+                .append(currentSongEntity.getSong().getDuration()).newLine();
         }
     }
-}
\ No newline at end of file
+}
@@ -31,6 +31,7 @@ public class CommandExtractor {
             return createCommandWithTwoArguments(arguments, lineArray);
 
         } else if (lineArray[0].equalsIgnoreCase(CommandName.SEARCH_COMMAND.getCommandName()) ||
+            lineArray[0].equalsIgnoreCase(CommandName.FUZZY_SEARCH_COMMAND.getCommandName()) ||
             lineArray[0].equalsIgnoreCase(CommandName.PLAY_SONG.getCommandName())) {
 
             return createCommandWithOneArgument(arguments, lineArray);
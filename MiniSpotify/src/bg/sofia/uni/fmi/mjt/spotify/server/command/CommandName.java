@@ -2,30 +2,75 @@ package bg.sofia.uni.fmi.mjt.spotify.server.command;
 
 public enum CommandName {
 
-    REGISTER_COMMAND("register"),
-    LOGIN_COMMAND("login"),
-    LOGOUT_COMMAND("logout"),
-    DISCONNECT_COMMAND("disconnect"),
-    SEARCH_COMMAND("search"),
-    TOP_COMMAND("top"),
-    CREATE_PLAYLIST("create-playlist"),
-    DELETE_PLAYLIST("delete-playlist"),
-    ADD_SONG_TO("add-song-to"),
-    REMOVE_SONG_FROM("remove-song-from"),
-    SHOW_PLAYLIST("show-playlist"),
-    SHOW_PLAYLISTS("show-playlists"),
-    PLAY_SONG("play"),
-    PLAY_PLAYLIST("play-playlist"),
-    STOP_COMMAND("stop"),
-    HELP_COMMAND("help");
+    REGISTER_COMMAND("register", 10),
+    LOGIN_COMMAND("login", 5),
+    LOGOUT_COMMAND("logout", 1),
+    DISCONNECT_COMMAND("disconnect", 1),
+    SEARCH_COMMAND("search", 5),
+    FUZZY_SEARCH_COMMAND("fuzzy-search", 8),
+    TOP_COMMAND("top", 5),
+    CREATE_PLAYLIST("create-playlist", 2),
+    DELETE_PLAYLIST("delete-playlist", 2),
+    ADD_SONG_TO("add-song-to", 2),
+    REMOVE_SONG_FROM("remove-song-from", 2),
+    SHOW_PLAYLIST("show-playlist", 1),
+    SHOW_PLAYLISTS("show-playlists", 1),
+    PLAY_SONG("play", 3),
+    PLAY_PLAYLIST("play-playlist", 3),
+    STOP_COMMAND("stop", 1),
+    HELP_COMMAND("help", 1);
+
+    private static final int UNKNOWN_COMMAND_COST = 1;
 
     private final String commandName;
+    private final int cost;
 
-    CommandName(String commandName) {
+    CommandName(String commandName, int cost) {
         this.commandName = commandName;
+        this.cost = cost;
     }
 
     public String getCommandName() {
         return commandName;
     }
+
+    /**
+     * How many tokens of the client's rate limit the command takes. Commands which scan the whole catalog or hash
+     * passwords cost more than the ones which only touch the client's own state.
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    public static int costOf(String commandName) {
+        for (CommandName currentName : values()) {
+            if (currentName.commandName.equalsIgnoreCase(commandName)) {
+                return currentName.cost;
+            }
+        }
+
+        return UNKNOWN_COMMAND_COST;
+    }
+
+    /**
+     * Tells whether the command works on the playlists of the logged-in user, and nothing else of the platform.
+     */
+    public static boolean isPlaylistCommand(String commandName) {
+        return CREATE_PLAYLIST.commandName.equalsIgnoreCase(commandName) ||
+            DELETE_PLAYLIST.commandName.equalsIgnoreCase(commandName) ||
+            ADD_SONG_TO.commandName.equalsIgnoreCase(commandName) ||
+            REMOVE_SONG_FROM.commandName.equalsIgnoreCase(commandName) ||
+            SHOW_PLAYLIST.commandName.equalsIgnoreCase(commandName) ||
+            SHOW_PLAYLISTS.commandName.equalsIgnoreCase(commandName);
+    }
+
+    /**
+     * Tells whether the command only reads the catalog, so that its reply stays the same for as long as the
+     * version it is rendered from does: the songs of the catalog for the searches and the chart for {@code top}.
+     */
+    public static boolean isCatalogQuery(String commandName) {
+        return SEARCH_COMMAND.commandName.equalsIgnoreCase(commandName) ||
+            FUZZY_SEARCH_COMMAND.commandName.equalsIgnoreCase(commandName) ||
+            TOP_COMMAND.commandName.equalsIgnoreCase(commandName);
+    }
 }
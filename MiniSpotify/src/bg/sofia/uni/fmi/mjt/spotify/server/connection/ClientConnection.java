@@ -0,0 +1,554 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerConfiguration;
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerReply;
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPool;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Capability;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.CatalogQuery;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.CatalogVersion;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Event;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCodec;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCompression;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameReader;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.ReplyWriter;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Request;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Response;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+public class ClientConnection {
+
+    private final SocketChannel channel;
+    private final Queue<OutboundData> outbound;
+    private final AtomicLong pendingOutputBytes;
+    private final AtomicInteger pendingCommands;
+    private final FrameReader frameReader;
+    private final SerialExecutor commandQueue;
+    private final ServerConfiguration configuration;
+    private final BufferPool bufferPool;
+    private final ReplyWriter replyWriter;
+    private volatile Runnable writeRequest;
+    private boolean handshakeCompleted;
+    private volatile boolean compressingReplies;
+    private volatile boolean receivingEvents;
+    private volatile boolean acceptingRequestIds;
+    private volatile boolean versioningCatalog;
+    private boolean readingSuspended;
+    private volatile boolean closeAfterFlush;
+    private volatile String sessionToken;
+    private volatile ClientConnection dataConnection;
+    private volatile ClientConnection controlConnection;
+
+    public ClientConnection(SocketChannel channel, Executor commandWorkers, ServerConfiguration configuration) {
+        this(channel, commandWorkers, configuration, new BufferPool(0));
+    }
+
+    /**
+     * Creates a connection which leases its read accumulator and the buffers of its outbound frames from the pool.
+     */
+    public ClientConnection(SocketChannel channel, Executor commandWorkers, ServerConfiguration configuration,
+                            BufferPool bufferPool) {
+        this.channel = channel;
+        this.outbound = new ConcurrentLinkedQueue<>();
+        this.pendingOutputBytes = new AtomicLong(0);
+        this.pendingCommands = new AtomicInteger(0);
+        this.frameReader = new FrameReader(bufferPool);
+        this.commandQueue = new SerialExecutor(commandWorkers);
+        this.configuration = configuration;
+        this.bufferPool = Objects.requireNonNull(bufferPool, "The buffer pool cannot be null.");
+        this.replyWriter = new ReplyWriter(bufferPool);
+        this.writeRequest = () -> { };
+    }
+
+    /**
+     * Sets how the owning reactor is asked to flush this connection when output is queued from another thread. From
+     * then on, the reactor is also asked to close the connection once the command workers reject one of its commands.
+     */
+    public void bindWriteRequest(Runnable writeRequest) {
+        this.writeRequest = Objects.requireNonNull(writeRequest, "The write request cannot be null.");
+        commandQueue.setRejectionHandler(rejected -> requestClose());
+    }
+
+    /**
+     * Reads whatever is available on the channel and returns all frames completed by it, possibly none. The read
+     * buffer goes back to the pool as soon as it holds no partial frame. Returns {@code null} when the client has
+     * closed the connection.
+     */
+    public List<Frame> readFrames() throws IOException, MalformedFrameException {
+        if (frameReader.readFrom(channel) < 0) {
+            return null;
+        }
+
+        List<Frame> frames = new ArrayList<>();
+
+        Frame frame;
+        while ((frame = frameReader.nextFrame()) != null) {
+            frames.add(frame);
+        }
+
+        frameReader.releaseIfEmpty();
+        return frames;
+    }
+
+    public void enqueue(Frame frame) {
+        Objects.requireNonNull(frame, "The frame to enqueue cannot be null.");
+
+        enqueue(frame.type(), frame.payload(), 0, frame.payload().length);
+    }
+
+    /**
+     * Queues the frame and asks the owning reactor to write it. Safe to call from any thread.
+     */
+    public void send(Frame frame) {
+        enqueue(frame);
+        writeRequest.run();
+    }
+
+    /**
+     * Sends a frame whose payload is the given region of the array. The payload is copied, so the array may be
+     * reused as soon as the call returns. Safe to call from any thread.
+     */
+    public void send(FrameType type, byte[] payload, int offset, int length) {
+        Objects.requireNonNull(type, "The frame type cannot be null.");
+        Objects.checkFromIndexSize(offset, length, payload.length);
+
+        enqueue(type, payload, offset, length);
+        writeRequest.run();
+    }
+
+    /**
+     * Sends a frame whose payload is the given region of the file, transferred by the kernel straight from the file
+     * to the socket. The file must stay open until the region has been written. Safe to call from any thread.
+     */
+    public void sendFileRegion(FrameType type, FileChannel file, long position, int count) {
+        Objects.requireNonNull(type, "The frame type cannot be null.");
+        Objects.requireNonNull(file, "The file cannot be null.");
+
+        enqueue(new OutboundFileRegion(FrameCodec.encodeHeader(type, count), file, position, count));
+        writeRequest.run();
+    }
+
+    /**
+     * Writes as much of the outbound queue as the socket accepts without blocking. Returns {@code true} when
+     * everything queued so far has been written. Must only be called by the reactor owning the connection.
+     */
+    public boolean flush() throws IOException {
+        while (!outbound.isEmpty()) {
+            OutboundData head = outbound.peek();
+            long writtenBytes = head.writeTo(channel);
+            pendingOutputBytes.addAndGet(-writtenBytes);
+
+            if (head.remaining() > 0) {
+                return false;
+            }
+
+            outbound.poll().release();
+        }
+
+        return true;
+    }
+
+    /**
+     * Gives every pooled buffer of the connection back: the read accumulator and the output which will never be
+     * written. Must only be called by the reactor owning the connection, once the channel is closed.
+     */
+    public void releaseBuffers() {
+        frameReader.release();
+
+        OutboundData data;
+        while ((data = outbound.poll()) != null) {
+            pendingOutputBytes.addAndGet(-data.remaining());
+            data.release();
+        }
+    }
+
+    private Frame compressIfLarge(Frame reply) {
+        if (!compressingReplies || reply.type() != FrameType.REPLY ||
+            reply.payload().length < configuration.getCompressionThreshold()) {
+            return reply;
+        }
+
+        return FrameCompression.deflate(reply);
+    }
+
+    private void enqueue(FrameType type, byte[] payload, int offset, int length) {
+        if (!channel.isOpen()) {
+            return;
+        }
+
+        ByteBuffer buffer = bufferPool.lease(FrameCodec.HEADER_SIZE + length);
+        enqueue(new OutboundBuffer(FrameCodec.encode(type, payload, offset, length, buffer), bufferPool));
+    }
+
+    /**
+     * Queues the data unless the connection is closed. The channel is checked again once the data is queued: if it
+     * has been closed meanwhile, {@link #releaseBuffers()} may already have drained the queue, so whichever of the
+     * two takes the data out of the queue releases it, and a leased buffer is never left behind.
+     */
+    private void enqueue(OutboundData data) {
+        if (!channel.isOpen()) {
+            data.release();
+            return;
+        }
+
+        pendingOutputBytes.addAndGet(data.remaining());
+        outbound.add(data);
+
+        if (!channel.isOpen() && outbound.remove(data)) {
+            pendingOutputBytes.addAndGet(-data.remaining());
+            data.release();
+        }
+    }
+
+    public boolean hasPendingOutput() {
+        return !outbound.isEmpty();
+    }
+
+    public boolean hasPendingCommands() {
+        return pendingCommands.get() > 0;
+    }
+
+    public long getPendingOutputBytes() {
+        return pendingOutputBytes.get();
+    }
+
+    /**
+     * Tells whether producers which can wait, such as audio streaming, should hold back until the client has
+     * consumed more of its output, so that they never push the connection over its high-water mark.
+     */
+    public boolean isOutputBacklogged() {
+        return pendingOutputBytes.get() > configuration.getOutboundLowWaterMark();
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Tells whether the reactor should keep reading from this connection. Reading stops once the unwritten replies
+     * exceed the high-water mark or too many commands are waiting, and resumes only after the output has drained
+     * below the low-water mark, so that a client which does not consume its replies cannot grow server memory.
+     * Must only be called by the reactor owning the connection.
+     */
+    public boolean canAcceptInput() {
+        long pendingBytes = pendingOutputBytes.get();
+        boolean tooManyCommands = pendingCommands.get() >= configuration.getMaxPendingCommands();
+
+        if (readingSuspended) {
+            readingSuspended = pendingBytes > configuration.getOutboundLowWaterMark() || tooManyCommands;
+        } else {
+            readingSuspended = pendingBytes > configuration.getOutboundHighWaterMark() || tooManyCommands;
+        }
+
+        return !readingSuspended;
+    }
+
+    /**
+     * Runs the command on the connection's serial queue, so that its reply is sent after the replies of all
+     * commands submitted before it.
+     */
+    public void executeInOrder(Supplier<Frame> command) {
+        Objects.requireNonNull(command, "The command to execute cannot be null.");
+
+        pendingCommands.incrementAndGet();
+        commandQueue.execute(() -> {
+            Frame reply;
+            try {
+                reply = command.get();
+            } finally {
+                pendingCommands.decrementAndGet();
+            }
+
+            send(compressIfLarge(reply));
+        });
+    }
+
+    /**
+     * Runs the command on the connection's serial queue, like {@link #executeInOrder}, letting it render its reply
+     * into the connection's {@link ReplyWriter}, straight into pooled output buffers. A command which fails leaves
+     * no reply behind, just like one which throws from {@link #executeInOrder}, while a reply too large for one
+     * frame is replaced by {@link ServerReply#REPLY_TOO_LARGE_REPLY}, so that the client is still answered.
+     */
+    public void replyInOrder(Consumer<ReplyWriter> command) {
+        renderInOrder(null, null, command);
+    }
+
+    /**
+     * Runs the command like {@link #replyInOrder(Consumer)}, but on the executor {@code executorOf} picks once the
+     * commands before it have run, or on the shared command workers when it picks {@code null}.
+     */
+    public void replyInOrder(Supplier<Executor> executorOf, Consumer<ReplyWriter> command) {
+        renderInOrder(executorOf, null, command);
+    }
+
+    /**
+     * Runs the command of a {@link Request} like {@link #replyInOrder} and sends its reply as the {@link Response}
+     * to the request. Commands of the same connection share its session, so requests still run, and are answered,
+     * one after another; the ids only spare clients from relying on that order.
+     */
+    public void respondInOrder(int requestId, Consumer<ReplyWriter> command) {
+        renderInOrder(null, requestId, command);
+    }
+
+    /**
+     * Runs the command of a {@link Request} like {@link #respondInOrder(int, Consumer)}, but on the executor
+     * {@code executorOf} picks, like {@link #replyInOrder(Supplier, Consumer)}.
+     */
+    public void respondInOrder(Supplier<Executor> executorOf, int requestId, Consumer<ReplyWriter> command) {
+        renderInOrder(executorOf, requestId, command);
+    }
+
+    /**
+     * Runs the command of a {@link CatalogQuery} on the connection's serial queue. When the catalog is still at the
+     * version the client has cached, the command is not run at all and a {@link FrameType#NOT_MODIFIED} frame is
+     * sent instead; otherwise the current {@link CatalogVersion} goes out right before the reply. The version is
+     * read in order, so that commands submitted before the query which change the catalog are taken into account.
+     */
+    public void queryCatalogInOrder(long cachedVersion, LongSupplier catalogVersion, Consumer<ReplyWriter> command) {
+        Objects.requireNonNull(catalogVersion, "The catalog version cannot be null.");
+        Objects.requireNonNull(command, "The command to execute cannot be null.");
+
+        pendingCommands.incrementAndGet();
+        commandQueue.execute(() -> {
+            long version;
+            try {
+                version = catalogVersion.getAsLong();
+                if (version != cachedVersion) {
+                    command.accept(replyWriter);
+                }
+            } catch (RuntimeException e) {
+                replyWriter.reset();
+                throw e;
+            } finally {
+                pendingCommands.decrementAndGet();
+            }
+
+            if (version == cachedVersion) {
+                send(new CatalogVersion(version).toNotModifiedFrame());
+                return;
+            }
+
+            enqueue(new CatalogVersion(version).toFrame());
+            sendReply(null);
+        });
+    }
+
+    private void renderInOrder(Supplier<Executor> executorOf, Integer requestId, Consumer<ReplyWriter> command) {
+        Objects.requireNonNull(command, "The command to execute cannot be null.");
+
+        pendingCommands.incrementAndGet();
+        Runnable task = () -> {
+            try {
+                command.accept(replyWriter);
+            } catch (RuntimeException e) {
+                replyWriter.reset();
+                throw e;
+            } finally {
+                pendingCommands.decrementAndGet();
+            }
+
+            sendReply(requestId);
+        };
+
+        if (executorOf == null) {
+            commandQueue.execute(task);
+        } else {
+            commandQueue.execute(task, executorOf);
+        }
+    }
+
+    private void sendReply(Integer requestId) {
+        if (!channel.isOpen()) {
+            replyWriter.reset();
+            return;
+        }
+
+        if (!replyWriter.fitsInFrame(requestId != null)) {
+            replyWriter.reset();
+            replyWriter.append(ServerReply.REPLY_TOO_LARGE_REPLY.getReply());
+        }
+
+        if (compressingReplies && replyWriter.size() >= configuration.getCompressionThreshold()) {
+            Frame reply = FrameCompression.deflate(replyWriter.toFrame(FrameType.REPLY));
+            send(requestId == null ? reply : new Response(requestId, reply).toFrame());
+            return;
+        }
+
+        List<ByteBuffer> reply = requestId == null ? replyWriter.finish(FrameType.REPLY) :
+            replyWriter.finishResponse(requestId);
+        enqueue(reply.size() == 1 ? new OutboundBuffer(reply.get(0), bufferPool) :
+            new OutboundBuffers(reply.toArray(new ByteBuffer[0]), bufferPool));
+        writeRequest.run();
+    }
+
+    /**
+     * Runs the task on the connection's serial queue, after all commands submitted before it, without a reply.
+     */
+    public void runInOrder(Runnable task) {
+        commandQueue.execute(task);
+    }
+
+    /**
+     * Makes this control connection send its audio over the given data connection. Returns {@code false} when it
+     * already has an open one.
+     */
+    public synchronized boolean attachDataConnection(ClientConnection connection) {
+        if (dataConnection != null && dataConnection.isOpen()) {
+            return false;
+        }
+
+        dataConnection = connection;
+        connection.controlConnection = this;
+        return true;
+    }
+
+    /**
+     * Called when either connection of the pair is closed: a closed data channel is forgotten, so that audio falls
+     * back to the control channel, and a closed control channel takes its data channel down with it.
+     */
+    public void detach() {
+        ClientConnection control = controlConnection;
+        if (control != null) {
+            synchronized (control) {
+                if (control.dataConnection == this) {
+                    control.dataConnection = null;
+                }
+            }
+        }
+
+        ClientConnection data = dataConnection;
+        if (data != null) {
+            data.requestClose();
+        }
+    }
+
+    /**
+     * Returns the connection audio for this client should be sent on: its data channel when one is attached,
+     * otherwise the control connection itself.
+     */
+    public ClientConnection getAudioConnection() {
+        ClientConnection data = dataConnection;
+        return data != null && data.isOpen() ? data : this;
+    }
+
+    public boolean isDataConnection() {
+        return controlConnection != null;
+    }
+
+    /**
+     * Asks the owning reactor to close the connection once its queued output is written. Safe to call from any
+     * thread.
+     */
+    public void requestClose() {
+        closeAfterFlush();
+        writeRequest.run();
+    }
+
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    public void setSessionToken(String sessionToken) {
+        this.sessionToken = sessionToken;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    public boolean isHandshakeCompleted() {
+        return handshakeCompleted;
+    }
+
+    public void completeHandshake() {
+        this.handshakeCompleted = true;
+    }
+
+    /**
+     * Makes the replies of later commands go out deflated when they are above the compression threshold. Called
+     * once the client has agreed on {@link Capability#DEFLATE} in its handshake.
+     */
+    public void enableReplyCompression() {
+        this.compressingReplies = true;
+    }
+
+    public boolean isCompressingReplies() {
+        return compressingReplies;
+    }
+
+    /**
+     * Makes {@link #publish(Event)} push events to the client. Called once the client has agreed on
+     * {@link Capability#EVENTS} in its handshake.
+     */
+    public void enableEvents() {
+        this.receivingEvents = true;
+    }
+
+    public boolean isReceivingEvents() {
+        return receivingEvents;
+    }
+
+    /**
+     * Lets the client tag its commands as {@link Request} frames. Called once the client has agreed on
+     * {@link Capability#REQUEST_IDS} in its handshake.
+     */
+    public void enableRequestIds() {
+        this.acceptingRequestIds = true;
+    }
+
+    public boolean isAcceptingRequestIds() {
+        return acceptingRequestIds;
+    }
+
+    /**
+     * Lets the client send {@code search} and {@code top} as {@link CatalogQuery} frames. Called once the client has
+     * agreed on {@link Capability#CATALOG_VERSIONS} in its handshake.
+     */
+    public void enableCatalogVersions() {
+        this.versioningCatalog = true;
+    }
+
+    public boolean isVersioningCatalog() {
+        return versioningCatalog;
+    }
+
+    /**
+     * Pushes the event to the client, when it has asked for events, and asks the owning reactor to write it. Safe
+     * to call from any thread. Returns {@code false} when the client does not receive events.
+     */
+    public boolean publish(Event event) {
+        Objects.requireNonNull(event, "The event cannot be null.");
+
+        if (!receivingEvents) {
+            return false;
+        }
+
+        send(event.toFrame());
+        return true;
+    }
+
+    public boolean isCloseAfterFlush() {
+        return closeAfterFlush;
+    }
+
+    public void closeAfterFlush() {
+        this.closeAfterFlush = true;
+    }
+}
@@ -0,0 +1,61 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues the session tokens with which clients open their data channel and finds the control connection a token
+ * belongs to. Shared by all reactors, as the two connections of a client may be served by different reactors.
+ */
+public class DataChannelRegistry {
+
+    private static final int TOKEN_SIZE = 24;
+
+    private final SecureRandom random;
+    private final Map<String, ClientConnection> controlConnections;
+
+    public DataChannelRegistry() {
+        this.random = new SecureRandom();
+        this.controlConnections = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the token of the control connection, issuing one on the first call.
+     */
+    public String issueToken(ClientConnection controlConnection) {
+        String token = controlConnection.getSessionToken();
+        if (token != null) {
+            return token;
+        }
+
+        byte[] tokenBytes = new byte[TOKEN_SIZE];
+        random.nextBytes(tokenBytes);
+        token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+
+        controlConnections.put(token, controlConnection);
+        controlConnection.setSessionToken(token);
+        return token;
+    }
+
+    /**
+     * Attaches the data connection to the control connection which has been issued the token. Returns
+     * {@code false} when the token is unknown or the control connection already has an open data channel.
+     */
+    public boolean attach(String token, ClientConnection dataConnection) {
+        ClientConnection controlConnection = controlConnections.get(token);
+
+        return controlConnection != null && controlConnection.attachDataConnection(dataConnection);
+    }
+
+    /**
+     * Forgets the token of a closed control connection, so that it can no longer be used.
+     */
+    public void release(ClientConnection controlConnection) {
+        String token = controlConnection.getSessionToken();
+        if (token != null) {
+            controlConnections.remove(token, controlConnection);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+record OutboundBuffer(ByteBuffer buffer, BufferPool bufferPool) implements OutboundData {
+
+    @Override
+    public long writeTo(SocketChannel channel) throws IOException {
+        return channel.write(buffer);
+    }
+
+    @Override
+    public long remaining() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public void release() {
+        bufferPool.release(buffer);
+    }
+}
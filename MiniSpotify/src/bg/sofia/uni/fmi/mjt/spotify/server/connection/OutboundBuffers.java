@@ -0,0 +1,36 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A frame spread over several pooled buffers, written with gathering writes so that it leaves in as few system
+ * calls as a single buffer would. Queued as one piece, so output from other threads cannot land inside the frame.
+ */
+record OutboundBuffers(ByteBuffer[] buffers, BufferPool bufferPool) implements OutboundData {
+
+    @Override
+    public long writeTo(SocketChannel channel) throws IOException {
+        return channel.write(buffers);
+    }
+
+    @Override
+    public long remaining() {
+        long remaining = 0;
+        for (ByteBuffer currentBuffer : buffers) {
+            remaining += currentBuffer.remaining();
+        }
+
+        return remaining;
+    }
+
+    @Override
+    public void release() {
+        for (ByteBuffer currentBuffer : buffers) {
+            bufferPool.release(currentBuffer);
+        }
+    }
+}
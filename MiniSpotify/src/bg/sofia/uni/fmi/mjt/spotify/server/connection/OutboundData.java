@@ -0,0 +1,23 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A piece of a connection's output which may take several non-blocking writes to be sent.
+ */
+interface OutboundData {
+
+    /**
+     * Writes as much as the socket accepts and returns the number of bytes written.
+     */
+    long writeTo(SocketChannel channel) throws IOException;
+
+    long remaining();
+
+    /**
+     * Gives back whatever the data holds once it has been written or will never be.
+     */
+    default void release() {
+    }
+}
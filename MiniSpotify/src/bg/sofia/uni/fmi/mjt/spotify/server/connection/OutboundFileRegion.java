@@ -0,0 +1,55 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A frame whose payload is a region of a file. The header is written from the heap and the payload with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, so that its bytes go from the
+ * page cache to the socket without being copied through the JVM.
+ */
+class OutboundFileRegion implements OutboundData {
+
+    private static final String TRUNCATED_FILE_MESSAGE = "The file ended before the region could be sent.";
+
+    private final ByteBuffer header;
+    private final FileChannel file;
+    private long position;
+    private long remainingPayload;
+
+    OutboundFileRegion(ByteBuffer header, FileChannel file, long position, long count) {
+        this.header = header;
+        this.file = file;
+        this.position = position;
+        this.remainingPayload = count;
+    }
+
+    @Override
+    public long writeTo(SocketChannel channel) throws IOException {
+        long written = 0;
+        if (header.hasRemaining()) {
+            written += channel.write(header);
+            if (header.hasRemaining()) {
+                return written;
+            }
+        }
+
+        long transferred = file.transferTo(position, remainingPayload, channel);
+        if (transferred == 0 && remainingPayload > 0 && position >= file.size()) {
+            throw new EOFException(TRUNCATED_FILE_MESSAGE);
+        }
+
+        position += transferred;
+        remainingPayload -= transferred;
+
+        return written + transferred;
+    }
+
+    @Override
+    public long remaining() {
+        return header.remaining() + remainingPayload;
+    }
+}
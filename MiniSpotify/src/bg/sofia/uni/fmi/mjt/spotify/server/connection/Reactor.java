@@ -0,0 +1,755 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerConfiguration;
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerReply;
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPool;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.Command;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExtractor;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandName;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Capability;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.CatalogQuery;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Event;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.EventType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Handshake;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Reconnect;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.ReplyWriter;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Request;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Owns one {@link Selector} and serves every connection handed to it by the acceptor: reading frames and writing
+ * replies. Commands are executed off the reactor thread, on the shared command workers, through the per-connection
+ * serial queue; finished replies come back through {@link #requestWrite(SelectionKey)}. A server runs several
+ * reactors, each on its own thread.
+ */
+public class Reactor implements Runnable {
+
+    private static final String ERROR_CLIENT_REQUEST = "Error occurred while processing your request. " +
+        "Please, try again later or contact administrator";
+    private static final String UNABLE_TO_REGISTER_CONNECTION = "A problem arise in registering a new connection";
+
+    private static final String SESSION_EXPIRED_LABEL = "Closing expired session of ";
+    private static final int TIMING_WHEEL_SIZE = 512;
+    private static final String NOT_A_COMMAND_NAME = "unknown";
+    private static final int NOT_MODIFIED_COST = 1;
+
+    private static final String CLIENT_LABEL = "Client ";
+    private static final String CLOSE_CONNECTION_LABEL = " has closed the connection.";
+
+    private final Selector selector;
+    private final CommandExecutor commandExecutor;
+    private final SpotifyLogger spotifyLogger;
+    private final AtomicInteger numberOfConnection;
+    private final AtomicInteger connectionCount;
+    private final Queue<SocketChannel> pendingChannels;
+    private final Queue<SelectionKey> pendingWrites;
+    private final Queue<Runnable> pendingTasks;
+    private final Executor commandWorkers;
+    private final ServerConfiguration configuration;
+    private final DataChannelRegistry dataChannelRegistry;
+    private final ThrottlingCounters throttlingCounters;
+    private final BufferPool bufferPool;
+    private final Set<Capability> enabledCapabilities;
+    private final TimingWheel<SelectionKey> timingWheel;
+    private final long idleTimeoutNanos;
+    private final long heartbeatTimeoutNanos;
+    private volatile boolean isReactorWorking;
+    private boolean isDraining;
+    private CompletableFuture<Void> drained;
+    private CompletableFuture<Void> allClosed;
+
+    public Reactor(ServerConfiguration configuration, CommandExecutor commandExecutor, Executor commandWorkers,
+                   SpotifyLogger spotifyLogger, AtomicInteger numberOfConnection,
+                   DataChannelRegistry dataChannelRegistry, ThrottlingCounters throttlingCounters,
+                   BufferPool bufferPool) throws IOException {
+        this.selector = Selector.open();
+        this.configuration = configuration;
+        this.commandExecutor = commandExecutor;
+        this.commandWorkers = commandWorkers;
+        this.spotifyLogger = spotifyLogger;
+        this.numberOfConnection = numberOfConnection;
+        this.dataChannelRegistry = dataChannelRegistry;
+        this.throttlingCounters = throttlingCounters;
+        this.bufferPool = bufferPool;
+        this.enabledCapabilities = enabledCapabilities(configuration);
+        this.connectionCount = new AtomicInteger(0);
+        this.pendingChannels = new ConcurrentLinkedQueue<>();
+        this.pendingWrites = new ConcurrentLinkedQueue<>();
+        this.pendingTasks = new ConcurrentLinkedQueue<>();
+        this.timingWheel = new TimingWheel<>(configuration.getTimerTick(), TIMING_WHEEL_SIZE, System.nanoTime());
+        this.idleTimeoutNanos = configuration.getIdleTimeout().toNanos();
+        this.heartbeatTimeoutNanos = configuration.getHeartbeatTimeout().toNanos();
+        this.isReactorWorking = true;
+    }
+
+    /**
+     * Hands an accepted channel over to this reactor. Safe to call from the acceptor thread; the channel is
+     * registered with the selector by the reactor thread itself.
+     */
+    public void register(SocketChannel channel) {
+        connectionCount.incrementAndGet();
+        pendingChannels.add(channel);
+        selector.wakeup();
+    }
+
+    /**
+     * Asks the reactor to write the output queued on the key's connection. Called by the command workers once a
+     * reply is ready.
+     */
+    public void requestWrite(SelectionKey key) {
+        pendingWrites.add(key);
+        selector.wakeup();
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Stops reading from every connection, so that no new commands are accepted. The returned future completes once
+     * every command accepted before has been executed and its reply queued.
+     */
+    public CompletableFuture<Void> drain() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        execute(() -> {
+            isDraining = true;
+            drained = future;
+            selector.keys().forEach(this::updateInterestOps);
+        });
+
+        return future;
+    }
+
+    /**
+     * Tells every client to reconnect after the given delay and a random part of the jitter, so that the clients
+     * of a restarting server do not all come back at once. The returned future completes once the notices are
+     * queued.
+     */
+    public CompletableFuture<Void> announceRestart(Duration delay, Duration jitter) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        execute(() -> {
+            for (SelectionKey key : selector.keys()) {
+                ClientConnection connection = connectionOf(key);
+                if (key.isValid() && !connection.isDataConnection()) {
+                    long jitterMillis = ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+                    connection.enqueue(new Reconnect(delay.plusMillis(jitterMillis)).toFrame());
+                    updateInterestOps(key);
+                }
+            }
+
+            future.complete(null);
+        });
+
+        return future;
+    }
+
+    /**
+     * Logs out every logged in session through the regular logout path, which also stops its playback. The returned
+     * future completes once every session is logged out.
+     */
+    public CompletableFuture<Void> endSessions() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        execute(() -> {
+            List<CompletableFuture<Void>> loggedOut = new ArrayList<>();
+            for (SelectionKey key : selector.keys()) {
+                Session session = (Session) key.attachment();
+                if (key.isValid() && session.isLoggedIn()) {
+                    CompletableFuture<Void> sessionEnded = new CompletableFuture<>();
+                    session.getConnection().runInOrder(() -> {
+                        try {
+                            commandExecutor.closeSession(session);
+                        } finally {
+                            sessionEnded.complete(null);
+                        }
+                    });
+                    loggedOut.add(sessionEnded);
+                }
+            }
+
+            CompletableFuture.allOf(loggedOut.toArray(CompletableFuture[]::new))
+                .whenComplete((result, exception) -> future.complete(null));
+        });
+
+        return future;
+    }
+
+    /**
+     * Closes every connection once its queued output is written. The returned future completes when the reactor
+     * has no connections left.
+     */
+    public CompletableFuture<Void> closeConnections() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        execute(() -> {
+            allClosed = future;
+            for (SelectionKey key : selector.keys()) {
+                if (!key.isValid()) {
+                    continue;
+                }
+
+                connectionOf(key).closeAfterFlush();
+                if (connectionOf(key).hasPendingOutput()) {
+                    updateInterestOps(key);
+                } else {
+                    closeQuietly(key);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    @Override
+    public void run() {
+        while (isReactorWorking) {
+            try {
+                selector.select(timingWheel.millisUntilNextTick(System.nanoTime()));
+                registerPendingChannels();
+                registerPendingWrites();
+                runPendingTasks();
+                timingWheel.advance(System.nanoTime(), this::checkExpiry);
+
+                Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+                while (keyIterator.hasNext()) {
+                    SelectionKey key = keyIterator.next();
+                    keyIterator.remove();
+
+                    processSelectedKey(key);
+                }
+
+                checkShutdownProgress();
+            } catch (IOException e) {
+                spotifyLogger.log(Level.SEVERE, ERROR_CLIENT_REQUEST, e);
+                System.out.println(ERROR_CLIENT_REQUEST);
+            }
+        }
+
+        closeAllConnections();
+    }
+
+    public void stop() {
+        isReactorWorking = false;
+        selector.wakeup();
+    }
+
+    private void execute(Runnable task) {
+        pendingTasks.add(task);
+        selector.wakeup();
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                spotifyLogger.log(Level.SEVERE, ERROR_CLIENT_REQUEST, e);
+            }
+        }
+    }
+
+    private void checkShutdownProgress() {
+        if (drained != null && selector.keys().stream()
+            .noneMatch(key -> key.isValid() && connectionOf(key).hasPendingCommands())) {
+            drained.complete(null);
+            drained = null;
+        }
+
+        if (allClosed != null && connectionCount.get() == 0) {
+            allClosed.complete(null);
+            allClosed = null;
+        }
+    }
+
+    private void registerPendingChannels() {
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                ClientConnection connection = new ClientConnection(channel, commandWorkers, configuration,
+                    bufferPool);
+                long now = System.nanoTime();
+                Session session = new Session(connection, new TokenBucket(configuration.getCommandBurst(),
+                    configuration.getCommandTokensPerSecond(), now));
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, session);
+                connection.bindWriteRequest(() -> requestWrite(key));
+
+                session.markReceived(now);
+                session.markActive(now);
+                scheduleExpiry(key, session, now);
+            } catch (IOException e) {
+                connectionCount.decrementAndGet();
+                spotifyLogger.log(Level.WARNING, UNABLE_TO_REGISTER_CONNECTION, e);
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    private void registerPendingWrites() throws IOException {
+        SelectionKey key;
+        while ((key = pendingWrites.poll()) != null) {
+            if (!key.isValid()) {
+                continue;
+            }
+
+            ClientConnection connection = connectionOf(key);
+            if (connection.isCloseAfterFlush() && !connection.hasPendingOutput()) {
+                closeConnection(key);
+            } else {
+                updateInterestOps(key);
+            }
+        }
+    }
+
+    /**
+     * Serves the key, closing its connection when serving it fails unexpectedly, so that one broken connection
+     * never stops the reactor serving the others.
+     */
+    private void processSelectedKey(SelectionKey key) throws IOException {
+        try {
+            if (key.isValid() && key.isWritable()) {
+                processWritableKey(key);
+            }
+
+            if (key.isValid() && key.isReadable()) {
+                processReadableKey(key);
+            }
+        } catch (RuntimeException e) {
+            spotifyLogger.log(Level.SEVERE, ERROR_CLIENT_REQUEST, e);
+            if (key.isValid()) {
+                closeQuietly(key);
+            }
+        }
+    }
+
+    private void processWritableKey(SelectionKey key) throws IOException {
+        ClientConnection connection = connectionOf(key);
+
+        try {
+            boolean isFlushed = connection.flush();
+            if (isFlushed && connection.isCloseAfterFlush()) {
+                closeConnection(key);
+                return;
+            }
+        } catch (SocketException e) {
+            closeConnection(key);
+            return;
+        } catch (IOException e) {
+            spotifyLogger.log(Level.WARNING, ERROR_CLIENT_REQUEST, e);
+            closeConnection(key);
+            return;
+        }
+
+        updateInterestOps(key);
+    }
+
+    /**
+     * Keeps OP_WRITE registered exactly while the connection has unwritten output and OP_READ registered only while
+     * the connection is under its outbound limits and the reactor is not draining.
+     */
+    private void updateInterestOps(SelectionKey key) {
+        ClientConnection connection = connectionOf(key);
+
+        int interestOps = 0;
+        if (connection.hasPendingOutput()) {
+            interestOps |= SelectionKey.OP_WRITE;
+        }
+
+        if (!isDraining && !connection.isCloseAfterFlush() && connection.canAcceptInput()) {
+            interestOps |= SelectionKey.OP_READ;
+        }
+
+        key.interestOps(interestOps);
+    }
+
+    private void processReadableKey(SelectionKey key) throws IOException {
+        try {
+            if (!processClientInput(key)) {
+                closeConnection(key);
+            }
+        } catch (SocketException | MalformedFrameException e) {
+            closeConnection(key);
+        }
+    }
+
+    private boolean processClientInput(SelectionKey key) throws IOException, MalformedFrameException {
+        ClientConnection connection = connectionOf(key);
+
+        List<Frame> frames = connection.readFrames();
+        if (frames == null) {
+            System.out.println(CLIENT_LABEL + numberOfConnection.incrementAndGet() + CLOSE_CONNECTION_LABEL);
+            return false;
+        }
+
+        Session session = (Session) key.attachment();
+        session.markReceived(System.nanoTime());
+
+        for (Frame currentFrame : frames) {
+            processFrame(connection, currentFrame, key);
+        }
+
+        updateInterestOps(key);
+        return true;
+    }
+
+    private void processFrame(ClientConnection connection, Frame frame, SelectionKey key) {
+        if (connection.isCloseAfterFlush()) {
+            return;
+        }
+
+        if (!connection.isHandshakeCompleted()) {
+            processHandshake(connection, frame);
+            return;
+        }
+
+        if (connection.isDataConnection() || frame.type() == FrameType.HEARTBEAT) {
+            return;
+        }
+
+        if (frame.type() == FrameType.DATA_CHANNEL) {
+            connection.executeInOrder(() -> Frame.of(FrameType.DATA_CHANNEL,
+                dataChannelRegistry.issueToken(connection)));
+            return;
+        }
+
+        Session session = (Session) key.attachment();
+        long now = System.nanoTime();
+        session.markActive(now);
+
+        if (frame.type() == FrameType.REQUEST && connection.isAcceptingRequestIds()) {
+            processRequest(connection, frame, session, now);
+            return;
+        }
+
+        if (frame.type() == FrameType.CATALOG_QUERY && connection.isVersioningCatalog()) {
+            processCatalogQuery(connection, frame, session, now);
+            return;
+        }
+
+        Command command = frame.type() == FrameType.COMMAND ? CommandExtractor.newCommand(frame.text()) : null;
+        String commandName = command == null ? NOT_A_COMMAND_NAME : command.command().toLowerCase();
+        if (!isAdmitted(session, commandName, now)) {
+            throttlingCounters.recordThrottledCommand(commandName);
+            connection.executeInOrder(() -> Frame.of(FrameType.REPLY,
+                ServerReply.COMMAND_THROTTLED_REPLY.getReply()));
+            return;
+        }
+
+        connection.replyInOrder(() -> executorOf(session, commandName),
+            replyWriter -> executeCommand(command, session, replyWriter));
+    }
+
+    /**
+     * Runs the command of a request like any other command, answering with a response which carries the id of the
+     * request, the throttling reply included. A request too short to hold its id cannot be answered and closes the
+     * connection like any other malformed frame.
+     */
+    private void processRequest(ClientConnection connection, Frame frame, Session session, long now) {
+        Request request;
+        try {
+            request = Request.parse(frame);
+        } catch (MalformedFrameException e) {
+            spotifyLogger.log(Level.INFO, e.getMessage(), e);
+            connection.closeAfterFlush();
+            return;
+        }
+
+        Command command = CommandExtractor.newCommand(request.command());
+        String commandName = command.command().toLowerCase();
+        if (!isAdmitted(session, commandName, now)) {
+            throttlingCounters.recordThrottledCommand(commandName);
+            connection.respondInOrder(request.id(),
+                replyWriter -> replyWriter.append(ServerReply.COMMAND_THROTTLED_REPLY.getReply()));
+            return;
+        }
+
+        connection.respondInOrder(() -> executorOf(session, commandName), request.id(),
+            replyWriter -> executeCommand(command, session, replyWriter));
+    }
+
+    /**
+     * Answers a catalog query without scanning the catalog when the client's cached reply is still current, and
+     * charges it only the cost of the cheapest command then. Any other command sent as a catalog query is run like
+     * a plain command.
+     */
+    private void processCatalogQuery(ClientConnection connection, Frame frame, Session session, long now) {
+        CatalogQuery query;
+        try {
+            query = CatalogQuery.parse(frame);
+        } catch (MalformedFrameException e) {
+            spotifyLogger.log(Level.INFO, e.getMessage(), e);
+            connection.closeAfterFlush();
+            return;
+        }
+
+        Command command = CommandExtractor.newCommand(query.command());
+        String commandName = command.command().toLowerCase();
+        boolean isCatalogQuery = CommandName.isCatalogQuery(commandName);
+        int cost = isCatalogQuery && query.version() == commandExecutor.getVersionOf(commandName) ?
+            NOT_MODIFIED_COST : CommandName.costOf(commandName);
+        if (!isAdmitted(session, cost, now)) {
+            throttlingCounters.recordThrottledCommand(commandName);
+            connection.executeInOrder(() -> Frame.of(FrameType.REPLY,
+                ServerReply.COMMAND_THROTTLED_REPLY.getReply()));
+            return;
+        }
+
+        if (!isCatalogQuery) {
+            connection.replyInOrder(() -> executorOf(session, commandName),
+                replyWriter -> executeCommand(command, session, replyWriter));
+            return;
+        }
+
+        connection.queryCatalogInOrder(query.version(), () -> commandExecutor.getVersionOf(commandName),
+            replyWriter -> executeCommand(command, session, replyWriter));
+    }
+
+    /**
+     * Picks the thread which owns the playlists of the session's user for playlist commands, so that they neither
+     * hop between threads nor contend for a lock, and the shared command workers for anything else. It is called
+     * when the command's turn comes rather than when it arrives, so that it sees the user a pipelined login before
+     * it has signed in.
+     */
+    private Executor executorOf(Session session, String commandName) {
+        return CommandName.isPlaylistCommand(commandName) ? commandExecutor.getPlaylistExecutor(session) : null;
+    }
+
+    private static boolean isAdmitted(Session session, String commandName, long now) {
+        return isAdmitted(session, CommandName.costOf(commandName), now);
+    }
+
+    private static boolean isAdmitted(Session session, int cost, long now) {
+        TokenBucket commandLimiter = session.getCommandLimiter();
+        return commandLimiter == null || commandLimiter.tryConsume(cost, now);
+    }
+
+    private void executeCommand(Command command, Session session, ReplyWriter replyWriter) {
+        if (command == null) {
+            replyWriter.append(ServerReply.UNKNOWN_COMMAND_REPLY.getReply());
+            return;
+        }
+
+        try {
+            commandExecutor.executeCommand(command, session, replyWriter);
+        } catch (RuntimeException e) {
+            spotifyLogger.log(Level.SEVERE, ERROR_CLIENT_REQUEST, e);
+            replyWriter.reset();
+            replyWriter.append(ServerReply.SERVER_EXCEPTION.getReply());
+        }
+    }
+
+    private void processHandshake(ClientConnection connection, Frame frame) {
+        if (frame.type() == FrameType.DATA_CHANNEL) {
+            processDataChannelAttach(connection, frame);
+            return;
+        }
+
+        Handshake handshake = frame.type() == FrameType.HANDSHAKE ? Handshake.parse(frame.text()) : null;
+
+        if (handshake == null || !handshake.isSupported()) {
+            connection.enqueue(Frame.of(FrameType.REPLY, ServerReply.PROTOCOL_VERSION_NOT_SUPPORTED_REPLY.getReply()));
+            connection.closeAfterFlush();
+            return;
+        }
+
+        Handshake accepted = handshake.accept(enabledCapabilities);
+        if (accepted.hasCapability(Capability.DEFLATE)) {
+            connection.enableReplyCompression();
+        }
+        if (accepted.hasCapability(Capability.EVENTS)) {
+            connection.enableEvents();
+        }
+        if (accepted.hasCapability(Capability.REQUEST_IDS)) {
+            connection.enableRequestIds();
+        }
+        if (accepted.hasCapability(Capability.CATALOG_VERSIONS)) {
+            connection.enableCatalogVersions();
+        }
+
+        connection.completeHandshake();
+        connection.enqueue(accepted.toFrame());
+    }
+
+    /**
+     * A data channel opens with the session token its client received on the control channel, instead of a
+     * handshake, and from then on only carries audio to the client.
+     */
+    private void processDataChannelAttach(ClientConnection connection, Frame frame) {
+        if (!dataChannelRegistry.attach(frame.text(), connection)) {
+            connection.enqueue(Frame.of(FrameType.REPLY, ServerReply.DATA_CHANNEL_UNKNOWN_TOKEN_REPLY.getReply()));
+            connection.closeAfterFlush();
+            return;
+        }
+
+        connection.completeHandshake();
+        connection.enqueue(frame);
+    }
+
+    /**
+     * Called by the timing wheel when the session's earliest deadline is due. The deadlines are not moved on every
+     * frame; instead the session records when it last heard from the client and, if that turns out to be recent
+     * enough, the session is simply scheduled again for its new deadline.
+     */
+    private void checkExpiry(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+
+        Session session = (Session) key.attachment();
+        if (session.getConnection().isDataConnection()) {
+            return;
+        }
+
+        if (session.isExpired()) {
+            closeQuietly(key);
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (session.isPlaying()) {
+            session.markActive(now);
+        }
+
+        if (now - session.getLastReceivedNanos() >= heartbeatTimeoutNanos ||
+            now - session.getLastActiveNanos() >= idleTimeoutNanos) {
+            expireSession(key, session, now);
+            return;
+        }
+
+        scheduleExpiry(key, session, now);
+    }
+
+    private void scheduleExpiry(SelectionKey key, Session session, long now) {
+        long deadline = Math.min(session.getLastReceivedNanos() + heartbeatTimeoutNanos,
+            session.getLastActiveNanos() + idleTimeoutNanos);
+        session.setExpiry(timingWheel.schedule(key, Math.max(deadline, now)));
+    }
+
+    /**
+     * Logs the session out through the regular logout path, tells the client why and closes the connection once
+     * the reply is written. A client which receives events is told with a {@link EventType#SESSION_EXPIRED} event,
+     * which it shows at once, instead of a reply it would only read with the reply of its next command. A client
+     * which does not read the notice within a heartbeat timeout is closed anyway.
+     */
+    private void expireSession(SelectionKey key, Session session, long now) {
+        spotifyLogger.log(Level.INFO, SESSION_EXPIRED_LABEL + session.getUser().getEmail(), null);
+
+        session.expire();
+        ClientConnection connection = session.getConnection();
+        connection.closeAfterFlush();
+        connection.executeInOrder(() -> expiredSessionReply(session));
+
+        session.setExpiry(timingWheel.schedule(key, now + heartbeatTimeoutNanos));
+    }
+
+    private Frame expiredSessionReply(Session session) {
+        commandExecutor.closeSession(session);
+
+        String reply = ServerReply.SESSION_EXPIRED_REPLY.getReply();
+        return session.getConnection().isReceivingEvents() ?
+            new Event(EventType.SESSION_EXPIRED, reply).toFrame() : Frame.of(FrameType.REPLY, reply);
+    }
+
+    private static Set<Capability> enabledCapabilities(ServerConfiguration configuration) {
+        Set<Capability> capabilities = EnumSet.noneOf(Capability.class);
+        if (configuration.isCompressionEnabled()) {
+            capabilities.add(Capability.DEFLATE);
+        }
+        if (configuration.isEventsEnabled()) {
+            capabilities.add(Capability.EVENTS);
+        }
+        capabilities.add(Capability.REQUEST_IDS);
+        capabilities.add(Capability.CATALOG_VERSIONS);
+
+        return capabilities;
+    }
+
+    private void closeConnection(SelectionKey key) throws IOException {
+        Session session = (Session) key.attachment();
+        ClientConnection connection = session.getConnection();
+        connection.detach();
+        dataChannelRegistry.release(connection);
+
+        TimingWheel.Timeout<SelectionKey> expiry = session.getExpiry();
+        if (expiry != null) {
+            expiry.cancel();
+        }
+
+        if (session.isLoggedIn()) {
+            connection.runInOrder(() -> commandExecutor.closeSession(session));
+        }
+
+        connectionCount.decrementAndGet();
+        key.cancel();
+        try {
+            key.channel().close();
+        } finally {
+            connection.releaseBuffers();
+        }
+    }
+
+    private static ClientConnection connectionOf(SelectionKey key) {
+        return ((Session) key.attachment()).getConnection();
+    }
+
+    private void closeAllConnections() {
+        for (SelectionKey key : selector.keys()) {
+            closeQuietly(key.channel());
+            if (key.attachment() instanceof Session session) {
+                session.getConnection().releaseBuffers();
+            }
+        }
+
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            closeQuietly(channel);
+        }
+
+        connectionCount.set(0);
+        try {
+            selector.close();
+        } catch (IOException e) {
+            spotifyLogger.log(Level.WARNING, ERROR_CLIENT_REQUEST, e);
+        }
+    }
+
+    private void closeQuietly(SelectionKey key) {
+        try {
+            closeConnection(key);
+        } catch (IOException e) {
+            spotifyLogger.log(Level.WARNING, ERROR_CLIENT_REQUEST, e);
+        }
+    }
+
+    private void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            spotifyLogger.log(Level.WARNING, ERROR_CLIENT_REQUEST, e);
+        }
+    }
+}
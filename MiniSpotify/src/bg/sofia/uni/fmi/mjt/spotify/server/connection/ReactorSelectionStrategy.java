@@ -0,0 +1,25 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public enum ReactorSelectionStrategy {
+
+    ROUND_ROBIN {
+        @Override
+        public Reactor select(List<Reactor> reactors, AtomicInteger counter) {
+            return reactors.get(Math.floorMod(counter.getAndIncrement(), reactors.size()));
+        }
+    },
+    LEAST_LOADED {
+        @Override
+        public Reactor select(List<Reactor> reactors, AtomicInteger counter) {
+            return reactors.stream()
+                .min(Comparator.comparingInt(Reactor::getConnectionCount))
+                .orElseThrow();
+        }
+    };
+
+    public abstract Reactor select(List<Reactor> reactors, AtomicInteger counter);
+}
@@ -0,0 +1,80 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs the submitted tasks one after another, in submission order, on top of a shared executor. Every connection
+ * has its own instance, so commands of one client never overtake each other while different clients still run in
+ * parallel.
+ */
+public class SerialExecutor implements Executor {
+
+    private final Queue<Task> tasks;
+    private final Executor executor;
+    private Consumer<RejectedExecutionException> rejectionHandler;
+    private Task active;
+
+    public SerialExecutor(Executor executor) {
+        this.tasks = new ArrayDeque<>();
+        this.executor = executor;
+        this.rejectionHandler = rejected -> { };
+    }
+
+    /**
+     * Sets what happens once an executor rejects one of the tasks. The queue then gives up: the waiting tasks are
+     * dropped, since none of them may overtake the rejected one, and the rejection is handed to the handler, so
+     * that the owner of the queue can stop feeding it.
+     */
+    public synchronized void setRejectionHandler(Consumer<RejectedExecutionException> rejectionHandler) {
+        this.rejectionHandler = Objects.requireNonNull(rejectionHandler, "The rejection handler cannot be null.");
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(task, () -> executor);
+    }
+
+    /**
+     * Runs the task, in its turn, on the executor {@code executorOf} picks instead of the shared one, for instance
+     * on the thread which owns the state the task works on, or on the shared one when it picks {@code null}. The
+     * executor is only picked once the tasks before it have run, so that the choice sees what they have changed,
+     * and the task is handed to it without waiting, from the thread which ran the task before.
+     */
+    public synchronized void execute(Runnable task, Supplier<Executor> executorOf) {
+        Objects.requireNonNull(task, "The task to execute cannot be null.");
+        Objects.requireNonNull(executorOf, "The choice of the executor of the task cannot be null.");
+
+        tasks.add(new Task(() -> {
+            try {
+                task.run();
+            } finally {
+                scheduleNext();
+            }
+        }, executorOf));
+
+        if (active == null) {
+            scheduleNext();
+        }
+    }
+
+    private synchronized void scheduleNext() {
+        if ((active = tasks.poll()) != null) {
+            Executor taskExecutor = active.executorOf().get();
+            try {
+                (taskExecutor == null ? executor : taskExecutor).execute(active.runnable());
+            } catch (RejectedExecutionException e) {
+                active = null;
+                tasks.clear();
+                rejectionHandler.accept(e);
+            }
+        }
+    }
+
+    private record Task(Runnable runnable, Supplier<Executor> executorOf) { }
+}
@@ -0,0 +1,45 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what the server has turned away: connections refused because the server was full and commands refused
+ * because their client exceeded its rate limit, per command. Updated by the acceptor and the reactors, read by
+ * anyone.
+ */
+public class ThrottlingCounters {
+
+    private final LongAdder rejectedConnections;
+    private final LongAdder throttledCommands;
+    private final Map<String, LongAdder> throttledCommandsByName;
+
+    public ThrottlingCounters() {
+        this.rejectedConnections = new LongAdder();
+        this.throttledCommands = new LongAdder();
+        this.throttledCommandsByName = new ConcurrentHashMap<>();
+    }
+
+    public void recordRejectedConnection() {
+        rejectedConnections.increment();
+    }
+
+    public void recordThrottledCommand(String commandName) {
+        throttledCommands.increment();
+        throttledCommandsByName.computeIfAbsent(commandName, name -> new LongAdder()).increment();
+    }
+
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    public long getThrottledCommands() {
+        return throttledCommands.sum();
+    }
+
+    public long getThrottledCommands(String commandName) {
+        LongAdder counter = throttledCommandsByName.get(commandName);
+        return counter == null ? 0 : counter.sum();
+    }
+}
@@ -0,0 +1,173 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel: deadlines are rounded up to ticks and kept in one of a fixed number of buckets, so that
+ * scheduling and cancelling a timeout are O(1) and advancing the wheel only looks at the buckets of the elapsed
+ * ticks. It is not thread-safe and is meant to be owned and driven by a single reactor thread.
+ */
+public class TimingWheel<T> {
+
+    private static final String NOT_POSITIVE_TICK_MESSAGE = "The tick duration must be positive.";
+    private static final String INVALID_WHEEL_SIZE_MESSAGE = "The wheel size must be a positive power of two.";
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(Duration tick, int wheelSize, long startNanos) {
+        Objects.requireNonNull(tick, "The tick duration cannot be null.");
+
+        if (tick.isNegative() || tick.isZero()) {
+            throw new IllegalArgumentException(NOT_POSITIVE_TICK_MESSAGE);
+        }
+
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException(INVALID_WHEEL_SIZE_MESSAGE);
+        }
+
+        this.tickNanos = tick.toNanos();
+        this.startNanos = startNanos;
+        @SuppressWarnings("unchecked")
+        Timeout<T>[] emptyBuckets = (Timeout<T>[]) new Timeout<?>[wheelSize];
+        this.buckets = emptyBuckets;
+        this.mask = wheelSize - 1;
+    }
+
+    /**
+     * Schedules the target to expire at the first tick at or after the deadline. A deadline that has already passed
+     * expires on the next tick.
+     */
+    public Timeout<T> schedule(T target, long deadlineNanos) {
+        Objects.requireNonNull(target, "The target cannot be null.");
+
+        long deadlineTick = Math.max(ceilDiv(deadlineNanos - startNanos, tickNanos), currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(this, target, deadlineTick);
+
+        int index = (int) (deadlineTick & mask);
+        timeout.next = buckets[index];
+        if (buckets[index] != null) {
+            buckets[index].previous = timeout;
+        }
+        buckets[index] = timeout;
+
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves the wheel to the given time and passes the target of every timeout due by then to the consumer. The
+     * consumer is called after the expired timeouts have been removed, so it may schedule new ones.
+     */
+    public void advance(long nowNanos, Consumer<T> onExpired) {
+        long nowTick = Math.floorDiv(nowNanos - startNanos, tickNanos);
+        if (nowTick <= currentTick) {
+            return;
+        }
+
+        List<T> expired = new ArrayList<>();
+        long elapsedTicks = Math.min(nowTick - currentTick, buckets.length);
+        for (long tick = currentTick + 1; tick <= currentTick + elapsedTicks && size > 0; tick++) {
+            collectExpired((int) (tick & mask), nowTick, expired);
+        }
+
+        currentTick = nowTick;
+        expired.forEach(onExpired);
+    }
+
+    /**
+     * Returns how long the owner may block before the wheel has to be advanced again, or zero when nothing is
+     * scheduled.
+     */
+    public long millisUntilNextTick(long nowNanos) {
+        if (size == 0) {
+            return 0;
+        }
+
+        long nextTickNanos = startNanos + (Math.floorDiv(nowNanos - startNanos, tickNanos) + 1) * tickNanos;
+        return Math.max(1, Duration.ofNanos(nextTickNanos - nowNanos).toMillis());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void collectExpired(int index, long nowTick, List<T> expired) {
+        Timeout<T> timeout = buckets[index];
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            if (timeout.deadlineTick <= nowTick) {
+                unlink(timeout);
+                expired.add(timeout.target);
+            }
+
+            timeout = next;
+        }
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        int index = (int) (timeout.deadlineTick & mask);
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[index] = timeout.next;
+        }
+
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.wheel = null;
+        size--;
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+
+    public static final class Timeout<T> {
+
+        private TimingWheel<T> wheel;
+        private final T target;
+        private final long deadlineTick;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(TimingWheel<T> wheel, T target, long deadlineTick) {
+            this.wheel = wheel;
+            this.target = target;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getTarget() {
+            return target;
+        }
+
+        /**
+         * Removes the timeout from its wheel. Does nothing when it has already expired or been cancelled.
+         */
+        public void cancel() {
+            if (wheel != null) {
+                wheel.unlink(this);
+            }
+        }
+
+        public boolean isPending() {
+            return wheel != null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+/**
+ * A token bucket holding up to {@code capacity} tokens and refilled continuously at {@code tokensPerSecond}. Every
+ * command takes its cost out of the bucket of its connection, so a client can send bursts of commands but not keep
+ * up a rate above the refill rate. It is not thread-safe and is meant to be used by the reactor owning the
+ * connection.
+ */
+public class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final String NOT_POSITIVE_RATE_MESSAGE = "The capacity and the refill rate must be positive.";
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double capacity, double tokensPerSecond, long nowNanos) {
+        if (capacity <= 0 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_RATE_MESSAGE);
+        }
+
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / NANOS_PER_SECOND;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Takes the given number of tokens if the bucket holds them. Returns {@code false}, taking nothing, otherwise.
+     */
+    public boolean tryConsume(double cost, long nowNanos) {
+        refill(nowNanos);
+
+        if (tokens < cost) {
+            return false;
+        }
+
+        tokens -= cost;
+        return true;
+    }
+
+    public double getAvailableTokens(long nowNanos) {
+        refill(nowNanos);
+        return tokens;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsedNanos = nowNanos - lastRefillNanos;
+        if (elapsedNanos > 0) {
+            tokens = Math.min(capacity, tokens + elapsedNanos * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
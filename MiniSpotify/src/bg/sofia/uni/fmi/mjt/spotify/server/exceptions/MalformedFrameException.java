@@ -0,0 +1,11 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.exceptions;
+
+public class MalformedFrameException extends SpotifyException {
+    public MalformedFrameException(String message) {
+        super(message);
+    }
+
+    public MalformedFrameException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,156 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.http;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Serves the files of the songs, {@code GET /audio/<title>}, so that any HTTP client can play them, seek in them
+ * with {@code Range} requests and cache them. A song file never changes once it is in {@code data/music}, so its
+ * size and modification time are enough of a validator.
+ */
+class AudioHandler implements HttpHandler {
+
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+    private static final String BYTES = "bytes";
+    private static final String RANGE = "Range";
+    private static final String IF_RANGE = "If-Range";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String AUDIO_CACHE_CONTROL = "public, max-age=86400";
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String AUDIO_CONTENT_TYPE = "audio/wav";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final String CONTENT_RANGE = "Content-Range";
+    private static final String UNSATISFIED_CONTENT_RANGE = "bytes */";
+    private static final String ANY_ETAG = "*";
+
+    private static final String RANGE_NOT_SATISFIABLE_MESSAGE = "The requested range is beyond the end of the song.";
+
+    private final StreamingPlatform streamingPlatform;
+
+    AudioHandler(StreamingPlatform streamingPlatform) {
+        this.streamingPlatform = streamingPlatform;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (!method.equals(HttpExchanges.GET) && !method.equals(HttpExchanges.HEAD)) {
+            HttpExchanges.sendMethodNotAllowed(exchange, HttpExchanges.GET, HttpExchanges.HEAD);
+            return;
+        }
+
+        List<String> segments = HttpExchanges.pathSegments(exchange);
+        Path songPath = segments != null && segments.size() == 1 ?
+            streamingPlatform.getSongPath(segments.get(0)) : null;
+        if (songPath == null) {
+            HttpExchanges.sendNotFound(exchange);
+            return;
+        }
+
+        try (FileChannel song = FileChannel.open(songPath, StandardOpenOption.READ)) {
+            BasicFileAttributes attributes = Files.readAttributes(songPath, BasicFileAttributes.class);
+            long length = song.size();
+            String etag = "\"" + Long.toHexString(length) + "-" +
+                Long.toHexString(attributes.lastModifiedTime().toMillis()) + "\"";
+
+            Headers requestHeaders = exchange.getRequestHeaders();
+            Headers responseHeaders = exchange.getResponseHeaders();
+            responseHeaders.set(ACCEPT_RANGES, BYTES);
+            responseHeaders.set(ETAG, etag);
+            responseHeaders.set(LAST_MODIFIED, DateTimeFormatter.RFC_1123_DATE_TIME
+                .format(attributes.lastModifiedTime().toInstant().atZone(ZoneOffset.UTC)));
+            responseHeaders.set(CACHE_CONTROL, AUDIO_CACHE_CONTROL);
+
+            if (matches(requestHeaders.getFirst(IF_NONE_MATCH), etag)) {
+                HttpExchanges.sendEmpty(exchange, HttpExchanges.NOT_MODIFIED);
+                return;
+            }
+
+            String ifRange = requestHeaders.getFirst(IF_RANGE);
+            String range = ifRange == null || ifRange.equals(etag) ? requestHeaders.getFirst(RANGE) : null;
+            ByteRange byteRange = ByteRange.parse(range, length);
+            if (byteRange == null) {
+                responseHeaders.set(CONTENT_RANGE, UNSATISFIED_CONTENT_RANGE + length);
+                HttpExchanges.sendError(exchange, HttpExchanges.RANGE_NOT_SATISFIABLE, RANGE_NOT_SATISFIABLE_MESSAGE);
+                return;
+            }
+
+            send(exchange, song, byteRange, length, method.equals(HttpExchanges.HEAD));
+        } catch (NoSuchFileException e) {
+            HttpExchanges.sendNotFound(exchange);
+        }
+    }
+
+    /**
+     * Sends the range of the song straight from the file. {@link FileChannel#transferTo} lets the kernel copy the
+     * file into the socket when the response body allows it and falls back to a pooled copy otherwise.
+     */
+    private static void send(HttpExchange exchange, FileChannel song, ByteRange byteRange, long length,
+                             boolean isHead) throws IOException {
+        Headers responseHeaders = exchange.getResponseHeaders();
+        responseHeaders.set(CONTENT_TYPE, AUDIO_CONTENT_TYPE);
+
+        int status = HttpExchanges.OK;
+        if (length > 0 && !byteRange.isFull(length)) {
+            status = HttpExchanges.PARTIAL_CONTENT;
+            responseHeaders.set(CONTENT_RANGE, byteRange.toContentRange(length));
+        }
+
+        long bodyLength = length == 0 ? 0 : byteRange.length();
+        if (isHead) {
+            responseHeaders.set(CONTENT_LENGTH, Long.toString(bodyLength));
+            HttpExchanges.sendEmpty(exchange, status);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, bodyLength == 0 ? -1 : bodyLength);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            WritableByteChannel target = Channels.newChannel(responseBody);
+            long position = byteRange.start();
+            long end = byteRange.start() + bodyLength;
+            while (position < end) {
+                long transferred = song.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+
+                position += transferred;
+            }
+        }
+        exchange.close();
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.strip();
+            if (tag.equals(ANY_ETAG) || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
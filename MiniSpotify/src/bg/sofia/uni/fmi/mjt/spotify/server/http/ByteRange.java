@@ -0,0 +1,71 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.http;
+
+/**
+ * A single range of bytes of a resource, both ends inclusive, as requested by an HTTP {@code Range} header.
+ */
+public record ByteRange(long start, long end) {
+
+    private static final String BYTES_UNIT = "bytes=";
+    private static final String RANGE_SEPARATOR = "-";
+    private static final String MULTIPLE_RANGES_SEPARATOR = ",";
+
+    public static ByteRange full(long length) {
+        return new ByteRange(0, length - 1);
+    }
+
+    /**
+     * Parses the {@code Range} header of a request for a resource of the given length. Returns the whole resource
+     * when there is no header or it cannot be served as a single range, which is what the header's syntax asks of a
+     * server which does not understand it, and {@code null} when the range lies entirely beyond the resource.
+     */
+    public static ByteRange parse(String header, long length) {
+        if (header == null || !header.startsWith(BYTES_UNIT) || header.contains(MULTIPLE_RANGES_SEPARATOR)) {
+            return full(length);
+        }
+
+        String range = header.substring(BYTES_UNIT.length()).strip();
+        int separator = range.indexOf(RANGE_SEPARATOR);
+        if (separator < 0) {
+            return full(length);
+        }
+
+        try {
+            String first = range.substring(0, separator).strip();
+            String last = range.substring(separator + 1).strip();
+
+            if (first.isEmpty()) {
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength <= 0 || length == 0) {
+                    return null;
+                }
+
+                return new ByteRange(Math.max(0, length - suffixLength), length - 1);
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return full(length);
+            }
+
+            return start >= length ? null : new ByteRange(start, Math.min(end, length - 1));
+        } catch (NumberFormatException e) {
+            return full(length);
+        }
+    }
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public boolean isFull(long resourceLength) {
+        return start == 0 && end == resourceLength - 1;
+    }
+
+    /**
+     * Returns the value of the {@code Content-Range} header of a partial response.
+     */
+    public String toContentRange(long resourceLength) {
+        return "bytes " + start + RANGE_SEPARATOR + end + "/" + resourceLength;
+    }
+}
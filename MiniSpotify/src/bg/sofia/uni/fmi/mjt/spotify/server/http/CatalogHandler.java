@@ -0,0 +1,80 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.http;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves the catalog: {@code GET /api/songs/search?q=<word>} and {@code GET /api/songs/top?n=<count>}. Both are
+ * read-only, so their replies may be cached for a short while.
+ */
+class CatalogHandler implements HttpHandler {
+
+    private static final String SEARCH = "search";
+    private static final String TOP = "top";
+    private static final String WORD_PARAMETER = "q";
+    private static final String COUNT_PARAMETER = "n";
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String CATALOG_CACHE_CONTROL = "public, max-age=5";
+
+    private static final String MISSING_WORD_MESSAGE = "The search requires a q parameter.";
+    private static final String INVALID_COUNT_MESSAGE = "The n parameter must be a non-negative number.";
+
+    private final StreamingPlatform streamingPlatform;
+
+    CatalogHandler(StreamingPlatform streamingPlatform) {
+        this.streamingPlatform = streamingPlatform;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!HttpExchanges.GET.equals(exchange.getRequestMethod())) {
+            HttpExchanges.sendMethodNotAllowed(exchange, HttpExchanges.GET);
+            return;
+        }
+
+        List<String> segments = HttpExchanges.pathSegments(exchange);
+        if (segments == null || segments.size() != 1) {
+            HttpExchanges.sendNotFound(exchange);
+            return;
+        }
+
+        Map<String, String> parameters = HttpExchanges.queryParameters(exchange);
+        switch (segments.get(0)) {
+            case SEARCH -> search(exchange, parameters.get(WORD_PARAMETER));
+            case TOP -> top(exchange, parameters.get(COUNT_PARAMETER));
+            default -> HttpExchanges.sendNotFound(exchange);
+        }
+    }
+
+    private void search(HttpExchange exchange, String word) throws IOException {
+        if (word == null) {
+            HttpExchanges.sendError(exchange, HttpExchanges.BAD_REQUEST, MISSING_WORD_MESSAGE);
+            return;
+        }
+
+        exchange.getResponseHeaders().set(CACHE_CONTROL, CATALOG_CACHE_CONTROL);
+        HttpExchanges.sendJson(exchange, HttpExchanges.OK, streamingPlatform.searchSongs(word));
+    }
+
+    private void top(HttpExchange exchange, String count) throws IOException {
+        int n;
+        try {
+            n = Integer.parseInt(count);
+        } catch (NumberFormatException e) {
+            n = -1;
+        }
+
+        if (n < 0) {
+            HttpExchanges.sendError(exchange, HttpExchanges.BAD_REQUEST, INVALID_COUNT_MESSAGE);
+            return;
+        }
+
+        exchange.getResponseHeaders().set(CACHE_CONTROL, CATALOG_CACHE_CONTROL);
+        HttpExchanges.sendJson(exchange, HttpExchanges.OK, streamingPlatform.getTopNMostListenedSongs(n));
+    }
+}
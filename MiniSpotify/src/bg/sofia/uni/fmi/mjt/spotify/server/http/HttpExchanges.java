@@ -0,0 +1,165 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.http;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.IODatabaseException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.NoSuchPlaylistException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.NoSuchSongException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.PlaylistAlreadyExistException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.PlaylistNotEmptyException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.SongAlreadyInPlaylistException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.SpotifyException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.UserNotFoundException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.UserNotLoggedException;
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The plumbing shared by the handlers of the HTTP gateway: reading paths and queries and writing JSON replies.
+ */
+final class HttpExchanges {
+
+    static final int OK = 200;
+    static final int CREATED = 201;
+    static final int NO_CONTENT = 204;
+    static final int PARTIAL_CONTENT = 206;
+    static final int NOT_MODIFIED = 304;
+    static final int BAD_REQUEST = 400;
+    static final int UNAUTHORIZED = 401;
+    static final int NOT_FOUND = 404;
+    static final int METHOD_NOT_ALLOWED = 405;
+    static final int CONFLICT = 409;
+    static final int RANGE_NOT_SATISFIABLE = 416;
+    static final int INTERNAL_SERVER_ERROR = 500;
+
+    static final String GET = "GET";
+    static final String HEAD = "HEAD";
+    static final String PUT = "PUT";
+    static final String DELETE = "DELETE";
+
+    private static final long EMPTY_RESPONSE_BODY = -1;
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final String ALLOW = "Allow";
+    private static final String PATH_SEPARATOR = "/";
+    private static final String PARAMETER_SEPARATOR = "&";
+    private static final String VALUE_SEPARATOR = "=";
+    private static final String METHOD_NOT_ALLOWED_MESSAGE = "The method is not allowed on this resource.";
+    private static final String NOT_FOUND_MESSAGE = "There is no such resource.";
+
+    private static final Gson GSON = new Gson();
+
+    private HttpExchanges() { }
+
+    static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        send(exchange, status, GSON.toJson(body));
+    }
+
+    static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, GSON.toJson(Map.of("error", message)));
+    }
+
+    static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, EMPTY_RESPONSE_BODY);
+        exchange.close();
+    }
+
+    static void sendNotFound(HttpExchange exchange) throws IOException {
+        sendError(exchange, NOT_FOUND, NOT_FOUND_MESSAGE);
+    }
+
+    static void sendMethodNotAllowed(HttpExchange exchange, String... allowed) throws IOException {
+        exchange.getResponseHeaders().set(ALLOW, String.join(", ", allowed));
+        sendError(exchange, METHOD_NOT_ALLOWED, METHOD_NOT_ALLOWED_MESSAGE);
+    }
+
+    /**
+     * Replies with the status which matches the failed platform operation and its message, the same one the line
+     * protocol replies with.
+     */
+    static void sendFailure(HttpExchange exchange, SpotifyException exception) throws IOException {
+        sendError(exchange, statusOf(exception), exception.getMessage());
+    }
+
+    static int statusOf(SpotifyException exception) {
+        if (exception instanceof UserNotLoggedException || exception instanceof UserNotFoundException) {
+            return UNAUTHORIZED;
+        }
+        if (exception instanceof NoSuchPlaylistException || exception instanceof NoSuchSongException) {
+            return NOT_FOUND;
+        }
+        if (exception instanceof PlaylistAlreadyExistException ||
+            exception instanceof SongAlreadyInPlaylistException ||
+            exception instanceof PlaylistNotEmptyException) {
+            return CONFLICT;
+        }
+        if (exception instanceof IODatabaseException) {
+            return INTERNAL_SERVER_ERROR;
+        }
+
+        return BAD_REQUEST;
+    }
+
+    /**
+     * Returns the decoded segments of the request path which follow the path of the handler's context, or
+     * {@code null} when the request path only shares a prefix with it, like {@code /api/playlistsX}.
+     */
+    static List<String> pathSegments(HttpExchange exchange) {
+        String rawPath = exchange.getRequestURI().getRawPath();
+        String contextPath = exchange.getHttpContext().getPath();
+
+        String rest = rawPath.substring(Math.min(contextPath.length(), rawPath.length()));
+        if (!rest.isEmpty() && !contextPath.endsWith(PATH_SEPARATOR) && !rest.startsWith(PATH_SEPARATOR)) {
+            return null;
+        }
+
+        List<String> segments = new ArrayList<>();
+        for (String segment : rest.split(PATH_SEPARATOR)) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment.replace("+", "%2B"), StandardCharsets.UTF_8));
+            }
+        }
+
+        return segments;
+    }
+
+    static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery == null) {
+            return parameters;
+        }
+
+        for (String parameter : rawQuery.split(PARAMETER_SEPARATOR)) {
+            int separator = parameter.indexOf(VALUE_SEPARATOR);
+            String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            String value = separator < 0 ? "" : parameter.substring(separator + 1);
+            parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+
+        return parameters;
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set(CONTENT_TYPE, JSON_CONTENT_TYPE);
+
+        boolean hasBody = !HEAD.equals(exchange.getRequestMethod());
+        exchange.sendResponseHeaders(status, hasBody ? body.length : EMPTY_RESPONSE_BODY);
+        if (hasBody) {
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        }
+        exchange.close();
+    }
+}
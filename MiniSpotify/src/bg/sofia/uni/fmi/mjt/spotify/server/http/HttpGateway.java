@@ -0,0 +1,58 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.http;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerConfiguration;
+import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An HTTP front end of the streaming platform, for clients which cannot speak the framed line protocol. It serves
+ * the catalog and the playlists as JSON under {@code /api} and the song files, with {@code Range} support, under
+ * {@code /audio}. Every exchange runs on a virtual thread of its own, so a slow download never holds up the rest.
+ */
+public class HttpGateway {
+
+    private static final String HOST = "localhost";
+    private static final String SONGS_PATH = "/api/songs/";
+    private static final String PLAYLISTS_PATH = "/api/playlists";
+    private static final String AUDIO_PATH = "/audio/";
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    private final HttpServer httpServer;
+    private final ExecutorService exchangeExecutor;
+
+    public HttpGateway(ServerConfiguration configuration, StreamingPlatform streamingPlatform,
+                       AuthenticationService authenticationService, SpotifyLogger spotifyLogger) throws IOException {
+        this.httpServer = HttpServer.create(new InetSocketAddress(HOST, configuration.getHttpPort()),
+            configuration.getAcceptBacklog());
+        this.exchangeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+        httpServer.createContext(SONGS_PATH, new CatalogHandler(streamingPlatform));
+        httpServer.createContext(PLAYLISTS_PATH,
+            new PlaylistHandler(streamingPlatform, authenticationService, spotifyLogger));
+        httpServer.createContext(AUDIO_PATH, new AudioHandler(streamingPlatform));
+        httpServer.setExecutor(exchangeExecutor);
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * Stops accepting requests and gives the exchanges in progress a moment to finish.
+     */
+    public void stop() {
+        httpServer.stop(STOP_DELAY_SECONDS);
+        exchangeExecutor.shutdownNow();
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+}
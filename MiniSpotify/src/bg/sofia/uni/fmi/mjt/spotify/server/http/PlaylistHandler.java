@@ -0,0 +1,173 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.http;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerReply;
+import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.SpotifyException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.UserNotFoundException;
+import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Serves the playlists of the user who sends the request:
+ * <ul>
+ *     <li>{@code GET /api/playlists} lists the titles of the user's playlists;</li>
+ *     <li>{@code GET}, {@code PUT} and {@code DELETE /api/playlists/<title>} show, create and delete a playlist;</li>
+ *     <li>{@code PUT} and {@code DELETE /api/playlists/<title>/songs/<song>} add a song to a playlist and remove
+ *     it.</li>
+ * </ul>
+ * Every request carries the user's credentials in a Basic {@code Authorization} header, since HTTP has no
+ * connection to keep a login on.
+ */
+class PlaylistHandler implements HttpHandler {
+
+    private static final String SONGS = "songs";
+    private static final String AUTHORIZATION = "Authorization";
+    private static final String WWW_AUTHENTICATE = "WWW-Authenticate";
+    private static final String BASIC_SCHEME = "Basic ";
+    private static final String BASIC_CHALLENGE = "Basic realm=\"MiniSpotify\", charset=\"UTF-8\"";
+    private static final String CREDENTIALS_SEPARATOR = ":";
+
+    private static final String MISSING_CREDENTIALS_MESSAGE = "The request must carry Basic credentials.";
+    private static final String AUTHENTICATION_PROBLEM_MESSAGE = "A problem arise in authenticating an HTTP request";
+
+    private final StreamingPlatform streamingPlatform;
+    private final AuthenticationService authenticationService;
+    private final SpotifyLogger spotifyLogger;
+
+    PlaylistHandler(StreamingPlatform streamingPlatform, AuthenticationService authenticationService,
+                    SpotifyLogger spotifyLogger) {
+        this.streamingPlatform = streamingPlatform;
+        this.authenticationService = authenticationService;
+        this.spotifyLogger = spotifyLogger;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        List<String> segments = HttpExchanges.pathSegments(exchange);
+        if (segments == null) {
+            HttpExchanges.sendNotFound(exchange);
+            return;
+        }
+
+        boolean isPlaylists = segments.isEmpty();
+        boolean isPlaylist = segments.size() == 1;
+        boolean isPlaylistSong = segments.size() == 3 && segments.get(1).equals(SONGS);
+        if (!isPlaylists && !isPlaylist && !isPlaylistSong) {
+            HttpExchanges.sendNotFound(exchange);
+            return;
+        }
+
+        String method = exchange.getRequestMethod();
+        if (isPlaylists && !method.equals(HttpExchanges.GET)) {
+            HttpExchanges.sendMethodNotAllowed(exchange, HttpExchanges.GET);
+            return;
+        }
+        if (isPlaylist && !List.of(HttpExchanges.GET, HttpExchanges.PUT, HttpExchanges.DELETE).contains(method)) {
+            HttpExchanges.sendMethodNotAllowed(exchange, HttpExchanges.GET, HttpExchanges.PUT, HttpExchanges.DELETE);
+            return;
+        }
+        if (isPlaylistSong && !List.of(HttpExchanges.PUT, HttpExchanges.DELETE).contains(method)) {
+            HttpExchanges.sendMethodNotAllowed(exchange, HttpExchanges.PUT, HttpExchanges.DELETE);
+            return;
+        }
+
+        try {
+            Session session = authenticate(exchange);
+            if (session == null) {
+                return;
+            }
+
+            if (isPlaylists) {
+                HttpExchanges.sendJson(exchange, HttpExchanges.OK, streamingPlatform.showPlaylists(session));
+            } else if (isPlaylist) {
+                handlePlaylist(exchange, method, segments.get(0), session);
+            } else {
+                handlePlaylistSong(exchange, method, segments.get(0), segments.get(2), session);
+            }
+        } catch (SpotifyException e) {
+            HttpExchanges.sendFailure(exchange, e);
+        }
+    }
+
+    private void handlePlaylist(HttpExchange exchange, String method, String playlistTitle, Session session)
+        throws SpotifyException, IOException {
+        switch (method) {
+            case HttpExchanges.GET -> HttpExchanges.sendJson(exchange, HttpExchanges.OK,
+                streamingPlatform.showPlaylist(playlistTitle, session));
+            case HttpExchanges.PUT -> {
+                streamingPlatform.createPlaylist(playlistTitle, session);
+                HttpExchanges.sendEmpty(exchange, HttpExchanges.CREATED);
+            }
+            default -> {
+                streamingPlatform.deletePlaylist(playlistTitle, session);
+                HttpExchanges.sendEmpty(exchange, HttpExchanges.NO_CONTENT);
+            }
+        }
+    }
+
+    private void handlePlaylistSong(HttpExchange exchange, String method, String playlistTitle, String songTitle,
+                                    Session session) throws SpotifyException, IOException {
+        if (method.equals(HttpExchanges.PUT)) {
+            streamingPlatform.addSongToPlaylist(playlistTitle, songTitle, session);
+        } else {
+            streamingPlatform.removeSongFromPlaylist(playlistTitle, songTitle, session);
+        }
+
+        HttpExchanges.sendEmpty(exchange, HttpExchanges.NO_CONTENT);
+    }
+
+    /**
+     * Logs the user of the request in on a session of its own. Replies with a challenge and returns {@code null}
+     * when the request carries no credentials.
+     */
+    private Session authenticate(HttpExchange exchange) throws SpotifyException, IOException {
+        String authorization = exchange.getRequestHeaders().getFirst(AUTHORIZATION);
+        String[] credentials = decodeCredentials(authorization);
+        if (credentials == null) {
+            exchange.getResponseHeaders().set(WWW_AUTHENTICATE, BASIC_CHALLENGE);
+            HttpExchanges.sendError(exchange, HttpExchanges.UNAUTHORIZED, MISSING_CREDENTIALS_MESSAGE);
+            return null;
+        }
+
+        Session session = new Session(null);
+        try {
+            session.login(authenticationService.login(credentials[0], credentials[1]));
+        } catch (UserNotFoundException e) {
+            exchange.getResponseHeaders().set(WWW_AUTHENTICATE, BASIC_CHALLENGE);
+            throw e;
+        } catch (NoSuchAlgorithmException e) {
+            spotifyLogger.log(Level.SEVERE, AUTHENTICATION_PROBLEM_MESSAGE, e);
+            HttpExchanges.sendError(exchange, HttpExchanges.INTERNAL_SERVER_ERROR,
+                ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply());
+            return null;
+        }
+
+        return session;
+    }
+
+    private static String[] decodeCredentials(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BASIC_SCHEME, 0, BASIC_SCHEME.length())) {
+            return null;
+        }
+
+        try {
+            String decoded = new String(Base64.getDecoder().decode(authorization.substring(BASIC_SCHEME.length())
+                .strip()), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(CREDENTIALS_SEPARATOR);
+            return separator < 0 ? null :
+                new String[] {decoded.substring(0, separator), decoded.substring(separator + 1)};
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.player;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import java.io.IOException;
+
+/**
+ * Where {@link PlaySongThread} writes the PCM data of the song it plays.
+ */
+public interface AudioSink {
+
+    void open(AudioFormat format) throws IOException, LineUnavailableException;
+
+    /**
+     * Returns the preferred number of bytes per {@link #write(byte[], int, int)} call.
+     */
+    int getBufferSize();
+
+    void write(byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * Releases the sink. {@code isCompleted} tells whether the whole song was written or playing was stopped.
+     */
+    void close(boolean isCompleted);
+}
@@ -0,0 +1,136 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.player;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ClientConnection;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.AudioEnd;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.AudioHeader;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Streams the song to the client over its connection: an {@link FrameType#AUDIO_FORMAT} frame, the PCM data in
+ * {@link FrameType#AUDIO_DATA} frames and an {@link FrameType#AUDIO_END} frame. The data is paced to the playback
+ * rate, running at most {@code lead} ahead of it, so that a listener never holds a whole song in the server's
+ * outbound queue, and it is held back while the connection is backlogged.
+ */
+public class ConnectionAudioSink implements FileRegionSink {
+
+    public static final Duration DEFAULT_LEAD = Duration.ofSeconds(1);
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final long BACKLOG_WAIT_MILLIS = 10;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final String CONNECTION_CLOSED_MESSAGE = "The client connection has been closed.";
+    private static final String INTERRUPTED_MESSAGE = "Streaming has been interrupted.";
+
+    private final ClientConnection connection;
+    private final long leadNanos;
+    private int bytesPerSecond;
+    private long sentBytes;
+    private long startNanos;
+    private boolean isOpened;
+
+    public ConnectionAudioSink(ClientConnection connection) {
+        this(connection, DEFAULT_LEAD);
+    }
+
+    public ConnectionAudioSink(ClientConnection connection, Duration lead) {
+        this.connection = Objects.requireNonNull(connection, "The client connection cannot be null.");
+        this.leadNanos = Objects.requireNonNull(lead, "The lead cannot be null.").toNanos();
+    }
+
+    @Override
+    public void open(AudioFormat format) throws IOException {
+        ensureOpen();
+
+        AudioHeader header = AudioHeader.of(format);
+        bytesPerSecond = header.bytesPerSecond();
+        sentBytes = 0;
+        startNanos = System.nanoTime();
+        isOpened = true;
+
+        connection.send(header.toFrame());
+    }
+
+    @Override
+    public int getBufferSize() {
+        return CHUNK_SIZE;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        int written = 0;
+        while (written < length) {
+            int chunkLength = Math.min(CHUNK_SIZE, length - written);
+
+            awaitTurn();
+            connection.send(FrameType.AUDIO_DATA, buffer, offset + written, chunkLength);
+
+            sentBytes += chunkLength;
+            written += chunkLength;
+        }
+    }
+
+    @Override
+    public void transfer(FileChannel file, long position, int count) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            int chunkLength = (int) Math.min(CHUNK_SIZE, count - transferred);
+
+            awaitTurn();
+            connection.sendFileRegion(FrameType.AUDIO_DATA, file, position + transferred, chunkLength);
+
+            sentBytes += chunkLength;
+            transferred += chunkLength;
+        }
+    }
+
+    @Override
+    public void close(boolean isCompleted) {
+        if (isOpened && connection.isOpen()) {
+            connection.send((isCompleted ? AudioEnd.FINISHED : AudioEnd.STOPPED).toFrame());
+        }
+
+        isOpened = false;
+    }
+
+    private void awaitTurn() throws IOException {
+        try {
+            while (true) {
+                ensureOpen();
+
+                long waitNanos = sendTimeOfNextChunk() - System.nanoTime();
+                if (waitNanos > 0) {
+                    Thread.sleep(Duration.ofNanos(waitNanos));
+                } else if (connection.isOutputBacklogged()) {
+                    Thread.sleep(BACKLOG_WAIT_MILLIS);
+                } else {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(INTERRUPTED_MESSAGE);
+        }
+    }
+
+    private long sendTimeOfNextChunk() {
+        if (bytesPerSecond <= 0) {
+            return startNanos;
+        }
+
+        return startNanos + sentBytes * NANOS_PER_SECOND / bytesPerSecond - leadNanos;
+    }
+
+    private void ensureOpen() throws EOFException {
+        if (!connection.isOpen()) {
+            throw new EOFException(CONNECTION_CLOSED_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.player;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * An {@link AudioSink} which can also send PCM data straight from a file, without reading it into the heap.
+ */
+public interface FileRegionSink extends AudioSink {
+
+    /**
+     * Sends {@code count} bytes of the file starting at {@code position}. The file must stay open until the
+     * sink is closed.
+     */
+    void transfer(FileChannel file, long position, int count) throws IOException;
+}
@@ -0,0 +1,51 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.player;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Plays the song on a {@link SourceDataLine} of the machine running the server.
+ */
+public class LocalLineAudioSink implements AudioSink {
+
+    private SourceDataLine line;
+
+    @Override
+    public void open(AudioFormat format) throws LineUnavailableException {
+        SourceDataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
+
+        line = (SourceDataLine) AudioSystem.getLine(info);
+        line.open(format);
+        line.start();
+    }
+
+    @Override
+    public int getBufferSize() {
+        return line.getBufferSize();
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) {
+        int written = 0;
+        while (written < length) {
+            written += line.write(buffer, offset + written, length - written);
+        }
+    }
+
+    @Override
+    public void close(boolean isCompleted) {
+        if (line == null) {
+            return;
+        }
+
+        if (isCompleted) {
+            line.drain();
+        }
+
+        line.stop();
+        line.close();
+    }
+}
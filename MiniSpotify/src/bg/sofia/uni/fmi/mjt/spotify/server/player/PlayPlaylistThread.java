@@ -7,26 +7,26 @@ import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.NoSuchSongException;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.SongIsAlreadyPlayingException;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.UserNotLoggedException;
 import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
-import bg.sofia.uni.fmi.mjt.spotify.server.storage.Playlist;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Event;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.EventType;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.Song;
 
-import java.nio.channels.SelectionKey;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.List;
 import java.util.logging.Level;
 
 public class PlayPlaylistThread extends Thread {
 
     private final String playListTitle;
-    private final SelectionKey selectionKey;
+    private final Session session;
     private final StreamingPlatform streamingPlatform;
     private final SpotifyLogger spotifyLogger;
 
-    public PlayPlaylistThread(String playListTitle, SelectionKey selectionKey,
-                              StreamingPlatform streamingPlatform, SpotifyLogger spotifyLogger) {
+    public PlayPlaylistThread(String playListTitle, Session session, StreamingPlatform streamingPlatform,
+                              SpotifyLogger spotifyLogger) {
 
         this.playListTitle = playListTitle;
-        this.selectionKey = selectionKey;
+        this.session = session;
         this.streamingPlatform = streamingPlatform;
         this.spotifyLogger = spotifyLogger;
     }
@@ -34,46 +34,35 @@ public class PlayPlaylistThread extends Thread {
     @Override
     public void run()  {
 
-        Set<Song> songsToPlay = new LinkedHashSet<>();
-        for (Playlist currentPlaylist : streamingPlatform.getPlaylists().get(
-            streamingPlatform.getUser().getEmail())) {
+        List<Song> songsToPlay = streamingPlatform.getPlaylistSongs(session.getUser().getEmail(), playListTitle);
 
-            if (currentPlaylist.getTitle().equals(playListTitle)) {
-                songsToPlay = currentPlaylist.getPlaylistSongs();
-                break;
-            }
-        }
-
-        for (Song currentSong : songsToPlay.stream().toList()) {
+        for (Song currentSong : songsToPlay) {
             try {
-                streamingPlatform.playSong(currentSong.getTitle(), selectionKey);
+                streamingPlatform.playSong(currentSong.getTitle(), session);
             } catch (UserNotLoggedException e) {
                 spotifyLogger.log(Level.INFO, ServerReply.PLAY_SONG_NOT_LOGGED_REPLY.getReply(), e);
             } catch (NoSuchSongException e) {
-                spotifyLogger.log(Level.INFO, streamingPlatform.getUser().getEmail() + " " +
+                spotifyLogger.log(Level.INFO, session.getUser().getEmail() + " " +
                     ServerReply.PLAY_SONG_NO_SUCH_SONG_REPLY.getReply(), e);
             } catch (SongIsAlreadyPlayingException e) {
-                spotifyLogger.log(Level.INFO, streamingPlatform.getUser().getEmail() + " " +
+                spotifyLogger.log(Level.INFO, session.getUser().getEmail() + " " +
                     ServerReply.PLAY_SONG_IS_ALREADY_RUNNING_REPLY.getReply(), e);
             } catch (IODatabaseException e) {
-                spotifyLogger.log(Level.INFO, streamingPlatform.getUser().getEmail() + " " +
+                spotifyLogger.log(Level.INFO, session.getUser().getEmail() + " " +
                     ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), e);
             } catch (Exception e) {
-                spotifyLogger.log(Level.INFO, streamingPlatform.getUser().getEmail() + " " +
+                spotifyLogger.log(Level.INFO, session.getUser().getEmail() + " " +
                     ServerReply.SERVER_EXCEPTION.getReply(), e);
             }
 
-            synchronized (streamingPlatform) {
-
-                while (streamingPlatform.getAlreadyRunning().containsKey(selectionKey)) {
-                    try {
-                        streamingPlatform.wait();
-                    } catch (InterruptedException e) {
-                        spotifyLogger.log(Level.INFO, streamingPlatform.getUser().getEmail() + " " +
-                            ServerReply.SERVER_EXCEPTION.getReply(), e);
-                    }
-                }
+            try {
+                session.awaitPlaybackFinished();
+            } catch (InterruptedException e) {
+                spotifyLogger.log(Level.INFO, session.getUser().getEmail() + " " +
+                    ServerReply.SERVER_EXCEPTION.getReply(), e);
             }
         }
+
+        session.publish(new Event(EventType.PLAYLIST_FINISHED, playListTitle));
     }
 }
\ No newline at end of file
@@ -1,98 +1,139 @@
 package bg.sofia.uni.fmi.mjt.spotify.server.player;
 
 import bg.sofia.uni.fmi.mjt.spotify.server.ServerReply;
-import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
 import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Event;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.EventType;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.Song;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongFile;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.DataLine;
 import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.SourceDataLine;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
 import java.io.IOException;
-import java.nio.channels.SelectionKey;
+import java.nio.channels.FileChannel;
 import java.util.logging.Level;
 
 public class PlaySongThread extends Thread {
 
     private static final String DATA_PATH = "data" + File.separator + "music" + File.separator;
     private static final String WAV_FORMAT = ".wav";
+    private static final String UNDERSCORE = "_";
 
     private final String songName;
-    private final SelectionKey selectionKey;
-    private boolean isRunning;
-    private final StreamingPlatform streamingPlatform;
+    private final String songTitle;
+    private final Session session;
+    private volatile boolean isRunning;
     private final SpotifyLogger spotifyLogger;
+    private final AudioSink audioSink;
+    private final SongFile songFile;
 
-    public PlaySongThread(String songName, SelectionKey selectionKey, StreamingPlatform streamingPlatform,
-                          SpotifyLogger spotifyLogger) {
+    public PlaySongThread(String songName, Session session, SpotifyLogger spotifyLogger) {
+        this(songName, session, spotifyLogger, new LocalLineAudioSink());
+    }
+
+    public PlaySongThread(String songName, Session session, SpotifyLogger spotifyLogger, AudioSink audioSink) {
+        this(songName, session, spotifyLogger, audioSink, null);
+    }
+
+    /**
+     * When the song file has been ingested and the sink can send file regions, the PCM data is sent straight from
+     * the file instead of being decoded and copied.
+     */
+    public PlaySongThread(String songName, Session session, SpotifyLogger spotifyLogger, AudioSink audioSink,
+                          SongFile songFile) {
+        this(songName, songName, session, spotifyLogger, audioSink, songFile);
+    }
+
+    /**
+     * Plays a song of the catalog, whose title is what the track events tell the client.
+     */
+    public PlaySongThread(Song song, Session session, SpotifyLogger spotifyLogger, AudioSink audioSink,
+                          SongFile songFile) {
+        this(song.getArtist() + UNDERSCORE + song.getTitle(), song.getTitle(), session, spotifyLogger, audioSink,
+            songFile);
+    }
+
+    private PlaySongThread(String songName, String songTitle, Session session, SpotifyLogger spotifyLogger,
+                           AudioSink audioSink, SongFile songFile) {
         this.isRunning = false;
         this.songName = songName;
-        this.selectionKey = selectionKey;
-        this.streamingPlatform = streamingPlatform;
+        this.songTitle = songTitle;
+        this.session = session;
         this.spotifyLogger = spotifyLogger;
+        this.audioSink = audioSink;
+        this.songFile = songFile;
     }
 
     @Override
     public void run() {
 
         isRunning = true;
+        boolean isCompleted = false;
+        session.publish(new Event(EventType.TRACK_STARTED, songTitle));
         try {
-            //Take format of the song of the server
-            AudioInputStream stream = AudioSystem.getAudioInputStream(new File(DATA_PATH + songName +
-                WAV_FORMAT));
+            if (songFile != null && audioSink instanceof FileRegionSink fileRegionSink) {
+                transferSongFile(fileRegionSink);
+            } else {
+                copySong();
+            }
 
-            AudioFormat format = stream.getFormat();
-            if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED) {
-                format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(),
-                    format.getSampleSizeInBits(), format.getChannels(), format.getFrameSize(), format.getFrameRate(),
-                    true);
+            isCompleted = isRunning;
+        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
+            spotifyLogger.log(Level.SEVERE, ServerReply.STOP_COMMAND_ERROR_REPLY.getReply(), e);
+        } finally {
+            audioSink.close(isCompleted);
+            isRunning = false;
+            session.publish(new Event(EventType.TRACK_FINISHED, songTitle));
+            session.finishPlayback(this);
+        }
+    }
 
-                stream = AudioSystem.getAudioInputStream(format, stream);
-            }
+    private void copySong() throws UnsupportedAudioFileException, IOException, LineUnavailableException {
+        //Take format of the song of the server
+        AudioInputStream stream = AudioSystem.getAudioInputStream(new File(DATA_PATH + songName +
+            WAV_FORMAT));
 
-            //SourceDataLine on the client side
-            SourceDataLine.Info info = new DataLine.Info(SourceDataLine.class, stream.getFormat(),
-                ((int) stream.getFrameLength() * format.getFrameSize()));
+        AudioFormat format = stream.getFormat();
+        if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED) {
+            format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(),
+                format.getSampleSizeInBits(), format.getChannels(), format.getFrameSize(), format.getFrameRate(),
+                true);
 
-            SourceDataLine line = (SourceDataLine) AudioSystem.getLine(info);
+            stream = AudioSystem.getAudioInputStream(format, stream);
+        }
 
-            line.open(stream.getFormat());
-            line.start();
+        try (AudioInputStream pcmStream = stream) {
+            audioSink.open(pcmStream.getFormat());
 
             int numRead;
-            byte[] buf = new byte[line.getBufferSize()];
-            while ((numRead = stream.read(buf, 0, buf.length)) >= 0 && isRunning) {
-                int offset = 0;
-                while (offset < numRead) {
-                    //Write data in SourceDataLine
-                    offset += line.write(buf, offset, numRead - offset);
-                }
+            byte[] buf = new byte[audioSink.getBufferSize()];
+            while (isRunning && (numRead = pcmStream.read(buf, 0, buf.length)) >= 0) {
+                audioSink.write(buf, 0, numRead);
             }
-
-            line.drain();
-            line.stop();
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
-            spotifyLogger.log(Level.SEVERE, ServerReply.STOP_COMMAND_ERROR_REPLY.getReply(), e);
         }
-
-        isRunning = false;
-        removeFrom();
     }
 
-    public void terminateSong() {
-        isRunning = false;
-    }
+    private void transferSongFile(FileRegionSink fileRegionSink) throws IOException, LineUnavailableException {
+        fileRegionSink.open(songFile.getFormat());
 
-    private void removeFrom() {
+        FileChannel file = songFile.getChannel();
+        int frameSize = songFile.getFormat().getFrameSize();
+        int chunkSize = Math.max(frameSize, fileRegionSink.getBufferSize() / frameSize * frameSize);
 
-        synchronized (streamingPlatform) {
-            streamingPlatform.getAlreadyRunning().remove(selectionKey);
-            streamingPlatform.notifyAll();
+        long position = 0;
+        while (isRunning && position < songFile.getDataLength()) {
+            int count = (int) Math.min(chunkSize, songFile.getDataLength() - position);
+            fileRegionSink.transfer(file, songFile.getDataOffset() + position, count);
+            position += count;
         }
+    }
 
+    public void terminateSong() {
+        isRunning = false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.player;
+
+public enum PlaybackMode {
+
+    /**
+     * Plays the songs on the sound card of the server machine.
+     */
+    SERVER_LINE,
+
+    /**
+     * Sends the songs over the client's connection to be played by the client.
+     */
+    STREAM_TO_CLIENT
+}
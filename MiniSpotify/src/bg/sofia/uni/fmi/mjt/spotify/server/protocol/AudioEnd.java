@@ -0,0 +1,27 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+public enum AudioEnd {
+
+    FINISHED("finished"),
+    STOPPED("stopped");
+
+    private final String reason;
+
+    AudioEnd(String reason) {
+        this.reason = reason;
+    }
+
+    public static AudioEnd parse(String payload) {
+        for (AudioEnd currentEnd : values()) {
+            if (currentEnd.reason.equals(payload)) {
+                return currentEnd;
+            }
+        }
+
+        return STOPPED;
+    }
+
+    public Frame toFrame() {
+        return Frame.of(FrameType.AUDIO_END, reason);
+    }
+}
@@ -0,0 +1,55 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.Objects;
+
+/**
+ * The fields of an {@link AudioFormat}, which is not serializable, sent ahead of the PCM data of a song so that the
+ * client can open a matching line.
+ */
+public record AudioHeader(String encoding, float sampleRate, int sampleSizeInBits, int channels, int frameSize,
+                          float frameRate, boolean bigEndian) {
+
+    private static final String SEPARATOR = " ";
+    private static final int NUMBER_OF_FIELDS = 7;
+    private static final String INVALID_HEADER_MESSAGE = "The audio header is not in the expected format.";
+
+    public static AudioHeader of(AudioFormat format) {
+        Objects.requireNonNull(format, "The audio format cannot be null.");
+
+        return new AudioHeader(format.getEncoding().toString(), format.getSampleRate(), format.getSampleSizeInBits(),
+            format.getChannels(), format.getFrameSize(), format.getFrameRate(), format.isBigEndian());
+    }
+
+    public static AudioHeader parse(String payload) {
+        Objects.requireNonNull(payload, "The audio header payload cannot be null.");
+
+        String[] fields = payload.split(SEPARATOR);
+        if (fields.length != NUMBER_OF_FIELDS) {
+            throw new IllegalArgumentException(INVALID_HEADER_MESSAGE);
+        }
+
+        try {
+            return new AudioHeader(fields[0], Float.parseFloat(fields[1]), Integer.parseInt(fields[2]),
+                Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), Float.parseFloat(fields[5]),
+                Boolean.parseBoolean(fields[6]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(INVALID_HEADER_MESSAGE, e);
+        }
+    }
+
+    public AudioFormat toAudioFormat() {
+        return new AudioFormat(new AudioFormat.Encoding(encoding), sampleRate, sampleSizeInBits, channels, frameSize,
+            frameRate, bigEndian);
+    }
+
+    public int bytesPerSecond() {
+        return Math.round(frameRate * frameSize);
+    }
+
+    public Frame toFrame() {
+        return Frame.of(FrameType.AUDIO_FORMAT, String.join(SEPARATOR, encoding, String.valueOf(sampleRate),
+            String.valueOf(sampleSizeInBits), String.valueOf(channels), String.valueOf(frameSize),
+            String.valueOf(frameRate), String.valueOf(bigEndian)));
+    }
+}
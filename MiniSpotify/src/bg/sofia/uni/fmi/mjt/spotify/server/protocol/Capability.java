@@ -0,0 +1,50 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+/**
+ * An optional protocol feature. The client offers the capabilities it understands in its handshake and the server
+ * answers with the ones it enables for the connection.
+ */
+public enum Capability {
+
+    /**
+     * Large replies may arrive as {@link FrameType#COMPRESSED_REPLY} frames, deflated with {@link FrameCompression}.
+     */
+    DEFLATE("deflate"),
+
+    /**
+     * Changes of the playback and of the session are pushed as {@link FrameType#EVENT} frames, whenever they happen.
+     */
+    EVENTS("events"),
+
+    /**
+     * Commands may be sent as {@link FrameType#REQUEST} frames, each with an id of the client's choosing, and are
+     * answered with {@link Response} frames carrying the same id, so that many commands can be in flight at once.
+     */
+    REQUEST_IDS("request-ids"),
+
+    /**
+     * {@code search} and {@code top} may be sent as {@link CatalogQuery} frames carrying the catalog version of a
+     * cached reply, and are answered with a {@link FrameType#NOT_MODIFIED} frame while that version is current.
+     */
+    CATALOG_VERSIONS("catalog-versions");
+
+    private final String name;
+
+    Capability(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static Capability fromName(String name) {
+        for (Capability currentCapability : values()) {
+            if (currentCapability.name.equals(name)) {
+                return currentCapability;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,46 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A {@code search} or {@code top} sent once {@link Capability#CATALOG_VERSIONS} has been agreed on. The payload is
+ * the catalog version of the reply the client has cached for the command, as an 8-byte big-endian integer, or
+ * {@link #NO_VERSION} when it has none, followed by the command. While that version is current the server answers
+ * with a {@link FrameType#NOT_MODIFIED} frame instead of scanning the catalog again; otherwise it sends the current
+ * {@link CatalogVersion} followed by the reply.
+ */
+public record CatalogQuery(long version, String command) {
+
+    public static final long NO_VERSION = -1;
+
+    private static final String TOO_SHORT_MESSAGE = "The catalog query is too short to hold its version.";
+
+    public CatalogQuery {
+        Objects.requireNonNull(command, "The command cannot be null.");
+    }
+
+    public static CatalogQuery parse(Frame frame) throws MalformedFrameException {
+        Objects.requireNonNull(frame, "The catalog query frame cannot be null.");
+
+        if (frame.payload().length < Long.BYTES) {
+            throw new MalformedFrameException(TOO_SHORT_MESSAGE);
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(frame.payload());
+        return new CatalogQuery(payload.getLong(), new String(frame.payload(), Long.BYTES,
+            frame.payload().length - Long.BYTES, StandardCharsets.UTF_8));
+    }
+
+    public Frame toFrame() {
+        byte[] encodedCommand = command.getBytes(StandardCharsets.UTF_8);
+
+        return new Frame(FrameType.CATALOG_QUERY, ByteBuffer.allocate(Long.BYTES + encodedCommand.length)
+            .putLong(version)
+            .put(encodedCommand)
+            .array());
+    }
+}
@@ -0,0 +1,43 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * The version of the catalog a reply to a {@link CatalogQuery} was rendered from, as an 8-byte big-endian integer.
+ * It goes out as a {@link FrameType#CATALOG_VERSION} frame right before a fresh reply, or on its own as a
+ * {@link FrameType#NOT_MODIFIED} frame when the reply the client has cached is still current.
+ */
+public record CatalogVersion(long version) {
+
+    private static final String NOT_A_VERSION_MESSAGE = "The frame does not carry a catalog version.";
+    private static final String WRONG_SIZE_MESSAGE = "A catalog version must be exactly " + Long.BYTES + " bytes.";
+
+    public static CatalogVersion parse(Frame frame) throws MalformedFrameException {
+        Objects.requireNonNull(frame, "The catalog version frame cannot be null.");
+
+        if (frame.type() != FrameType.CATALOG_VERSION && frame.type() != FrameType.NOT_MODIFIED) {
+            throw new IllegalArgumentException(NOT_A_VERSION_MESSAGE);
+        }
+
+        if (frame.payload().length != Long.BYTES) {
+            throw new MalformedFrameException(WRONG_SIZE_MESSAGE);
+        }
+
+        return new CatalogVersion(ByteBuffer.wrap(frame.payload()).getLong());
+    }
+
+    public Frame toFrame() {
+        return toFrame(FrameType.CATALOG_VERSION);
+    }
+
+    public Frame toNotModifiedFrame() {
+        return toFrame(FrameType.NOT_MODIFIED);
+    }
+
+    private Frame toFrame(FrameType type) {
+        return new Frame(type, ByteBuffer.allocate(Long.BYTES).putLong(version).array());
+    }
+}
@@ -0,0 +1,37 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import java.util.Objects;
+
+/**
+ * Pushed to a client, without it asking, when the state of its playback or session changes. The payload is the name
+ * of the type followed by the subject, like {@code track-started Main Title}, so that clients which do not know a
+ * newer type can still skip it.
+ */
+public record Event(EventType type, String subject) {
+
+    private static final String SEPARATOR = " ";
+
+    public Event {
+        Objects.requireNonNull(type, "The event type cannot be null.");
+        Objects.requireNonNull(subject, "The event subject cannot be null.");
+    }
+
+    /**
+     * Returns the event carried by the frame, or {@code null} when its type is unknown.
+     */
+    public static Event parse(String payload) {
+        Objects.requireNonNull(payload, "The event payload cannot be null.");
+
+        int separator = payload.indexOf(SEPARATOR);
+        EventType type = EventType.fromName(separator < 0 ? payload : payload.substring(0, separator));
+        if (type == null) {
+            return null;
+        }
+
+        return new Event(type, separator < 0 ? "" : payload.substring(separator + 1));
+    }
+
+    public Frame toFrame() {
+        return Frame.of(FrameType.EVENT, type.getName() + SEPARATOR + subject);
+    }
+}
@@ -0,0 +1,32 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+/**
+ * What an {@link Event} tells the client about.
+ */
+public enum EventType {
+
+    TRACK_STARTED("track-started"),
+    TRACK_FINISHED("track-finished"),
+    PLAYLIST_FINISHED("playlist-finished"),
+    SESSION_EXPIRED("session-expired");
+
+    private final String name;
+
+    EventType(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static EventType fromName(String name) {
+        for (EventType currentType : values()) {
+            if (currentType.name.equals(name)) {
+                return currentType;
+            }
+        }
+
+        return null;
+    }
+}
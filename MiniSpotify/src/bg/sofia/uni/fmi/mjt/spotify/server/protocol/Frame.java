@@ -0,0 +1,22 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+public record Frame(FrameType type, byte[] payload) {
+
+    public Frame {
+        Objects.requireNonNull(type, "The frame type cannot be null.");
+        Objects.requireNonNull(payload, "The frame payload cannot be null.");
+    }
+
+    public static Frame of(FrameType type, String text) {
+        Objects.requireNonNull(text, "The frame text cannot be null.");
+
+        return new Frame(type, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String text() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
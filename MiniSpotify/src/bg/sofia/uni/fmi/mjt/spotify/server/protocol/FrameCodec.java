@@ -0,0 +1,123 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Every message on the wire is a frame: a 4-byte big-endian payload length, a 1-byte {@link FrameType} code and
+ * then the payload itself. Frames may be split or coalesced arbitrarily by TCP, so decoding works on an
+ * accumulator and returns {@code null} until a whole frame is available.
+ */
+public class FrameCodec {
+
+    public static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES;
+    public static final int MAX_PAYLOAD_SIZE = 1 << 20;
+
+    private static final String NEGATIVE_LENGTH_MESSAGE = "The frame declares a negative payload length.";
+    private static final String TOO_LARGE_MESSAGE = "The frame payload exceeds the maximum allowed size.";
+    private static final String INVALID_PAYLOAD_LENGTH_MESSAGE = "The payload length must be between 0 and " +
+        "the maximum allowed size.";
+    private static final String UNKNOWN_TYPE_MESSAGE = "The frame has an unknown type code.";
+
+    public static ByteBuffer encode(Frame frame) {
+        Objects.requireNonNull(frame, "The frame to encode cannot be null.");
+
+        return encode(frame.type(), frame.payload(), 0, frame.payload().length,
+            ByteBuffer.allocate(HEADER_SIZE + frame.payload().length));
+    }
+
+    /**
+     * Encodes a frame whose payload is the given region of the array into the target buffer, which must have room
+     * for the whole frame, and returns the target ready to be written.
+     */
+    public static ByteBuffer encode(FrameType type, byte[] payload, int offset, int length, ByteBuffer target) {
+        Objects.requireNonNull(type, "The frame type cannot be null.");
+        Objects.requireNonNull(payload, "The payload cannot be null.");
+        Objects.requireNonNull(target, "The target buffer cannot be null.");
+
+        if (length < 0 || length > MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException(INVALID_PAYLOAD_LENGTH_MESSAGE);
+        }
+
+        target.putInt(length);
+        target.put(type.getCode());
+        target.put(payload, offset, length);
+
+        return target.flip();
+    }
+
+    /**
+     * Encodes only the header of a frame, for payloads which are written separately.
+     */
+    public static ByteBuffer encodeHeader(FrameType type, int payloadLength) {
+        Objects.requireNonNull(type, "The frame type cannot be null.");
+
+        if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException(INVALID_PAYLOAD_LENGTH_MESSAGE);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(payloadLength);
+        header.put(type.getCode());
+
+        return header.flip();
+    }
+
+    /**
+     * Decodes the next frame from an accumulator which is in read mode. On success the position is moved past
+     * the frame; when the frame is not complete yet the accumulator is left untouched and {@code null} is returned.
+     */
+    public static Frame decode(ByteBuffer accumulator) throws MalformedFrameException {
+        Objects.requireNonNull(accumulator, "The accumulator cannot be null.");
+
+        if (accumulator.remaining() < HEADER_SIZE) {
+            return null;
+        }
+
+        int start = accumulator.position();
+        int payloadLength = accumulator.getInt(start);
+        validatePayloadLength(payloadLength);
+
+        if (accumulator.remaining() < HEADER_SIZE + payloadLength) {
+            return null;
+        }
+
+        FrameType type = FrameType.fromCode(accumulator.get(start + Integer.BYTES));
+        if (type == null) {
+            throw new MalformedFrameException(UNKNOWN_TYPE_MESSAGE);
+        }
+
+        byte[] payload = new byte[payloadLength];
+        accumulator.position(start + HEADER_SIZE);
+        accumulator.get(payload);
+
+        return new Frame(type, payload);
+    }
+
+    /**
+     * Returns the total size of the frame starting at the accumulator's position or -1 if the header itself has not
+     * arrived yet. Used by readers to grow their accumulator before the whole frame is available.
+     */
+    public static int peekFrameSize(ByteBuffer accumulator) throws MalformedFrameException {
+        if (accumulator.remaining() < HEADER_SIZE) {
+            return -1;
+        }
+
+        int payloadLength = accumulator.getInt(accumulator.position());
+        validatePayloadLength(payloadLength);
+
+        return HEADER_SIZE + payloadLength;
+    }
+
+    private static void validatePayloadLength(int payloadLength) throws MalformedFrameException {
+        if (payloadLength < 0) {
+            throw new MalformedFrameException(NEGATIVE_LENGTH_MESSAGE);
+        }
+
+        if (payloadLength > MAX_PAYLOAD_SIZE) {
+            throw new MalformedFrameException(TOO_LARGE_MESSAGE);
+        }
+    }
+}
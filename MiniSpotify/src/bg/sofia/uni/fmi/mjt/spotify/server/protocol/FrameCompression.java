@@ -0,0 +1,94 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Turns {@link FrameType#REPLY} frames into {@link FrameType#COMPRESSED_REPLY} frames and back. The payload of a
+ * compressed reply is the raw deflate stream of the reply's payload. Replies are text listing songs with the same
+ * labels on every line, so they typically shrink several times.
+ */
+public class FrameCompression {
+
+    private static final int CHUNK_SIZE = 4 * 1024;
+    private static final String NOT_A_REPLY_MESSAGE = "Only reply frames can be compressed.";
+    private static final String NOT_COMPRESSED_MESSAGE = "The frame is not a compressed reply.";
+    private static final String CORRUPTED_MESSAGE = "The compressed reply is corrupted.";
+    private static final String TOO_LARGE_MESSAGE = "The inflated reply exceeds the maximum allowed size.";
+
+    /**
+     * Deflates the reply. Returns the reply itself when deflating does not make it smaller.
+     */
+    public static Frame deflate(Frame reply) {
+        Objects.requireNonNull(reply, "The reply to deflate cannot be null.");
+
+        if (reply.type() != FrameType.REPLY) {
+            throw new IllegalArgumentException(NOT_A_REPLY_MESSAGE);
+        }
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(reply.payload());
+            deflater.finish();
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(reply.payload().length / 2);
+            byte[] chunk = new byte[CHUNK_SIZE];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+
+                if (compressed.size() >= reply.payload().length) {
+                    return reply;
+                }
+            }
+
+            return new Frame(FrameType.COMPRESSED_REPLY, compressed.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Inflates a compressed reply back into the reply it was made from.
+     *
+     * @throws MalformedFrameException if the payload is not a valid deflate stream or inflates to more than
+     *                                 {@link FrameCodec#MAX_PAYLOAD_SIZE} bytes
+     */
+    public static Frame inflate(Frame compressedReply) throws MalformedFrameException {
+        Objects.requireNonNull(compressedReply, "The compressed reply cannot be null.");
+
+        if (compressedReply.type() != FrameType.COMPRESSED_REPLY) {
+            throw new IllegalArgumentException(NOT_COMPRESSED_MESSAGE);
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressedReply.payload());
+
+            ByteArrayOutputStream inflated = new ByteArrayOutputStream(
+                Math.min(compressedReply.payload().length * 4, FrameCodec.MAX_PAYLOAD_SIZE));
+            byte[] chunk = new byte[CHUNK_SIZE];
+            while (!inflater.finished()) {
+                int inflatedBytes = inflater.inflate(chunk);
+                if (inflatedBytes == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new MalformedFrameException(CORRUPTED_MESSAGE);
+                }
+
+                inflated.write(chunk, 0, inflatedBytes);
+                if (inflated.size() > FrameCodec.MAX_PAYLOAD_SIZE) {
+                    throw new MalformedFrameException(TOO_LARGE_MESSAGE);
+                }
+            }
+
+            return new Frame(FrameType.REPLY, inflated.toByteArray());
+        } catch (DataFormatException e) {
+            throw new MalformedFrameException(CORRUPTED_MESSAGE, e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPool;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+public class FrameReader {
+
+    private static final int INITIAL_BUFFER_SIZE = BufferPool.READ_BUFFER_SIZE;
+
+    private final BufferPool bufferPool;
+    private ByteBuffer buffer;
+
+    public FrameReader() {
+        this.bufferPool = null;
+        this.buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a reader which leases its accumulator from the pool only while there are bytes to read and gives it
+     * back through {@link #releaseIfEmpty()} once every frame in it has been consumed.
+     */
+    public FrameReader(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    public int readFrom(ReadableByteChannel channel) throws IOException {
+        if (buffer == null) {
+            buffer = bufferPool.lease(INITIAL_BUFFER_SIZE);
+        }
+
+        return channel.read(buffer);
+    }
+
+    /**
+     * Returns the next complete frame accumulated so far or {@code null} if more bytes are needed. When the
+     * pending frame is larger than the accumulator, the accumulator is grown so that the frame fits.
+     */
+    public Frame nextFrame() throws MalformedFrameException {
+        if (buffer == null) {
+            return null;
+        }
+
+        buffer.flip();
+        try {
+            Frame frame = FrameCodec.decode(buffer);
+            if (frame == null) {
+                ensureCapacity(FrameCodec.peekFrameSize(buffer));
+            }
+
+            return frame;
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    /**
+     * Gives a pooled accumulator back when it holds no partial frame, so that a quiet connection keeps no buffer.
+     */
+    public void releaseIfEmpty() {
+        if (bufferPool != null && buffer != null && buffer.position() == 0) {
+            release();
+        }
+    }
+
+    /**
+     * Gives a pooled accumulator back, dropping whatever it holds. Called when the connection is closed.
+     */
+    public void release() {
+        if (bufferPool != null) {
+            bufferPool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    private void ensureCapacity(int frameSize) {
+        if (frameSize <= buffer.capacity()) {
+            return;
+        }
+
+        ByteBuffer grown = bufferPool != null ? bufferPool.lease(frameSize) : ByteBuffer.allocate(frameSize);
+        grown.put(buffer);
+        grown.flip();
+
+        if (bufferPool != null) {
+            bufferPool.release(buffer);
+        }
+        buffer = grown;
+    }
+}
@@ -0,0 +1,42 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+public enum FrameType {
+
+    HANDSHAKE((byte) 1),
+    COMMAND((byte) 2),
+    REPLY((byte) 3),
+    AUDIO_FORMAT((byte) 4),
+    AUDIO_DATA((byte) 5),
+    AUDIO_END((byte) 6),
+    DATA_CHANNEL((byte) 7),
+    HEARTBEAT((byte) 8),
+    COMPRESSED_REPLY((byte) 9),
+    RECONNECT((byte) 10),
+    EVENT((byte) 11),
+    REQUEST((byte) 12),
+    RESPONSE((byte) 13),
+    COMPRESSED_RESPONSE((byte) 14),
+    CATALOG_QUERY((byte) 15),
+    CATALOG_VERSION((byte) 16),
+    NOT_MODIFIED((byte) 17);
+
+    private final byte code;
+
+    FrameType(byte code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static FrameType fromCode(byte code) {
+        for (FrameType currentType : values()) {
+            if (currentType.code == code) {
+                return currentType;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,88 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The first frame of a connection: {@code SPOTIFY/<version>}, optionally followed by the capabilities the sender
+ * supports, each after a {@code ;}. Capabilities which are not known are ignored, so that newer clients can still
+ * talk to older servers.
+ */
+public record Handshake(int version, Set<Capability> capabilities) {
+
+    public static final int CURRENT_VERSION = 1;
+
+    private static final String PROTOCOL_NAME = "SPOTIFY/";
+    private static final String CAPABILITY_SEPARATOR = ";";
+
+    public Handshake {
+        Objects.requireNonNull(capabilities, "The capabilities cannot be null.");
+
+        capabilities = capabilities.isEmpty() ? Set.of() : Collections.unmodifiableSet(EnumSet.copyOf(capabilities));
+    }
+
+    public Handshake(int version) {
+        this(version, Set.of());
+    }
+
+    /**
+     * Returns the handshake of this protocol version offering every capability the implementation supports.
+     */
+    public static Handshake current() {
+        return new Handshake(CURRENT_VERSION, EnumSet.allOf(Capability.class));
+    }
+
+    public static Handshake parse(String payload) {
+        Objects.requireNonNull(payload, "The handshake payload cannot be null.");
+
+        if (!payload.startsWith(PROTOCOL_NAME)) {
+            return null;
+        }
+
+        String[] parts = payload.substring(PROTOCOL_NAME.length()).split(CAPABILITY_SEPARATOR);
+
+        Set<Capability> capabilities = EnumSet.noneOf(Capability.class);
+        for (int i = 1; i < parts.length; i++) {
+            Capability capability = Capability.fromName(parts[i].strip());
+            if (capability != null) {
+                capabilities.add(capability);
+            }
+        }
+
+        try {
+            return new Handshake(Integer.parseInt(parts[0]), capabilities);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public boolean isSupported() {
+        return version == CURRENT_VERSION;
+    }
+
+    public boolean hasCapability(Capability capability) {
+        return capabilities.contains(capability);
+    }
+
+    /**
+     * Returns the handshake to answer with: this version and only the offered capabilities which are also enabled.
+     */
+    public Handshake accept(Set<Capability> enabled) {
+        Set<Capability> accepted = EnumSet.noneOf(Capability.class);
+        accepted.addAll(capabilities);
+        accepted.retainAll(enabled);
+
+        return new Handshake(version, accepted);
+    }
+
+    public Frame toFrame() {
+        String capabilityList = capabilities.stream()
+            .map(capability -> CAPABILITY_SEPARATOR + capability.getName())
+            .collect(Collectors.joining());
+
+        return Frame.of(FrameType.HANDSHAKE, PROTOCOL_NAME + version + capabilityList);
+    }
+}
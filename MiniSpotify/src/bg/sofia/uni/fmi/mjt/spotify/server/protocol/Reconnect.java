@@ -0,0 +1,32 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Sent to every client of a server which is shutting down: the connection is about to be closed and the client
+ * should connect again after the delay, in milliseconds in the payload.
+ */
+public record Reconnect(Duration delay) {
+
+    public Reconnect {
+        Objects.requireNonNull(delay, "The reconnect delay cannot be null.");
+    }
+
+    /**
+     * Returns the notice carried by the frame, or {@code null} when its payload is not a delay.
+     */
+    public static Reconnect parse(String payload) {
+        Objects.requireNonNull(payload, "The reconnect payload cannot be null.");
+
+        try {
+            return new Reconnect(Duration.ofMillis(Long.parseLong(payload)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public Frame toFrame() {
+        return Frame.of(FrameType.RECONNECT, Long.toString(delay.toMillis()));
+    }
+}
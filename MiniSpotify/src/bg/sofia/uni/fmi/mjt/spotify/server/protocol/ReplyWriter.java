@@ -0,0 +1,271 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Renders a reply straight into pooled buffers as a frame, encoding the text to UTF-8 as it is appended, so that a
+ * long listing is never built as a {@code String} and then copied as a byte array. Room for the frame header and
+ * for the id of a {@link Request} is left at the start of the first buffer and filled in by {@link #finish} or
+ * {@link #finishResponse}, so the same rendering can go out either as a reply or as a {@link Response}.
+ *
+ * <p>A writer keeps its encoder and its scratch buffer between replies, so one writer is meant to belong to one
+ * connection, whose replies are rendered one at a time. It is not thread-safe.
+ */
+public class ReplyWriter {
+
+    private static final int CHAR_BUFFER_SIZE = 512;
+    private static final int MAX_BYTES_PER_CHAR = 3;
+    private static final int MAX_INT_DIGITS = 11;
+    private static final int RESERVED_SIZE = FrameCodec.HEADER_SIZE + Integer.BYTES;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final String TOO_LARGE_MESSAGE = "The reply exceeds the maximum allowed frame size.";
+
+    private final BufferPool bufferPool;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer encoded;
+    private final List<ByteBuffer> buffers;
+    private ByteBuffer current;
+
+    public ReplyWriter(BufferPool bufferPool) {
+        this.bufferPool = Objects.requireNonNull(bufferPool, "The buffer pool cannot be null.");
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        this.encoded = ByteBuffer.allocate(CHAR_BUFFER_SIZE * MAX_BYTES_PER_CHAR);
+        this.buffers = new ArrayList<>();
+    }
+
+    public ReplyWriter append(CharSequence text) {
+        Objects.requireNonNull(text, "The text to append cannot be null.");
+
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            if (!chars.hasRemaining()) {
+                encodeChars(false);
+            }
+
+            int end = Math.min(length, start + chars.remaining());
+            if (text instanceof String string) {
+                string.getChars(start, end, chars.array(), chars.arrayOffset() + chars.position());
+                chars.position(chars.position() + end - start);
+            } else {
+                chars.append(text, start, end);
+            }
+            start = end;
+        }
+
+        return this;
+    }
+
+    public ReplyWriter append(char character) {
+        if (!chars.hasRemaining()) {
+            encodeChars(false);
+        }
+
+        chars.put(character);
+        return this;
+    }
+
+    /**
+     * Appends the decimal form of the number without creating a {@code String} for it.
+     */
+    public ReplyWriter append(int number) {
+        if (chars.remaining() < MAX_INT_DIGITS) {
+            encodeChars(false);
+        }
+
+        if (number < 0) {
+            chars.put('-');
+        } else {
+            number = -number;
+        }
+
+        int end = chars.position() + digitCount(number);
+        for (int position = end - 1; position >= chars.position(); position--) {
+            chars.put(position, (char) ('0' - number % 10));
+            number /= 10;
+        }
+        chars.position(end);
+
+        return this;
+    }
+
+    public ReplyWriter newLine() {
+        return append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Returns the number of bytes of the payload rendered so far.
+     */
+    public int size() {
+        encodeChars(false);
+        return encodedSize();
+    }
+
+    /**
+     * Tells whether the payload rendered so far still fits in one frame, sent as a reply or, with the id of its
+     * request in front of it, as a {@link Response}. A reply which does not fit is rejected by {@link #finish} and
+     * {@link #finishResponse}, so the caller should check first and render an error in its place.
+     */
+    public boolean fitsInFrame(boolean asResponse) {
+        return size() + (asResponse ? Integer.BYTES : 0) <= FrameCodec.MAX_PAYLOAD_SIZE;
+    }
+
+    /**
+     * Completes the reply as a frame of the given type and hands its buffers, ready to be written, over to the
+     * caller, who must give them back to the pool. The writer is empty again afterwards, also when the reply is
+     * rejected for not {@linkplain #fitsInFrame fitting in a frame}. An empty reply is an empty payload.
+     */
+    public List<ByteBuffer> finish(FrameType type) {
+        Objects.requireNonNull(type, "The frame type cannot be null.");
+
+        return complete(type, false, 0);
+    }
+
+    /**
+     * Completes the reply as a {@link FrameType#RESPONSE} to the request with the given id and hands its buffers
+     * over to the caller, like {@link #finish}.
+     */
+    public List<ByteBuffer> finishResponse(int requestId) {
+        return complete(FrameType.RESPONSE, true, requestId);
+    }
+
+    /**
+     * Completes the reply as a frame of the given type held in memory, for replies which are transformed further
+     * before they are sent. The writer is empty again afterwards.
+     */
+    public Frame toFrame(FrameType type) {
+        List<ByteBuffer> frame = finish(type);
+
+        ByteBuffer first = frame.get(0);
+        ByteBuffer payload = ByteBuffer.allocate(first.getInt(first.position()));
+        first.position(first.position() + FrameCodec.HEADER_SIZE);
+        for (ByteBuffer currentBuffer : frame) {
+            payload.put(currentBuffer);
+            bufferPool.release(currentBuffer);
+        }
+
+        return new Frame(type, payload.array());
+    }
+
+    /**
+     * Drops whatever has been rendered, for a reply which is abandoned half-way.
+     */
+    public void reset() {
+        for (ByteBuffer currentBuffer : buffers) {
+            bufferPool.release(currentBuffer);
+        }
+
+        buffers.clear();
+        current = null;
+        chars.clear();
+        encoded.clear();
+        encoder.reset();
+    }
+
+    /**
+     * Encodes the pending characters into the heap scratch buffer, which always has room for them, and copies the
+     * bytes into the pooled buffers in bulk, since encoding straight into direct buffers goes byte by byte.
+     */
+    private void encodeChars(boolean endOfInput) {
+        chars.flip();
+        encoder.encode(chars, encoded, endOfInput);
+        chars.compact();
+        drainEncoded();
+    }
+
+    private void drainEncoded() {
+        encoded.flip();
+        while (encoded.hasRemaining()) {
+            ByteBuffer target = current();
+            if (!target.hasRemaining()) {
+                nextBuffer();
+                continue;
+            }
+
+            int length = Math.min(encoded.remaining(), target.remaining());
+            target.put(target.position(), encoded, encoded.position(), length);
+            target.position(target.position() + length);
+            encoded.position(encoded.position() + length);
+        }
+        encoded.clear();
+    }
+
+    private List<ByteBuffer> complete(FrameType type, boolean isResponse, int requestId) {
+        // Even an empty reply needs the first buffer, for its header.
+        current();
+        encodeChars(true);
+        encoder.flush(encoded);
+        drainEncoded();
+
+        int payloadLength = encodedSize() + (isResponse ? Integer.BYTES : 0);
+        if (payloadLength > FrameCodec.MAX_PAYLOAD_SIZE) {
+            reset();
+            throw new IllegalArgumentException(TOO_LARGE_MESSAGE);
+        }
+
+        int start = isResponse ? 0 : Integer.BYTES;
+        ByteBuffer first = buffers.get(0);
+        first.putInt(start, payloadLength);
+        first.put(start + Integer.BYTES, type.getCode());
+        if (isResponse) {
+            first.putInt(FrameCodec.HEADER_SIZE, requestId);
+        }
+
+        List<ByteBuffer> frame = new ArrayList<>(buffers);
+        for (ByteBuffer currentBuffer : frame) {
+            currentBuffer.flip();
+        }
+        first.position(start);
+
+        buffers.clear();
+        current = null;
+        encoder.reset();
+        return frame;
+    }
+
+    private int encodedSize() {
+        int size = -RESERVED_SIZE;
+        for (ByteBuffer currentBuffer : buffers) {
+            size += currentBuffer.position();
+        }
+
+        return Math.max(size, 0);
+    }
+
+    private ByteBuffer current() {
+        if (current == null) {
+            nextBuffer();
+            current.position(RESERVED_SIZE);
+        }
+
+        return current;
+    }
+
+    private void nextBuffer() {
+        current = bufferPool.lease(BufferPool.REPLY_BUFFER_SIZE);
+        buffers.add(current);
+    }
+
+    private static int digitCount(int nonPositive) {
+        int count = 1;
+        while (nonPositive <= -10) {
+            nonPositive /= 10;
+            count++;
+        }
+
+        return count;
+    }
+}
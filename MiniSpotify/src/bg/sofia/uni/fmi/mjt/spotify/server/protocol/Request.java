@@ -0,0 +1,42 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A command tagged with an id the client picks, sent once {@link Capability#REQUEST_IDS} has been agreed on. The
+ * payload is the id as a 4-byte big-endian integer followed by the command, and the {@link Response} to it carries
+ * the same id, so that a client can match replies to commands without waiting for each reply in turn.
+ */
+public record Request(int id, String command) {
+
+    private static final String TOO_SHORT_MESSAGE = "The request is too short to hold its id.";
+
+    public Request {
+        Objects.requireNonNull(command, "The command cannot be null.");
+    }
+
+    public static Request parse(Frame frame) throws MalformedFrameException {
+        Objects.requireNonNull(frame, "The request frame cannot be null.");
+
+        if (frame.payload().length < Integer.BYTES) {
+            throw new MalformedFrameException(TOO_SHORT_MESSAGE);
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(frame.payload());
+        return new Request(payload.getInt(), new String(frame.payload(), Integer.BYTES,
+            frame.payload().length - Integer.BYTES, StandardCharsets.UTF_8));
+    }
+
+    public Frame toFrame() {
+        byte[] encodedCommand = command.getBytes(StandardCharsets.UTF_8);
+
+        return new Frame(FrameType.REQUEST, ByteBuffer.allocate(Integer.BYTES + encodedCommand.length)
+            .putInt(id)
+            .put(encodedCommand)
+            .array());
+    }
+}
@@ -0,0 +1,54 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The reply to a {@link Request}: the id of the request as a 4-byte big-endian integer followed by the payload of
+ * the reply. A {@link FrameType#REPLY} goes out as a {@link FrameType#RESPONSE} and a deflated one, a
+ * {@link FrameType#COMPRESSED_REPLY}, as a {@link FrameType#COMPRESSED_RESPONSE}, so that responses are compressed
+ * by {@link FrameCompression} exactly like replies.
+ */
+public record Response(int requestId, Frame reply) {
+
+    private static final String NOT_A_REPLY_MESSAGE = "A response can only carry a reply or a compressed reply.";
+    private static final String NOT_A_RESPONSE_MESSAGE = "The frame is not a response.";
+    private static final String TOO_SHORT_MESSAGE = "The response is too short to hold the id of its request.";
+
+    public Response {
+        Objects.requireNonNull(reply, "The reply cannot be null.");
+
+        if (reply.type() != FrameType.REPLY && reply.type() != FrameType.COMPRESSED_REPLY) {
+            throw new IllegalArgumentException(NOT_A_REPLY_MESSAGE);
+        }
+    }
+
+    public static Response parse(Frame frame) throws MalformedFrameException {
+        Objects.requireNonNull(frame, "The response frame cannot be null.");
+
+        FrameType replyType = switch (frame.type()) {
+            case RESPONSE -> FrameType.REPLY;
+            case COMPRESSED_RESPONSE -> FrameType.COMPRESSED_REPLY;
+            default -> throw new IllegalArgumentException(NOT_A_RESPONSE_MESSAGE);
+        };
+
+        if (frame.payload().length < Integer.BYTES) {
+            throw new MalformedFrameException(TOO_SHORT_MESSAGE);
+        }
+
+        return new Response(ByteBuffer.wrap(frame.payload()).getInt(),
+            new Frame(replyType, Arrays.copyOfRange(frame.payload(), Integer.BYTES, frame.payload().length)));
+    }
+
+    public Frame toFrame() {
+        FrameType type = reply.type() == FrameType.REPLY ? FrameType.RESPONSE : FrameType.COMPRESSED_RESPONSE;
+
+        return new Frame(type, ByteBuffer.allocate(Integer.BYTES + reply.payload().length)
+            .putInt(requestId)
+            .put(reply.payload())
+            .array());
+    }
+}
@@ -0,0 +1,158 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.session;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ClientConnection;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.TimingWheel;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.TokenBucket;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.User;
+import bg.sofia.uni.fmi.mjt.spotify.server.player.PlaySongThread;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Event;
+
+import java.nio.channels.SelectionKey;
+import java.util.Objects;
+
+/**
+ * Everything the server keeps for one client: its connection, with the connection's buffers and command queue, the
+ * logged-in user and the song being played. It is attached to the client's {@code SelectionKey}, so that
+ * operations of different clients never share state.
+ */
+public class Session {
+
+    private static final String EMPTY_STRING = "";
+
+    private final ClientConnection connection;
+    private final TokenBucket commandLimiter;
+    private volatile User user;
+    private volatile boolean isLoggedIn;
+    private PlaySongThread playback;
+
+    // Reaping state, only touched by the reactor owning the connection
+    private long lastReceivedNanos;
+    private long lastActiveNanos;
+    private boolean isExpired;
+    private TimingWheel.Timeout<SelectionKey> expiry;
+
+    public Session(ClientConnection connection) {
+        this(connection, null);
+    }
+
+    public Session(ClientConnection connection, TokenBucket commandLimiter) {
+        this.connection = connection;
+        this.commandLimiter = commandLimiter;
+        this.user = new User(EMPTY_STRING, EMPTY_STRING);
+    }
+
+    /**
+     * Returns the connection of the session or {@code null} when the session is not bound to a client connection.
+     */
+    public ClientConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Returns the rate limiter of the client's commands or {@code null} when its commands are not limited.
+     */
+    public TokenBucket getCommandLimiter() {
+        return commandLimiter;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public boolean isLoggedIn() {
+        return isLoggedIn;
+    }
+
+    public void login(User user) {
+        this.user = Objects.requireNonNull(user, "The user cannot be null.");
+        this.isLoggedIn = true;
+    }
+
+    public void logout() {
+        this.isLoggedIn = false;
+    }
+
+    public synchronized PlaySongThread getPlayback() {
+        return playback;
+    }
+
+    public synchronized boolean isPlaying() {
+        return playback != null;
+    }
+
+    /**
+     * Makes the thread the playback of the session. Returns {@code false} when another song is already playing.
+     */
+    public synchronized boolean startPlayback(PlaySongThread playSongThread) {
+        if (playback != null) {
+            return false;
+        }
+
+        playback = Objects.requireNonNull(playSongThread, "The playback cannot be null.");
+        return true;
+    }
+
+    /**
+     * Called by the playback thread once it stops, waking up whoever waits for the song to finish.
+     */
+    public synchronized void finishPlayback(PlaySongThread playSongThread) {
+        if (playback == playSongThread) {
+            playback = null;
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Pushes the event to the client of the session, when the session has a connection which receives events.
+     */
+    public void publish(Event event) {
+        if (connection != null) {
+            connection.publish(event);
+        }
+    }
+
+    public synchronized void awaitPlaybackFinished() throws InterruptedException {
+        while (playback != null) {
+            wait();
+        }
+    }
+
+    /**
+     * Records that something, a command or just a heartbeat, has arrived from the client.
+     */
+    public void markReceived(long nanos) {
+        lastReceivedNanos = nanos;
+    }
+
+    /**
+     * Records that the client is in use: it has sent a command or is listening to a song.
+     */
+    public void markActive(long nanos) {
+        lastActiveNanos = nanos;
+    }
+
+    public long getLastReceivedNanos() {
+        return lastReceivedNanos;
+    }
+
+    public long getLastActiveNanos() {
+        return lastActiveNanos;
+    }
+
+    public boolean isExpired() {
+        return isExpired;
+    }
+
+    public void expire() {
+        isExpired = true;
+    }
+
+    public TimingWheel.Timeout<SelectionKey> getExpiry() {
+        return expiry;
+    }
+
+    public void setExpiry(TimingWheel.Timeout<SelectionKey> expiry) {
+        this.expiry = expiry;
+    }
+}
@@ -0,0 +1,134 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.shard;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.Playlist;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The playlists of the users whose emails hash to this shard, owned by a single thread. Every operation on them
+ * runs on that thread, one after another, so they are never locked. Commands routed to the shard, which
+ * {@link #execute} runs on its thread, call {@link #call} without a thread hop; everyone else waits for their
+ * operation to be run by the owner, except the owners of the other shards, which must never wait for each other.
+ */
+public class PlaylistShard implements Executor {
+
+    private static final String OTHER_OWNER_MESSAGE = "The thread owning a playlist shard cannot wait for another " +
+        "shard. Hand the work over to the other shard with execute instead.";
+
+    private final Map<String, Set<Playlist>> playlists;
+    private final ThreadPoolExecutor owner;
+    private volatile Thread ownerThread;
+
+    /**
+     * Creates the shard with the playlists of its users. Its thread is only started by {@link #start}, so that it
+     * never sees a shard which is still being built.
+     */
+    PlaylistShard(String threadName, Map<String, Set<Playlist>> userPlaylists) {
+        this.playlists = new LinkedHashMap<>();
+        userPlaylists.forEach((email, currentPlaylists) -> playlists.put(email, new LinkedHashSet<>(currentPlaylists)));
+
+        this.owner = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new OwnerThread(runnable, threadName);
+                ownerThread = thread;
+                return thread;
+            });
+    }
+
+    /**
+     * Runs the task on the playlists of the shard and returns its result. Runs it right away on the owner thread;
+     * from any other thread it waits until the owner has run it. The owner of another shard is refused with an
+     * {@link IllegalStateException} instead, since two owners waiting for each other would never wake up.
+     */
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T call(PlaylistTask<T, E> task) throws E {
+        Objects.requireNonNull(task, "The playlist task cannot be null.");
+
+        if (Thread.currentThread() == ownerThread) {
+            return task.run(playlists);
+        }
+        checkNotOtherOwner();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        owner.execute(() -> {
+            try {
+                result.complete(task.run(playlists));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw (E) e.getCause();
+        }
+    }
+
+    /**
+     * Runs the command on the owner thread, so that the playlist operations it makes are not handed over again.
+     */
+    @Override
+    public void execute(Runnable command) {
+        owner.execute(command);
+    }
+
+    /**
+     * Returns a copy of the playlists of the shard, made on the owner thread.
+     */
+    Map<String, Set<Playlist>> copyPlaylists() {
+        if (Thread.currentThread() == ownerThread) {
+            return copyOf(playlists);
+        }
+        checkNotOtherOwner();
+
+        return CompletableFuture.supplyAsync(() -> copyOf(playlists), owner).join();
+    }
+
+    void start() {
+        owner.prestartCoreThread();
+    }
+
+    void shutdown() {
+        owner.shutdown();
+    }
+
+    private static void checkNotOtherOwner() {
+        if (Thread.currentThread() instanceof OwnerThread) {
+            throw new IllegalStateException(OTHER_OWNER_MESSAGE);
+        }
+    }
+
+    private static Map<String, Set<Playlist>> copyOf(Map<String, Set<Playlist>> playlists) {
+        Map<String, Set<Playlist>> copy = new LinkedHashMap<>();
+        playlists.forEach((email, userPlaylists) -> copy.put(email, new LinkedHashSet<>(userPlaylists)));
+        return copy;
+    }
+
+    /**
+     * The thread owning a shard, told apart from any other so that it is never made to wait for another shard.
+     */
+    private static final class OwnerThread extends Thread {
+
+        private OwnerThread(Runnable runnable, String name) {
+            super(runnable, name);
+            setDaemon(true);
+        }
+    }
+}
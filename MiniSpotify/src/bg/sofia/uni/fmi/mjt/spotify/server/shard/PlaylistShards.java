@@ -0,0 +1,87 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.shard;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.Playlist;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The playlists split into a fixed number of {@link PlaylistShard}s by the hash of the creator's email, so that
+ * playlist operations of users on different shards run in parallel, each on the thread owning its shard, without
+ * any lock.
+ */
+public class PlaylistShards implements AutoCloseable {
+
+    private static final String SHARD_THREAD_NAME = "spotify-playlist-shard-";
+    private static final String NOT_POSITIVE_SHARD_COUNT_MESSAGE = "The number of shards must be positive.";
+
+    private final List<PlaylistShard> shards;
+
+    /**
+     * Creates the shards, each with the given playlists of its users. Their threads are started by {@link #start}.
+     */
+    public PlaylistShards(int shardCount, Map<String, Set<Playlist>> playlists) {
+        Objects.requireNonNull(playlists, "The playlists cannot be null.");
+
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException(NOT_POSITIVE_SHARD_COUNT_MESSAGE);
+        }
+
+        List<Map<String, Set<Playlist>>> playlistsPerShard = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            playlistsPerShard.add(new LinkedHashMap<>());
+        }
+        playlists.forEach((email, userPlaylists) ->
+            playlistsPerShard.get(indexOf(email, shardCount)).put(email, userPlaylists));
+
+        this.shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new PlaylistShard(SHARD_THREAD_NAME + i, playlistsPerShard.get(i)));
+        }
+    }
+
+    /**
+     * Starts the threads owning the shards, once the shards are fully built.
+     */
+    public void start() {
+        shards.forEach(PlaylistShard::start);
+    }
+
+    public PlaylistShard shardOf(String email) {
+        Objects.requireNonNull(email, "The email cannot be null.");
+
+        return shards.get(indexOf(email, shards.size()));
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Returns a copy of the playlists of every shard, each shard copied on its own thread.
+     */
+    public Map<String, Set<Playlist>> snapshot() {
+        Map<String, Set<Playlist>> snapshot = new LinkedHashMap<>();
+        for (PlaylistShard currentShard : shards) {
+            snapshot.putAll(currentShard.copyPlaylists());
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Stops the threads of the shards once the operations already handed to them have run.
+     */
+    @Override
+    public void close() {
+        shards.forEach(PlaylistShard::shutdown);
+    }
+
+    private static int indexOf(String email, int shardCount) {
+        return Math.floorMod(email.hashCode(), shardCount);
+    }
+}
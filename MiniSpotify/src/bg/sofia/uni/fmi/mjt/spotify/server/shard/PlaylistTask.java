@@ -0,0 +1,17 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.shard;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.Playlist;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An operation on the playlists of some users, keyed by the email of their creator. It is given the only map which
+ * holds the playlists of those users and is never run concurrently with another operation on the same map. The
+ * exception it throws reaches the caller as it is, whichever thread the task has run on.
+ */
+@FunctionalInterface
+public interface PlaylistTask<T, E extends Exception> {
+
+    T run(Map<String, Set<Playlist>> playlists) throws E;
+}
@@ -0,0 +1,124 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.storage;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A BK-tree of terms, each with the positions of the songs holding it. Every child of a node is at a known edit
+ * distance from the node's term, so by the triangle inequality a search for the terms within {@code d} of a word
+ * only has to descend into the children at distances {@code [D - d, D + d]}, where {@code D} is the distance of
+ * the word from the node. This keeps a fuzzy search from comparing the word with every term of the catalog.
+ */
+final class BkTree {
+
+    private Node root;
+    private int size;
+
+    /**
+     * Adds the term with the positions of its songs. A term already in the tree keeps its first positions.
+     */
+    void add(String term, int[] positions) {
+        Objects.requireNonNull(term, "The term cannot be null.");
+        Objects.requireNonNull(positions, "The positions of the term cannot be null.");
+
+        if (root == null) {
+            root = new Node(term, positions);
+            size++;
+            return;
+        }
+
+        Node current = root;
+        while (true) {
+            int distance = distance(term, current.term);
+            if (distance == 0) {
+                return;
+            }
+
+            Node child = current.children.get(distance);
+            if (child == null) {
+                current.children.put(distance, new Node(term, positions));
+                size++;
+                return;
+            }
+
+            current = child;
+        }
+    }
+
+    /**
+     * Hands the positions of every term within {@code maxDistance} edits of the word to the consumer.
+     */
+    void search(String word, int maxDistance, Consumer<int[]> matches) {
+        Objects.requireNonNull(word, "The word cannot be null.");
+        Objects.requireNonNull(matches, "The consumer of the matches cannot be null.");
+
+        if (root == null) {
+            return;
+        }
+
+        Deque<Node> toVisit = new ArrayDeque<>();
+        toVisit.push(root);
+        while (!toVisit.isEmpty()) {
+            Node current = toVisit.pop();
+            int distance = distance(word, current.term);
+            if (distance <= maxDistance) {
+                matches.accept(current.positions);
+            }
+
+            for (int childDistance = Math.max(1, distance - maxDistance); childDistance <= distance + maxDistance;
+                 childDistance++) {
+                Node child = current.children.get(childDistance);
+                if (child != null) {
+                    toVisit.push(child);
+                }
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The Levenshtein distance of the two words: the fewest insertions, deletions and substitutions of characters
+     * which turn one into the other.
+     */
+    static int distance(String first, String second) {
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= second.length(); j++) {
+                int substitution = previous[j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[second.length()];
+    }
+
+    private static final class Node {
+
+        private final String term;
+        private final int[] positions;
+        private final Map<Integer, Node> children;
+
+        private Node(String term, int[] positions) {
+            this.term = term;
+            this.positions = positions;
+            this.children = new HashMap<>();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * The songs of the catalog kept ranked by their plays, most played first and, among songs played as many times, in
+ * the order of the catalog. A play moves just the played song within the ranking, in {@code O(log n)}, so the top
+ * {@code k} songs are read in {@code O(k)} instead of sorting the whole catalog for every {@code top}.
+ *
+ * <p>Plays must be counted through {@link #recordPlay(SongEntity)}, which increases the play count of the song and
+ * moves it together, so that the ranking always agrees with the counts.
+ */
+public class SongChart {
+
+    private final NavigableSet<Rank> ranking;
+    private final Map<SongEntity, Rank> ranks;
+
+    public SongChart(Collection<SongEntity> songs) {
+        Objects.requireNonNull(songs, "The songs to rank cannot be null.");
+
+        this.ranking = new TreeSet<>();
+        this.ranks = new HashMap<>();
+
+        int position = 0;
+        for (SongEntity currentSongEntity : songs) {
+            Rank rank = new Rank(currentSongEntity, currentSongEntity.getListeningTimes(), position++);
+            ranking.add(rank);
+            ranks.put(currentSongEntity, rank);
+        }
+    }
+
+    /**
+     * Counts a play of the song and moves it to its new place in the ranking. Songs which are not in the catalog
+     * are ignored.
+     */
+    public synchronized void recordPlay(SongEntity songEntity) {
+        Objects.requireNonNull(songEntity, "The played song cannot be null.");
+
+        Rank rank = ranks.get(songEntity);
+        if (rank == null) {
+            return;
+        }
+
+        ranking.remove(rank);
+        rank.songEntity().increaseListeningTimes();
+
+        Rank played = new Rank(rank.songEntity(), rank.plays() + 1, rank.position());
+        ranking.add(played);
+        ranks.put(rank.songEntity(), played);
+    }
+
+    /**
+     * Returns the {@code k} most played songs, or all of them when there are fewer, most played first.
+     */
+    public synchronized List<SongEntity> top(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("The number of songs cannot be negative.");
+        }
+
+        List<SongEntity> top = new ArrayList<>(Math.min(k, ranking.size()));
+        Iterator<Rank> iterator = ranking.iterator();
+        while (top.size() < k && iterator.hasNext()) {
+            top.add(iterator.next().songEntity());
+        }
+
+        return top;
+    }
+
+    /**
+     * The place of a song in the ranking: its plays when it was last moved and its position in the catalog, which
+     * orders songs played as many times and keeps the ranks of different songs distinct.
+     */
+    private record Rank(SongEntity songEntity, int plays, int position) implements Comparable<Rank> {
+
+        @Override
+        public int compareTo(Rank other) {
+            int byPlays = Integer.compare(other.plays, plays);
+            return byPlays != 0 ? byPlays : Integer.compare(position, other.position);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.storage;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A WAV song file whose PCM data can be sent as it is stored. The RIFF header is parsed once, when the catalog is
+ * ingested, so that delivery only has to transfer the region {@code [dataOffset, dataOffset + dataLength)} of the
+ * file. The file channel is opened on first use and shared by every listener, which is safe because all transfers
+ * are positional. It stays open until the platform closes its song files when the server shuts down.
+ */
+public class SongFile implements Closeable {
+
+    private static final String RIFF_ID = "RIFF";
+    private static final String WAVE_ID = "WAVE";
+    private static final String FORMAT_CHUNK_ID = "fmt ";
+    private static final String DATA_CHUNK_ID = "data";
+    private static final int RIFF_HEADER_SIZE = 12;
+    private static final int CHUNK_HEADER_SIZE = 8;
+    private static final int PCM_FORMAT_TAG = 1;
+    private static final int MIN_FORMAT_CHUNK_SIZE = 16;
+    private static final int ID_SIZE = 4;
+
+    private static final String NOT_WAV_MESSAGE = "The file is not a RIFF WAVE file.";
+    private static final String NOT_PCM_MESSAGE = "Only uncompressed PCM WAVE files can be sent as they are stored.";
+    private static final String NO_DATA_MESSAGE = "The WAVE file has no format or no data chunk.";
+
+    private final Path path;
+    private final AudioFormat format;
+    private final long dataOffset;
+    private final long dataLength;
+    private FileChannel channel;
+
+    private SongFile(Path path, AudioFormat format, long dataOffset, long dataLength) {
+        this.path = path;
+        this.format = format;
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength;
+    }
+
+    public static SongFile ingest(Path path) throws IOException, UnsupportedAudioFileException {
+        Objects.requireNonNull(path, "The path of the song cannot be null.");
+
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer riffHeader = read(file, 0, RIFF_HEADER_SIZE);
+            if (!RIFF_ID.equals(readId(riffHeader, 0)) || !WAVE_ID.equals(readId(riffHeader, CHUNK_HEADER_SIZE))) {
+                throw new UnsupportedAudioFileException(NOT_WAV_MESSAGE);
+            }
+
+            AudioFormat format = null;
+            long position = RIFF_HEADER_SIZE;
+            while (position + CHUNK_HEADER_SIZE <= file.size()) {
+                ByteBuffer chunkHeader = read(file, position, CHUNK_HEADER_SIZE);
+                String chunkId = readId(chunkHeader, 0);
+                long chunkSize = Integer.toUnsignedLong(chunkHeader.getInt(ID_SIZE));
+                long chunkStart = position + CHUNK_HEADER_SIZE;
+
+                if (FORMAT_CHUNK_ID.equals(chunkId)) {
+                    format = readFormat(file, chunkStart, chunkSize);
+                } else if (DATA_CHUNK_ID.equals(chunkId) && format != null) {
+                    long available = Math.min(chunkSize, file.size() - chunkStart);
+                    return new SongFile(path, format, chunkStart, available - available % format.getFrameSize());
+                }
+
+                position = chunkStart + chunkSize + (chunkSize & 1);
+            }
+        }
+
+        throw new UnsupportedAudioFileException(NO_DATA_MESSAGE);
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    public synchronized FileChannel getChannel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+
+        return channel;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private static AudioFormat readFormat(FileChannel file, long position, long size)
+        throws IOException, UnsupportedAudioFileException {
+        if (size < MIN_FORMAT_CHUNK_SIZE) {
+            throw new UnsupportedAudioFileException(NOT_PCM_MESSAGE);
+        }
+
+        ByteBuffer chunk = read(file, position, MIN_FORMAT_CHUNK_SIZE);
+        int formatTag = Short.toUnsignedInt(chunk.getShort(0));
+        int channels = Short.toUnsignedInt(chunk.getShort(2));
+        int sampleRate = chunk.getInt(4);
+        int frameSize = Short.toUnsignedInt(chunk.getShort(12));
+        int sampleSizeInBits = Short.toUnsignedInt(chunk.getShort(14));
+
+        if (formatTag != PCM_FORMAT_TAG || channels == 0 || frameSize == 0) {
+            throw new UnsupportedAudioFileException(NOT_PCM_MESSAGE);
+        }
+
+        AudioFormat.Encoding encoding = sampleSizeInBits <= Byte.SIZE ? AudioFormat.Encoding.PCM_UNSIGNED :
+            AudioFormat.Encoding.PCM_SIGNED;
+
+        return new AudioFormat(encoding, sampleRate, sampleSizeInBits, channels, frameSize, sampleRate, false);
+    }
+
+    private static ByteBuffer read(FileChannel file, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (file.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException(NOT_WAV_MESSAGE);
+            }
+        }
+
+        return buffer.flip();
+    }
+
+    private static String readId(ByteBuffer buffer, int index) {
+        byte[] id = new byte[ID_SIZE];
+        buffer.get(index, id);
+
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+}
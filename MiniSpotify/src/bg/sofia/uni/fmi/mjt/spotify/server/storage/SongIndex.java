@@ -0,0 +1,328 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An inverted index from the trigrams of the lower-cased titles and artists to the songs holding them. A song can
+ * only contain a word of three or more characters if it holds every trigram of the word, so a search intersects
+ * the posting lists of those trigrams and checks just the songs left, instead of lower-casing and scanning the
+ * whole catalog. Words shorter than a trigram do not narrow the search and are only checked.
+ *
+ * <p>Trigrams rather than whole words are indexed because a search matches any part of a title or an artist, not
+ * only whole words. Posting lists hold the positions of the songs in the catalog in increasing order, so results
+ * keep the order of the catalog.
+ *
+ * <p>Songs are also hashed by their case-folded title and by their {@link Song}, that is by artist and title, so
+ * that finding the song to play or to add to a playlist and counting its plays take constant time. When several
+ * artists have songs with the same title, the title finds the first of them in the catalog, as the scan did.
+ *
+ * <p>For searches with misspelled words the words of the titles and artists are kept in a {@link BkTree}, which
+ * finds the words a few edits away from a misspelled one without comparing it with the whole vocabulary.
+ */
+public class SongIndex {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final String INTERVAL_REGEX = " ";
+    private static final String TERM_SEPARATOR_REGEX = "[^\\p{L}\\p{N}]+";
+    private static final int MAX_EDIT_DISTANCE = 2;
+    private static final int LETTERS_PER_EDIT = 4;
+
+    private final SongEntity[] songs;
+    private final String[] titles;
+    private final String[] artists;
+    private final Map<String, int[]> postings;
+    private final Map<String, SongEntity> byTitle;
+    private final Map<Song, SongEntity> bySong;
+    private final BkTree terms;
+
+    public SongIndex(Collection<SongEntity> songs) {
+        Objects.requireNonNull(songs, "The songs to index cannot be null.");
+
+        this.songs = songs.toArray(new SongEntity[0]);
+        this.titles = new String[this.songs.length];
+        this.artists = new String[this.songs.length];
+
+        this.byTitle = new HashMap<>();
+        this.bySong = new HashMap<>();
+
+        Map<String, PostingList> postingLists = new HashMap<>();
+        Map<String, PostingList> termPostingLists = new HashMap<>();
+        for (int i = 0; i < this.songs.length; i++) {
+            titles[i] = this.songs[i].getSong().getTitle().toLowerCase();
+            artists[i] = this.songs[i].getSong().getArtist().toLowerCase();
+            byTitle.putIfAbsent(fold(this.songs[i].getSong().getTitle()), this.songs[i]);
+            bySong.putIfAbsent(this.songs[i].getSong(), this.songs[i]);
+
+            addGrams(postingLists, titles[i], i);
+            addGrams(postingLists, artists[i], i);
+            addTerms(termPostingLists, titles[i], i);
+            addTerms(termPostingLists, artists[i], i);
+        }
+
+        this.postings = new HashMap<>();
+        postingLists.forEach((gram, postingList) -> postings.put(gram, postingList.toArray()));
+
+        this.terms = new BkTree();
+        termPostingLists.forEach((term, postingList) -> terms.add(term, postingList.toArray()));
+    }
+
+    /**
+     * Returns the songs whose title or artist contains each of the space-separated words of the query, ignoring
+     * case, in the order of the catalog.
+     */
+    public List<SongEntity> search(String query) {
+        Objects.requireNonNull(query, "The query cannot be null.");
+
+        String[] words = query.split(INTERVAL_REGEX);
+        List<int[]> wordPostings = new ArrayList<>();
+        for (int i = 0; i < words.length; i++) {
+            words[i] = words[i].toLowerCase();
+
+            for (int start = 0; start + GRAM_LENGTH <= words[i].length(); start++) {
+                int[] posting = postings.get(words[i].substring(start, start + GRAM_LENGTH));
+                if (posting == null) {
+                    return new ArrayList<>();
+                }
+
+                wordPostings.add(posting);
+            }
+        }
+
+        List<SongEntity> result = new ArrayList<>();
+        if (wordPostings.isEmpty()) {
+            for (int i = 0; i < songs.length; i++) {
+                addIfMatches(result, i, words);
+            }
+
+            return result;
+        }
+
+        wordPostings.sort(Comparator.comparingInt(posting -> posting.length));
+        int[] candidates = wordPostings.getFirst().clone();
+        int candidateCount = candidates.length;
+        for (int i = 1; i < wordPostings.size() && candidateCount > 0; i++) {
+            candidateCount = intersect(candidates, candidateCount, wordPostings.get(i));
+        }
+
+        for (int i = 0; i < candidateCount; i++) {
+            addIfMatches(result, candidates[i], words);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the songs matching each of the space-separated words of the query, ignoring case, in the order of the
+     * catalog, where a song matches a word when its title or artist contains the word, as in {@link #search}, or
+     * holds a word a few edits away from it: one edit for words of four to seven letters and two for longer ones.
+     */
+    public List<SongEntity> fuzzySearch(String query) {
+        Objects.requireNonNull(query, "The query cannot be null.");
+
+        int[] candidates = null;
+        for (String currentWord : query.toLowerCase().split(INTERVAL_REGEX)) {
+            if (currentWord.isEmpty()) {
+                continue;
+            }
+
+            int[] positions = fuzzyPositionsOf(currentWord);
+            candidates = candidates == null ? positions :
+                Arrays.copyOf(candidates, intersect(candidates, candidates.length, positions));
+            if (candidates.length == 0) {
+                break;
+            }
+        }
+
+        List<SongEntity> result = new ArrayList<>();
+        if (candidates != null) {
+            for (int currentPosition : candidates) {
+                result.add(songs[currentPosition]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the first song in the catalog whose title equals the given one, ignoring case, or {@code null} when
+     * there is no such song.
+     */
+    public SongEntity findByTitle(String title) {
+        Objects.requireNonNull(title, "The title cannot be null.");
+
+        return byTitle.get(fold(title));
+    }
+
+    /**
+     * Returns the entry of the catalog for the song, with the same artist and title, or {@code null} when the song
+     * is not in the catalog.
+     */
+    public SongEntity findBySong(Song song) {
+        Objects.requireNonNull(song, "The song cannot be null.");
+
+        return bySong.get(song);
+    }
+
+    public int size() {
+        return songs.length;
+    }
+
+    private void addIfMatches(List<SongEntity> result, int position, String[] words) {
+        for (String currentWord : words) {
+            if (!titles[position].contains(currentWord) && !artists[position].contains(currentWord)) {
+                return;
+            }
+        }
+
+        result.add(songs[position]);
+    }
+
+    /**
+     * Returns, in increasing order, the positions of the songs containing the lower-cased word or a word of the
+     * vocabulary close enough to it.
+     */
+    private int[] fuzzyPositionsOf(String word) {
+        List<int[]> matches = new ArrayList<>();
+        matches.add(containingPositionsOf(word));
+        terms.search(word, Math.min(MAX_EDIT_DISTANCE, word.length() / LETTERS_PER_EDIT), matches::add);
+
+        return union(matches);
+    }
+
+    /**
+     * Returns, in increasing order, the positions of the songs whose title or artist contains the lower-cased word.
+     */
+    private int[] containingPositionsOf(String word) {
+        int[] candidates = null;
+        int candidateCount = songs.length;
+        for (int start = 0; start + GRAM_LENGTH <= word.length() && candidateCount > 0; start++) {
+            int[] posting = postings.get(word.substring(start, start + GRAM_LENGTH));
+            if (posting == null) {
+                return new int[0];
+            }
+
+            if (candidates == null) {
+                candidates = posting.clone();
+                candidateCount = candidates.length;
+            } else {
+                candidateCount = intersect(candidates, candidateCount, posting);
+            }
+        }
+
+        int[] positions = new int[candidateCount];
+        int found = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int position = candidates == null ? i : candidates[i];
+            if (titles[position].contains(word) || artists[position].contains(word)) {
+                positions[found++] = position;
+            }
+        }
+
+        return Arrays.copyOf(positions, found);
+    }
+
+    /**
+     * Merges the sorted posting lists into one, in increasing order and without repeated positions.
+     */
+    private static int[] union(List<int[]> postingLists) {
+        int total = 0;
+        for (int[] currentPostingList : postingLists) {
+            total += currentPostingList.length;
+        }
+
+        int[] merged = new int[total];
+        int length = 0;
+        for (int[] currentPostingList : postingLists) {
+            System.arraycopy(currentPostingList, 0, merged, length, currentPostingList.length);
+            length += currentPostingList.length;
+        }
+        Arrays.sort(merged);
+
+        int distinct = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (distinct == 0 || merged[distinct - 1] != merged[i]) {
+                merged[distinct++] = merged[i];
+            }
+        }
+
+        return Arrays.copyOf(merged, distinct);
+    }
+
+    /**
+     * Keeps in the first {@code candidateCount} positions of {@code candidates} only those also in {@code posting}
+     * and returns how many are kept.
+     */
+    private static int intersect(int[] candidates, int candidateCount, int[] posting) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < candidateCount && j < posting.length; i++) {
+            while (j < posting.length && posting[j] < candidates[i]) {
+                j++;
+            }
+
+            if (j < posting.length && posting[j] == candidates[i]) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+
+        return kept;
+    }
+
+    /**
+     * Folds the case of every character the way {@link String#equalsIgnoreCase} compares them, so that two titles
+     * have the same folded form exactly when they are equal ignoring case.
+     */
+    private static String fold(String text) {
+        StringBuilder folded = new StringBuilder(text.length());
+        text.codePoints().forEach(codePoint -> folded.appendCodePoint(
+            Character.toLowerCase(Character.toUpperCase(codePoint))));
+
+        return folded.toString();
+    }
+
+    private static void addTerms(Map<String, PostingList> termPostingLists, String text, int position) {
+        for (String currentTerm : text.split(TERM_SEPARATOR_REGEX)) {
+            if (!currentTerm.isEmpty()) {
+                termPostingLists.computeIfAbsent(currentTerm, term -> new PostingList()).add(position);
+            }
+        }
+    }
+
+    private static void addGrams(Map<String, PostingList> postingLists, String text, int position) {
+        for (int start = 0; start + GRAM_LENGTH <= text.length(); start++) {
+            postingLists.computeIfAbsent(text.substring(start, start + GRAM_LENGTH), gram -> new PostingList())
+                .add(position);
+        }
+    }
+
+    private static final class PostingList {
+
+        private static final int INITIAL_CAPACITY = 4;
+
+        private int[] positions = new int[INITIAL_CAPACITY];
+        private int size;
+
+        void add(int position) {
+            if (size > 0 && positions[size - 1] == position) {
+                return;
+            }
+
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+
+            positions[size++] = position;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(positions, size);
+        }
+    }
+}
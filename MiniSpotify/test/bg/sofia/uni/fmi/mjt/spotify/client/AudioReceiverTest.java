@@ -0,0 +1,61 @@
+package bg.sofia.uni.fmi.mjt.spotify.client;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.AudioEnd;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.AudioHeader;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AudioReceiverTest {
+
+    private static final AudioFormat FORMAT = new AudioFormat(44100, 16, 2, true, false);
+
+    @Test
+    void testAcceptPlaysDataOfFinishedStream() throws InterruptedException {
+        CapturingAudioOutput output = new CapturingAudioOutput();
+
+        try (AudioReceiver audioReceiver = new AudioReceiver(output)) {
+            audioReceiver.accept(AudioHeader.of(FORMAT).toFrame());
+            audioReceiver.accept(new Frame(FrameType.AUDIO_DATA, new byte[] {1, 2}));
+            audioReceiver.accept(new Frame(FrameType.AUDIO_DATA, new byte[] {3, 4}));
+            audioReceiver.accept(AudioEnd.FINISHED.toFrame());
+
+            assertTrue(output.getEnded().await(5, TimeUnit.SECONDS), "The stream must end.");
+        }
+
+        assertEquals(FORMAT.toString(), output.getFormat().toString(),
+            "The output must be opened with the format sent by the server.");
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, output.getPlayed(), "The data must be played in order.");
+        assertTrue(output.isFinished(), "A finished stream must be played to its end.");
+    }
+
+    @Test
+    void testAcceptStopsStoppedStream() {
+        CapturingAudioOutput output = new CapturingAudioOutput();
+
+        try (AudioReceiver audioReceiver = new AudioReceiver(output)) {
+            audioReceiver.accept(AudioHeader.of(FORMAT).toFrame());
+            audioReceiver.accept(AudioEnd.STOPPED.toFrame());
+            audioReceiver.accept(new Frame(FrameType.AUDIO_DATA, new byte[] {1, 2}));
+        }
+
+        assertFalse(output.isFinished(), "A stopped stream must not be played to its end.");
+        assertEquals(0, output.getPlayed().length, "Data of a stopped stream must be dropped.");
+    }
+
+    @Test
+    void testAcceptRejectsReplies() {
+        try (AudioReceiver audioReceiver = new AudioReceiver(new CapturingAudioOutput())) {
+            assertFalse(audioReceiver.accept(Frame.of(FrameType.REPLY, "reply")),
+                "Replies must be left to the caller.");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package bg.sofia.uni.fmi.mjt.spotify.client;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Keeps the played audio in memory, so that streaming can be tested without a sound card.
+ */
+public class CapturingAudioOutput implements AudioOutput {
+
+    private final ByteArrayOutputStream played = new ByteArrayOutputStream();
+    private final CountDownLatch ended = new CountDownLatch(1);
+    private volatile AudioFormat format;
+    private volatile boolean isFinished;
+
+    @Override
+    public void open(AudioFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public synchronized void write(byte[] data) {
+        played.writeBytes(data);
+    }
+
+    @Override
+    public void finish() {
+        isFinished = true;
+        ended.countDown();
+    }
+
+    @Override
+    public void stop() {
+        ended.countDown();
+    }
+
+    public synchronized byte[] getPlayed() {
+        return played.toByteArray();
+    }
+
+    public AudioFormat getFormat() {
+        return format;
+    }
+
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    public CountDownLatch getEnded() {
+        return ended;
+    }
+}
@@ -0,0 +1,40 @@
+package bg.sofia.uni.fmi.mjt.spotify.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CatalogCacheTest {
+
+    @Test
+    void testCacheKeepsLatestReplyWithItsVersion() {
+        CatalogCache catalogCache = new CatalogCache(2);
+        catalogCache.put("top 3", 1, "old");
+        catalogCache.put("top 3", 2, "new");
+
+        assertEquals(new CatalogCache.CachedReply(2, "new"), catalogCache.get("top 3"),
+            "The latest reply must replace the cached one.");
+        assertNull(catalogCache.get("top 4"), "A command never sent must not be cached.");
+    }
+
+    @Test
+    void testCacheEvictsLeastRecentlyUsedReply() {
+        CatalogCache catalogCache = new CatalogCache(2);
+        catalogCache.put("search crown", 1, "crown");
+        catalogCache.put("search zimmer", 1, "zimmer");
+        catalogCache.get("search crown");
+        catalogCache.put("top 1", 1, "top");
+
+        assertEquals(2, catalogCache.size(), "The cache must not grow above its capacity.");
+        assertNull(catalogCache.get("search zimmer"), "The least recently used reply must be evicted.");
+        assertEquals("crown", catalogCache.get("search crown").reply(), "A recently used reply must be kept.");
+    }
+
+    @Test
+    void testCacheRequiresPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new CatalogCache(0),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+}
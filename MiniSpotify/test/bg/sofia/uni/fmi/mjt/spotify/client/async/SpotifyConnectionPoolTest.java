@@ -0,0 +1,93 @@
+package bg.sofia.uni.fmi.mjt.spotify.client.async;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerConfiguration;
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerReply;
+import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+public class SpotifyConnectionPoolTest {
+
+    private static final String HOST = "localhost";
+    private static final int POOL_SIZE = 3;
+    private static final int COMMANDS = 60;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @Mock
+    private StreamingPlatform streamingPlatformMock;
+
+    @Mock
+    private AuthenticationService authenticationServiceMock;
+
+    @Mock
+    private SpotifyLogger spotifyLoggerMock;
+
+    private Server server;
+    private Thread serverThread;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        server = new Server(new ServerConfiguration().port(0).reactorCount(2), new CommandExecutor(
+            streamingPlatformMock, authenticationServiceMock, spotifyLoggerMock), spotifyLoggerMock);
+        serverThread = new Thread(server::start);
+        serverThread.start();
+
+        assertTrue(server.awaitStarted(TIMEOUT_SECONDS, TimeUnit.SECONDS), "The server must start.");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.stop();
+        serverThread.join();
+    }
+
+    @Test
+    void testPoolSpreadsCommandsOverItsConnections() throws Exception {
+        SpotifyConnectionPool pool = SpotifyConnectionPool.open(new InetSocketAddress(HOST, server.getLocalPort()),
+            POOL_SIZE).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        try (pool) {
+            assertEquals(POOL_SIZE, pool.getOpenConnections(), "Every connection of the pool must be open.");
+
+            List<CompletableFuture<String>> replies = new ArrayList<>();
+            for (int i = 0; i < COMMANDS; i++) {
+                replies.add(pool.send("help"));
+            }
+
+            for (CompletableFuture<String> currentReply : replies) {
+                assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(),
+                    currentReply.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), "Every command must be answered.");
+            }
+            assertEquals(POOL_SIZE, server.getConnectionsPerReactor().stream().mapToInt(Integer::intValue).sum(),
+                "The pool must keep its connections open.");
+        }
+
+        assertTrue(pool.send("help").isCompletedExceptionally(), "A closed pool must not send commands.");
+    }
+
+    @Test
+    void testOpenRejectsPoolWithoutConnections() {
+        assertThrows(IllegalArgumentException.class,
+            () -> SpotifyConnectionPool.open(new InetSocketAddress(HOST, server.getLocalPort()), 0),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+}
@@ -0,0 +1,241 @@
+package bg.sofia.uni.fmi.mjt.spotify.client.async;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerConfiguration;
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerReply;
+import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Capability;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCodec;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameReader;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Handshake;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Request;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+public class SpotifyConnectionTest {
+
+    private static final String HOST = "localhost";
+    private static final int PIPELINED_COMMANDS = 100;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @Mock
+    private StreamingPlatform streamingPlatformMock;
+
+    @Mock
+    private AuthenticationService authenticationServiceMock;
+
+    @Mock
+    private SpotifyLogger spotifyLoggerMock;
+
+    private Server server;
+    private Thread serverThread;
+    private ServerSocketChannel fakeServer;
+    private Thread fakeServerThread;
+
+    @AfterEach
+    void setTestsCleaning() throws Exception {
+        if (server != null) {
+            server.stop();
+            serverThread.join();
+        }
+        if (fakeServer != null) {
+            fakeServer.close();
+            fakeServerThread.join();
+        }
+    }
+
+    @Test
+    void testPipelinedCommandsCompleteWithTheirOwnReplies() throws Exception {
+        startServer();
+
+        try (SpotifyConnection connection = SpotifyConnection.open(new InetSocketAddress(HOST,
+            server.getLocalPort())).get(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            List<CompletableFuture<String>> replies = new ArrayList<>();
+            for (int i = 0; i < PIPELINED_COMMANDS; i++) {
+                replies.add(connection.send(i % 2 == 0 ? "help" : "no-such-command"));
+            }
+
+            for (int i = 0; i < PIPELINED_COMMANDS; i++) {
+                String expected = i % 2 == 0 ? ServerReply.HELP_COMMAND_REPLY.getReply() :
+                    ServerReply.UNKNOWN_COMMAND_REPLY.getReply();
+                assertEquals(expected, replies.get(i).get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                    "Every command must complete with its own reply.");
+            }
+            assertEquals(0, connection.getCommandsInFlight(), "No command must be left in flight.");
+        }
+    }
+
+    @Test
+    void testResponsesOutOfOrderCompleteTheirOwnFutures() throws Exception {
+        startFakeServer(Set.of(Capability.REQUEST_IDS), (channel, frameReader) -> {
+            Request first = Request.parse(readFrame(channel, frameReader));
+            Request second = Request.parse(readFrame(channel, frameReader));
+
+            writeFrame(channel, new Response(second.id(), Frame.of(FrameType.REPLY, "reply to " +
+                second.command())).toFrame());
+            writeFrame(channel, new Response(first.id(), Frame.of(FrameType.REPLY, "reply to " +
+                first.command())).toFrame());
+        });
+
+        try (SpotifyConnection connection = openToFakeServer()) {
+            CompletableFuture<String> first = connection.send("search Crown");
+            CompletableFuture<String> second = connection.send("top 3");
+
+            assertEquals("reply to top 3", second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                "The response which arrives first must complete its own command.");
+            assertEquals("reply to search Crown", first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                "The response which arrives second must complete its own command.");
+        }
+    }
+
+    @Test
+    void testServerWithoutRequestIdsAnswersCommandsInOrder() throws Exception {
+        startFakeServer(Set.of(), (channel, frameReader) -> {
+            for (int i = 0; i < 2; i++) {
+                Frame command = readFrame(channel, frameReader);
+                assertEquals(FrameType.COMMAND, command.type(), "Plain commands must be sent to an older server.");
+                writeFrame(channel, Frame.of(FrameType.REPLY, "reply to " + command.text()));
+            }
+        });
+
+        try (SpotifyConnection connection = openToFakeServer()) {
+            CompletableFuture<String> first = connection.send("help");
+            CompletableFuture<String> second = connection.send("logout");
+
+            assertEquals("reply to help", first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                "The first reply must complete the first command.");
+            assertEquals("reply to logout", second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                "The second reply must complete the second command.");
+        }
+    }
+
+    @Test
+    void testCommandsInFlightFailWhenTheConnectionCloses() throws Exception {
+        startFakeServer(Set.of(Capability.REQUEST_IDS), (channel, frameReader) -> readFrame(channel, frameReader));
+
+        SpotifyConnection connection = openToFakeServer();
+        CompletableFuture<String> reply = connection.send("help");
+        connection.close();
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+            () -> reply.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), "The unanswered command must fail.");
+        assertInstanceOf(IOException.class, exception.getCause(), "The command must fail with an IOException.");
+        assertFalse(connection.isOpen(), "The connection must be closed.");
+        assertTrue(connection.send("help").isCompletedExceptionally(),
+            "A command sent over a closed connection must fail at once.");
+    }
+
+    @Test
+    void testRefusedHandshakeFailsOpen() throws Exception {
+        fakeServer = ServerSocketChannel.open().bind(new InetSocketAddress(HOST, 0));
+        fakeServerThread = new Thread(() -> {
+            try (SocketChannel channel = fakeServer.accept()) {
+                readFrame(channel, new FrameReader());
+                writeFrame(channel, Frame.of(FrameType.REPLY, ServerReply.SERVER_FULL_REPLY.getReply()));
+            } catch (IOException | MalformedFrameException e) {
+                // The test fails on the client side
+            }
+        });
+        fakeServerThread.start();
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+            () -> SpotifyConnection.open((InetSocketAddress) fakeServer.getLocalAddress())
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS), "A refused handshake must fail the connection.");
+        assertEquals(ServerReply.SERVER_FULL_REPLY.getReply(), exception.getCause().getMessage(),
+            "The failure must tell why the server refused the connection.");
+    }
+
+    /**
+     * Starts a server whose rate limit lets a whole pipeline of commands through, so that none of them is answered
+     * with the throttling reply.
+     */
+    private void startServer() throws InterruptedException {
+        server = new Server(new ServerConfiguration().port(0).reactorCount(1)
+            .commandRateLimit(PIPELINED_COMMANDS, PIPELINED_COMMANDS), new CommandExecutor(
+            streamingPlatformMock, authenticationServiceMock, spotifyLoggerMock), spotifyLoggerMock);
+        serverThread = new Thread(server::start);
+        serverThread.start();
+
+        assertTrue(server.awaitStarted(TIMEOUT_SECONDS, TimeUnit.SECONDS), "The server must start.");
+    }
+
+    /**
+     * Starts a server which accepts a single connection, answers its handshake with the given capabilities and
+     * then follows the script.
+     */
+    private void startFakeServer(Set<Capability> capabilities, FakeServerScript script) throws IOException {
+        fakeServer = ServerSocketChannel.open().bind(new InetSocketAddress(HOST, 0));
+        fakeServerThread = new Thread(() -> {
+            try (SocketChannel channel = fakeServer.accept()) {
+                FrameReader frameReader = new FrameReader();
+                readFrame(channel, frameReader);
+                writeFrame(channel, new Handshake(Handshake.CURRENT_VERSION, capabilities).toFrame());
+
+                script.run(channel, frameReader);
+                readFrame(channel, frameReader);
+            } catch (IOException | MalformedFrameException e) {
+                // The client has closed the connection
+            }
+        });
+        fakeServerThread.start();
+    }
+
+    private SpotifyConnection openToFakeServer() throws Exception {
+        return SpotifyConnection.open((InetSocketAddress) fakeServer.getLocalAddress())
+            .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void writeFrame(SocketChannel channel, Frame frame) throws IOException {
+        ByteBuffer encoded = FrameCodec.encode(frame);
+        while (encoded.hasRemaining()) {
+            channel.write(encoded);
+        }
+    }
+
+    private static Frame readFrame(SocketChannel channel, FrameReader frameReader)
+        throws IOException, MalformedFrameException {
+        Frame frame;
+        while ((frame = frameReader.nextFrame()) == null) {
+            if (frameReader.readFrom(channel) < 0) {
+                throw new EOFException();
+            }
+        }
+
+        return frame;
+    }
+
+    @FunctionalInterface
+    private interface FakeServerScript {
+        void run(SocketChannel channel, FrameReader frameReader) throws IOException, MalformedFrameException;
+    }
+}
@@ -0,0 +1,86 @@
+package bg.sofia.uni.fmi.mjt.spotify.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private static final long HIGHEST_TRACKABLE_VALUE = 60_000_000;
+    private static final double MAX_RELATIVE_ERROR = 1.0 / 64;
+
+    @Test
+    void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(50, histogram.getValueAtPercentile(50), "Values below the first split must be exact.");
+        assertEquals(99, histogram.getValueAtPercentile(99), "Values below the first split must be exact.");
+        assertEquals(100, histogram.getValueAtPercentile(100), "The 100th percentile must be the maximum.");
+        assertEquals(1, histogram.getMinValue(), "The minimum must be kept exactly.");
+        assertEquals(50.5, histogram.getMean(), "The mean must be kept exactly.");
+    }
+
+    @Test
+    void testLargeValuesStayWithinTheRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+        for (long value = 1_000; value <= 1_000_000; value += 1_000) {
+            histogram.record(value);
+        }
+
+        assertWithinError(500_000, histogram.getValueAtPercentile(50));
+        assertWithinError(990_000, histogram.getValueAtPercentile(99));
+        assertWithinError(999_000, histogram.getValueAtPercentile(99.9));
+        assertEquals(1_000_000, histogram.getMaxValue(), "The maximum must be kept exactly.");
+    }
+
+    @Test
+    void testValuesAboveTheHighestTrackableOneKeepTheirMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram(1_000);
+        histogram.record(5_000);
+
+        assertEquals(1, histogram.getTotalCount(), "A value above the range must still be counted.");
+        assertEquals(5_000, histogram.getMaxValue(), "The maximum must be the recorded value.");
+    }
+
+    @Test
+    void testAddMergesCounts() {
+        LatencyHistogram first = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+        LatencyHistogram second = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+        for (int i = 0; i < 90; i++) {
+            first.record(10);
+        }
+        for (int i = 0; i < 10; i++) {
+            second.record(100_000);
+        }
+
+        first.add(second);
+
+        assertEquals(100, first.getTotalCount(), "The merged histogram must count the values of both.");
+        assertEquals(10, first.getValueAtPercentile(90), "The 90th percentile must come from the first histogram.");
+        assertWithinError(100_000, first.getValueAtPercentile(91));
+    }
+
+    @Test
+    void testEmptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_VALUE);
+
+        assertEquals(0, histogram.getValueAtPercentile(99), "An empty histogram must report zero.");
+        assertEquals(0, histogram.getMinValue(), "An empty histogram must report zero.");
+    }
+
+    @Test
+    void testRecordNegativeValue() {
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram(HIGHEST_TRACKABLE_VALUE).record(-1),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * (1 + MAX_RELATIVE_ERROR),
+            "The percentile " + actual + " must be within the relative error of " + expected + ".");
+    }
+}
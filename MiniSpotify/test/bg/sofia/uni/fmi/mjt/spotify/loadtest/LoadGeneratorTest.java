@@ -0,0 +1,84 @@
+package bg.sofia.uni.fmi.mjt.spotify.loadtest;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.Server;
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerConfiguration;
+import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+public class LoadGeneratorTest {
+
+    private static final int CONNECTIONS = 200;
+    private static final int WORKERS = 2;
+    private static final long START_TIMEOUT_SECONDS = 5;
+
+    @Mock
+    private StreamingPlatform streamingPlatformMock;
+
+    @Mock
+    private AuthenticationService authenticationServiceMock;
+
+    @Mock
+    private SpotifyLogger spotifyLoggerMock;
+
+    private Server server;
+    private Thread serverThread;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        server = new Server(new ServerConfiguration().port(0).reactorCount(2), new CommandExecutor(
+            streamingPlatformMock, authenticationServiceMock, spotifyLoggerMock), spotifyLoggerMock);
+        serverThread = new Thread(server::start);
+        serverThread.start();
+
+        assertTrue(server.awaitStarted(START_TIMEOUT_SECONDS, TimeUnit.SECONDS), "The server must start.");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.stop();
+        serverThread.join();
+    }
+
+    @Test
+    void testRunReportsEveryCommandOfTheScript() throws Exception {
+        LoadReport report = new LoadGenerator(new LoadConfiguration()
+            .port(server.getLocalPort())
+            .connections(CONNECTIONS)
+            .workerCount(WORKERS)
+            .warmup(Duration.ofMillis(200))
+            .duration(Duration.ofMillis(500))
+            .thinkTime(Duration.ofMillis(50))
+            .script(LoadScript.parse(new StringReader("""
+                setup help
+                3 help
+                1 show-playlists
+                """)))).run();
+
+        assertEquals(0, report.connectionFailures(), "Every connection must be accepted.");
+        assertEquals(0, report.unanswered(), "Every command in flight must be answered before the run ends.");
+        assertEquals(2, report.commands().size(), "Both weighted commands must be reported.");
+        assertTrue(report.commands().get("help").count() > report.commands().get("show-playlists").count(),
+            "The command with the larger weight must be sent more often.");
+        assertEquals(report.total().count(), report.commands().values().stream()
+            .mapToLong(LoadReport.CommandStatistics::count).sum(), "The total must add up the commands.");
+        assertTrue(report.total().p50Micros() <= report.total().p99Micros(),
+            "The percentiles must not decrease.");
+        assertTrue(report.toJson().contains("\"p999Micros\""), "The JSON report must have the p999 latencies.");
+    }
+}
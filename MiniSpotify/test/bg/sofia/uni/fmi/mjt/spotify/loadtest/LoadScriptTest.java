@@ -0,0 +1,75 @@
+package bg.sofia.uni.fmi.mjt.spotify.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadScriptTest {
+
+    private static final int DRAWS = 10_000;
+
+    @Test
+    void testSetupCommandsHaveTheUserSubstituted() {
+        LoadScript script = LoadScript.parse(new StringReader("""
+            # Every user registers first
+            setup register load{user}@loadtest.com secret
+
+            1 help
+            """));
+
+        assertEquals(1, script.getSetupCount(), "Only the setup lines must be setup commands.");
+        assertEquals("register load7@loadtest.com secret", script.getSetupCommand(0, 7),
+            "The number of the user must be substituted.");
+    }
+
+    @Test
+    void testCommandsAreDrawnInProportionToTheirWeights() {
+        LoadScript script = LoadScript.parse(new StringReader("""
+            3 search Crown
+            1 create-playlist list-{user}-{iteration}
+            """));
+
+        SplittableRandom random = new SplittableRandom(1);
+        Map<String, Integer> drawn = new HashMap<>();
+        for (int i = 0; i < DRAWS; i++) {
+            drawn.merge(LoadScript.commandName(script.nextCommand(2, i, random)), 1, Integer::sum);
+        }
+
+        double searchShare = drawn.get("search") / (double) DRAWS;
+        assertTrue(searchShare > 0.7 && searchShare < 0.8, "Three quarters of the commands must be searches.");
+    }
+
+    @Test
+    void testCommandsHaveTheUserAndIterationSubstituted() {
+        LoadScript script = LoadScript.parse(new StringReader("1 create-playlist list-{user}-{iteration}"));
+
+        assertEquals("create-playlist list-2-5", script.nextCommand(2, 5, new SplittableRandom()),
+            "The user and the iteration must be substituted.");
+    }
+
+    @Test
+    void testDefaultScriptParses() {
+        LoadScript script = LoadScript.defaultScript();
+
+        assertEquals(3, script.getSetupCount(), "The default script must register, log in and create a playlist.");
+    }
+
+    @Test
+    void testParseRejectsLineWithoutWeight() {
+        assertThrows(IllegalArgumentException.class, () -> LoadScript.parse(new StringReader("search Crown")),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+
+    @Test
+    void testParseRejectsScriptWithoutWeightedCommands() {
+        assertThrows(IllegalArgumentException.class, () -> LoadScript.parse(new StringReader("setup help")),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+}
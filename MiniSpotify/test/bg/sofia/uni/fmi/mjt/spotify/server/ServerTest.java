@@ -0,0 +1,628 @@
+package bg.sofia.uni.fmi.mjt.spotify.server;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ReactorSelectionStrategy;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.User;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Capability;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.CatalogQuery;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.CatalogVersion;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Event;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.EventType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCodec;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCompression;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameReader;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Handshake;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Reconnect;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Request;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Response;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.Song;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ServerTest {
+
+    private static final String HOST = "localhost";
+    private static final int NUMBER_OF_CONNECTIONS = 3000;
+    private static final int NUMBER_OF_REACTORS = 4;
+    private static final long START_TIMEOUT_SECONDS = 5;
+    private static final long SLOW_COMMAND_MILLIS = 300;
+    private static final long REAPING_TIMEOUT_MILLIS = 300;
+    private static final long REAPING_TICK_MILLIS = 10;
+    private static final double RATE_LIMIT_TOKENS_PER_SECOND = 0.01;
+    private static final int RATE_LIMIT_BURST = 6;
+    private static final int LARGE_CATALOG_SIZE = 20_000;
+    private static final int LONG_TITLE_LENGTH = 64;
+    private static final Handshake PLAIN_HANDSHAKE = new Handshake(Handshake.CURRENT_VERSION);
+
+    @Mock
+    private StreamingPlatform streamingPlatformMock;
+
+    @Mock
+    private AuthenticationService authenticationServiceMock;
+
+    @Mock
+    private SpotifyLogger spotifyLoggerMock;
+
+    private Server server;
+    private Thread serverThread;
+
+    @AfterEach
+    void setTestsCleaning() throws InterruptedException {
+        server.stop();
+        serverThread.join();
+    }
+
+    @Test
+    void testServerRepliesOnThousandsOfConnectionsAcrossReactors() throws Exception {
+        startServer(ReactorSelectionStrategy.ROUND_ROBIN);
+
+        List<SocketChannel> channels = new ArrayList<>();
+        try {
+            for (int i = 0; i < NUMBER_OF_CONNECTIONS; i++) {
+                SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOST, server.getLocalPort()));
+                writeFrame(channel, PLAIN_HANDSHAKE.toFrame());
+                channels.add(channel);
+            }
+
+            for (SocketChannel currentChannel : channels) {
+                FrameReader frameReader = new FrameReader();
+                assertEquals(FrameType.HANDSHAKE, readFrame(currentChannel, frameReader).type(),
+                    "The server must acknowledge the handshake of every connection.");
+
+                writeFrame(currentChannel, Frame.of(FrameType.COMMAND, "help"));
+                assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), readFrame(currentChannel, frameReader).text(),
+                    "The reply received over one of the connections is not the same as the expected.");
+            }
+
+            List<Integer> connectionsPerReactor = server.getConnectionsPerReactor();
+            assertEquals(NUMBER_OF_CONNECTIONS, connectionsPerReactor.stream().mapToInt(Integer::intValue).sum(),
+                "Every accepted connection must be owned by exactly one reactor.");
+            assertTrue(connectionsPerReactor.stream().allMatch(count -> count == NUMBER_OF_CONNECTIONS /
+                NUMBER_OF_REACTORS), "Round robin must spread the connections evenly across the reactors.");
+        } finally {
+            for (SocketChannel currentChannel : channels) {
+                currentChannel.close();
+            }
+        }
+    }
+
+    @Test
+    void testServerLeastLoadedStrategyFillsIdleReactor() throws Exception {
+        startServer(ReactorSelectionStrategy.LEAST_LOADED);
+
+        List<SocketChannel> channels = new ArrayList<>();
+        try {
+            for (int i = 0; i < NUMBER_OF_REACTORS * 2; i++) {
+                SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOST, server.getLocalPort()));
+                writeFrame(channel, PLAIN_HANDSHAKE.toFrame());
+                readFrame(channel, new FrameReader());
+                channels.add(channel);
+            }
+
+            assertTrue(server.getConnectionsPerReactor().stream().allMatch(count -> count == 2),
+                "The least loaded strategy must hand every connection to the reactor with the fewest connections.");
+        } finally {
+            for (SocketChannel currentChannel : channels) {
+                currentChannel.close();
+            }
+        }
+    }
+
+    @Test
+    void testServerClosesConnectionWithUnsupportedProtocolVersion() throws Exception {
+        startServer(ReactorSelectionStrategy.ROUND_ROBIN);
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOST, server.getLocalPort()))) {
+            FrameReader frameReader = new FrameReader();
+            writeFrame(channel, new Handshake(Handshake.CURRENT_VERSION + 1).toFrame());
+
+            assertEquals(ServerReply.PROTOCOL_VERSION_NOT_SUPPORTED_REPLY.getReply(),
+                readFrame(channel, frameReader).text(),
+                "The server must explain why it refuses a client with unsupported protocol version.");
+            assertTrue(isClosedByServer(channel, frameReader),
+                "The server must close a connection with unsupported protocol version.");
+        }
+    }
+
+    @Test
+    void testServerKeepsRepliesInOrderForPipelinedCommands() throws Exception {
+        when(streamingPlatformMock.searchSongs("Zimmer")).thenAnswer(invocation -> {
+            Thread.sleep(SLOW_COMMAND_MILLIS);
+            return List.of();
+        });
+        startServer(ReactorSelectionStrategy.ROUND_ROBIN);
+
+        try (SocketChannel channel = openConnection()) {
+            FrameReader frameReader = new FrameReader();
+            readFrame(channel, frameReader);
+
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "search Zimmer"));
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "help"));
+
+            assertEquals(ServerReply.SEARCH_COMMAND_NO_SONGS_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "The reply of the first pipelined command must arrive first.");
+            assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "The reply of the second pipelined command must arrive second.");
+        }
+    }
+
+    @Test
+    void testServerAnswersListingAboveMaximumFrameSizeWithError() throws Exception {
+        List<SongEntity> catalog = new ArrayList<>();
+        for (int i = 0; i < LARGE_CATALOG_SIZE; i++) {
+            catalog.add(new SongEntity(new Song("Song " + i + " " + "x".repeat(LONG_TITLE_LENGTH), "Artist", 180,
+                "pop"), i));
+        }
+        when(streamingPlatformMock.searchSongs("Song")).thenReturn(catalog);
+        startServer(ReactorSelectionStrategy.ROUND_ROBIN);
+
+        try (SocketChannel channel = openConnection()) {
+            FrameReader frameReader = new FrameReader();
+            readFrame(channel, frameReader);
+
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "search Song"));
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "help"));
+
+            assertEquals(ServerReply.REPLY_TOO_LARGE_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "A listing above the maximum frame size must be answered with an error.");
+            assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "The connection must keep answering after a reply which was too large.");
+        }
+    }
+
+    @Test
+    void testServerSlowCommandDoesNotStallOtherConnections() throws Exception {
+        CountDownLatch releaseSlowCommand = new CountDownLatch(1);
+        when(streamingPlatformMock.searchSongs("Zimmer")).thenAnswer(invocation -> {
+            releaseSlowCommand.await();
+            return List.of();
+        });
+        startServer(ReactorSelectionStrategy.ROUND_ROBIN);
+
+        try (SocketChannel slowChannel = openConnection(); SocketChannel fastChannel = openConnection()) {
+            FrameReader slowFrameReader = new FrameReader();
+            FrameReader fastFrameReader = new FrameReader();
+            readFrame(slowChannel, slowFrameReader);
+            readFrame(fastChannel, fastFrameReader);
+
+            writeFrame(slowChannel, Frame.of(FrameType.COMMAND, "search Zimmer"));
+            writeFrame(fastChannel, Frame.of(FrameType.COMMAND, "help"));
+
+            assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), readFrame(fastChannel, fastFrameReader).text(),
+                "A command of another client must be answered while a slow command is still executing.");
+
+            releaseSlowCommand.countDown();
+            assertEquals(ServerReply.SEARCH_COMMAND_NO_SONGS_REPLY.getReply(),
+                readFrame(slowChannel, slowFrameReader).text(),
+                "The slow command must be answered once it completes.");
+        }
+    }
+
+    @Test
+    void testServerAttachesDataChannelWithSessionToken() throws Exception {
+        startServer(ReactorSelectionStrategy.ROUND_ROBIN);
+
+        SocketChannel controlChannel = openConnection();
+        try (SocketChannel dataChannel = SocketChannel.open(new InetSocketAddress(HOST, server.getLocalPort()))) {
+            FrameReader controlFrameReader = new FrameReader();
+            FrameReader dataFrameReader = new FrameReader();
+            readFrame(controlChannel, controlFrameReader);
+
+            writeFrame(controlChannel, new Frame(FrameType.DATA_CHANNEL, new byte[0]));
+            Frame token = readFrame(controlChannel, controlFrameReader);
+            assertEquals(FrameType.DATA_CHANNEL, token.type(), "The server must issue a session token.");
+
+            writeFrame(dataChannel, token);
+            Frame attachReply = readFrame(dataChannel, dataFrameReader);
+            assertEquals(FrameType.DATA_CHANNEL, attachReply.type(),
+                "The server must acknowledge a data channel opened with a valid token.");
+            assertEquals(token.text(), attachReply.text(), "The acknowledgement must carry the session token.");
+
+            writeFrame(controlChannel, Frame.of(FrameType.COMMAND, "help"));
+            assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), readFrame(controlChannel, controlFrameReader)
+                .text(), "Commands must still be answered on the control channel.");
+
+            controlChannel.close();
+            assertTrue(isClosedByServer(dataChannel, dataFrameReader),
+                "The data channel must be closed together with its control channel.");
+        } finally {
+            controlChannel.close();
+        }
+    }
+
+    @Test
+    void testServerRejectsDataChannelWithUnknownToken() throws Exception {
+        startServer(ReactorSelectionStrategy.ROUND_ROBIN);
+
+        try (SocketChannel dataChannel = SocketChannel.open(new InetSocketAddress(HOST, server.getLocalPort()))) {
+            FrameReader frameReader = new FrameReader();
+            writeFrame(dataChannel, Frame.of(FrameType.DATA_CHANNEL, "not-issued"));
+
+            assertEquals(ServerReply.DATA_CHANNEL_UNKNOWN_TOKEN_REPLY.getReply(), readFrame(dataChannel, frameReader)
+                .text(), "The server must explain why it refuses the data channel.");
+            assertTrue(isClosedByServer(dataChannel, frameReader),
+                "The server must close a data channel with an unknown token.");
+        }
+    }
+
+    @Test
+    void testServerLogsOutAndClosesIdleSession() throws Exception {
+        when(authenticationServiceMock.login("sdvelev@gmail.com", "123456"))
+            .thenReturn(new User("sdvelev@gmail.com", "123456"));
+        doAnswer(invocation -> {
+            invocation.<Session>getArgument(0).logout();
+            return null;
+        }).when(streamingPlatformMock).logout(any(Session.class));
+        startServer(new ServerConfiguration()
+            .idleTimeout(Duration.ofMillis(REAPING_TIMEOUT_MILLIS))
+            .timerTick(Duration.ofMillis(REAPING_TICK_MILLIS)));
+
+        try (SocketChannel channel = openConnection()) {
+            FrameReader frameReader = new FrameReader();
+            readFrame(channel, frameReader);
+
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "login sdvelev@gmail.com 123456"));
+            assertEquals(ServerReply.LOGIN_COMMAND_SUCCESSFULLY_REPLY.getReply(), readFrame(channel, frameReader)
+                .text(), "The client must be logged in.");
+
+            assertEquals(ServerReply.SESSION_EXPIRED_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "The server must tell the client that its session has expired.");
+            assertTrue(isClosedByServer(channel, frameReader), "The server must close an idle connection.");
+            verify(streamingPlatformMock, times(1)).logout(any(Session.class));
+        }
+    }
+
+    @Test
+    void testServerPushesSessionExpiredEventToClientWhichReceivesEvents() throws Exception {
+        startServer(new ServerConfiguration()
+            .idleTimeout(Duration.ofMillis(REAPING_TIMEOUT_MILLIS))
+            .timerTick(Duration.ofMillis(REAPING_TICK_MILLIS)));
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOST, server.getLocalPort()))) {
+            writeFrame(channel, new Handshake(Handshake.CURRENT_VERSION, Set.of(Capability.EVENTS)).toFrame());
+            FrameReader frameReader = new FrameReader();
+            assertEquals(Set.of(Capability.EVENTS), Handshake.parse(readFrame(channel, frameReader).text())
+                .capabilities(), "The server must agree to push events.");
+
+            Frame expired = readFrame(channel, frameReader);
+            assertEquals(FrameType.EVENT, expired.type(), "The expiry must be pushed as an event.");
+            assertEquals(new Event(EventType.SESSION_EXPIRED, ServerReply.SESSION_EXPIRED_REPLY.getReply()),
+                Event.parse(expired.text()), "The event must tell the client that its session has expired.");
+            assertTrue(isClosedByServer(channel, frameReader), "The server must close an idle connection.");
+        }
+    }
+
+    @Test
+    void testServerKeepsConnectionWithHeartbeatsAndClosesSilentOne() throws Exception {
+        startServer(new ServerConfiguration()
+            .heartbeatTimeout(Duration.ofMillis(REAPING_TIMEOUT_MILLIS))
+            .timerTick(Duration.ofMillis(REAPING_TICK_MILLIS)));
+
+        try (SocketChannel channel = openConnection()) {
+            FrameReader frameReader = new FrameReader();
+            readFrame(channel, frameReader);
+
+            for (int i = 0; i < 5; i++) {
+                Thread.sleep(REAPING_TIMEOUT_MILLIS / 3);
+                writeFrame(channel, new Frame(FrameType.HEARTBEAT, new byte[0]));
+            }
+
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "help"));
+            assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "Heartbeats must keep the connection open.");
+
+            assertEquals(ServerReply.SESSION_EXPIRED_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "The server must tell the client that it has not heard from it for too long.");
+            assertTrue(isClosedByServer(channel, frameReader), "The server must close a silent connection.");
+        }
+    }
+
+    @Test
+    void testServerRejectsConnectionsAboveLimit() throws Exception {
+        startServer(new ServerConfiguration().maxConnections(2));
+
+        try (SocketChannel first = openConnection(); SocketChannel second = openConnection();
+             SocketChannel rejected = openConnection()) {
+            readFrame(first, new FrameReader());
+            readFrame(second, new FrameReader());
+
+            FrameReader frameReader = new FrameReader();
+            assertEquals(ServerReply.SERVER_FULL_REPLY.getReply(), readFrame(rejected, frameReader).text(),
+                "A connection above the limit must be told that the server is full.");
+            assertTrue(isClosedByServer(rejected, frameReader), "A connection above the limit must be closed.");
+            assertEquals(1, server.getThrottlingCounters().getRejectedConnections(),
+                "The rejected connection must be counted.");
+        }
+    }
+
+    @Test
+    void testServerThrottlesCommandsAboveRateLimit() throws Exception {
+        startServer(new ServerConfiguration().commandRateLimit(RATE_LIMIT_TOKENS_PER_SECOND, RATE_LIMIT_BURST));
+
+        try (SocketChannel channel = openConnection()) {
+            FrameReader frameReader = new FrameReader();
+            readFrame(channel, frameReader);
+
+            for (int i = 0; i < RATE_LIMIT_BURST; i++) {
+                writeFrame(channel, Frame.of(FrameType.COMMAND, "help"));
+            }
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "help"));
+
+            for (int i = 0; i < RATE_LIMIT_BURST; i++) {
+                assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                    "Commands within the burst must be executed.");
+            }
+            assertEquals(ServerReply.COMMAND_THROTTLED_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "A command above the rate limit must be refused.");
+            assertEquals(1, server.getThrottlingCounters().getThrottledCommands("help"),
+                "The throttled command must be counted.");
+        }
+    }
+
+    @Test
+    void testServerChargesExpensiveCommandsMore() throws Exception {
+        when(streamingPlatformMock.searchSongs("crown")).thenReturn(List.of());
+        startServer(new ServerConfiguration().commandRateLimit(RATE_LIMIT_TOKENS_PER_SECOND, RATE_LIMIT_BURST));
+
+        try (SocketChannel channel = openConnection()) {
+            FrameReader frameReader = new FrameReader();
+            readFrame(channel, frameReader);
+
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "search crown"));
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "search crown"));
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "help"));
+
+            readFrame(channel, frameReader);
+            assertEquals(ServerReply.COMMAND_THROTTLED_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "A second search must not fit in the burst.");
+            assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "A cheap command must still fit in what is left of the burst.");
+            assertEquals(1, server.getThrottlingCounters().getThrottledCommands(),
+                "Only the second search must be throttled.");
+        }
+    }
+
+    @Test
+    void testServerDeflatesLargeRepliesWhenClientOffersDeflate() throws Exception {
+        startServer(new ServerConfiguration().compressionThreshold(ServerReply.HELP_COMMAND_REPLY.getReply().length()));
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOST, server.getLocalPort()))) {
+            FrameReader frameReader = new FrameReader();
+            writeFrame(channel, Handshake.current().toFrame());
+
+            Handshake accepted = Handshake.parse(readFrame(channel, frameReader).text());
+            assertTrue(accepted.hasCapability(Capability.DEFLATE), "The server must accept the offered deflate.");
+
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "help"));
+            Frame reply = readFrame(channel, frameReader);
+
+            assertEquals(FrameType.COMPRESSED_REPLY, reply.type(), "A reply above the threshold must be deflated.");
+            assertTrue(reply.payload().length < ServerReply.HELP_COMMAND_REPLY.getReply().length(),
+                "The deflated reply must be smaller than the plain one.");
+            assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), FrameCompression.inflate(reply).text(),
+                "The deflated reply must inflate to the plain one.");
+
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "no-such-command"));
+            assertEquals(FrameType.REPLY, readFrame(channel, frameReader).type(),
+                "A reply below the threshold must be sent plain.");
+        }
+    }
+
+    @Test
+    void testServerDoesNotAcceptDeflateWhenCompressionIsDisabled() throws Exception {
+        startServer(new ServerConfiguration().compressionEnabled(false));
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOST, server.getLocalPort()))) {
+            FrameReader frameReader = new FrameReader();
+            writeFrame(channel, Handshake.current().toFrame());
+
+            Handshake accepted = Handshake.parse(readFrame(channel, frameReader).text());
+            assertFalse(accepted.hasCapability(Capability.DEFLATE),
+                "The server must not accept a disabled capability.");
+
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "help"));
+            assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "Replies must be sent plain when compression is disabled.");
+        }
+    }
+
+    @Test
+    void testServerEchoesRequestIdsAndDeflatesLargeResponses() throws Exception {
+        startServer(new ServerConfiguration().compressionThreshold(ServerReply.HELP_COMMAND_REPLY.getReply().length()));
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOST, server.getLocalPort()))) {
+            FrameReader frameReader = new FrameReader();
+            writeFrame(channel, Handshake.current().toFrame());
+
+            Handshake accepted = Handshake.parse(readFrame(channel, frameReader).text());
+            assertTrue(accepted.hasCapability(Capability.REQUEST_IDS), "The server must accept request ids.");
+
+            writeFrame(channel, new Request(9, "help").toFrame());
+            writeFrame(channel, new Request(4, "no-such-command").toFrame());
+
+            Response first = Response.parse(readFrame(channel, frameReader));
+            assertEquals(9, first.requestId(), "The response must carry the id of its request.");
+            assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), FrameCompression.inflate(first.reply()).text(),
+                "A response above the threshold must be deflated like a reply.");
+
+            Response second = Response.parse(readFrame(channel, frameReader));
+            assertEquals(4, second.requestId(), "The response must carry the id of its request.");
+            assertEquals(ServerReply.UNKNOWN_COMMAND_REPLY.getReply(), second.reply().text(),
+                "A response below the threshold must be sent plain.");
+        }
+    }
+
+    @Test
+    void testServerAnswersCurrentCatalogQueryWithoutSearchingAgain() throws Exception {
+        when(streamingPlatformMock.getCatalogVersion()).thenReturn(3L);
+        when(streamingPlatformMock.searchSongs("Zimmer")).thenReturn(List.of());
+        startServer(new ServerConfiguration());
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOST, server.getLocalPort()))) {
+            FrameReader frameReader = new FrameReader();
+            writeFrame(channel, Handshake.current().toFrame());
+
+            Handshake accepted = Handshake.parse(readFrame(channel, frameReader).text());
+            assertTrue(accepted.hasCapability(Capability.CATALOG_VERSIONS), "The server must version the catalog.");
+
+            writeFrame(channel, new CatalogQuery(CatalogQuery.NO_VERSION, "search Zimmer").toFrame());
+            Frame version = readFrame(channel, frameReader);
+            assertEquals(FrameType.CATALOG_VERSION, version.type(), "A fresh reply must follow its catalog version.");
+            assertEquals(3L, CatalogVersion.parse(version).version(), "The current catalog version must be sent.");
+            assertEquals(ServerReply.SEARCH_COMMAND_NO_SONGS_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "The reply must follow the catalog version.");
+
+            writeFrame(channel, new CatalogQuery(3L, "search Zimmer").toFrame());
+            Frame notModified = readFrame(channel, frameReader);
+            assertEquals(FrameType.NOT_MODIFIED, notModified.type(),
+                "A query for the current catalog version must not be answered again.");
+            assertEquals(3L, CatalogVersion.parse(notModified).version(), "The current catalog version must be sent.");
+        }
+
+        verify(streamingPlatformMock, times(1)).searchSongs("Zimmer");
+    }
+
+    @Test
+    void testServerShutdownFinishesCommandsNotifiesClientsAndFlushesStateOnce() throws Exception {
+        CountDownLatch searchStarted = new CountDownLatch(1);
+        when(authenticationServiceMock.login("sdvelev@gmail.com", "123456"))
+            .thenReturn(new User("sdvelev@gmail.com", "123456"));
+        doAnswer(invocation -> {
+            invocation.<Session>getArgument(0).logout();
+            return null;
+        }).when(streamingPlatformMock).logout(any(Session.class));
+        when(streamingPlatformMock.searchSongs("Zimmer")).thenAnswer(invocation -> {
+            searchStarted.countDown();
+            Thread.sleep(SLOW_COMMAND_MILLIS);
+            return List.of();
+        });
+        startServer(new ServerConfiguration().reconnectDelay(Duration.ofSeconds(1), Duration.ZERO));
+
+        try (SocketChannel channel = openConnection()) {
+            FrameReader frameReader = new FrameReader();
+            readFrame(channel, frameReader);
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "login sdvelev@gmail.com 123456"));
+            readFrame(channel, frameReader);
+
+            writeFrame(channel, Frame.of(FrameType.COMMAND, "search Zimmer"));
+            assertTrue(searchStarted.await(START_TIMEOUT_SECONDS, TimeUnit.SECONDS), "The search must start.");
+
+            ShutdownReport report = server.shutdown();
+
+            assertEquals(ServerReply.SEARCH_COMMAND_NO_SONGS_REPLY.getReply(), readFrame(channel, frameReader).text(),
+                "A command accepted before the shutdown must be answered.");
+
+            Frame reconnect = readFrame(channel, frameReader);
+            assertEquals(FrameType.RECONNECT, reconnect.type(), "The client must be told to reconnect.");
+            assertEquals(Duration.ofSeconds(1), Reconnect.parse(reconnect.text()).delay(),
+                "The client must be told to reconnect after the configured delay.");
+            assertTrue(isClosedByServer(channel, frameReader), "The server must close the connection.");
+
+            assertEquals(Set.of(ShutdownPhase.values()), report.phaseDurations().keySet(),
+                "The report must time every phase.");
+            assertTrue(report.timedOutPhases().isEmpty(), "No phase must time out.");
+            assertSame(report, server.shutdown(), "Shutting down again must return the first report.");
+
+            verify(streamingPlatformMock).logout(any(Session.class));
+            verify(streamingPlatformMock, times(1)).persist();
+        }
+    }
+
+    @Test
+    void testShutdownOfServerWhichNeverStartedDoesNotWaitForAcceptor() {
+        server = new Server(new ServerConfiguration().port(0), new CommandExecutor(streamingPlatformMock,
+            authenticationServiceMock, spotifyLoggerMock), spotifyLoggerMock);
+        serverThread = new Thread(() -> { });
+        serverThread.start();
+
+        ShutdownReport report = assertTimeoutPreemptively(Duration.ofSeconds(START_TIMEOUT_SECONDS), server::shutdown,
+            "Shutting down a server which never started must not wait for its acceptor.");
+
+        assertTrue(report.timedOutPhases().isEmpty(), "No phase must time out.");
+    }
+
+    private SocketChannel openConnection() throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(HOST, server.getLocalPort()));
+        writeFrame(channel, PLAIN_HANDSHAKE.toFrame());
+        return channel;
+    }
+
+    private void startServer(ReactorSelectionStrategy strategy) throws InterruptedException {
+        startServer(new ServerConfiguration().reactorSelectionStrategy(strategy));
+    }
+
+    private void startServer(ServerConfiguration configuration) throws InterruptedException {
+        configuration
+            .port(0)
+            .reactorCount(NUMBER_OF_REACTORS);
+
+        server = new Server(configuration, new CommandExecutor(streamingPlatformMock, authenticationServiceMock,
+            spotifyLoggerMock), spotifyLoggerMock);
+        serverThread = new Thread(server::start);
+        serverThread.start();
+
+        assertTrue(server.awaitStarted(START_TIMEOUT_SECONDS, TimeUnit.SECONDS), "The server must start.");
+    }
+
+    private static void writeFrame(SocketChannel channel, Frame frame) throws IOException {
+        ByteBuffer encoded = FrameCodec.encode(frame);
+        while (encoded.hasRemaining()) {
+            channel.write(encoded);
+        }
+    }
+
+    private static Frame readFrame(SocketChannel channel, FrameReader frameReader)
+        throws IOException, MalformedFrameException {
+        Frame frame;
+        while ((frame = frameReader.nextFrame()) == null) {
+            if (frameReader.readFrom(channel) < 0) {
+                throw new EOFException();
+            }
+        }
+
+        return frame;
+    }
+
+    private static boolean isClosedByServer(SocketChannel channel, FrameReader frameReader) throws IOException {
+        try {
+            return frameReader.readFrom(channel) < 0;
+        } catch (SocketException e) {
+            return true;
+        }
+    }
+}
@@ -13,6 +13,7 @@ import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.SpotifyException;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.UserNotLoggedException;
 import bg.sofia.uni.fmi.mjt.spotify.server.login.User;
 import bg.sofia.uni.fmi.mjt.spotify.server.player.PlaySongThread;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.Playlist;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.Song;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongEntity;
@@ -26,14 +27,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.nio.channels.SelectionKey;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doNothing;
@@ -268,14 +267,7 @@ public class StreamingPlatformTest {
           }
         ]""";
     private StreamingPlatform streamingPlatform;
-    @Mock
-    private SelectionKey selectionKey;
-
-    @Mock
-    private Set<SelectionKey> alreadyLoggedMock;
-
-    @Mock
-    private Map<SelectionKey, PlaySongThread> alreadyRunningMock;
+    private Session session;
 
     @Mock
     private PlaySongThread playSongThreadMock;
@@ -287,8 +279,8 @@ public class StreamingPlatformTest {
         var songsListOut = new StringWriter();
         var playlistsListOut = new StringWriter();
 
-        streamingPlatform = new StreamingPlatform(playlistsListIn, playlistsListOut, songsListIn, songsListOut,
-            alreadyLoggedMock, alreadyRunningMock);
+        streamingPlatform = new StreamingPlatform(playlistsListIn, playlistsListOut, songsListIn, songsListOut);
+        session = new Session(null);
     }
 
     @AfterEach
@@ -307,14 +299,11 @@ public class StreamingPlatformTest {
     @Test
     void testCreatePlaylistSuccessfully() throws SpotifyException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "TestPlaylist";
-        streamingPlatform.createPlaylist(playlistTitle, selectionKey);
+        streamingPlatform.createPlaylist(playlistTitle, session);
 
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
 
         String actual = streamingPlatform.getPlaylistsWriter().toString();
         assertEquals(EXPECTED_TEST_CREATE_PLAYLIST_SUCCESSFULLY, actual,
@@ -324,14 +313,11 @@ public class StreamingPlatformTest {
     @Test
     void testCreatePlaylistSuccessfullyNoPlaylistsYet() throws SpotifyException {
         User user = new User("sdvelev@outlook.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "TestPlaylist";
-        streamingPlatform.createPlaylist(playlistTitle, selectionKey);
+        streamingPlatform.createPlaylist(playlistTitle, session);
 
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
 
         String actual = streamingPlatform.getPlaylistsWriter().toString();
         assertEquals(EXPECTED_TEST_CREATE_PLAYLIST_SUCCESSFULLY_NOT_LOGGED, actual,
@@ -340,40 +326,32 @@ public class StreamingPlatformTest {
 
     @Test
     void testCreatePlaylistNotLoggedException() {
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(false);
-
         String playlistTitle = "TestPlaylist";
 
         assertThrows(UserNotLoggedException.class ,() ->
-                streamingPlatform.createPlaylist(playlistTitle, selectionKey),
+                streamingPlatform.createPlaylist(playlistTitle, session),
             "UserNotLoggedException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testCreatePlaylistPlaylistAlreadyExistException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "CrownMusic";
 
         assertThrows(PlaylistAlreadyExistException.class, () ->
-                streamingPlatform.createPlaylist(playlistTitle, selectionKey),
+                streamingPlatform.createPlaylist(playlistTitle, session),
             "PlaylistAlreadyExistException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testDeletePlaylistSuccessfully() throws SpotifyException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "TestPlaylist";
-        streamingPlatform. createPlaylist(playlistTitle, selectionKey);
+        streamingPlatform. createPlaylist(playlistTitle, session);
 
         String actual = streamingPlatform.getPlaylistsWriter().toString();
         assertEquals(EXPECTED_TEST_CREATE_PLAYLIST_SUCCESSFULLY, actual,
@@ -382,7 +360,7 @@ public class StreamingPlatformTest {
         var newWriter = new StringWriter();
         streamingPlatform.setPlaylistsWriter(newWriter);
 
-        streamingPlatform.deletePlaylist(playlistTitle, selectionKey);
+        streamingPlatform.deletePlaylist(playlistTitle, session);
 
         actual = streamingPlatform.getPlaylistsWriter().toString();
 
@@ -395,63 +373,49 @@ public class StreamingPlatformTest {
 
         assertEquals(PLAYLISTS_LIST, actual,
             "The actual result after deleting playlist is not the same as the expected.");
-
-        verify(alreadyLoggedMock, times(2)).contains(selectionKey);
     }
 
     @Test
     void testDeletePlaylistNotLoggedException() {
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(false);
-
         String playlistTitle = "CrownMusic";
 
         assertThrows(UserNotLoggedException.class ,() ->
-                streamingPlatform.deletePlaylist(playlistTitle, selectionKey),
+                streamingPlatform.deletePlaylist(playlistTitle, session),
             "UserNotLoggedException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testDeletePlaylistPlaylistNotEmptyException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "CrownMusic";
 
         assertThrows(PlaylistNotEmptyException.class ,() ->
-                streamingPlatform.deletePlaylist(playlistTitle, selectionKey),
+                streamingPlatform.deletePlaylist(playlistTitle, session),
             "PlaylistNotEmptyException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testDeletePlaylistNoSuchPlaylistException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "FilmMusic";
 
         assertThrows(NoSuchPlaylistException.class ,() ->
-                streamingPlatform.deletePlaylist(playlistTitle, selectionKey),
+                streamingPlatform.deletePlaylist(playlistTitle, session),
             "NoSuchPlaylistException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testShowPlaylistSuccessfully() throws SpotifyException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "CrownMusic";
-        Playlist returned = streamingPlatform.showPlaylist(playlistTitle, selectionKey);
+        Playlist returned = streamingPlatform.showPlaylist(playlistTitle, session);
 
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
 
         Playlist expected = new Playlist("sdvelev@gmail.com", "CrownMusic");
 
@@ -472,42 +436,33 @@ public class StreamingPlatformTest {
 
     @Test
     void testShowPlaylistNotLoggedException() {
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(false);
-
         String playlistTitle = "CrownMusic";
 
         assertThrows(UserNotLoggedException.class ,() ->
-                streamingPlatform.showPlaylist(playlistTitle, selectionKey),
+                streamingPlatform.showPlaylist(playlistTitle, session),
             "UserNotLoggedException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testShowPlaylistNoSuchPlaylistException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "FilmMusic";
 
         assertThrows(NoSuchPlaylistException.class ,() ->
-                streamingPlatform.showPlaylist(playlistTitle, selectionKey),
+                streamingPlatform.showPlaylist(playlistTitle, session),
             "NoSuchPlaylistException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testShowPlaylistsSuccessfully() throws UserNotLoggedException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
 
-        List<String> returned = streamingPlatform.showPlaylists(selectionKey);
+        List<String> returned = streamingPlatform.showPlaylists(session);
 
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
 
 
         assertIterableEquals(List.of("MyPlaylist", "CrownMusic"), returned,
@@ -516,24 +471,19 @@ public class StreamingPlatformTest {
 
     @Test
     void testShowPlaylistsNotLoggedException() {
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(false);
-
         assertThrows(UserNotLoggedException.class ,() ->
-                streamingPlatform.showPlaylists(selectionKey),
+                streamingPlatform.showPlaylists(session),
             "UserNotLoggedException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testAddSongToPlaylistSuccessfully() throws SpotifyException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "MyPlaylist";
         String songTitleToAdd = "Vivaldi Variation";
-        streamingPlatform.addSongToPlaylist(playlistTitle, songTitleToAdd, selectionKey);
+        streamingPlatform.addSongToPlaylist(playlistTitle, songTitleToAdd, session);
 
         Playlist expected = new Playlist("sdvelev@gmail.com", "MyPlaylist");
 
@@ -547,9 +497,8 @@ public class StreamingPlatformTest {
         expected.addSong(secondSong);
         expected.addSong(thirdSong);
 
-        Playlist returned = streamingPlatform.showPlaylist(playlistTitle, selectionKey);
+        Playlist returned = streamingPlatform.showPlaylist(playlistTitle, session);
 
-        verify(alreadyLoggedMock, times(2)).contains(selectionKey);
 
         assertIterableEquals(expected.getPlaylistSongs(), returned.getPlaylistSongs(),
             "The song has to be added to the playlist but it was not found to be there.");
@@ -558,13 +507,11 @@ public class StreamingPlatformTest {
     @Test
     void testAddSongToPlaylistSuccessfullyCaseInSensitiveSongTitles() throws SpotifyException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "MyPlaylist";
         String songTitleToAdd = "ViVaLdI vArIaTiOn";
-        streamingPlatform.addSongToPlaylist(playlistTitle, songTitleToAdd, selectionKey);
+        streamingPlatform.addSongToPlaylist(playlistTitle, songTitleToAdd, session);
 
         Playlist expected = new Playlist("sdvelev@gmail.com", "MyPlaylist");
 
@@ -578,9 +525,8 @@ public class StreamingPlatformTest {
         expected.addSong(secondSong);
         expected.addSong(thirdSong);
 
-        Playlist returned = streamingPlatform.showPlaylist(playlistTitle, selectionKey);
+        Playlist returned = streamingPlatform.showPlaylist(playlistTitle, session);
 
-        verify(alreadyLoggedMock, times(2)).contains(selectionKey);
 
         assertIterableEquals(expected.getPlaylistSongs(), returned.getPlaylistSongs(),
             "The song has to be added to the playlist but it was not found to be there.");
@@ -588,75 +534,61 @@ public class StreamingPlatformTest {
 
     @Test
     void testAddSongToNotLoggedException() {
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(false);
-
         String playListTitle = "MyPlaylist";
         String songTitleToAdd = "Vivaldi Variation";
 
         assertThrows(UserNotLoggedException.class ,() ->
-                streamingPlatform.addSongToPlaylist(playListTitle, songTitleToAdd, selectionKey),
+                streamingPlatform.addSongToPlaylist(playListTitle, songTitleToAdd, session),
             "UserNotLoggedException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testAddSongToNoSuchSongException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playListTitle = "MyPlaylist";
         String songTitleToAdd = "Vivaldi Variation Classic";
 
         assertThrows(NoSuchSongException.class ,() ->
-                streamingPlatform.addSongToPlaylist(playListTitle, songTitleToAdd, selectionKey),
+                streamingPlatform.addSongToPlaylist(playListTitle, songTitleToAdd, session),
             "NoSuchSongException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testAddSongToNoSuchPlaylistExceptionCaseSensitivePlaylistTitles() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playListTitle = "myPlaylist";
         String songTitleToAdd = "Vivaldi Variation";
 
         assertThrows(NoSuchPlaylistException.class ,() ->
-                streamingPlatform.addSongToPlaylist(playListTitle, songTitleToAdd, selectionKey),
+                streamingPlatform.addSongToPlaylist(playListTitle, songTitleToAdd, session),
             "NoSuchPlaylistException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testAddSongToSongAlreadyInPlaylistException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playListTitle = "CrownMusic";
         String songTitleToAdd = "The Crown - Bittersweet Symphony";
 
         assertThrows(SongAlreadyInPlaylistException.class ,() ->
-                streamingPlatform.addSongToPlaylist(playListTitle, songTitleToAdd, selectionKey),
+                streamingPlatform.addSongToPlaylist(playListTitle, songTitleToAdd, session),
             "SongAlreadyInPlaylistException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testRemoveSongFromPlaylistSuccessfully() throws SpotifyException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "MyPlaylist";
         String songTitleToRemove = "The Crown - Main title";
-        streamingPlatform.removeSongFromPlaylist(playlistTitle, songTitleToRemove, selectionKey);
+        streamingPlatform.removeSongFromPlaylist(playlistTitle, songTitleToRemove, session);
 
         Playlist expected = new Playlist("sdvelev@gmail.com", "MyPlaylist");
 
@@ -665,9 +597,8 @@ public class StreamingPlatformTest {
 
         expected.addSong(firstSong);
 
-        Playlist returned = streamingPlatform.showPlaylist(playlistTitle, selectionKey);
+        Playlist returned = streamingPlatform.showPlaylist(playlistTitle, session);
 
-        verify(alreadyLoggedMock, times(2)).contains(selectionKey);
 
         assertIterableEquals(expected.getPlaylistSongs(), returned.getPlaylistSongs(),
             "The song has to be removed from the playlist but it was found to be still there.");
@@ -676,13 +607,11 @@ public class StreamingPlatformTest {
     @Test
     void testRemoveSongFromPlaylistSuccessfullyCaseInsensitiveSongTitles() throws SpotifyException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playlistTitle = "MyPlaylist";
         String songTitleToRemove = "The CrOwN - Main TitLE";
-        streamingPlatform.removeSongFromPlaylist(playlistTitle, songTitleToRemove, selectionKey);
+        streamingPlatform.removeSongFromPlaylist(playlistTitle, songTitleToRemove, session);
 
         Playlist expected = new Playlist("sdvelev@gmail.com", "MyPlaylist");
 
@@ -691,9 +620,8 @@ public class StreamingPlatformTest {
 
         expected.addSong(firstSong);
 
-        Playlist returned = streamingPlatform.showPlaylist(playlistTitle, selectionKey);
+        Playlist returned = streamingPlatform.showPlaylist(playlistTitle, session);
 
-        verify(alreadyLoggedMock, times(2)).contains(selectionKey);
 
         assertIterableEquals(expected.getPlaylistSongs(), returned.getPlaylistSongs(),
             "The song has to be removed from the playlist but it was found to be still there.");
@@ -701,47 +629,38 @@ public class StreamingPlatformTest {
 
     @Test
     void testRemoveSongFromNotLoggedException() {
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(false);
-
         String playListTitle = "MyPlaylist";
         String songTitleToAdd = "The Crown - Main title";
 
         assertThrows(UserNotLoggedException.class ,() ->
-                streamingPlatform.removeSongFromPlaylist(playListTitle, songTitleToAdd, selectionKey),
+                streamingPlatform.removeSongFromPlaylist(playListTitle, songTitleToAdd, session),
             "UserNotLoggedException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testRemoveSongFromNoSuchSongException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playListTitle = "MyPlaylist";
         String songTitleToAdd = "The Crown - Bittersweet Symphony";
 
         assertThrows(NoSuchSongException.class ,() ->
-                streamingPlatform.removeSongFromPlaylist(playListTitle, songTitleToAdd, selectionKey),
+                streamingPlatform.removeSongFromPlaylist(playListTitle, songTitleToAdd, session),
             "NoSuchSongException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testRemoveSongFromNoSuchPlaylistException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playListTitle = "Crown Music";
         String songTitleToAdd = "The Crown - Bittersweet Symphony";
 
         assertThrows(NoSuchPlaylistException.class ,() ->
-                streamingPlatform.removeSongFromPlaylist(playListTitle, songTitleToAdd, selectionKey),
+                streamingPlatform.removeSongFromPlaylist(playListTitle, songTitleToAdd, session),
             "NoSuchPlaylistException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
@@ -803,6 +722,18 @@ public class StreamingPlatformTest {
             "The actual result after searching with two words is not the same as the expected.");
     }
 
+    @Test
+    void testSearchSongsSuccessfullyPartOfWord() {
+        String searchedWord = "Zimm";
+        List<SongEntity> actual = streamingPlatform.searchSongs(searchedWord);
+
+        SongEntity firstPlaceSong = new SongEntity(new Song("The Crown - Main title", "Hans Zimmer",
+            87, "classical"), 11);
+
+        assertIterableEquals(List.of(firstPlaceSong), actual,
+            "The actual result after searching with part of a word is not the same as the expected.");
+    }
+
     private int getListeningTimesBySongTitle(String songTitle) {
         for (SongEntity currentSongEntity : streamingPlatform.getSongs()) {
             if (currentSongEntity.getSong().getTitle().equalsIgnoreCase(songTitle)) {
@@ -813,89 +744,153 @@ public class StreamingPlatformTest {
         return 0;
     }
 
+    private void stopPlayback() throws InterruptedException {
+        PlaySongThread playback = session.getPlayback();
+        if (playback != null) {
+            playback.terminateSong();
+        }
+
+        session.awaitPlaybackFinished();
+    }
+
     @Test
-    void testPlaySongSuccessfully() throws SpotifyException {
+    void testPlaySongSuccessfully() throws SpotifyException, InterruptedException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String songTitle = "The Crown - Main title";
 
         int listeningTimesBefore = getListeningTimesBySongTitle(songTitle);
 
-        streamingPlatform.playSong(songTitle, selectionKey);
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
+        streamingPlatform.playSong(songTitle, session);
 
         int listeningTimesAfter = getListeningTimesBySongTitle(songTitle);
 
-        assertFalse(streamingPlatform.getAlreadyRunning().isEmpty(),
-            "Song is expected to run but it isn't playing.");
         assertEquals(listeningTimesAfter, listeningTimesBefore + 1,
             "The number of listening times is expected to increase with one when playing song but it isn't.");
+
+        stopPlayback();
+        assertFalse(session.isPlaying(), "The session is expected to be free once the song is stopped.");
     }
 
     @Test
-    void testPlaySongUserNotLoggedException() {
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(false);
+    void testPlaySongIncreasesChartVersionButNotCatalogVersion() throws SpotifyException, InterruptedException {
+        User user = new User("sdvelev@gmail.com", "123456");
+        session.login(user);
+
+        long catalogVersionBefore = streamingPlatform.getCatalogVersion();
+        long chartVersionBefore = streamingPlatform.getChartVersion();
+
+        streamingPlatform.playSong("The Crown - Main title", session);
 
+        assertTrue(streamingPlatform.getChartVersion() > chartVersionBefore,
+            "The chart version is expected to grow once the play counts change but it doesn't.");
+        assertEquals(catalogVersionBefore, streamingPlatform.getCatalogVersion(),
+            "The catalog version is expected to stay the same as plays do not change the songs but it doesn't.");
+
+        stopPlayback();
+    }
+
+    @Test
+    void testVersionsDoNotStartFromZero() {
+        assertNotEquals(0L, streamingPlatform.getCatalogVersion(),
+            "The catalog version is expected to be seeded per run so that it differs from earlier runs.");
+        assertEquals(streamingPlatform.getCatalogVersion(), streamingPlatform.getChartVersion(),
+            "The chart version is expected to start from the same seed as the catalog version.");
+    }
+
+    @Test
+    void testCreatePlaylistWithShardedPlaylistsIsWrittenOnPersist() throws SpotifyException {
+        var playlistsListOut = new StringWriter();
+        StreamingPlatform shardedPlatform = new StreamingPlatform(new StringReader(PLAYLISTS_LIST), playlistsListOut,
+            new StringReader(SONGS_LIST), new StringWriter(), 4);
+        User user = new User("sdvelev@outlook.com", "123456");
+        session.login(user);
+
+        shardedPlatform.createPlaylist("TestPlaylist", session);
+
+        assertEquals(List.of("TestPlaylist"), shardedPlatform.showPlaylists(session),
+            "The created playlist is expected to be in the shard of its creator but it isn't.");
+        assertTrue(playlistsListOut.toString().isEmpty(),
+            "Sharded playlists are expected to be written only on persist.");
+
+        shardedPlatform.persist();
+
+        assertTrue(playlistsListOut.toString().contains("TestPlaylist"),
+            "The created playlist is expected to be written on persist but it isn't.");
+    }
+
+    @Test
+    void testShowPlaylistReturnsCopy() throws SpotifyException {
+        User user = new User("sdvelev@gmail.com", "123456");
+        session.login(user);
+
+        Playlist returned = streamingPlatform.showPlaylist("CrownMusic", session);
+        returned.addSong(new Song("Test song", "Test artist", 100, "test"));
+
+        assertEquals(2, streamingPlatform.showPlaylist("CrownMusic", session).getPlaylistSongs().size(),
+            "Changing the shown playlist is expected not to change the playlist of the platform.");
+    }
+
+    @Test
+    void testGetPlaylistSongsWithShardedPlaylists() throws IODatabaseException {
+        StreamingPlatform shardedPlatform = new StreamingPlatform(new StringReader(PLAYLISTS_LIST), new StringWriter(),
+            new StringReader(SONGS_LIST), new StringWriter(), 4);
+
+        List<Song> expected = List.of(new Song("The Crown - Main title", "Hans Zimmer", 87, "classical"),
+            new Song("The Crown - Bittersweet Symphony", "Richard Ashcroft", 248, "modern"));
+
+        assertIterableEquals(expected, shardedPlatform.getPlaylistSongs("sdvelev@gmail.com", "CrownMusic"),
+            "The songs of the playlist are expected to be read from the shard of its creator.");
+        assertTrue(shardedPlatform.getPlaylistSongs("sdvelev@gmail.com", "NoSuchPlaylist").isEmpty(),
+            "No songs are expected for a missing playlist.");
+    }
+
+    @Test
+    void testPlaySongUserNotLoggedException() {
         String songTitle = "The Crown - Bittersweet Symphony";
 
         assertThrows(UserNotLoggedException.class ,() ->
-                streamingPlatform.playSong(songTitle, selectionKey),
+                streamingPlatform.playSong(songTitle, session),
             "UserNotLoggedException is expected but not thrown.");
-
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testPlaySongSongIsAlreadyPlayingException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String songTitle = "The Crown - Bittersweet Symphony";
 
-        when(alreadyRunningMock.containsKey(selectionKey)).thenReturn(true);
+        session.startPlayback(playSongThreadMock);
 
         assertThrows(SongIsAlreadyPlayingException.class ,() ->
-                streamingPlatform.playSong(songTitle, selectionKey),
+                streamingPlatform.playSong(songTitle, session),
             "SongIsAlreadyPlayingException is expected but not thrown.");
-
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
-        verify(alreadyRunningMock, times(1)).containsKey(selectionKey);
     }
 
     @Test
     void testPlaySongUserNoSuchSongException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String songTitle = "Bittersweet Symphony Classic";
 
         assertThrows(NoSuchSongException.class ,() ->
-                streamingPlatform.playSong(songTitle, selectionKey),
+                streamingPlatform.playSong(songTitle, session),
             "NoSuchSongException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testStopSongSuccessfully() throws SpotifyException, InterruptedException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
+        session.login(user);
 
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
-
-        when(alreadyRunningMock.containsKey(selectionKey)).thenReturn(true);
-
-        when(alreadyRunningMock.get(selectionKey)).thenReturn(playSongThreadMock);
+        session.startPlayback(playSongThreadMock);
         doNothing().when(playSongThreadMock).terminateSong();
         doNothing().when(playSongThreadMock).join();
 
-        streamingPlatform.stopSong(selectionKey);
+        streamingPlatform.stopSong(session);
 
         verify(playSongThreadMock, times(1)).terminateSong();
         verify(playSongThreadMock, times(1)).join();
@@ -904,65 +899,45 @@ public class StreamingPlatformTest {
     @Test
     void testStopSongNoSongPlayingException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
-        when(alreadyRunningMock.containsKey(selectionKey)).thenReturn(false);
-
-        assertThrows(NoSongPlayingException.class, () -> streamingPlatform.stopSong(selectionKey),
+        assertThrows(NoSongPlayingException.class, () -> streamingPlatform.stopSong(session),
             "NoSongPlayingException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
-        verify(alreadyRunningMock, times(1)).containsKey(selectionKey);
     }
 
     @Test
     void testStopSongUserNotLoggedException() {
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(false);
-
-        assertThrows(UserNotLoggedException.class, () -> streamingPlatform.stopSong(selectionKey),
+        assertThrows(UserNotLoggedException.class, () -> streamingPlatform.stopSong(session),
             "UserNotLoggedException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testLogoutSuccessfully() throws SpotifyException, InterruptedException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
-
-        when(alreadyRunningMock.containsKey(selectionKey)).thenReturn(true);
+        session.login(user);
 
-        when(alreadyRunningMock.get(selectionKey)).thenReturn(playSongThreadMock);
+        session.startPlayback(playSongThreadMock);
         doNothing().when(playSongThreadMock).terminateSong();
         doNothing().when(playSongThreadMock).join();
 
-        streamingPlatform.logout(selectionKey);
+        streamingPlatform.logout(session);
 
         verify(playSongThreadMock, times(1)).terminateSong();
         verify(playSongThreadMock, times(1)).join();
 
-        verify(alreadyLoggedMock, times(1)).remove(selectionKey);
+        assertFalse(session.isLoggedIn(), "The session is expected to be logged out but it isn't.");
     }
 
     @Test
     void testLogoutUserNotLoggedException() {
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(false);
-
-        assertThrows(UserNotLoggedException.class, () -> streamingPlatform.logout(selectionKey),
+        assertThrows(UserNotLoggedException.class, () -> streamingPlatform.logout(session),
             "UserNotLoggedException is expected but not thrown.");
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testPlayPlaylistSuccessfully() throws SpotifyException, InterruptedException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
-
-        when(alreadyRunningMock.containsKey(selectionKey)).thenReturn(false);
+        session.login(user);
 
         String playlistTitle = "CrownMusic";
 
@@ -972,27 +947,13 @@ public class StreamingPlatformTest {
         int firstSongListeningTimesBefore = getListeningTimesBySongTitle(firstSongInPlaylistTitle);
         int secondSongListeningTimesBefore = getListeningTimesBySongTitle(secondsSongInPlaylistTitle);
 
-        streamingPlatform.playPlaylist(playlistTitle, selectionKey);
-
-        Thread.sleep(500);
-
-        when(alreadyRunningMock.containsKey(selectionKey)).thenReturn(true);
-
-        when(alreadyRunningMock.get(selectionKey)).thenReturn(playSongThreadMock);
-        doNothing().when(playSongThreadMock).terminateSong();
-        doNothing().when(playSongThreadMock).join();
-
-        streamingPlatform.stopSong(selectionKey);
-
-        Thread.sleep(500);
+        streamingPlatform.playPlaylist(playlistTitle, session);
 
-        when(alreadyRunningMock.containsKey(selectionKey)).thenReturn(true);
+        for (int i = 0; i < 2; i++) {
+            Thread.sleep(500);
 
-        when(alreadyRunningMock.get(selectionKey)).thenReturn(playSongThreadMock);
-        doNothing().when(playSongThreadMock).terminateSong();
-        doNothing().when(playSongThreadMock).join();
-
-        streamingPlatform.stopSong(selectionKey);
+            stopPlayback();
+        }
 
         int firstSongListeningTimesAfter = getListeningTimesBySongTitle(firstSongInPlaylistTitle);
         int secondSongListeningTimesAfter = getListeningTimesBySongTitle(secondsSongInPlaylistTitle);
@@ -1005,69 +966,49 @@ public class StreamingPlatformTest {
 
     @Test
     void testPlayPlaylistNotLoggedException() {
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(false);
-
         String playlistTitle = "MyPlaylist";
         assertThrows(UserNotLoggedException.class ,() ->
-                streamingPlatform.playPlaylist(playlistTitle, selectionKey),
+                streamingPlatform.playPlaylist(playlistTitle, session),
             "UserNotLoggedException is expected but not thrown.");
-
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testPlayPlaylistSongIsAlreadyPlayingException() {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playListTitle = "MyPlaylist";
 
-        when(alreadyRunningMock.containsKey(selectionKey)).thenReturn(true);
+        session.startPlayback(playSongThreadMock);
 
         assertThrows(SongIsAlreadyPlayingException.class ,() ->
-                streamingPlatform.playPlaylist(playListTitle, selectionKey),
+                streamingPlatform.playPlaylist(playListTitle, session),
             "SongIsAlreadyPlayingException is expected but not thrown.");
-
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
-        verify(alreadyRunningMock, times(1)).containsKey(selectionKey);
     }
 
     @Test
     void testPlayPlaylistNoSuchPlaylistException() {
         User user = new User("sm@sm.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
+        session.login(user);
 
         String playListTitle = "MyPlaylist";
 
         assertThrows(NoSuchPlaylistException.class ,() ->
-                streamingPlatform.playPlaylist(playListTitle, selectionKey),
+                streamingPlatform.playPlaylist(playListTitle, session),
             "NoSuchPlaylistException is expected but not thrown.");
-
-        verify(alreadyLoggedMock, times(1)).contains(selectionKey);
     }
 
     @Test
     void testPlayPlaylistNoSongsInPlaylistException() throws SpotifyException {
         User user = new User("sdvelev@gmail.com", "123456");
-        streamingPlatform.setUser(user);
-
-        when(alreadyLoggedMock.contains(selectionKey)).thenReturn(true);
-
-        when(alreadyRunningMock.containsKey(selectionKey)).thenReturn(false);
+        session.login(user);
 
         String playListTitle = "EmptyPlaylist";
 
-        streamingPlatform.createPlaylist(playListTitle, selectionKey);
+        streamingPlatform.createPlaylist(playListTitle, session);
 
         assertThrows(NoSongsInPlaylistException.class ,() ->
-                streamingPlatform.playPlaylist(playListTitle, selectionKey),
+                streamingPlatform.playPlaylist(playListTitle, session),
             "NoSongsInPlaylistException is expected but not thrown.");
-
-        verify(alreadyLoggedMock, times(2)).contains(selectionKey);
-        verify(alreadyRunningMock, times(1)).containsKey(selectionKey);
     }
 }
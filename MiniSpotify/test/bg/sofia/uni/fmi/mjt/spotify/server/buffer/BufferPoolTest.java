@@ -0,0 +1,110 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.buffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BufferPoolTest {
+
+    private static final int SMALL_SIZE = 1024;
+    private static final int LARGE_SIZE = 4 * 1024;
+    private static final long CAPACITY = 1L << 20;
+
+    @Test
+    void testLeaseReturnsDirectBufferOfSmallestFittingClass() {
+        BufferPool bufferPool = new BufferPool(CAPACITY, SMALL_SIZE, LARGE_SIZE);
+
+        ByteBuffer small = bufferPool.lease(SMALL_SIZE / 2);
+        ByteBuffer large = bufferPool.lease(SMALL_SIZE + 1);
+
+        assertTrue(small.isDirect(), "Pooled buffers must be direct.");
+        assertEquals(SMALL_SIZE, small.capacity(), "The smallest class which fits the request must be used.");
+        assertEquals(LARGE_SIZE, large.capacity(), "A request above a class must go to the next one.");
+        assertEquals(0, small.position(), "A leased buffer must be cleared.");
+    }
+
+    @Test
+    void testReleasedBufferIsLeasedAgainWithoutMiss() {
+        BufferPool bufferPool = new BufferPool(CAPACITY, SMALL_SIZE);
+
+        ByteBuffer first = bufferPool.lease(SMALL_SIZE);
+        first.put((byte) 1);
+        bufferPool.release(first);
+
+        for (int i = 0; i < 10; i++) {
+            bufferPool.release(bufferPool.lease(SMALL_SIZE));
+        }
+
+        BufferPoolStatistics statistics = bufferPool.getStatistics();
+        assertEquals(11, statistics.leases(), "Every lease must be counted.");
+        assertEquals(1, statistics.misses(), "Only the lease which allocated the slab can miss.");
+        assertEquals(0, statistics.leasedBytes(), "Nothing must stay leased after every buffer is released.");
+    }
+
+    @Test
+    void testLeaseFallsBackToHeapWhenCapacityIsExhausted() {
+        BufferPool bufferPool = new BufferPool(0, SMALL_SIZE);
+
+        ByteBuffer buffer = bufferPool.lease(SMALL_SIZE);
+        bufferPool.release(buffer);
+
+        assertFalse(buffer.isDirect(), "A pool without capacity must hand out heap buffers.");
+        assertEquals(1, bufferPool.getStatistics().misses(), "A lease the pool cannot serve must be a miss.");
+        assertEquals(0, bufferPool.getStatistics().allocatedBytes(), "The pool must not allocate past its " +
+            "capacity.");
+    }
+
+    @Test
+    void testLeaseLargerThanEveryClassIsMiss() {
+        BufferPool bufferPool = new BufferPool(CAPACITY, SMALL_SIZE);
+
+        ByteBuffer buffer = bufferPool.lease(SMALL_SIZE * 3);
+
+        assertEquals(SMALL_SIZE * 3, buffer.capacity(), "The fallback buffer must fit the request.");
+        assertEquals(1.0, bufferPool.getStatistics().missRate(), "A request above every class must be a miss.");
+    }
+
+    @Test
+    void testStatisticsReportUtilizationOfAllocatedSlabs() {
+        BufferPool bufferPool = new BufferPool(CAPACITY, SMALL_SIZE);
+
+        ByteBuffer buffer = bufferPool.lease(SMALL_SIZE);
+        BufferPoolStatistics statistics = bufferPool.getStatistics();
+
+        assertTrue(statistics.allocatedBytes() >= SMALL_SIZE, "The slab of the lease must be accounted.");
+        assertEquals((double) SMALL_SIZE / statistics.allocatedBytes(), statistics.utilization(),
+            "The utilization must be the leased share of the allocated slabs.");
+
+        bufferPool.release(buffer);
+        assertEquals(0, bufferPool.getStatistics().utilization(), "Released buffers must not count as leased.");
+    }
+
+    @Test
+    void testReleaseIgnoresForeignBuffers() {
+        BufferPool bufferPool = new BufferPool(CAPACITY, SMALL_SIZE);
+        ByteBuffer pooled = bufferPool.lease(SMALL_SIZE);
+        bufferPool.release(pooled);
+
+        bufferPool.release(ByteBuffer.allocate(SMALL_SIZE));
+        bufferPool.release(ByteBuffer.allocateDirect(SMALL_SIZE / 2));
+
+        assertSame(pooled, bufferPool.lease(SMALL_SIZE), "Buffers which did not come from the pool must not be " +
+            "handed out.");
+    }
+
+    @Test
+    void testConstructorRejectsInvalidSizeClasses() {
+        assertThrows(IllegalArgumentException.class, () -> new BufferPool(CAPACITY, new int[0]),
+            "IllegalArgumentException is expected but not thrown.");
+        assertThrows(IllegalArgumentException.class, () -> new BufferPool(CAPACITY, 0),
+            "IllegalArgumentException is expected but not thrown.");
+        assertThrows(IllegalArgumentException.class, () -> new BufferPool(-1, SMALL_SIZE),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+}
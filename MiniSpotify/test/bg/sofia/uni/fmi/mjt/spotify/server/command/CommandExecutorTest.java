@@ -19,6 +19,7 @@ import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.UserNotLoggedException;
 import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
 import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
 import bg.sofia.uni.fmi.mjt.spotify.server.login.User;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.Playlist;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.Song;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongEntity;
@@ -28,12 +29,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.nio.channels.SelectionKey;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.doThrow;
@@ -45,7 +43,7 @@ import static org.mockito.Mockito.when;
 public class CommandExecutorTest {
 
     @Mock
-    private SelectionKey selectionKeyMock;
+    private Session sessionMock;
 
     @Mock
     private StreamingPlatform streamingPlatformMock;
@@ -67,12 +65,12 @@ public class CommandExecutorTest {
     void testExecuteCommandProcessLogoutSuccessfully() throws SpotifyException, InterruptedException {
         Command toProcess = new Command("logout", new ArrayList<>());
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.LOGOUT_COMMAND_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing the logout command successfully is not " +
                 "the same as the expected.");
-        verify(streamingPlatformMock, times(1)).logout(selectionKeyMock);
+        verify(streamingPlatformMock, times(1)).logout(sessionMock);
     }
 
     @Test
@@ -80,14 +78,14 @@ public class CommandExecutorTest {
         Command toProcess = new Command("logout", new ArrayList<>());
 
         doThrow(new UserNotLoggedException((ServerReply.LOGOUT_COMMAND_USER_NOT_LOGGED_REPLY.getReply())))
-            .when(streamingPlatformMock).logout(selectionKeyMock);
+            .when(streamingPlatformMock).logout(sessionMock);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.LOGOUT_COMMAND_USER_NOT_LOGGED_REPLY.getReply(), result,
             "The received reply from the server after executing the logout command when user is not logged " +
                 "is not the same as the expected.");
-        verify(streamingPlatformMock, times(1)).logout(selectionKeyMock);
+        verify(streamingPlatformMock, times(1)).logout(sessionMock);
     }
 
     @Test
@@ -95,60 +93,71 @@ public class CommandExecutorTest {
         Command toProcess = new Command("logout", new ArrayList<>());
 
         doThrow(new InterruptedException((ServerReply.SERVER_EXCEPTION.getReply())))
-            .when(streamingPlatformMock).logout(selectionKeyMock);
+            .when(streamingPlatformMock).logout(sessionMock);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SERVER_EXCEPTION.getReply(), result,
             "The received reply from the server after executing the logout command when InterruptedException " +
                 "is thrown is not the same as the expected.");
-        verify(streamingPlatformMock, times(1)).logout(selectionKeyMock);
+        verify(streamingPlatformMock, times(1)).logout(sessionMock);
     }
 
     @Test
     void testExecuteCommandProcessDisconnectSuccessfullyWithLogout() throws SpotifyException, InterruptedException {
         Command toProcess = new Command("disconnect", new ArrayList<>());
 
-        when(streamingPlatformMock.getAlreadyLogged()).thenReturn(Set.of(selectionKeyMock));
+        when(sessionMock.isLoggedIn()).thenReturn(true);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.DISCONNECT_COMMAND_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing the disconnect command successfully with " +
                 "logout is not the same as the expected.");
-        verify(streamingPlatformMock, times(1)).logout(selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getAlreadyLogged();
+        verify(streamingPlatformMock, times(1)).logout(sessionMock);
+        verify(sessionMock, times(1)).isLoggedIn();
     }
 
     @Test
     void testExecuteCommandProcessDisconnectSuccessfullyWithoutLogout() {
         Command toProcess = new Command("disconnect", new ArrayList<>());
 
-        when(streamingPlatformMock.getAlreadyLogged()).thenReturn(new HashSet<>());
+        when(sessionMock.isLoggedIn()).thenReturn(false);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.DISCONNECT_COMMAND_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing the disconnect command successfully without " +
                 "logout is not the same as the expected.");
-        verify(streamingPlatformMock, times(1)).getAlreadyLogged();
+        verify(sessionMock, times(1)).isLoggedIn();
+    }
+
+    @Test
+    void testCloseSessionLogsOutLoggedSession() throws SpotifyException, InterruptedException {
+        when(sessionMock.isLoggedIn()).thenReturn(true);
+
+        String result = commandExecutor.closeSession(sessionMock);
+
+        assertEquals(ServerReply.DISCONNECT_COMMAND_SUCCESSFULLY_REPLY.getReply(), result,
+            "Closing a session must end it the same way the disconnect command does.");
+        verify(streamingPlatformMock, times(1)).logout(sessionMock);
     }
 
     @Test
     void testExecuteCommandProcessDisconnectInterruptedException() throws SpotifyException, InterruptedException {
         Command toProcess = new Command("disconnect", new ArrayList<>());
 
-        when(streamingPlatformMock.getAlreadyLogged()).thenReturn(Set.of(selectionKeyMock));
+        when(sessionMock.isLoggedIn()).thenReturn(true);
 
         doThrow(new InterruptedException((ServerReply.SERVER_EXCEPTION.getReply())))
-            .when(streamingPlatformMock).logout(selectionKeyMock);
+            .when(streamingPlatformMock).logout(sessionMock);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.DISCONNECT_COMMAND_ERROR_REPLY.getReply(), result,
             "The received reply from the server after executing the disconnect command when InterruptedException " +
                 "is thrown is not the same as the expected.");
-        verify(streamingPlatformMock, times(1)).logout(selectionKeyMock);
+        verify(streamingPlatformMock, times(1)).logout(sessionMock);
     }
 
     @Test
@@ -166,7 +175,7 @@ public class CommandExecutorTest {
 
         when(streamingPlatformMock.searchSongs("the crown")).thenReturn(toReturnList);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         String expectedString = ServerReply.SEARCH_COMMAND_SUCCESSFULLY_REPLY.getReply() + System.lineSeparator() +
             " Title: The Crown - Main title Artist: Hans Zimmer Genre: classical Duration (in seconds): 87" +
@@ -185,7 +194,7 @@ public class CommandExecutorTest {
 
         when(streamingPlatformMock.searchSongs("The Crown - Voices")).thenReturn(new ArrayList<>());
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SEARCH_COMMAND_NO_SONGS_REPLY.getReply(), result,
             "The received reply from the server after executing the search command successfully with " +
@@ -193,6 +202,60 @@ public class CommandExecutorTest {
         verify(streamingPlatformMock, times(1)).searchSongs("The Crown - Voices");
     }
 
+    @Test
+    void testExecuteCommandProcessSearchCommandFallsBackToSimilarSongs() {
+        Command toProcess = new Command("search", List.of("zimmmer"));
+
+        SongEntity similarSong = new SongEntity(new Song("The Crown - Main title",
+            "Hans Zimmer", 87, "classical"), 16);
+
+        when(streamingPlatformMock.searchSongs("zimmmer")).thenReturn(new ArrayList<>());
+        when(streamingPlatformMock.fuzzySearchSongs("zimmmer")).thenReturn(List.of(similarSong));
+
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
+
+        String expectedString = ServerReply.SEARCH_COMMAND_SIMILAR_SONGS_REPLY.getReply() + System.lineSeparator() +
+            " Title: The Crown - Main title Artist: Hans Zimmer Genre: classical Duration (in seconds): 87" +
+            System.lineSeparator();
+
+        assertEquals(expectedString, result,
+            "The received reply from the server after a search with no exact results is not the similar songs.");
+        verify(streamingPlatformMock, times(1)).fuzzySearchSongs("zimmmer");
+    }
+
+    @Test
+    void testExecuteCommandProcessFuzzySearchCommandSuccessfully() {
+        Command toProcess = new Command("fuzzy-search", List.of("bilie eilish"));
+
+        SongEntity searchedSong = new SongEntity(new Song("No Time To Die", "Billie Eilish", 239, "pop"), 22);
+
+        when(streamingPlatformMock.fuzzySearchSongs("bilie eilish")).thenReturn(List.of(searchedSong));
+
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
+
+        String expectedString = ServerReply.SEARCH_COMMAND_SUCCESSFULLY_REPLY.getReply() + System.lineSeparator() +
+            " Title: No Time To Die Artist: Billie Eilish Genre: pop Duration (in seconds): 239" +
+            System.lineSeparator();
+
+        assertEquals(expectedString, result,
+            "The received reply from the server after executing the fuzzy search command successfully is not " +
+                "the same as the expected.");
+        verify(streamingPlatformMock, times(0)).searchSongs("bilie eilish");
+    }
+
+    @Test
+    void testExecuteCommandProcessFuzzySearchCommandNoSongs() {
+        Command toProcess = new Command("fuzzy-search", List.of("beethoven"));
+
+        when(streamingPlatformMock.fuzzySearchSongs("beethoven")).thenReturn(new ArrayList<>());
+
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
+
+        assertEquals(ServerReply.SEARCH_COMMAND_NO_SONGS_REPLY.getReply(), result,
+            "The received reply from the server after executing the fuzzy search command with no found songs " +
+                "is not the same as the expected.");
+    }
+
     @Test
     void testExecuteCommandProcessTopCommandSuccessfully() {
         Command toProcess = new Command("top", List.of("2"));
@@ -208,7 +271,7 @@ public class CommandExecutorTest {
 
         when(streamingPlatformMock.getTopNMostListenedSongs(2)).thenReturn(toReturnList);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         String expectedString = ServerReply.TOP_COMMAND_SUCCESSFULLY_REPLY.getReply() + System.lineSeparator() +
             "# 16 Title: The Crown - Main title Artist: Hans Zimmer Genre: classical Duration (in seconds): 87" +
@@ -221,11 +284,22 @@ public class CommandExecutorTest {
         verify(streamingPlatformMock, times(1)).getTopNMostListenedSongs(2);
     }
 
+    @Test
+    void testGetVersionOfTopIsTheChartVersionAndOfSearchTheCatalogVersion() {
+        when(streamingPlatformMock.getChartVersion()).thenReturn(8L);
+        when(streamingPlatformMock.getCatalogVersion()).thenReturn(3L);
+
+        assertEquals(8L, commandExecutor.getVersionOf("top"),
+            "The reply of top must be versioned by the chart, which every play changes.");
+        assertEquals(3L, commandExecutor.getVersionOf("search"),
+            "The reply of search must be versioned by the songs of the catalog, which plays do not change.");
+    }
+
     @Test
     void testExecuteCommandProcessTopCommandWithNEqualToZero() {
         Command toProcess = new Command("top", List.of("0"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.TOP_COMMAND_INVALID_ARGUMENT_REPLY.getReply(), result,
             "The received reply from the server after executing the top command successfully with " +
@@ -236,7 +310,7 @@ public class CommandExecutorTest {
     void testExecuteCommandProcessTopCommandWithNNegative() {
         Command toProcess = new Command("top", List.of("-6"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.TOP_COMMAND_INVALID_ARGUMENT_REPLY.getReply(), result,
             "The received reply from the server after executing the top command successfully with " +
@@ -247,7 +321,7 @@ public class CommandExecutorTest {
     void testExecuteCommandProcessCreatePlaylistCommandSuccessfully() {
         Command toProcess = new Command("create-playlist", List.of("Favourites"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.CREATE_PLAYLIST_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing the create-playlist valid command " +
@@ -259,15 +333,15 @@ public class CommandExecutorTest {
         Command toProcess = new Command("create-playlist", List.of("Favourites"));
 
         doThrow(new UserNotLoggedException((ServerReply.CREATE_PLAYLIST_NOT_LOGGED_REPLY.getReply())))
-            .when(streamingPlatformMock).createPlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).createPlaylist("Favourites" ,sessionMock);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.CREATE_PLAYLIST_NOT_LOGGED_REPLY.getReply(), result,
             "The received reply from the server after executing the create-playlist with user not logged " +
                 "is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).createPlaylist("Favourites",
-            selectionKeyMock);
+            sessionMock);
     }
 
     @Test
@@ -275,17 +349,17 @@ public class CommandExecutorTest {
         Command toProcess = new Command("create-playlist", List.of("Favourites"));
 
         doThrow(new IODatabaseException((ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply())))
-            .when(streamingPlatformMock).createPlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).createPlaylist("Favourites" ,sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), result,
             "The received reply from the server after executing the create-playlist with database exception " +
                 "is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).createPlaylist("Favourites",
-            selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -293,17 +367,17 @@ public class CommandExecutorTest {
         Command toProcess = new Command("create-playlist", List.of("Favourites"));
 
         doThrow(new NullPointerException((ServerReply.SERVER_EXCEPTION.getReply())))
-            .when(streamingPlatformMock).createPlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).createPlaylist("Favourites" ,sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SERVER_EXCEPTION.getReply(), result,
             "The received reply from the server after executing the create-playlist with unexpected exception " +
                 "thrown is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).createPlaylist("Favourites",
-            selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -311,24 +385,24 @@ public class CommandExecutorTest {
         Command toProcess = new Command("create-playlist", List.of("Favourites"));
 
         doThrow(new PlaylistAlreadyExistException((ServerReply.CREATE_PLAYLIST_ALREADY_EXIST_REPLY.getReply())))
-            .when(streamingPlatformMock).createPlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).createPlaylist("Favourites" ,sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.CREATE_PLAYLIST_ALREADY_EXIST_REPLY.getReply(), result,
             "The received reply from the server after executing the create-playlist with playlist that " +
                 "already exist is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).createPlaylist("Favourites",
-            selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
     void testExecuteCommandProcessDeletePlaylistCommandSuccessfully() {
         Command toProcess = new Command("delete-playlist", List.of("Favourites"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.DELETE_PLAYLIST_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing the delete-playlist valid command " +
@@ -340,15 +414,15 @@ public class CommandExecutorTest {
         Command toProcess = new Command("delete-playlist", List.of("Favourites"));
 
         doThrow(new UserNotLoggedException((ServerReply.DELETE_PLAYLIST_NOT_LOGGED_REPLY.getReply())))
-            .when(streamingPlatformMock).deletePlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).deletePlaylist("Favourites" ,sessionMock);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.DELETE_PLAYLIST_NOT_LOGGED_REPLY.getReply(), result,
             "The received reply from the server after executing the delete-playlist with user not logged " +
                 "is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).deletePlaylist("Favourites",
-            selectionKeyMock);
+            sessionMock);
     }
 
     @Test
@@ -356,17 +430,17 @@ public class CommandExecutorTest {
         Command toProcess = new Command("delete-playlist", List.of("Favourites"));
 
         doThrow(new IODatabaseException((ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply())))
-            .when(streamingPlatformMock).deletePlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).deletePlaylist("Favourites" ,sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), result,
             "The received reply from the server after executing the delete-playlist with database exception " +
                 "is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).deletePlaylist("Favourites",
-            selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -374,17 +448,17 @@ public class CommandExecutorTest {
         Command toProcess = new Command("delete-playlist", List.of("Favourites"));
 
         doThrow(new NoSuchPlaylistException((ServerReply.DELETE_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply())))
-            .when(streamingPlatformMock).deletePlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).deletePlaylist("Favourites" ,sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.DELETE_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply(), result,
             "The received reply from the server after executing the delete-playlist with playlist that " +
                 "does not exist is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).deletePlaylist("Favourites",
-            selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -392,17 +466,17 @@ public class CommandExecutorTest {
         Command toProcess = new Command("delete-playlist", List.of("Favourites"));
 
         doThrow(new PlaylistNotEmptyException((ServerReply.DELETE_PLAYLIST_NOT_EMPTY_PLAYLIST_REPLY.getReply())))
-            .when(streamingPlatformMock).deletePlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).deletePlaylist("Favourites" ,sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.DELETE_PLAYLIST_NOT_EMPTY_PLAYLIST_REPLY.getReply(), result,
             "The received reply from the server after executing the delete-playlist with playlist that " +
                 "is not empty is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).deletePlaylist("Favourites",
-            selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -410,17 +484,17 @@ public class CommandExecutorTest {
         Command toProcess = new Command("delete-playlist", List.of("Favourites"));
 
         doThrow(new NullPointerException((ServerReply.SERVER_EXCEPTION.getReply())))
-            .when(streamingPlatformMock).deletePlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).deletePlaylist("Favourites" ,sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SERVER_EXCEPTION.getReply(), result,
             "The received reply from the server after executing the delete-playlist with unexpected exception " +
                 "thrown is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).deletePlaylist("Favourites",
-            selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
 
@@ -428,7 +502,7 @@ public class CommandExecutorTest {
     void testExecuteCommandProcessAddSongToCommandSuccessfully() {
         Command toProcess = new Command("add-song-to", List.of("Favourites", "No Time To Die"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.ADD_SONG_TO_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing the add-song-to valid command " +
@@ -441,15 +515,15 @@ public class CommandExecutorTest {
 
         doThrow(new UserNotLoggedException((ServerReply.ADD_SONG_TO_NOT_LOGGED_REPLY.getReply())))
             .when(streamingPlatformMock).addSongToPlaylist("Favourites" , "No Time To Die",
-                selectionKeyMock);
+                sessionMock);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.ADD_SONG_TO_NOT_LOGGED_REPLY.getReply(), result,
             "The received reply from the server after executing the add-song-to with user not logged " +
                 "is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).addSongToPlaylist("Favourites",
-            "No Time To Die", selectionKeyMock);
+            "No Time To Die", sessionMock);
     }
 
     @Test
@@ -458,17 +532,17 @@ public class CommandExecutorTest {
 
         doThrow(new IODatabaseException((ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply())))
             .when(streamingPlatformMock).addSongToPlaylist("Favourites", "No Time To Die",
-                selectionKeyMock);
+                sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), result,
             "The received reply from the server after executing the add-song-to with database exception " +
                 "is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).addSongToPlaylist("Favourites",
-            "No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            "No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -477,17 +551,17 @@ public class CommandExecutorTest {
 
         doThrow(new NoSuchSongException((ServerReply.ADD_SONG_TO_NO_SUCH_SONG_REPLY.getReply())))
             .when(streamingPlatformMock).addSongToPlaylist("Favourites", "No Time To Die",
-                selectionKeyMock);
+                sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.ADD_SONG_TO_NO_SUCH_SONG_REPLY.getReply(), result,
             "The received reply from the server after executing the add-song-to with song that " +
                 "does not exist is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).addSongToPlaylist("Favourites",
-            "No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            "No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -496,17 +570,17 @@ public class CommandExecutorTest {
 
         doThrow(new NoSuchPlaylistException((ServerReply.ADD_SONG_TO_NO_SUCH_PLAYLIST_REPLY.getReply())))
             .when(streamingPlatformMock).addSongToPlaylist("Favourites", "No Time To Die",
-                selectionKeyMock);
+                sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.ADD_SONG_TO_NO_SUCH_PLAYLIST_REPLY.getReply(), result,
             "The received reply from the server after executing the add-song-to with playlist that " +
                 "does not exist is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).addSongToPlaylist("Favourites",
-            "No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            "No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -515,17 +589,17 @@ public class CommandExecutorTest {
 
         doThrow(new SongAlreadyInPlaylistException((ServerReply.ADD_SONG_TO_SONG_ALREADY_EXIST_REPLY.getReply())))
             .when(streamingPlatformMock).addSongToPlaylist("Favourites", "No Time To Die",
-                selectionKeyMock);
+                sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.ADD_SONG_TO_SONG_ALREADY_EXIST_REPLY.getReply(), result,
             "The received reply from the server after executing the add-song-to with song that " +
                 "is already in the playlist is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).addSongToPlaylist("Favourites",
-            "No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            "No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -534,24 +608,24 @@ public class CommandExecutorTest {
 
         doThrow(new ArrayIndexOutOfBoundsException((ServerReply.SERVER_EXCEPTION.getReply())))
             .when(streamingPlatformMock).addSongToPlaylist("Favourites", "No Time To Die",
-                selectionKeyMock);
+                sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SERVER_EXCEPTION.getReply(), result,
             "The received reply from the server after executing the add-song-to with unexpected " +
                 "exception is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).addSongToPlaylist("Favourites",
-            "No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            "No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
     void testExecuteCommandProcessRemoveSongFromCommandSuccessfully() {
         Command toProcess = new Command("remove-song-from", List.of("Favourites", "No Time To Die"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.REMOVE_SONG_FROM_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing the remove-song-from valid command " +
@@ -564,15 +638,15 @@ public class CommandExecutorTest {
 
         doThrow(new UserNotLoggedException((ServerReply.REMOVE_SONG_FROM_NOT_LOGGED_REPLY.getReply())))
             .when(streamingPlatformMock).removeSongFromPlaylist("Favourites" , "No Time To Die",
-                selectionKeyMock);
+                sessionMock);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.REMOVE_SONG_FROM_NOT_LOGGED_REPLY.getReply(), result,
             "The received reply from the server after executing the remove-song-from with user not logged " +
                 "is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).removeSongFromPlaylist("Favourites",
-            "No Time To Die", selectionKeyMock);
+            "No Time To Die", sessionMock);
     }
 
     @Test
@@ -581,17 +655,17 @@ public class CommandExecutorTest {
 
         doThrow(new IODatabaseException((ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply())))
             .when(streamingPlatformMock).removeSongFromPlaylist("Favourites", "No Time To Die",
-                selectionKeyMock);
+                sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), result,
             "The received reply from the server after executing the remove-song-from with database exception " +
                 "is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).removeSongFromPlaylist("Favourites",
-            "No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            "No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -600,17 +674,17 @@ public class CommandExecutorTest {
 
         doThrow(new NoSuchSongException((ServerReply.REMOVE_SONG_FROM_NO_SUCH_SONG_REPLY.getReply())))
             .when(streamingPlatformMock).removeSongFromPlaylist("Favourites", "No Time To Die",
-                selectionKeyMock);
+                sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.REMOVE_SONG_FROM_NO_SUCH_SONG_REPLY.getReply(), result,
             "The received reply from the server after executing the remove-song-from with song that " +
                 "does not exist is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).removeSongFromPlaylist("Favourites",
-            "No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            "No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -619,17 +693,17 @@ public class CommandExecutorTest {
 
         doThrow(new NoSuchPlaylistException((ServerReply.REMOVE_SONG_FROM_NO_SUCH_PLAYLIST_REPLY.getReply())))
             .when(streamingPlatformMock).removeSongFromPlaylist("Favourites", "No Time To Die",
-                selectionKeyMock);
+                sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.REMOVE_SONG_FROM_NO_SUCH_PLAYLIST_REPLY.getReply(), result,
             "The received reply from the server after executing the remove-song-from with playlist that " +
                 "does not exist is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).removeSongFromPlaylist("Favourites",
-            "No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            "No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -638,17 +712,17 @@ public class CommandExecutorTest {
 
         doThrow(new ArrayIndexOutOfBoundsException((ServerReply.SERVER_EXCEPTION.getReply())))
             .when(streamingPlatformMock).removeSongFromPlaylist("Favourites", "No Time To Die",
-                selectionKeyMock);
+                sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SERVER_EXCEPTION.getReply(), result,
             "The received reply from the server after executing the remove-song-from with unexpected " +
                 "exception is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).removeSongFromPlaylist("Favourites",
-            "No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            "No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -663,10 +737,10 @@ public class CommandExecutorTest {
         toReturnPlaylist.addSong(firstSongInPlaylist);
         toReturnPlaylist.addSong(secondSongInPlaylist);
 
-        when(streamingPlatformMock.showPlaylist("CrownMusic", selectionKeyMock))
+        when(streamingPlatformMock.showPlaylist("CrownMusic", sessionMock))
             .thenReturn(toReturnPlaylist);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         String expectedString = ServerReply.SHOW_PLAYLIST_SUCCESSFULLY_REPLY.getReply() + "CrownMusic" +
             System.lineSeparator() + "1 Title: The Crown - Main title Artist: Hans Zimmer Genre: classical " +
@@ -677,7 +751,7 @@ public class CommandExecutorTest {
             "The received reply from the server after executing the show-playlist command successfully with " +
                 "two found songs is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .showPlaylist("CrownMusic", selectionKeyMock);
+            .showPlaylist("CrownMusic", sessionMock);
     }
 
     @Test
@@ -686,70 +760,70 @@ public class CommandExecutorTest {
 
         Playlist toReturnPlaylist = new Playlist("sdvelev@gmail.com", "CrownMusic");
 
-        when(streamingPlatformMock.showPlaylist("CrownMusic", selectionKeyMock))
+        when(streamingPlatformMock.showPlaylist("CrownMusic", sessionMock))
             .thenReturn(toReturnPlaylist);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SHOW_PLAYLIST_NO_SONGS_REPLY.getReply(), result,
             "The received reply from the server after executing the show-playlist command successfully with " +
                 "no found songs is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .showPlaylist("CrownMusic", selectionKeyMock);
+            .showPlaylist("CrownMusic", sessionMock);
     }
 
     @Test
     void testExecuteCommandProcessShowPlaylistCommandUserNotLoggedException() throws SpotifyException {
         Command toProcess = new Command("show-playlist", List.of("CrownMusic"));
 
-        when(streamingPlatformMock.showPlaylist("CrownMusic", selectionKeyMock))
+        when(streamingPlatformMock.showPlaylist("CrownMusic", sessionMock))
             .thenThrow(new UserNotLoggedException(ServerReply.SHOW_PLAYLIST_NOT_LOGGED_REPLY.getReply()));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SHOW_PLAYLIST_NOT_LOGGED_REPLY.getReply(), result,
             "The received reply from the server after executing the show-playlist command successfully with " +
                 "not logged user is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .showPlaylist("CrownMusic", selectionKeyMock);
+            .showPlaylist("CrownMusic", sessionMock);
     }
 
     @Test
     void testExecuteCommandProcessShowPlaylistCommandNoSuchPlaylistException() throws SpotifyException {
         Command toProcess = new Command("show-playlist", List.of("CrownMusic"));
 
-        when(streamingPlatformMock.showPlaylist("CrownMusic", selectionKeyMock))
+        when(streamingPlatformMock.showPlaylist("CrownMusic", sessionMock))
             .thenThrow(new NoSuchPlaylistException(ServerReply.SHOW_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply()));
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SHOW_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply(), result,
             "The received reply from the server after executing the show-playlist command successfully with " +
                 "no such playlist is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .showPlaylist("CrownMusic", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            .showPlaylist("CrownMusic", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
     void testExecuteCommandProcessShowPlaylistCommandNullPointerException() throws SpotifyException {
         Command toProcess = new Command("show-playlist", List.of("CrownMusic"));
 
-        when(streamingPlatformMock.showPlaylist("CrownMusic", selectionKeyMock))
+        when(streamingPlatformMock.showPlaylist("CrownMusic", sessionMock))
             .thenThrow(new NullPointerException(ServerReply.SERVER_EXCEPTION.getReply()));
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SERVER_EXCEPTION.getReply(), result,
             "The received reply from the server after executing the show-playlist command successfully with " +
                 "unexpected exception is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .showPlaylist("CrownMusic", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            .showPlaylist("CrownMusic", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -760,9 +834,9 @@ public class CommandExecutorTest {
         toReturnList.add("MyFavourite");
         toReturnList.add("CrownMusic");
 
-        when(streamingPlatformMock.showPlaylists(selectionKeyMock)).thenReturn(toReturnList);
+        when(streamingPlatformMock.showPlaylists(sessionMock)).thenReturn(toReturnList);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         String expectedString = ServerReply.SHOW_PLAYLISTS_SUCCESSFULLY_REPLY.getReply() + System.lineSeparator() +
             "1 Title: MyFavourite" + System.lineSeparator() +
@@ -772,70 +846,70 @@ public class CommandExecutorTest {
             "The received reply from the server after executing the show-playlists command successfully with " +
                 "two found playlists is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .showPlaylists(selectionKeyMock);
+            .showPlaylists(sessionMock);
     }
 
     @Test
     void testExecuteCommandProcessShowPlaylistsCommandNoPlaylists() throws UserNotLoggedException {
         Command toProcess = new Command("show-playlists", new ArrayList<>());
 
-        when(streamingPlatformMock.showPlaylists(selectionKeyMock)).thenReturn(new ArrayList<>());
+        when(streamingPlatformMock.showPlaylists(sessionMock)).thenReturn(new ArrayList<>());
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SHOW_PLAYLISTS_NO_PLAYLISTS_REPLY.getReply(), result,
             "The received reply from the server after executing the show-playlists command successfully with " +
                 "no found playlists is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .showPlaylists(selectionKeyMock);
+            .showPlaylists(sessionMock);
     }
 
     @Test
     void testExecuteCommandProcessShowPlaylistsCommandUserNotLoggedException() throws UserNotLoggedException {
         Command toProcess = new Command("show-playlists", new ArrayList<>());
 
-        when(streamingPlatformMock.showPlaylists(selectionKeyMock))
+        when(streamingPlatformMock.showPlaylists(sessionMock))
             .thenThrow(new UserNotLoggedException(ServerReply.SHOW_PLAYLISTS_NOT_LOGGED_REPLY.getReply()));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SHOW_PLAYLISTS_NOT_LOGGED_REPLY.getReply(), result,
             "The received reply from the server after executing the show-playlists command with " +
                 "not logged user is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .showPlaylists(selectionKeyMock);
+            .showPlaylists(sessionMock);
     }
 
     @Test
     void testExecuteCommandProcessShowPlaylistsCommandNullPointerException() throws UserNotLoggedException {
         Command toProcess = new Command("show-playlists", new ArrayList<>());
 
-        when(streamingPlatformMock.showPlaylists(selectionKeyMock))
+        when(streamingPlatformMock.showPlaylists(sessionMock))
             .thenThrow(new NullPointerException(ServerReply.SERVER_EXCEPTION.getReply()));
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SERVER_EXCEPTION.getReply(), result,
             "The received reply from the server after executing the show-playlists command with " +
                 "unexpected exception thrown is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .showPlaylists(selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            .showPlaylists(sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
     void testExecuteCommandProcessPlayCommandSuccessfully() throws SpotifyException {
         Command toProcess = new Command("play", List.of("No Time To Die"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.PLAY_SONG_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing the play command successfully with " +
                 "is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .playSong("No Time To Die", selectionKeyMock);
+            .playSong("No Time To Die", sessionMock);
     }
 
     @Test
@@ -843,15 +917,15 @@ public class CommandExecutorTest {
         Command toProcess = new Command("play", List.of("No Time To Die"));
 
         doThrow(new UserNotLoggedException(ServerReply.PLAY_SONG_NOT_LOGGED_REPLY.getReply()))
-            .when(streamingPlatformMock).playSong("No Time To Die", selectionKeyMock);
+            .when(streamingPlatformMock).playSong("No Time To Die", sessionMock);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.PLAY_SONG_NOT_LOGGED_REPLY.getReply(), result,
             "The received reply from the server after executing the play command with " +
                 "user not logged is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .playSong("No Time To Die", selectionKeyMock);
+            .playSong("No Time To Die", sessionMock);
     }
 
     @Test
@@ -859,18 +933,18 @@ public class CommandExecutorTest {
         Command toProcess = new Command("play", List.of("No Time To Die"));
 
         doThrow(new NoSuchSongException(ServerReply.PLAY_SONG_NO_SUCH_SONG_REPLY.getReply()))
-            .when(streamingPlatformMock).playSong("No Time To Die", selectionKeyMock);
+            .when(streamingPlatformMock).playSong("No Time To Die", sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.PLAY_SONG_NO_SUCH_SONG_REPLY.getReply(), result,
             "The received reply from the server after executing the play command with " +
                 "song not found is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .playSong("No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            .playSong("No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -878,18 +952,18 @@ public class CommandExecutorTest {
         Command toProcess = new Command("play", List.of("No Time To Die"));
 
         doThrow(new SongIsAlreadyPlayingException(ServerReply.PLAY_SONG_IS_ALREADY_RUNNING_REPLY.getReply()))
-            .when(streamingPlatformMock).playSong("No Time To Die", selectionKeyMock);
+            .when(streamingPlatformMock).playSong("No Time To Die", sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.PLAY_SONG_IS_ALREADY_RUNNING_REPLY.getReply(), result,
             "The received reply from the server after executing the play command with " +
                 "song already playing is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .playSong("No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            .playSong("No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -897,18 +971,18 @@ public class CommandExecutorTest {
         Command toProcess = new Command("play", List.of("No Time To Die"));
 
         doThrow(new IODatabaseException(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply()))
-            .when(streamingPlatformMock).playSong("No Time To Die", selectionKeyMock);
+            .when(streamingPlatformMock).playSong("No Time To Die", sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), result,
             "The received reply from the server after executing the play command with " +
                 "IO Database problem is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .playSong("No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            .playSong("No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -916,25 +990,25 @@ public class CommandExecutorTest {
         Command toProcess = new Command("play", List.of("No Time To Die"));
 
         doThrow(new NullPointerException(ServerReply.SERVER_EXCEPTION.getReply()))
-            .when(streamingPlatformMock).playSong("No Time To Die", selectionKeyMock);
+            .when(streamingPlatformMock).playSong("No Time To Die", sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SERVER_EXCEPTION.getReply(), result,
             "The received reply from the server after executing the play command with " +
                 "with unexpected exception thrown is not the same as the expected.");
         verify(streamingPlatformMock, times(1))
-            .playSong("No Time To Die", selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            .playSong("No Time To Die", sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
     void testExecuteCommandProcessPlayPlaylistCommandSuccessfully() {
         Command toProcess = new Command("play-playlist", List.of("Favourites"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.PLAY_PLAYLIST_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing the play-playlist valid command " +
@@ -946,15 +1020,15 @@ public class CommandExecutorTest {
         Command toProcess = new Command("play-playlist", List.of("Favourites"));
 
         doThrow(new UserNotLoggedException((ServerReply.PLAY_PLAYLIST_NOT_LOGGED_REPLY.getReply())))
-            .when(streamingPlatformMock).playPlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).playPlaylist("Favourites" ,sessionMock);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.PLAY_PLAYLIST_NOT_LOGGED_REPLY.getReply(), result,
             "The received reply from the server after executing the play-playlist with user not logged " +
                 "is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).playPlaylist("Favourites",
-            selectionKeyMock);
+            sessionMock);
     }
 
     @Test
@@ -962,17 +1036,17 @@ public class CommandExecutorTest {
         Command toProcess = new Command("play-playlist", List.of("Favourites"));
 
         doThrow(new SongIsAlreadyPlayingException((ServerReply.PLAY_PLAYLIST_ALREADY_PLAYING.getReply())))
-            .when(streamingPlatformMock).playPlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).playPlaylist("Favourites" ,sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.PLAY_PLAYLIST_ALREADY_PLAYING.getReply(), result,
             "The received reply from the server after executing the play-playlist when song is already " +
                 "running is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).playPlaylist("Favourites",
-            selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -980,17 +1054,17 @@ public class CommandExecutorTest {
         Command toProcess = new Command("play-playlist", List.of("Favourites"));
 
         doThrow(new NoSongsInPlaylistException((ServerReply.PLAY_PLAYLIST_NO_SONGS_IN_PLAYLIST_REPLY.getReply())))
-            .when(streamingPlatformMock).playPlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).playPlaylist("Favourites" ,sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.PLAY_PLAYLIST_NO_SONGS_IN_PLAYLIST_REPLY.getReply(), result,
             "The received reply from the server after executing the play-playlist when no songs are found " +
                 "is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).playPlaylist("Favourites",
-            selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -998,17 +1072,17 @@ public class CommandExecutorTest {
         Command toProcess = new Command("play-playlist", List.of("Favourites"));
 
         doThrow(new NoSuchPlaylistException((ServerReply.PLAY_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply())))
-            .when(streamingPlatformMock).playPlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).playPlaylist("Favourites" ,sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.PLAY_PLAYLIST_NO_SUCH_PLAYLIST_REPLY.getReply(), result,
             "The received reply from the server after executing the play-playlist when no such playlist is " +
                 "found is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).playPlaylist("Favourites",
-            selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -1016,29 +1090,29 @@ public class CommandExecutorTest {
         Command toProcess = new Command("play-playlist", List.of("Favourites"));
 
         doThrow(new NullPointerException((ServerReply.SERVER_EXCEPTION.getReply())))
-            .when(streamingPlatformMock).playPlaylist("Favourites" ,selectionKeyMock);
+            .when(streamingPlatformMock).playPlaylist("Favourites" ,sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SERVER_EXCEPTION.getReply(), result,
             "The received reply from the server after executing the delete-playlist with unexpected " +
                 "exception thrown is not the same as the expected.");
         verify(streamingPlatformMock, times(1)).playPlaylist("Favourites",
-            selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+            sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
     void testExecuteCommandProcessStopCommandSuccessfully() throws SpotifyException, InterruptedException {
         Command toProcess = new Command("stop", new ArrayList<>());
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.STOP_COMMAND_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing the stop command successfully is not " +
                 "the same as the expected.");
-        verify(streamingPlatformMock, times(1)).stopSong(selectionKeyMock);
+        verify(streamingPlatformMock, times(1)).stopSong(sessionMock);
     }
 
     @Test
@@ -1046,14 +1120,14 @@ public class CommandExecutorTest {
         Command toProcess = new Command("stop", new ArrayList<>());
 
         doThrow(new UserNotLoggedException((ServerReply.STOP_COMMAND_NOT_LOGGED_REPLY.getReply())))
-            .when(streamingPlatformMock).stopSong(selectionKeyMock);
+            .when(streamingPlatformMock).stopSong(sessionMock);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.STOP_COMMAND_NOT_LOGGED_REPLY.getReply(), result,
             "The received reply from the server after executing the stop command when user is not logged " +
                 "is not the same as the expected.");
-        verify(streamingPlatformMock, times(1)).stopSong(selectionKeyMock);
+        verify(streamingPlatformMock, times(1)).stopSong(sessionMock);
     }
 
     @Test
@@ -1061,16 +1135,16 @@ public class CommandExecutorTest {
         Command toProcess = new Command("stop", new ArrayList<>());
 
         doThrow(new NoSongPlayingException(ServerReply.STOP_COMMAND_NO_SONG_PLAYING.getReply()))
-            .when(streamingPlatformMock).stopSong(selectionKeyMock);
+            .when(streamingPlatformMock).stopSong(sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.STOP_COMMAND_NO_SONG_PLAYING.getReply(), result,
             "The received reply from the server after executing the stop command when song is already playing " +
                 "is not the same as the expected.");
-        verify(streamingPlatformMock, times(1)).stopSong(selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+        verify(streamingPlatformMock, times(1)).stopSong(sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
@@ -1078,23 +1152,23 @@ public class CommandExecutorTest {
         Command toProcess = new Command("stop", new ArrayList<>());
 
         doThrow(new NullPointerException(ServerReply.STOP_COMMAND_ERROR_REPLY.getReply()))
-            .when(streamingPlatformMock).stopSong(selectionKeyMock);
+            .when(streamingPlatformMock).stopSong(sessionMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.STOP_COMMAND_ERROR_REPLY.getReply(), result,
             "The received reply from the server after executing the stop command when unexpected exception is " +
                 "thrown is not the same as the expected.");
-        verify(streamingPlatformMock, times(1)).stopSong(selectionKeyMock);
-        verify(streamingPlatformMock, times(1)).getUser();
+        verify(streamingPlatformMock, times(1)).stopSong(sessionMock);
+        verify(sessionMock, times(1)).getUser();
     }
 
     @Test
     void testExecuteCommandProcessHelpCommandSuccessfully() {
         Command toProcess = new Command("help", new ArrayList<>());
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.HELP_COMMAND_REPLY.getReply(), result,
             "The received reply from the server after executing the help command successfully is not " +
@@ -1105,7 +1179,7 @@ public class CommandExecutorTest {
     void testExecuteCommandProcessUnknownCommandSuccessfully() {
         Command toProcess = new Command("remove-playlist", new ArrayList<>());
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.UNKNOWN_COMMAND_REPLY.getReply(), result,
             "The received reply from the server after executing unknown command is not " +
@@ -1116,7 +1190,7 @@ public class CommandExecutorTest {
     void testExecuteCommandProcessRegisterCommandSuccessfully() {
         Command toProcess = new Command("register", List.of("sdvelev@outlook.com", "123456"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.REGISTER_COMMAND_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing register command successfully is not " +
@@ -1131,7 +1205,7 @@ public class CommandExecutorTest {
         doThrow(new NoSuchAlgorithmException(ServerReply.REGISTER_COMMAND_ALGORITHM_REPLY.getReply()))
             .when(authenticationServiceMock).register("sdvelev@outlook.com", "123456");
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.REGISTER_COMMAND_ALGORITHM_REPLY.getReply(), result,
             "The received reply from the server after executing register command and algorithm is not " +
@@ -1148,7 +1222,7 @@ public class CommandExecutorTest {
         doThrow(new NotValidEmailFormatException(ServerReply.REGISTER_COMMAND_INVALID_EMAIL_REPLY.getReply()))
             .when(authenticationServiceMock).register("sdvelev@outlook", "123456");
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.REGISTER_COMMAND_INVALID_EMAIL_REPLY.getReply(), result,
             "The received reply from the server after executing register command and email is not " +
@@ -1165,7 +1239,7 @@ public class CommandExecutorTest {
         doThrow(new EmailAlreadyRegisteredException(ServerReply.REGISTER_COMMAND_ALREADY_EXIST_REPLY.getReply()))
             .when(authenticationServiceMock).register("sdvelev@outlook", "123456");
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.REGISTER_COMMAND_ALREADY_EXIST_REPLY.getReply(), result,
             "The received reply from the server after executing register command and email is already " +
@@ -1182,7 +1256,7 @@ public class CommandExecutorTest {
         doThrow(new IODatabaseException(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply()))
             .when(authenticationServiceMock).register("sdvelev@outlook", "123456");
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), result,
             "The received reply from the server after executing register command and there is a problem with " +
@@ -1199,7 +1273,7 @@ public class CommandExecutorTest {
         doThrow(new IndexOutOfBoundsException(ServerReply.SERVER_EXCEPTION.getReply()))
             .when(authenticationServiceMock).register("sdvelev@outlook", "123456");
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SERVER_EXCEPTION.getReply(), result,
             "The received reply from the server after executing register command and there is an unexpected " +
@@ -1212,7 +1286,7 @@ public class CommandExecutorTest {
     void testExecuteCommandProcessLoginCommandSuccessfully() {
         Command toProcess = new Command("login", List.of("sdvelev@outlook.com", "123456"));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.LOGIN_COMMAND_SUCCESSFULLY_REPLY.getReply(), result,
             "The received reply from the server after executing login command successfully is not " +
@@ -1227,7 +1301,7 @@ public class CommandExecutorTest {
         when(authenticationServiceMock.login("sdvelev@outlook.com", "123456"))
             .thenThrow(new NoSuchAlgorithmException(ServerReply.LOGIN_COMMAND_ALGORITHM_REPLY.getReply()));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.LOGIN_COMMAND_ALGORITHM_REPLY.getReply(), result,
             "The received reply from the server after executing login command and algorithm is not " +
@@ -1240,9 +1314,9 @@ public class CommandExecutorTest {
     void testExecuteCommandProcessLoginCommandUserAlreadyLoggedException() {
         Command toProcess = new Command("login", List.of("sdvelev@outlook.com", "123456"));
 
-        when(streamingPlatformMock.getAlreadyLogged()).thenReturn(Set.of(selectionKeyMock));
+        when(sessionMock.isLoggedIn()).thenReturn(true);
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.LOGIN_COMMAND_USER_ALREADY_LOGGED_REPLY.getReply(), result,
             "The received reply from the server after executing login command and user is already " +
@@ -1257,7 +1331,7 @@ public class CommandExecutorTest {
         when(authenticationServiceMock.login("sdvelev@outlook", "123456"))
             .thenThrow(new UserNotFoundException(ServerReply.LOGIN_COMMAND_USER_NOT_EXIST_REPLY.getReply()));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.LOGIN_COMMAND_USER_NOT_EXIST_REPLY.getReply(), result,
             "The received reply from the server after executing login command and user is not " +
@@ -1273,7 +1347,7 @@ public class CommandExecutorTest {
         when(authenticationServiceMock.login("sdvelev@outlook", "123456"))
             .thenThrow(new IODatabaseException(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply()));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply(), result,
             "The received reply from the server after executing login command and there is a problem with " +
@@ -1290,7 +1364,7 @@ public class CommandExecutorTest {
         when(authenticationServiceMock.login("sdvelev@outlook", "123456"))
             .thenThrow(new IndexOutOfBoundsException(ServerReply.SERVER_EXCEPTION.getReply()));
 
-        String result = commandExecutor.executeCommand(toProcess, selectionKeyMock);
+        String result = commandExecutor.executeCommand(toProcess, sessionMock);
 
         assertEquals(ServerReply.SERVER_EXCEPTION.getReply(), result,
             "The received reply from the server after executing login command and there is an unexpected " +
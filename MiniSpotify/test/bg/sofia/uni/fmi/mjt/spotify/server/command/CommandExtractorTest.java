@@ -263,6 +263,18 @@ public class CommandExtractorTest {
             "Actual command keyword argument is not the same as the expected.");
     }
 
+    @Test
+    void testNewCommandFuzzySearchCommandSuccessfully() {
+        String clientInput = "fuzzy-search  bilie eilish";
+
+        Command returnedCommand = newCommand(clientInput);
+
+        assertTrue(returnedCommand.command().equalsIgnoreCase("fuzzy-search"),
+            "Actual command name is not the same as the expected.");
+        assertEquals("bilie eilish", returnedCommand.arguments().get(0),
+            "Actual command keywords argument is not the same as the expected.");
+    }
+
     @Test
     void testNewCommandSearchCommandNoArguments() {
         String clientInput = "search";
@@ -0,0 +1,257 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerConfiguration;
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerReply;
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPool;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Frame;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameCodec;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameReader;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClientConnectionTest {
+
+    private static final String HOST = "localhost";
+    private static final long LOW_WATER_MARK = 16 * 1024;
+    private static final long HIGH_WATER_MARK = 64 * 1024;
+    private static final int REPLY_SIZE = 32 * 1024;
+    private static final int NUMBER_OF_REPLIES = 64;
+    private static final int SOCKET_BUFFER_SIZE = 8 * 1024;
+    private static final long BUFFER_POOL_CAPACITY = 1L << 20;
+    private static final int TRUNCATED_FILE_SIZE = 1024;
+
+    private ServerSocketChannel serverSocketChannel;
+    private SocketChannel clientSide;
+    private SocketChannel serverSide;
+    private ClientConnection clientConnection;
+
+    @BeforeEach
+    void setTests() throws IOException {
+        serverSocketChannel = ServerSocketChannel.open().bind(new InetSocketAddress(HOST, 0));
+        clientSide = SocketChannel.open();
+        clientSide.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER_SIZE);
+        clientSide.connect(serverSocketChannel.getLocalAddress());
+        serverSide = serverSocketChannel.accept();
+        serverSide.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_SIZE);
+        serverSide.configureBlocking(false);
+
+        ServerConfiguration configuration = new ServerConfiguration()
+            .outboundWaterMarks(LOW_WATER_MARK, HIGH_WATER_MARK)
+            .maxPendingCommands(1);
+        clientConnection = new ClientConnection(serverSide, Runnable::run, configuration);
+    }
+
+    @AfterEach
+    void setTestsCleaning() throws IOException {
+        clientSide.close();
+        serverSide.close();
+        serverSocketChannel.close();
+    }
+
+    @Test
+    void testFlushKeepsUnwrittenBytesQueuedForSlowReader() throws IOException {
+        for (int i = 0; i < NUMBER_OF_REPLIES; i++) {
+            clientConnection.enqueue(Frame.of(FrameType.REPLY, "x".repeat(REPLY_SIZE)));
+        }
+
+        assertFalse(clientConnection.flush(), "The replies cannot fit in the socket buffers of a client " +
+            "which does not read.");
+        assertTrue(clientConnection.hasPendingOutput(), "The unwritten replies must stay queued.");
+        assertTrue(clientConnection.getPendingOutputBytes() > 0, "The unwritten bytes must be accounted.");
+    }
+
+    @Test
+    void testCanAcceptInputStopsAboveHighWaterMarkAndResumesBelowLowWaterMark()
+        throws IOException, MalformedFrameException {
+        for (int i = 0; i < NUMBER_OF_REPLIES; i++) {
+            clientConnection.enqueue(Frame.of(FrameType.REPLY, "x".repeat(REPLY_SIZE)));
+        }
+        clientConnection.flush();
+
+        assertFalse(clientConnection.canAcceptInput(), "Reading must stop above the high-water mark.");
+
+        FrameReader frameReader = new FrameReader();
+        int receivedReplies = 0;
+        while (receivedReplies < NUMBER_OF_REPLIES) {
+            clientConnection.flush();
+            frameReader.readFrom(clientSide);
+            while (frameReader.nextFrame() != null) {
+                receivedReplies++;
+            }
+        }
+
+        assertEquals(0, clientConnection.getPendingOutputBytes(), "All queued bytes must be written eventually.");
+        assertTrue(clientConnection.canAcceptInput(), "Reading must resume once the output has drained.");
+    }
+
+    @Test
+    void testCanAcceptInputStopsWhileTooManyCommandsArePending() throws InterruptedException {
+        CountDownLatch releaseCommand = new CountDownLatch(1);
+        Thread worker = new Thread(() -> clientConnection.executeInOrder(() -> {
+            try {
+                releaseCommand.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Frame.of(FrameType.REPLY, "done");
+        }));
+        worker.start();
+
+        while (clientConnection.canAcceptInput()) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+
+        releaseCommand.countDown();
+        worker.join();
+
+        assertTrue(clientConnection.canAcceptInput(), "Reading must resume once the pending command completes.");
+        assertTrue(clientConnection.hasPendingOutput(), "The reply of the completed command must be queued.");
+    }
+
+    @Test
+    void testAudioConnectionIsDataChannelWhileItIsAttached() {
+        ClientConnection dataConnection = new ClientConnection(clientSide, Runnable::run, new ServerConfiguration());
+
+        assertSame(clientConnection, clientConnection.getAudioConnection(),
+            "Audio must go over the control connection while there is no data channel.");
+        assertTrue(clientConnection.attachDataConnection(dataConnection), "The data channel must be attached.");
+        assertSame(dataConnection, clientConnection.getAudioConnection(),
+            "Audio must go over the attached data channel.");
+        assertFalse(clientConnection.attachDataConnection(dataConnection),
+            "A second data channel cannot be attached while the first one is open.");
+
+        dataConnection.detach();
+        assertSame(clientConnection, clientConnection.getAudioConnection(),
+            "Audio must fall back to the control connection once the data channel is closed.");
+    }
+
+    @Test
+    void testPooledBuffersAreReturnedOnceConnectionIsQuiet() throws IOException, MalformedFrameException {
+        BufferPool bufferPool = new BufferPool(BUFFER_POOL_CAPACITY);
+        ClientConnection pooledConnection = new ClientConnection(serverSide, Runnable::run,
+            new ServerConfiguration(), bufferPool);
+
+        pooledConnection.send(Frame.of(FrameType.REPLY, "reply"));
+        assertTrue(bufferPool.getStatistics().leasedBytes() > 0, "A queued reply must hold a pooled buffer.");
+        assertTrue(pooledConnection.flush(), "A short reply must be written at once.");
+        assertEquals(0, bufferPool.getStatistics().leasedBytes(), "A written reply must return its buffer.");
+
+        ByteBuffer command = FrameCodec.encode(Frame.of(FrameType.COMMAND, "help"));
+        clientSide.write(command);
+
+        List<Frame> frames;
+        do {
+            frames = pooledConnection.readFrames();
+        } while (frames.isEmpty());
+
+        assertEquals("help", frames.getFirst().text(), "The command must be read through the pooled buffer.");
+        assertEquals(0, bufferPool.getStatistics().leasedBytes(), "The read buffer must be returned once it " +
+            "holds no partial frame.");
+    }
+
+    @Test
+    void testOutputSentAfterCloseHoldsNoPooledBuffer() throws IOException {
+        BufferPool bufferPool = new BufferPool(BUFFER_POOL_CAPACITY);
+        ClientConnection pooledConnection = new ClientConnection(serverSide, Runnable::run,
+            new ServerConfiguration(), bufferPool);
+
+        serverSide.close();
+        pooledConnection.releaseBuffers();
+        pooledConnection.send(Frame.of(FrameType.REPLY, "reply"));
+
+        assertFalse(pooledConnection.hasPendingOutput(), "Output sent after close must not be queued.");
+        assertEquals(0, bufferPool.getStatistics().leasedBytes(), "Output sent after close must not keep " +
+            "a pooled buffer.");
+    }
+
+    @Test
+    void testFileRegionBeyondEndOfFileFailsFlush() throws IOException {
+        Path songPath = Files.createTempFile("song", ".wav");
+        try (FileChannel file = FileChannel.open(songPath, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            file.write(ByteBuffer.allocate(TRUNCATED_FILE_SIZE));
+            clientConnection.sendFileRegion(FrameType.AUDIO_DATA, file, 0, TRUNCATED_FILE_SIZE * 2);
+
+            assertThrows(EOFException.class, () -> {
+                while (!clientConnection.flush()) {
+                    clientSide.read(ByteBuffer.allocate(SOCKET_BUFFER_SIZE));
+                }
+            }, "EOFException is expected but not thrown.");
+        } finally {
+            Files.delete(songPath);
+        }
+    }
+
+    @Test
+    void testReplyRenderedOverSeveralBuffersArrivesAsOneFrame() throws IOException, MalformedFrameException {
+        BufferPool bufferPool = new BufferPool(BUFFER_POOL_CAPACITY);
+        ClientConnection pooledConnection = new ClientConnection(serverSide, Runnable::run,
+            new ServerConfiguration().compressionEnabled(false), bufferPool);
+        String line = "Заглавие: Main title" + System.lineSeparator();
+
+        pooledConnection.send(Frame.of(FrameType.REPLY, "first"));
+        pooledConnection.replyInOrder(replyWriter -> {
+            for (int i = 0; i < REPLY_SIZE / line.length(); i++) {
+                replyWriter.append(line);
+            }
+        });
+
+        FrameReader frameReader = new FrameReader();
+        List<Frame> frames = new ArrayList<>();
+        clientSide.configureBlocking(false);
+        while (frames.size() < 2) {
+            pooledConnection.flush();
+            frameReader.readFrom(clientSide);
+
+            Frame frame;
+            while ((frame = frameReader.nextFrame()) != null) {
+                frames.add(frame);
+            }
+        }
+
+        assertEquals("first", frames.get(0).text(), "Replies must keep their order.");
+        assertEquals(line.repeat(REPLY_SIZE / line.length()), frames.get(1).text(),
+            "A reply spread over several buffers must arrive whole, as UTF-8.");
+        assertEquals(0, bufferPool.getStatistics().leasedBytes(), "A written reply must return all its buffers.");
+    }
+
+    @Test
+    void testReplyTooLargeForFrameIsAnsweredWithError() throws IOException, MalformedFrameException {
+        clientConnection.replyInOrder(replyWriter -> replyWriter.append("x".repeat(FrameCodec.MAX_PAYLOAD_SIZE + 1)));
+
+        FrameReader frameReader = new FrameReader();
+        clientSide.configureBlocking(false);
+        Frame reply;
+        do {
+            clientConnection.flush();
+            frameReader.readFrom(clientSide);
+        } while ((reply = frameReader.nextFrame()) == null);
+
+        assertEquals(ServerReply.REPLY_TOO_LARGE_REPLY.getReply(), reply.text(),
+            "A reply too large for a frame must be replaced by an error the client can read.");
+    }
+}
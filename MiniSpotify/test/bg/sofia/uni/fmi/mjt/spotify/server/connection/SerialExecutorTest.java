@@ -0,0 +1,81 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class SerialExecutorTest {
+
+    private static final String OWNER_THREAD_NAME = "owner";
+
+    private final ExecutorService sharedWorkers = Executors.newFixedThreadPool(4);
+    private final ExecutorService owner = Executors.newSingleThreadExecutor(runnable ->
+        new Thread(runnable, OWNER_THREAD_NAME));
+
+    @AfterEach
+    void setTestsCleaning() {
+        sharedWorkers.shutdown();
+        owner.shutdown();
+    }
+
+    @Test
+    void testTasksRunInSubmissionOrder() throws Exception {
+        SerialExecutor serialExecutor = new SerialExecutor(sharedWorkers);
+        List<Integer> order = new ArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        for (int i = 0; i < 100; i++) {
+            int current = i;
+            serialExecutor.execute(() -> order.add(current), () -> current % 2 == 0 ? owner : null);
+        }
+        serialExecutor.execute(() -> done.complete(null));
+        done.get(5, TimeUnit.SECONDS);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(i);
+        }
+        assertIterableEquals(expected, order, "Tasks must run in the order they were submitted.");
+    }
+
+    @Test
+    void testExecutorIsPickedOnceThePreviousTasksHaveRun() throws Exception {
+        SerialExecutor serialExecutor = new SerialExecutor(sharedWorkers);
+        AtomicReference<ExecutorService> signedIn = new AtomicReference<>();
+        CompletableFuture<String> threadName = new CompletableFuture<>();
+
+        serialExecutor.execute(() -> signedIn.set(owner));
+        serialExecutor.execute(() -> threadName.complete(Thread.currentThread().getName()), signedIn::get);
+
+        assertEquals(OWNER_THREAD_NAME, threadName.get(5, TimeUnit.SECONDS),
+            "The executor of a task must be picked after the task before it has run, not when it is submitted.");
+    }
+
+    @Test
+    void testRejectedTaskIsReportedAndDoesNotStallTheQueue() throws Exception {
+        AtomicReference<RejectedExecutionException> rejection = new AtomicReference<>();
+        SerialExecutor serialExecutor = new SerialExecutor(sharedWorkers);
+        serialExecutor.setRejectionHandler(rejection::set);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        serialExecutor.execute(() -> { }, () -> runnable -> {
+            throw new RejectedExecutionException();
+        });
+        serialExecutor.execute(() -> done.complete(null));
+
+        assertNotNull(rejection.get(), "The rejection of a task must be handed to the rejection handler.");
+        done.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,125 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimingWheelTest {
+
+    private static final Duration TICK = Duration.ofMillis(10);
+    private static final long TICK_NANOS = TICK.toNanos();
+    private static final int WHEEL_SIZE = 8;
+
+    @Test
+    void testAdvanceExpiresOnlyDueTimeouts() {
+        TimingWheel<String> timingWheel = new TimingWheel<>(TICK, WHEEL_SIZE, 0);
+        timingWheel.schedule("first", 3 * TICK_NANOS);
+        timingWheel.schedule("second", 5 * TICK_NANOS);
+
+        List<String> expired = new ArrayList<>();
+        timingWheel.advance(4 * TICK_NANOS, expired::add);
+
+        assertEquals(List.of("first"), expired, "Only the timeouts due by now must expire.");
+        assertEquals(1, timingWheel.size(), "The timeout which is not due must stay scheduled.");
+
+        timingWheel.advance(5 * TICK_NANOS, expired::add);
+        assertEquals(List.of("first", "second"), expired, "The second timeout must expire on its tick.");
+        assertTrue(timingWheel.isEmpty(), "Expired timeouts must be removed from the wheel.");
+    }
+
+    @Test
+    void testAdvanceKeepsTimeoutsOfLaterRotations() {
+        TimingWheel<String> timingWheel = new TimingWheel<>(TICK, WHEEL_SIZE, 0);
+        timingWheel.schedule("later", (WHEEL_SIZE * 2 + 1) * TICK_NANOS);
+
+        List<String> expired = new ArrayList<>();
+        timingWheel.advance((WHEEL_SIZE + 1) * TICK_NANOS, expired::add);
+        assertTrue(expired.isEmpty(), "A timeout sharing a bucket with an elapsed tick must wait for its rotation.");
+
+        timingWheel.advance((WHEEL_SIZE * 2 + 1) * TICK_NANOS, expired::add);
+        assertEquals(List.of("later"), expired, "The timeout must expire once its rotation comes.");
+    }
+
+    @Test
+    void testAdvanceOverMoreThanOneRotationExpiresEverythingDue() {
+        TimingWheel<Integer> timingWheel = new TimingWheel<>(TICK, WHEEL_SIZE, 0);
+        for (int i = 1; i <= WHEEL_SIZE * 3; i++) {
+            timingWheel.schedule(i, i * TICK_NANOS);
+        }
+
+        List<Integer> expired = new ArrayList<>();
+        timingWheel.advance(WHEEL_SIZE * 3 * TICK_NANOS, expired::add);
+
+        assertEquals(WHEEL_SIZE * 3, expired.size(), "Every timeout due must expire even when the wheel has " +
+            "not been advanced for several rotations.");
+        assertTrue(timingWheel.isEmpty(), "The wheel must be empty once everything has expired.");
+    }
+
+    @Test
+    void testCancelledTimeoutDoesNotExpire() {
+        TimingWheel<String> timingWheel = new TimingWheel<>(TICK, WHEEL_SIZE, 0);
+        TimingWheel.Timeout<String> cancelled = timingWheel.schedule("cancelled", 2 * TICK_NANOS);
+        timingWheel.schedule("kept", 2 * TICK_NANOS);
+
+        cancelled.cancel();
+        cancelled.cancel();
+
+        List<String> expired = new ArrayList<>();
+        timingWheel.advance(2 * TICK_NANOS, expired::add);
+
+        assertEquals(List.of("kept"), expired, "A cancelled timeout must not expire.");
+        assertFalse(cancelled.isPending(), "A cancelled timeout must not be pending.");
+    }
+
+    @Test
+    void testPastDeadlineExpiresOnNextTick() {
+        TimingWheel<String> timingWheel = new TimingWheel<>(TICK, WHEEL_SIZE, 0);
+        timingWheel.advance(5 * TICK_NANOS, value -> { });
+        timingWheel.schedule("late", TICK_NANOS);
+
+        List<String> expired = new ArrayList<>();
+        timingWheel.advance(5 * TICK_NANOS, expired::add);
+        assertTrue(expired.isEmpty(), "A timeout must not expire before the wheel moves on.");
+
+        timingWheel.advance(6 * TICK_NANOS, expired::add);
+        assertEquals(List.of("late"), expired, "A deadline in the past must expire on the next tick.");
+    }
+
+    @Test
+    void testExpiredConsumerCanScheduleAgain() {
+        TimingWheel<String> timingWheel = new TimingWheel<>(TICK, WHEEL_SIZE, 0);
+        timingWheel.schedule("periodic", TICK_NANOS);
+
+        List<String> expired = new ArrayList<>();
+        timingWheel.advance(TICK_NANOS, value -> {
+            expired.add(value);
+            timingWheel.schedule(value, 3 * TICK_NANOS);
+        });
+        timingWheel.advance(3 * TICK_NANOS, expired::add);
+
+        assertEquals(List.of("periodic", "periodic"), expired, "A timeout scheduled on expiry must expire again.");
+    }
+
+    @Test
+    void testMillisUntilNextTick() {
+        TimingWheel<String> timingWheel = new TimingWheel<>(TICK, WHEEL_SIZE, 0);
+        assertEquals(0, timingWheel.millisUntilNextTick(0), "An empty wheel must let its owner block.");
+
+        timingWheel.schedule("timeout", 4 * TICK_NANOS);
+        assertEquals(TICK.toMillis() - 3, timingWheel.millisUntilNextTick(Duration.ofMillis(3).toNanos()),
+            "The owner must wake up at the next tick.");
+    }
+
+    @Test
+    void testWheelSizeMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<>(TICK, 6, 0),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+}
@@ -0,0 +1,51 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.connection;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenBucketTest {
+
+    private static final long ONE_SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void testTryConsumeAllowsBurstUpToCapacity() {
+        TokenBucket tokenBucket = new TokenBucket(10, 1, 0);
+
+        assertTrue(tokenBucket.tryConsume(5, 0), "A command within the burst must be admitted.");
+        assertTrue(tokenBucket.tryConsume(5, 0), "A command using up the burst must be admitted.");
+        assertFalse(tokenBucket.tryConsume(1, 0), "A command above the burst must be refused.");
+    }
+
+    @Test
+    void testTryConsumeRefusedCommandTakesNothing() {
+        TokenBucket tokenBucket = new TokenBucket(10, 1, 0);
+        tokenBucket.tryConsume(8, 0);
+
+        assertFalse(tokenBucket.tryConsume(5, 0), "A command costing more than what is left must be refused.");
+        assertEquals(2, tokenBucket.getAvailableTokens(0), 1e-9,
+            "A refused command must not take any tokens.");
+    }
+
+    @Test
+    void testBucketRefillsAtRateAndNeverAboveCapacity() {
+        TokenBucket tokenBucket = new TokenBucket(10, 4, 0);
+        tokenBucket.tryConsume(10, 0);
+
+        assertEquals(2, tokenBucket.getAvailableTokens(ONE_SECOND / 2), 1e-9,
+            "The bucket must refill at its rate.");
+        assertEquals(10, tokenBucket.getAvailableTokens(ONE_SECOND * 60), 1e-9,
+            "The bucket must not refill above its capacity.");
+    }
+
+    @Test
+    void testBucketRequiresPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(10, 0, 0),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+}
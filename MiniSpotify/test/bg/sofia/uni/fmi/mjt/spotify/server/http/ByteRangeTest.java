@@ -0,0 +1,67 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ByteRangeTest {
+
+    private static final long LENGTH = 1000;
+
+    @Test
+    void testParseWithoutHeaderReturnsWholeResource() {
+        assertTrue(ByteRange.parse(null, LENGTH).isFull(LENGTH), "A request without a range must get everything.");
+    }
+
+    @Test
+    void testParseBoundedRange() {
+        assertEquals(new ByteRange(100, 199), ByteRange.parse("bytes=100-199", LENGTH),
+            "Both ends of a range must be inclusive.");
+    }
+
+    @Test
+    void testParseOpenEndedRangeEndsAtLastByte() {
+        assertEquals(new ByteRange(900, LENGTH - 1), ByteRange.parse("bytes=900-", LENGTH),
+            "An open-ended range must run to the end of the resource.");
+    }
+
+    @Test
+    void testParseSuffixRange() {
+        assertEquals(new ByteRange(LENGTH - 10, LENGTH - 1), ByteRange.parse("bytes=-10", LENGTH),
+            "A suffix range must select the last bytes of the resource.");
+        assertEquals(ByteRange.full(LENGTH), ByteRange.parse("bytes=-5000", LENGTH),
+            "A suffix longer than the resource must select all of it.");
+    }
+
+    @Test
+    void testParseClampsEndToResource() {
+        assertEquals(new ByteRange(500, LENGTH - 1), ByteRange.parse("bytes=500-5000", LENGTH),
+            "A range ending beyond the resource must end at its last byte.");
+    }
+
+    @Test
+    void testParseRangeBeyondResourceIsUnsatisfiable() {
+        assertNull(ByteRange.parse("bytes=1000-1100", LENGTH), "A range starting after the end is unsatisfiable.");
+        assertNull(ByteRange.parse("bytes=-0", LENGTH), "An empty suffix range is unsatisfiable.");
+    }
+
+    @Test
+    void testParseIgnoresRangesItCannotServe() {
+        assertEquals(ByteRange.full(LENGTH), ByteRange.parse("bytes=0-1,5-6", LENGTH),
+            "Multiple ranges must be answered with the whole resource.");
+        assertEquals(ByteRange.full(LENGTH), ByteRange.parse("bytes=20-10", LENGTH),
+            "A range whose end precedes its start must be ignored.");
+        assertEquals(ByteRange.full(LENGTH), ByteRange.parse("items=0-10", LENGTH),
+            "A range in another unit must be ignored.");
+        assertEquals(ByteRange.full(LENGTH), ByteRange.parse("bytes=a-b", LENGTH),
+            "A malformed range must be ignored.");
+    }
+
+    @Test
+    void testToContentRange() {
+        assertEquals("bytes 100-199/1000", new ByteRange(100, 199).toContentRange(LENGTH),
+            "The content range must name both ends and the length of the resource.");
+    }
+}
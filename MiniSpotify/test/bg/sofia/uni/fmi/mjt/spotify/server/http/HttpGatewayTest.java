@@ -0,0 +1,250 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.http;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerConfiguration;
+import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.PlaylistAlreadyExistException;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.UserNotFoundException;
+import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.AuthenticationService;
+import bg.sofia.uni.fmi.mjt.spotify.server.login.User;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.Song;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class HttpGatewayTest {
+
+    private static final String EMAIL = "user@gmail.com";
+    private static final String PASSWORD = "password";
+    private static final String SONG_TITLE = "Main Title";
+    private static final int SONG_SIZE = 4096;
+
+    @Mock
+    private StreamingPlatform streamingPlatformMock;
+
+    @Mock
+    private AuthenticationService authenticationServiceMock;
+
+    @Mock
+    private SpotifyLogger spotifyLoggerMock;
+
+    @TempDir
+    private Path musicDirectory;
+
+    private HttpGateway httpGateway;
+    private HttpClient httpClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        httpGateway = new HttpGateway(new ServerConfiguration().httpPort(0), streamingPlatformMock,
+            authenticationServiceMock, spotifyLoggerMock);
+        httpGateway.start();
+        httpClient = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpGateway.stop();
+    }
+
+    @Test
+    void testSearchRepliesWithMatchingSongsAsJson() throws Exception {
+        when(streamingPlatformMock.searchSongs("main title"))
+            .thenReturn(List.of(new SongEntity(new Song(SONG_TITLE, "Hans Zimmer", 200, "soundtrack"), 3)));
+
+        HttpResponse<String> response = send(request("/api/songs/search?q=main%20title").GET());
+
+        assertEquals(HttpExchanges.OK, response.statusCode(), "A search must succeed.");
+        assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("application/json"),
+            "The songs must be sent as JSON.");
+        assertTrue(response.body().contains("\"title\":\"Main Title\"") &&
+            response.body().contains("\"listeningTimes\":3"), "The reply must describe the matching songs.");
+    }
+
+    @Test
+    void testSearchWithoutWordIsBadRequest() throws Exception {
+        assertEquals(HttpExchanges.BAD_REQUEST, send(request("/api/songs/search").GET()).statusCode(),
+            "A search without a word must be rejected.");
+        verifyNoInteractions(streamingPlatformMock);
+    }
+
+    @Test
+    void testTopWithInvalidCountIsBadRequest() throws Exception {
+        assertEquals(HttpExchanges.BAD_REQUEST, send(request("/api/songs/top?n=-2").GET()).statusCode(),
+            "A negative count must be rejected.");
+        verifyNoInteractions(streamingPlatformMock);
+    }
+
+    @Test
+    void testPlaylistsRequireCredentials() throws Exception {
+        HttpResponse<String> response = send(request("/api/playlists").GET());
+
+        assertEquals(HttpExchanges.UNAUTHORIZED, response.statusCode(), "Playlists must not be served anonymously.");
+        assertTrue(response.headers().firstValue("WWW-Authenticate").isPresent(),
+            "The client must be challenged for credentials.");
+    }
+
+    @Test
+    void testPlaylistsWithWrongCredentialsAreUnauthorized() throws Exception {
+        when(authenticationServiceMock.login(EMAIL, PASSWORD)).thenThrow(new UserNotFoundException("No such user."));
+
+        assertEquals(HttpExchanges.UNAUTHORIZED, send(authorized("/api/playlists").GET()).statusCode(),
+            "Unknown credentials must be rejected.");
+    }
+
+    @Test
+    void testCreatePlaylistLogsInAndCreatesIt() throws Exception {
+        when(authenticationServiceMock.login(EMAIL, PASSWORD)).thenReturn(new User(EMAIL, PASSWORD));
+
+        HttpResponse<String> response =
+            send(authorized("/api/playlists/Road%20Trip").PUT(HttpRequest.BodyPublishers.noBody()));
+
+        ArgumentCaptor<Session> session = ArgumentCaptor.forClass(Session.class);
+        verify(streamingPlatformMock).createPlaylist(eq("Road Trip"), session.capture());
+        assertEquals(HttpExchanges.CREATED, response.statusCode(), "A new playlist must be reported as created.");
+        assertEquals(EMAIL, session.getValue().getUser().getEmail(),
+            "The playlist must be created for the user of the credentials.");
+    }
+
+    @Test
+    void testCreateExistingPlaylistIsConflict() throws Exception {
+        when(authenticationServiceMock.login(EMAIL, PASSWORD)).thenReturn(new User(EMAIL, PASSWORD));
+        doThrow(new PlaylistAlreadyExistException("The playlist already exists.")).when(streamingPlatformMock)
+            .createPlaylist(eq("Road Trip"), any());
+
+        HttpResponse<String> response =
+            send(authorized("/api/playlists/Road%20Trip").PUT(HttpRequest.BodyPublishers.noBody()));
+
+        assertEquals(HttpExchanges.CONFLICT, response.statusCode(), "An existing playlist must be a conflict.");
+        assertEquals("{\"error\":\"The playlist already exists.\"}", response.body(),
+            "The error must carry the message of the platform.");
+    }
+
+    @Test
+    void testAddSongToPlaylist() throws Exception {
+        when(authenticationServiceMock.login(EMAIL, PASSWORD)).thenReturn(new User(EMAIL, PASSWORD));
+
+        HttpResponse<String> response = send(authorized("/api/playlists/Road%20Trip/songs/Main%20Title")
+            .PUT(HttpRequest.BodyPublishers.noBody()));
+
+        verify(streamingPlatformMock).addSongToPlaylist(eq("Road Trip"), eq(SONG_TITLE), any());
+        assertEquals(HttpExchanges.NO_CONTENT, response.statusCode(), "Adding a song must succeed.");
+    }
+
+    @Test
+    void testAudioWithoutRangeServesWholeSong() throws Exception {
+        byte[] song = givenSong();
+
+        HttpResponse<byte[]> response = sendForBytes(request("/audio/Main%20Title").GET());
+
+        assertEquals(HttpExchanges.OK, response.statusCode(), "The whole song must be served.");
+        assertArrayEquals(song, response.body(), "The song must be served byte for byte.");
+        assertEquals("bytes", response.headers().firstValue("Accept-Ranges").orElseThrow(),
+            "The client must learn that it can seek.");
+    }
+
+    @Test
+    void testAudioRangeServesPartialContent() throws Exception {
+        byte[] song = givenSong();
+
+        HttpResponse<byte[]> response = sendForBytes(request("/audio/Main%20Title")
+            .header("Range", "bytes=1000-1999").GET());
+
+        assertEquals(HttpExchanges.PARTIAL_CONTENT, response.statusCode(), "A range must be served partially.");
+        assertEquals("bytes 1000-1999/" + SONG_SIZE, response.headers().firstValue("Content-Range").orElseThrow(),
+            "The reply must say which part of the song it carries.");
+        assertArrayEquals(Arrays.copyOfRange(song, 1000, 2000), response.body(),
+            "Exactly the requested bytes must be served.");
+    }
+
+    @Test
+    void testAudioRangeBeyondSongIsNotSatisfiable() throws Exception {
+        givenSong();
+
+        HttpResponse<byte[]> response = sendForBytes(request("/audio/Main%20Title")
+            .header("Range", "bytes=" + SONG_SIZE + "-").GET());
+
+        assertEquals(HttpExchanges.RANGE_NOT_SATISFIABLE, response.statusCode(),
+            "A range after the end of the song cannot be served.");
+        assertEquals("bytes */" + SONG_SIZE, response.headers().firstValue("Content-Range").orElseThrow(),
+            "The reply must tell the length of the song.");
+    }
+
+    @Test
+    void testAudioWithMatchingETagIsNotModified() throws Exception {
+        givenSong();
+
+        String etag = sendForBytes(request("/audio/Main%20Title").method("HEAD", HttpRequest.BodyPublishers.noBody()))
+            .headers().firstValue("ETag").orElseThrow();
+        HttpResponse<byte[]> response = sendForBytes(request("/audio/Main%20Title")
+            .header("If-None-Match", etag).GET());
+
+        assertEquals(HttpExchanges.NOT_MODIFIED, response.statusCode(), "A cached song must not be sent again.");
+    }
+
+    @Test
+    void testAudioOfUnknownSongIsNotFound() throws Exception {
+        when(streamingPlatformMock.getSongPath("Unknown")).thenReturn(null);
+
+        assertEquals(HttpExchanges.NOT_FOUND, sendForBytes(request("/audio/Unknown").GET()).statusCode(),
+            "An unknown song must not be found.");
+    }
+
+    private byte[] givenSong() throws IOException {
+        byte[] song = new byte[SONG_SIZE];
+        for (int i = 0; i < song.length; i++) {
+            song[i] = (byte) i;
+        }
+
+        Path songPath = Files.write(musicDirectory.resolve("song.wav"), song);
+        when(streamingPlatformMock.getSongPath(SONG_TITLE)).thenReturn(songPath);
+        return song;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + httpGateway.getPort() + path));
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return request(path).header("Authorization", "Basic " +
+            Base64.getEncoder().encodeToString((EMAIL + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<byte[]> sendForBytes(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -0,0 +1,200 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.player;
+
+import bg.sofia.uni.fmi.mjt.spotify.client.AudioReceiver;
+import bg.sofia.uni.fmi.mjt.spotify.client.CapturingAudioOutput;
+import bg.sofia.uni.fmi.mjt.spotify.client.ServerListener;
+import bg.sofia.uni.fmi.mjt.spotify.server.ServerConfiguration;
+import bg.sofia.uni.fmi.mjt.spotify.server.connection.ClientConnection;
+import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Event;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.EventType;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.FrameReader;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.SongFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+public class ConnectionAudioSinkTest {
+
+    private static final String HOST = "localhost";
+    private static final String SONG_NAME = "Hans Zimmer_The Crown - Main title";
+    private static final String SONG_PATH = "data" + File.separator + "music" + File.separator + SONG_NAME + ".wav";
+    private static final Duration UNPACED = Duration.ofDays(1);
+
+    @Mock
+    SpotifyLogger spotifyLoggerMock;
+
+    private ServerSocketChannel serverSocketChannel;
+    private SocketChannel clientSide;
+    private SocketChannel serverSide;
+    private ClientConnection clientConnection;
+
+    @BeforeEach
+    void setTests() throws IOException {
+        serverSocketChannel = ServerSocketChannel.open().bind(new InetSocketAddress(HOST, 0));
+        clientSide = SocketChannel.open(serverSocketChannel.getLocalAddress());
+        serverSide = serverSocketChannel.accept();
+
+        clientConnection = new ClientConnection(serverSide, Runnable::run, new ServerConfiguration());
+        clientConnection.bindWriteRequest(this::flushConnection);
+    }
+
+    @AfterEach
+    void setTestsCleaning() throws IOException {
+        clientSide.close();
+        serverSide.close();
+        serverSocketChannel.close();
+    }
+
+    @Test
+    void testStreamedSongIsReceivedByClient()
+        throws InterruptedException, IOException, UnsupportedAudioFileException {
+        CapturingAudioOutput output = new CapturingAudioOutput();
+
+        try (AudioReceiver audioReceiver = new AudioReceiver(output)) {
+            Thread listenerThread = new Thread(new ServerListener(clientSide, new FrameReader(), audioReceiver));
+            listenerThread.start();
+
+            PlaySongThread playSongThread = new PlaySongThread(SONG_NAME, new Session(clientConnection),
+                spotifyLoggerMock, new ConnectionAudioSink(clientConnection, UNPACED));
+            playSongThread.start();
+            playSongThread.join();
+
+            assertTrue(output.getEnded().await(30, TimeUnit.SECONDS), "The whole song must reach the client.");
+        }
+
+        try (AudioInputStream expected = readAsSignedPcm()) {
+            assertEquals(expected.getFormat().toString(), output.getFormat().toString(),
+                "The client must play the song in its format.");
+            assertArrayEquals(expected.readAllBytes(), output.getPlayed(),
+                "The client must receive exactly the PCM data of the song.");
+        }
+        assertTrue(output.isFinished(), "The song must be reported as finished.");
+    }
+
+    @Test
+    void testTransferredSongFileIsReceivedByClient()
+        throws InterruptedException, IOException, UnsupportedAudioFileException {
+        CapturingAudioOutput output = new CapturingAudioOutput();
+
+        try (AudioReceiver audioReceiver = new AudioReceiver(output);
+             SongFile songFile = SongFile.ingest(Path.of(SONG_PATH))) {
+            Thread listenerThread = new Thread(new ServerListener(clientSide, new FrameReader(), audioReceiver));
+            listenerThread.start();
+
+            PlaySongThread playSongThread = new PlaySongThread(SONG_NAME, new Session(clientConnection),
+                spotifyLoggerMock, new ConnectionAudioSink(clientConnection, UNPACED), songFile);
+            playSongThread.start();
+            playSongThread.join();
+
+            assertTrue(output.getEnded().await(30, TimeUnit.SECONDS), "The whole song must reach the client.");
+        }
+
+        try (AudioInputStream expected = AudioSystem.getAudioInputStream(new File(SONG_PATH))) {
+            assertEquals(expected.getFormat().toString(), output.getFormat().toString(),
+                "The client must play the song in its stored format.");
+            assertArrayEquals(expected.readAllBytes(), output.getPlayed(),
+                "The client must receive exactly the PCM data stored in the file.");
+        }
+        assertTrue(output.isFinished(), "The song must be reported as finished.");
+    }
+
+    @Test
+    void testTrackEventsArePushedToClientWhichReceivesEvents()
+        throws InterruptedException, IOException {
+        BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+        clientConnection.enableEvents();
+
+        try (AudioReceiver audioReceiver = new AudioReceiver(new CapturingAudioOutput())) {
+            Thread listenerThread = new Thread(new ServerListener(clientSide, new FrameReader(), audioReceiver,
+                events::add));
+            listenerThread.start();
+
+            PlaySongThread playSongThread = new PlaySongThread(SONG_NAME, new Session(clientConnection),
+                spotifyLoggerMock, new ConnectionAudioSink(clientConnection, UNPACED));
+            playSongThread.start();
+            playSongThread.join();
+
+            assertEquals(new Event(EventType.TRACK_STARTED, SONG_NAME), events.poll(30, TimeUnit.SECONDS),
+                "The client must be told when the song starts.");
+            assertEquals(new Event(EventType.TRACK_FINISHED, SONG_NAME), events.poll(30, TimeUnit.SECONDS),
+                "The client must be told when the song finishes, without sending a command.");
+        }
+    }
+
+    @Test
+    void testWriteIsPacedToPlaybackRate() throws IOException, LineUnavailableException {
+        ConnectionAudioSink audioSink = new ConnectionAudioSink(clientConnection, Duration.ZERO);
+        AudioFormat format = new AudioFormat(1000, 8, 1, true, false);
+
+        Thread drainer = new Thread(this::drainClientSide);
+        drainer.setDaemon(true);
+        drainer.start();
+
+        long start = System.nanoTime();
+        audioSink.open(format);
+        audioSink.write(new byte[500], 0, 500);
+        audioSink.write(new byte[1], 0, 1);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        audioSink.close(true);
+
+        assertTrue(elapsedMillis >= 450, "Half a second of audio must not be sent faster than it is played.");
+    }
+
+    private AudioInputStream readAsSignedPcm() throws IOException, UnsupportedAudioFileException {
+        AudioInputStream stream = AudioSystem.getAudioInputStream(new File(SONG_PATH));
+        AudioFormat format = stream.getFormat();
+
+        return AudioSystem.getAudioInputStream(new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
+            format.getSampleRate(), format.getSampleSizeInBits(), format.getChannels(), format.getFrameSize(),
+            format.getFrameRate(), true), stream);
+    }
+
+    private void flushConnection() {
+        try {
+            synchronized (clientConnection) {
+                clientConnection.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drainClientSide() {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            while (clientSide.read(buffer.clear()) >= 0) {
+                // Discard
+            }
+        } catch (IOException e) {
+            // The test has finished
+        }
+    }
+}
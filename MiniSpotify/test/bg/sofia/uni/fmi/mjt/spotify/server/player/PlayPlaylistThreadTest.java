@@ -9,6 +9,9 @@ import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.SpotifyException;
 import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.UserNotLoggedException;
 import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
 import bg.sofia.uni.fmi.mjt.spotify.server.login.User;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.Event;
+import bg.sofia.uni.fmi.mjt.spotify.server.protocol.EventType;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.Playlist;
 import bg.sofia.uni.fmi.mjt.spotify.server.storage.Song;
 import org.junit.jupiter.api.Test;
@@ -16,13 +19,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.nio.channels.SelectionKey;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
 import java.util.logging.Level;
 
-import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -36,19 +35,17 @@ public class PlayPlaylistThreadTest {
     private StreamingPlatform streamingPlatformMock;
 
     @Mock
-    private SelectionKey selectionKeyMock;
+    private Session sessionMock;
 
     @Mock
     private SpotifyLogger spotifyLoggerMock;
 
     @Test
     void testRunPlayPlaylistThreadUserNotLoggedException() throws SpotifyException, InterruptedException {
-        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread("CrownMusic", selectionKeyMock,
+        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread("CrownMusic", sessionMock,
             streamingPlatformMock, spotifyLoggerMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-
-        Map<String, Set<Playlist>> toReturnMap = new LinkedHashMap<>();
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
         Playlist toReturnPlaylist = new Playlist("sdvelev@gmail.com", "CrownMusic");
 
@@ -58,19 +55,16 @@ public class PlayPlaylistThreadTest {
         toReturnPlaylist.addSong(firstSong);
         toReturnPlaylist.addSong(secondSong);
 
-        toReturnMap.put("sdvelev@gmail.com", Set.of(toReturnPlaylist));
-
-        when(streamingPlatformMock.getPlaylists()).thenReturn(toReturnMap);
+        when(streamingPlatformMock.getPlaylistSongs("sdvelev@gmail.com", "CrownMusic"))
+            .thenReturn(List.copyOf(toReturnPlaylist.getPlaylistSongs()));
 
         Exception e = new UserNotLoggedException(ServerReply.PLAY_SONG_NOT_LOGGED_REPLY.getReply());
 
         doThrow(e)
-            .when(streamingPlatformMock).playSong("The Crown - Main title", selectionKeyMock);
+            .when(streamingPlatformMock).playSong("The Crown - Main title", sessionMock);
 
         doThrow(e)
-            .when(streamingPlatformMock).playSong("The Crown - Bittersweet Symphony", selectionKeyMock);
-
-        when(streamingPlatformMock.getAlreadyRunning()).thenReturn(new LinkedHashMap<>());
+            .when(streamingPlatformMock).playSong("The Crown - Bittersweet Symphony", sessionMock);
 
         playPlaylistThread.start();
         playPlaylistThread.join();
@@ -81,12 +75,10 @@ public class PlayPlaylistThreadTest {
 
     @Test
     void testRunPlayPlaylistThreadNoSuchSongException() throws SpotifyException, InterruptedException {
-        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread("CrownMusic", selectionKeyMock,
+        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread("CrownMusic", sessionMock,
             streamingPlatformMock, spotifyLoggerMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-
-        Map<String, Set<Playlist>> toReturnMap = new LinkedHashMap<>();
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
         Playlist toReturnPlaylist = new Playlist("sdvelev@gmail.com", "CrownMusic");
 
@@ -96,19 +88,16 @@ public class PlayPlaylistThreadTest {
         toReturnPlaylist.addSong(firstSong);
         toReturnPlaylist.addSong(secondSong);
 
-        toReturnMap.put("sdvelev@gmail.com", Set.of(toReturnPlaylist));
-
-        when(streamingPlatformMock.getPlaylists()).thenReturn(toReturnMap);
+        when(streamingPlatformMock.getPlaylistSongs("sdvelev@gmail.com", "CrownMusic"))
+            .thenReturn(List.copyOf(toReturnPlaylist.getPlaylistSongs()));
 
         Exception e = new NoSuchSongException(ServerReply.PLAY_SONG_NO_SUCH_SONG_REPLY.getReply());
 
         doThrow(e)
-            .when(streamingPlatformMock).playSong("The Crown - Main title", selectionKeyMock);
+            .when(streamingPlatformMock).playSong("The Crown - Main title", sessionMock);
 
         doThrow(e)
-            .when(streamingPlatformMock).playSong("The Crown - Bittersweet Symphony", selectionKeyMock);
-
-        when(streamingPlatformMock.getAlreadyRunning()).thenReturn(new LinkedHashMap<>());
+            .when(streamingPlatformMock).playSong("The Crown - Bittersweet Symphony", sessionMock);
 
         playPlaylistThread.start();
         playPlaylistThread.join();
@@ -119,12 +108,10 @@ public class PlayPlaylistThreadTest {
 
     @Test
     void testRunPlayPlaylistThreadSongIsAlreadyPlayingException() throws SpotifyException, InterruptedException {
-        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread("CrownMusic", selectionKeyMock,
+        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread("CrownMusic", sessionMock,
             streamingPlatformMock, spotifyLoggerMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-
-        Map<String, Set<Playlist>> toReturnMap = new LinkedHashMap<>();
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
         Playlist toReturnPlaylist = new Playlist("sdvelev@gmail.com", "CrownMusic");
 
@@ -134,19 +121,16 @@ public class PlayPlaylistThreadTest {
         toReturnPlaylist.addSong(firstSong);
         toReturnPlaylist.addSong(secondSong);
 
-        toReturnMap.put("sdvelev@gmail.com", Set.of(toReturnPlaylist));
-
-        when(streamingPlatformMock.getPlaylists()).thenReturn(toReturnMap);
+        when(streamingPlatformMock.getPlaylistSongs("sdvelev@gmail.com", "CrownMusic"))
+            .thenReturn(List.copyOf(toReturnPlaylist.getPlaylistSongs()));
 
         Exception e = new SongIsAlreadyPlayingException(ServerReply.PLAY_SONG_IS_ALREADY_RUNNING_REPLY.getReply());
 
         doThrow(e)
-            .when(streamingPlatformMock).playSong("The Crown - Main title", selectionKeyMock);
+            .when(streamingPlatformMock).playSong("The Crown - Main title", sessionMock);
 
         doThrow(e)
-            .when(streamingPlatformMock).playSong("The Crown - Bittersweet Symphony", selectionKeyMock);
-
-        when(streamingPlatformMock.getAlreadyRunning()).thenReturn(new LinkedHashMap<>());
+            .when(streamingPlatformMock).playSong("The Crown - Bittersweet Symphony", sessionMock);
 
         playPlaylistThread.start();
         playPlaylistThread.join();
@@ -157,12 +141,10 @@ public class PlayPlaylistThreadTest {
 
     @Test
     void testRunPlayPlaylistThreadIODatabaseException() throws SpotifyException, InterruptedException {
-        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread("CrownMusic", selectionKeyMock,
+        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread("CrownMusic", sessionMock,
             streamingPlatformMock, spotifyLoggerMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-
-        Map<String, Set<Playlist>> toReturnMap = new LinkedHashMap<>();
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
         Playlist toReturnPlaylist = new Playlist("sdvelev@gmail.com", "CrownMusic");
 
@@ -172,19 +154,16 @@ public class PlayPlaylistThreadTest {
         toReturnPlaylist.addSong(firstSong);
         toReturnPlaylist.addSong(secondSong);
 
-        toReturnMap.put("sdvelev@gmail.com", Set.of(toReturnPlaylist));
-
-        when(streamingPlatformMock.getPlaylists()).thenReturn(toReturnMap);
+        when(streamingPlatformMock.getPlaylistSongs("sdvelev@gmail.com", "CrownMusic"))
+            .thenReturn(List.copyOf(toReturnPlaylist.getPlaylistSongs()));
 
         Exception e = new IODatabaseException(ServerReply.IO_DATABASE_PROBLEM_REPLY.getReply());
 
         doThrow(e)
-            .when(streamingPlatformMock).playSong("The Crown - Main title", selectionKeyMock);
+            .when(streamingPlatformMock).playSong("The Crown - Main title", sessionMock);
 
         doThrow(e)
-            .when(streamingPlatformMock).playSong("The Crown - Bittersweet Symphony", selectionKeyMock);
-
-        when(streamingPlatformMock.getAlreadyRunning()).thenReturn(new LinkedHashMap<>());
+            .when(streamingPlatformMock).playSong("The Crown - Bittersweet Symphony", sessionMock);
 
         playPlaylistThread.start();
         playPlaylistThread.join();
@@ -195,12 +174,10 @@ public class PlayPlaylistThreadTest {
 
     @Test
     void testRunPlayPlaylistThreadNullPointerException() throws SpotifyException, InterruptedException {
-        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread("CrownMusic", selectionKeyMock,
+        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread("CrownMusic", sessionMock,
             streamingPlatformMock, spotifyLoggerMock);
 
-        when(streamingPlatformMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
-
-        Map<String, Set<Playlist>> toReturnMap = new LinkedHashMap<>();
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
 
         Playlist toReturnPlaylist = new Playlist("sdvelev@gmail.com", "CrownMusic");
 
@@ -208,19 +185,13 @@ public class PlayPlaylistThreadTest {
 
         toReturnPlaylist.addSong(firstSong);
 
-        toReturnMap.put("sdvelev@gmail.com", Set.of(toReturnPlaylist));
-
-        when(streamingPlatformMock.getPlaylists()).thenReturn(toReturnMap);
+        when(streamingPlatformMock.getPlaylistSongs("sdvelev@gmail.com", "CrownMusic"))
+            .thenReturn(List.copyOf(toReturnPlaylist.getPlaylistSongs()));
 
         Exception e = new NullPointerException(ServerReply.SERVER_EXCEPTION.getReply());
 
         doThrow(e)
-            .when(streamingPlatformMock).playSong("The Crown - Main title", selectionKeyMock);
-
-        Map<SelectionKey, PlaySongThread> toReturnAlreadyRunning = new LinkedHashMap<>();
-        toReturnAlreadyRunning.put(selectionKeyMock, null);
-
-        doReturn(toReturnAlreadyRunning).doReturn(new LinkedHashMap<>()).when(streamingPlatformMock).getAlreadyRunning();
+            .when(streamingPlatformMock).playSong("The Crown - Main title", sessionMock);
 
         playPlaylistThread.start();
         playPlaylistThread.join();
@@ -228,4 +199,23 @@ public class PlayPlaylistThreadTest {
         verify(spotifyLoggerMock, times(1)).log(Level.INFO,
             "sdvelev@gmail.com " + ServerReply.SERVER_EXCEPTION.getReply(), e);
     }
+
+    @Test
+    void testRunPlayPlaylistThreadPublishesPlaylistFinished() throws SpotifyException, InterruptedException {
+        PlayPlaylistThread playPlaylistThread = new PlayPlaylistThread("CrownMusic", sessionMock,
+            streamingPlatformMock, spotifyLoggerMock);
+
+        when(sessionMock.getUser()).thenReturn(new User("sdvelev@gmail.com", "123456"));
+
+        Playlist toReturnPlaylist = new Playlist("sdvelev@gmail.com", "CrownMusic");
+        toReturnPlaylist.addSong(new Song("The Crown - Main title", "Hans Zimmer", 87, "classical"));
+        when(streamingPlatformMock.getPlaylistSongs("sdvelev@gmail.com", "CrownMusic"))
+            .thenReturn(List.copyOf(toReturnPlaylist.getPlaylistSongs()));
+
+        playPlaylistThread.start();
+        playPlaylistThread.join();
+
+        verify(streamingPlatformMock, times(1)).playSong("The Crown - Main title", sessionMock);
+        verify(sessionMock, times(1)).publish(new Event(EventType.PLAYLIST_FINISHED, "CrownMusic"));
+    }
 }
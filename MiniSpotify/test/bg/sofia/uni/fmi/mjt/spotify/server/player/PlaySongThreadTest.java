@@ -1,43 +1,27 @@
 package bg.sofia.uni.fmi.mjt.spotify.server.player;
 
-import bg.sofia.uni.fmi.mjt.spotify.server.StreamingPlatform;
 import bg.sofia.uni.fmi.mjt.spotify.server.logger.SpotifyLogger;
+import bg.sofia.uni.fmi.mjt.spotify.server.session.Session;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.nio.channels.SelectionKey;
-import java.util.LinkedHashMap;
-import java.util.Map;
-
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.fail;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class PlaySongThreadTest {
 
-    @Mock
-    StreamingPlatform streamingPlatformMock;
-
-    @Mock
-    SelectionKey selectionKeyMock;
-
     @Mock
     SpotifyLogger spotifyLoggerMock;
 
     @Test
     void testRunSongThreadTerminateSong() {
-        PlaySongThread playSongThread = new PlaySongThread("The Crown - Main title", selectionKeyMock,
-            streamingPlatformMock, spotifyLoggerMock);
-
-        Map<SelectionKey, PlaySongThread> toReturnAlreadyRunning = new LinkedHashMap<>();
-        toReturnAlreadyRunning.put(selectionKeyMock, null);
-
-        when(streamingPlatformMock.getAlreadyRunning()).thenReturn(toReturnAlreadyRunning);
+        Session session = new Session(null);
+        PlaySongThread playSongThread = new PlaySongThread("The Crown - Main title", session, spotifyLoggerMock);
 
+        session.startPlayback(playSongThread);
         playSongThread.start();
 
         try {
@@ -52,6 +36,6 @@ public class PlaySongThreadTest {
             fail("There was a problem with thread sleep method.");
         }
 
-        verify(streamingPlatformMock, times(1)).getAlreadyRunning();
+        assertFalse(session.isPlaying(), "The session must not be playing after the song is terminated.");
     }
 }
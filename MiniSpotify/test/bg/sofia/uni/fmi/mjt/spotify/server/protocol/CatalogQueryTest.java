@@ -0,0 +1,26 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CatalogQueryTest {
+
+    @Test
+    void testCatalogQuerySurvivesFrame() throws MalformedFrameException {
+        CatalogQuery query = new CatalogQuery(Long.MAX_VALUE, "search Crown Здравей");
+        Frame frame = query.toFrame();
+
+        assertEquals(FrameType.CATALOG_QUERY, frame.type(), "A catalog query must travel in a catalog query frame.");
+        assertEquals(query, CatalogQuery.parse(frame), "The catalog query must be read back as it was sent.");
+    }
+
+    @Test
+    void testParseCatalogQueryTooShortForItsVersion() {
+        assertThrows(MalformedFrameException.class,
+            () -> CatalogQuery.parse(new Frame(FrameType.CATALOG_QUERY, new byte[Long.BYTES - 1])),
+            "MalformedFrameException is expected but not thrown.");
+    }
+}
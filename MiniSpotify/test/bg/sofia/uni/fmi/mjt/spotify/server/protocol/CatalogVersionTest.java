@@ -0,0 +1,35 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CatalogVersionTest {
+
+    @Test
+    void testCatalogVersionSurvivesBothFrames() throws MalformedFrameException {
+        CatalogVersion version = new CatalogVersion(42);
+
+        assertEquals(FrameType.CATALOG_VERSION, version.toFrame().type(),
+            "A fresh reply must be preceded by a catalog version frame.");
+        assertEquals(FrameType.NOT_MODIFIED, version.toNotModifiedFrame().type(),
+            "A current cached reply must be confirmed by a not modified frame.");
+        assertEquals(version, CatalogVersion.parse(version.toFrame()), "The version must be read back.");
+        assertEquals(version, CatalogVersion.parse(version.toNotModifiedFrame()), "The version must be read back.");
+    }
+
+    @Test
+    void testParseCatalogVersionOfWrongSize() {
+        assertThrows(MalformedFrameException.class,
+            () -> CatalogVersion.parse(new Frame(FrameType.NOT_MODIFIED, new byte[Long.BYTES + 1])),
+            "MalformedFrameException is expected but not thrown.");
+    }
+
+    @Test
+    void testParseRejectsOtherFrames() {
+        assertThrows(IllegalArgumentException.class, () -> CatalogVersion.parse(Frame.of(FrameType.REPLY, "x")),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+}
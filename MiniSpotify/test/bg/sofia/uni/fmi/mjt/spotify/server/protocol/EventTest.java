@@ -0,0 +1,31 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class EventTest {
+
+    @Test
+    void testEventSurvivesFrame() {
+        Event event = new Event(EventType.TRACK_STARTED, "The Crown - Main title");
+        Frame frame = event.toFrame();
+
+        assertEquals(FrameType.EVENT, frame.type(), "An event must travel in an event frame.");
+        assertEquals("track-started The Crown - Main title", frame.text(),
+            "The payload must be the name of the type followed by the subject.");
+        assertEquals(event, Event.parse(frame.text()), "The event must be read back as it was sent.");
+    }
+
+    @Test
+    void testParseEventWithoutSubject() {
+        assertEquals(new Event(EventType.SESSION_EXPIRED, ""), Event.parse("session-expired"),
+            "An event without a subject must be read with an empty one.");
+    }
+
+    @Test
+    void testParseUnknownEventType() {
+        assertNull(Event.parse("volume-changed 50"), "An event of an unknown type must be skipped.");
+    }
+}
@@ -0,0 +1,90 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FrameCodecTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() throws MalformedFrameException {
+        Frame frame = Frame.of(FrameType.COMMAND, "search Zimmer");
+
+        Frame decoded = FrameCodec.decode(FrameCodec.encode(frame));
+
+        assertEquals(FrameType.COMMAND, decoded.type(), "The decoded frame type is not the same as the encoded.");
+        assertEquals("search Zimmer", decoded.text(), "The decoded frame payload is not the same as the encoded.");
+    }
+
+    @Test
+    void testDecodeIncompleteFrameReturnsNull() throws MalformedFrameException {
+        ByteBuffer encoded = FrameCodec.encode(Frame.of(FrameType.REPLY, "The song is starting."));
+        encoded.limit(encoded.limit() - 1);
+
+        assertNull(FrameCodec.decode(encoded), "An incomplete frame must not be decoded.");
+        assertEquals(0, encoded.position(), "Decoding an incomplete frame must not consume bytes.");
+    }
+
+    @Test
+    void testDecodeTooLargeFrameThrowsMalformedFrameException() {
+        ByteBuffer header = ByteBuffer.allocate(FrameCodec.HEADER_SIZE);
+        header.putInt(FrameCodec.MAX_PAYLOAD_SIZE + 1).put(FrameType.COMMAND.getCode()).flip();
+
+        assertThrows(MalformedFrameException.class, () -> FrameCodec.decode(header),
+            "MalformedFrameException is expected but not thrown.");
+    }
+
+    @Test
+    void testDecodeUnknownTypeThrowsMalformedFrameException() {
+        ByteBuffer header = ByteBuffer.allocate(FrameCodec.HEADER_SIZE);
+        header.putInt(0).put((byte) 127).flip();
+
+        assertThrows(MalformedFrameException.class, () -> FrameCodec.decode(header),
+            "MalformedFrameException is expected but not thrown.");
+    }
+
+    @Test
+    void testFrameReaderSplitsCoalescedFrames() throws IOException, MalformedFrameException {
+        ByteBuffer first = FrameCodec.encode(Frame.of(FrameType.COMMAND, "help"));
+        ByteBuffer second = FrameCodec.encode(Frame.of(FrameType.COMMAND, "top 5"));
+        ByteBuffer both = ByteBuffer.allocate(first.remaining() + second.remaining()).put(first).put(second);
+
+        FrameReader frameReader = new FrameReader();
+        frameReader.readFrom(Channels.newChannel(new ByteArrayInputStream(both.array())));
+
+        assertEquals("help", frameReader.nextFrame().text(), "The first coalesced frame is not decoded correctly.");
+        assertEquals("top 5", frameReader.nextFrame().text(), "The second coalesced frame is not decoded correctly.");
+        assertNull(frameReader.nextFrame(), "There must not be more frames after the coalesced ones.");
+    }
+
+    @Test
+    void testFrameReaderReassemblesFrameLargerThanBuffer() throws IOException, MalformedFrameException {
+        String largeReply = "x".repeat(10_000);
+        ByteBuffer encoded = FrameCodec.encode(Frame.of(FrameType.REPLY, largeReply));
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(encoded.array()));
+
+        FrameReader frameReader = new FrameReader();
+        Frame frame;
+        while ((frame = frameReader.nextFrame()) == null) {
+            frameReader.readFrom(channel);
+        }
+
+        assertEquals(largeReply, frame.text(), "A frame split across several reads is not reassembled correctly.");
+    }
+
+    @Test
+    void testHandshakeParse() {
+        assertEquals(Handshake.current(), Handshake.parse(Handshake.current().toFrame().text()),
+            "The parsed handshake is not the same as the sent one.");
+        assertNull(Handshake.parse("HTTP/1.1"), "A foreign protocol must not be parsed as a handshake.");
+    }
+}
@@ -0,0 +1,83 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FrameCompressionTest {
+
+    private static final String SONG_LINE = " Title: The Crown - Main title Artist: Hans Zimmer Genre: classical " +
+        "Duration (in seconds): 87" + System.lineSeparator();
+
+    @Test
+    void testDeflateInflateRoundTrip() throws MalformedFrameException {
+        Frame reply = Frame.of(FrameType.REPLY, SONG_LINE.repeat(100));
+
+        Frame compressed = FrameCompression.deflate(reply);
+
+        assertEquals(FrameType.COMPRESSED_REPLY, compressed.type(), "A repetitive reply must be deflated.");
+        assertTrue(compressed.payload().length < reply.payload().length / 10,
+            "A repetitive reply must shrink many times.");
+        assertEquals(reply.text(), FrameCompression.inflate(compressed).text(),
+            "The inflated reply is not the same as the deflated.");
+    }
+
+    @Test
+    void testDeflateReturnsReplyWhichDoesNotShrink() {
+        Frame reply = Frame.of(FrameType.REPLY, "ok");
+
+        assertSame(reply, FrameCompression.deflate(reply), "A reply which does not shrink must be sent as it is.");
+    }
+
+    @Test
+    void testDeflateRejectsFramesOtherThanReplies() {
+        assertThrows(IllegalArgumentException.class,
+            () -> FrameCompression.deflate(Frame.of(FrameType.COMMAND, SONG_LINE)),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+
+    @Test
+    void testInflateCorruptedPayloadThrowsMalformedFrameException() {
+        Frame corrupted = new Frame(FrameType.COMPRESSED_REPLY, new byte[] {(byte) 0xFF, 0x01, 0x02});
+
+        assertThrows(MalformedFrameException.class, () -> FrameCompression.inflate(corrupted),
+            "MalformedFrameException is expected but not thrown.");
+    }
+
+    @Test
+    void testInflateTruncatedPayloadThrowsMalformedFrameException() {
+        byte[] payload = FrameCompression.deflate(Frame.of(FrameType.REPLY, SONG_LINE.repeat(100))).payload();
+        byte[] truncated = Arrays.copyOf(payload, payload.length / 2);
+
+        assertThrows(MalformedFrameException.class,
+            () -> FrameCompression.inflate(new Frame(FrameType.COMPRESSED_REPLY, truncated)),
+            "MalformedFrameException is expected but not thrown.");
+    }
+
+    @Test
+    void testInflateTooLargeReplyThrowsMalformedFrameException() {
+        byte[] zeros = new byte[FrameCodec.MAX_PAYLOAD_SIZE + 1];
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflater.setInput(zeros);
+        deflater.finish();
+
+        ByteArrayOutputStream bomb = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1024];
+        while (!deflater.finished()) {
+            bomb.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+
+        assertThrows(MalformedFrameException.class,
+            () -> FrameCompression.inflate(new Frame(FrameType.COMPRESSED_REPLY, bomb.toByteArray())),
+            "MalformedFrameException is expected but not thrown.");
+    }
+}
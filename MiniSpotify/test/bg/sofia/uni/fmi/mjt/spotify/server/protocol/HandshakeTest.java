@@ -0,0 +1,53 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HandshakeTest {
+
+    @Test
+    void testParseRoundTripKeepsCapabilities() {
+        Handshake handshake = Handshake.parse(Handshake.current().toFrame().text());
+
+        assertEquals(Handshake.CURRENT_VERSION, handshake.version(), "The parsed version is not the same.");
+        assertTrue(handshake.hasCapability(Capability.DEFLATE), "The offered capabilities must be parsed.");
+    }
+
+    @Test
+    void testParseHandshakeWithoutCapabilities() {
+        Handshake handshake = Handshake.parse("SPOTIFY/1");
+
+        assertEquals(1, handshake.version(), "The parsed version is not the same.");
+        assertTrue(handshake.capabilities().isEmpty(), "A handshake of an older client offers no capabilities.");
+    }
+
+    @Test
+    void testParseIgnoresUnknownCapabilities() {
+        Handshake handshake = Handshake.parse("SPOTIFY/1;brotli;deflate");
+
+        assertEquals(Set.of(Capability.DEFLATE), handshake.capabilities(), "Unknown capabilities must be ignored.");
+    }
+
+    @Test
+    void testParseInvalidPayloadReturnsNull() {
+        assertNull(Handshake.parse("HTTP/1.1"), "A payload of another protocol must not be parsed.");
+        assertNull(Handshake.parse("SPOTIFY/one;deflate"), "A payload without a numeric version must not be parsed.");
+    }
+
+    @Test
+    void testAcceptKeepsOnlyEnabledCapabilities() {
+        Handshake offered = Handshake.current();
+
+        assertEquals(Set.of(), offered.accept(Set.of()).capabilities(),
+            "A capability which is not enabled must not be accepted.");
+        assertEquals(Set.of(Capability.DEFLATE), offered.accept(Set.of(Capability.DEFLATE)).capabilities(),
+            "An offered and enabled capability must be accepted.");
+        assertTrue(new Handshake(1).accept(Set.of(Capability.DEFLATE)).capabilities().isEmpty(),
+            "A capability which is not offered must not be accepted.");
+    }
+}
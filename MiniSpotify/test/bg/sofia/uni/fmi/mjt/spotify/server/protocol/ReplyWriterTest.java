@@ -0,0 +1,134 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.buffer.BufferPool;
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplyWriterTest {
+
+    private static final long BUFFER_POOL_CAPACITY = 1L << 20;
+
+    @Test
+    void testFinishedReplyDecodesAsFrame() throws MalformedFrameException {
+        BufferPool bufferPool = new BufferPool(BUFFER_POOL_CAPACITY);
+        ReplyWriter replyWriter = new ReplyWriter(bufferPool);
+
+        replyWriter.append("Title: ").append("Main title").append(' ').append(87).newLine();
+        List<ByteBuffer> frame = replyWriter.finish(FrameType.REPLY);
+
+        assertEquals(1, frame.size(), "A short reply must fit in a single buffer.");
+        assertEquals("Title: Main title 87" + System.lineSeparator(), FrameCodec.decode(frame.get(0)).text(),
+            "The buffer must hold the reply as an encoded frame.");
+        bufferPool.release(frame.get(0));
+    }
+
+    @Test
+    void testFinishedResponseCarriesTheRequestId() throws MalformedFrameException {
+        BufferPool bufferPool = new BufferPool(BUFFER_POOL_CAPACITY);
+        ReplyWriter replyWriter = new ReplyWriter(bufferPool);
+
+        replyWriter.append("Songs:");
+        List<ByteBuffer> frame = replyWriter.finishResponse(31);
+        Response response = Response.parse(FrameCodec.decode(frame.get(0)));
+        bufferPool.release(frame.get(0));
+
+        assertEquals(31, response.requestId(), "The response must carry the id of its request.");
+        assertEquals("Songs:", response.reply().text(), "The response must carry the rendered reply.");
+    }
+
+    @Test
+    void testLongMultibyteReplyIsEncodedAcrossBuffers() throws MalformedFrameException {
+        BufferPool bufferPool = new BufferPool(BUFFER_POOL_CAPACITY);
+        ReplyWriter replyWriter = new ReplyWriter(bufferPool);
+        String text = "Песен 🎵 ".repeat(3_000);
+
+        replyWriter.append(text);
+        assertEquals(text.getBytes(StandardCharsets.UTF_8).length, replyWriter.size(),
+            "The size must count the encoded bytes.");
+
+        List<ByteBuffer> frame = replyWriter.finish(FrameType.REPLY);
+        assertTrue(frame.size() > 1, "A long reply must span several pooled buffers.");
+
+        int length = frame.stream().mapToInt(ByteBuffer::remaining).sum();
+        ByteBuffer joined = ByteBuffer.allocate(length);
+        frame.forEach(joined::put);
+        frame.forEach(bufferPool::release);
+
+        assertEquals(text, FrameCodec.decode(joined.flip()).text(),
+            "Characters split between buffers must be encoded whole.");
+        assertEquals(0, bufferPool.getStatistics().leasedBytes(), "Every buffer must go back to the pool.");
+    }
+
+    @Test
+    void testAppendNumbersWithoutStrings() {
+        ReplyWriter replyWriter = new ReplyWriter(new BufferPool(BUFFER_POOL_CAPACITY));
+
+        replyWriter.append(0).append(' ').append(-42).append(' ').append(Integer.MAX_VALUE).append(' ')
+            .append(Integer.MIN_VALUE);
+
+        assertEquals("0 -42 2147483647 -2147483648", replyWriter.toFrame(FrameType.REPLY).text(),
+            "Numbers must be written in decimal.");
+    }
+
+    @Test
+    void testWriterIsReusedAfterFinishAndReset() {
+        BufferPool bufferPool = new BufferPool(BUFFER_POOL_CAPACITY);
+        ReplyWriter replyWriter = new ReplyWriter(bufferPool);
+
+        replyWriter.append("first");
+        assertEquals("first", replyWriter.toFrame(FrameType.REPLY).text(), "The first reply must be rendered.");
+
+        replyWriter.append("abandoned");
+        replyWriter.reset();
+        assertEquals(0, bufferPool.getStatistics().leasedBytes(), "An abandoned reply must return its buffers.");
+
+        replyWriter.append("second");
+        assertArrayEquals("second".getBytes(StandardCharsets.UTF_8), replyWriter.toFrame(FrameType.REPLY).payload(),
+            "A reused writer must start from an empty reply.");
+    }
+
+    @Test
+    void testReplyAboveMaximumFrameSizeIsRejected() {
+        BufferPool bufferPool = new BufferPool(BUFFER_POOL_CAPACITY);
+        ReplyWriter replyWriter = new ReplyWriter(bufferPool);
+
+        replyWriter.append("x".repeat(FrameCodec.MAX_PAYLOAD_SIZE + 1));
+
+        assertThrows(IllegalArgumentException.class, () -> replyWriter.finish(FrameType.REPLY),
+            "IllegalArgumentException is expected but not thrown.");
+        assertEquals(0, bufferPool.getStatistics().leasedBytes(), "A rejected reply must return its buffers.");
+    }
+
+    @Test
+    void testEmptyReplyIsFinishedAsEmptyFrame() throws MalformedFrameException {
+        BufferPool bufferPool = new BufferPool(BUFFER_POOL_CAPACITY);
+        ReplyWriter replyWriter = new ReplyWriter(bufferPool);
+
+        List<ByteBuffer> frame = replyWriter.finish(FrameType.REPLY);
+
+        assertEquals("", FrameCodec.decode(frame.get(0)).text(), "An empty reply must be an empty payload.");
+        bufferPool.release(frame.get(0));
+    }
+
+    @Test
+    void testFitsInFrameCountsTheRequestIdOfResponses() {
+        BufferPool bufferPool = new BufferPool(BUFFER_POOL_CAPACITY);
+        ReplyWriter replyWriter = new ReplyWriter(bufferPool);
+
+        replyWriter.append("x".repeat(FrameCodec.MAX_PAYLOAD_SIZE - 1));
+
+        assertTrue(replyWriter.fitsInFrame(false), "A reply of the maximum size or less must fit in a frame.");
+        assertFalse(replyWriter.fitsInFrame(true), "The id of the request must be counted in a response.");
+        replyWriter.reset();
+    }
+}
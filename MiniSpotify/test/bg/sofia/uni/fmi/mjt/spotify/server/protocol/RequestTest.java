@@ -0,0 +1,25 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RequestTest {
+
+    @Test
+    void testRequestSurvivesFrame() throws MalformedFrameException {
+        Request request = new Request(42, "search Crown Здравей");
+        Frame frame = request.toFrame();
+
+        assertEquals(FrameType.REQUEST, frame.type(), "A request must travel in a request frame.");
+        assertEquals(request, Request.parse(frame), "The request must be read back as it was sent.");
+    }
+
+    @Test
+    void testParseRequestTooShortForItsId() {
+        assertThrows(MalformedFrameException.class, () -> Request.parse(new Frame(FrameType.REQUEST, new byte[3])),
+            "MalformedFrameException is expected but not thrown.");
+    }
+}
@@ -0,0 +1,45 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.protocol;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.MalformedFrameException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ResponseTest {
+
+    @Test
+    void testResponseSurvivesFrame() throws MalformedFrameException {
+        Frame frame = new Response(7, Frame.of(FrameType.REPLY, "Songs:")).toFrame();
+        Response response = Response.parse(frame);
+
+        assertEquals(FrameType.RESPONSE, frame.type(), "A plain reply must travel in a response frame.");
+        assertEquals(7, response.requestId(), "The id of the request must be read back.");
+        assertEquals("Songs:", response.reply().text(), "The reply must be read back.");
+    }
+
+    @Test
+    void testCompressedReplyTravelsAsCompressedResponse() throws MalformedFrameException {
+        Frame compressed = FrameCompression.deflate(Frame.of(FrameType.REPLY, "Title: Main title ".repeat(100)));
+        Frame frame = new Response(-1, compressed).toFrame();
+        Response response = Response.parse(frame);
+
+        assertEquals(FrameType.COMPRESSED_RESPONSE, frame.type(),
+            "A compressed reply must travel in a compressed response frame.");
+        assertEquals(FrameType.COMPRESSED_REPLY, response.reply().type(), "The reply must stay compressed.");
+        assertArrayEquals(compressed.payload(), response.reply().payload(), "The deflated reply must be kept.");
+    }
+
+    @Test
+    void testResponseCannotCarryOtherFrames() {
+        assertThrows(IllegalArgumentException.class, () -> new Response(1, Frame.of(FrameType.EVENT, "x")),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+
+    @Test
+    void testParseResponseTooShortForItsId() {
+        assertThrows(MalformedFrameException.class, () -> Response.parse(new Frame(FrameType.RESPONSE, new byte[2])),
+            "MalformedFrameException is expected but not thrown.");
+    }
+}
@@ -0,0 +1,80 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.session;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.login.User;
+import bg.sofia.uni.fmi.mjt.spotify.server.player.PlaySongThread;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+public class SessionTest {
+
+    @Mock
+    private PlaySongThread firstPlaybackMock;
+
+    @Mock
+    private PlaySongThread secondPlaybackMock;
+
+    @Test
+    void testSessionsKeepTheirOwnUsers() {
+        Session firstSession = new Session(null);
+        Session secondSession = new Session(null);
+
+        firstSession.login(new User("sdvelev@gmail.com", "123456"));
+        secondSession.login(new User("sdvelev@outlook.com", "123456"));
+
+        assertEquals("sdvelev@gmail.com", firstSession.getUser().getEmail(),
+            "Logging in on another session must not change the user of the session.");
+        assertEquals("sdvelev@outlook.com", secondSession.getUser().getEmail(),
+            "The session must keep the user logged in on it.");
+
+        secondSession.logout();
+
+        assertTrue(firstSession.isLoggedIn(), "Logging out of another session must not log the session out.");
+        assertFalse(secondSession.isLoggedIn(), "The session must be logged out.");
+    }
+
+    @Test
+    void testStartPlaybackRejectsSecondSongOnlyOnTheSameSession() {
+        Session firstSession = new Session(null);
+        Session secondSession = new Session(null);
+
+        assertTrue(firstSession.startPlayback(firstPlaybackMock), "The first song of a session must start.");
+        assertFalse(firstSession.startPlayback(secondPlaybackMock),
+            "A second song must not start while the session is playing.");
+        assertTrue(secondSession.startPlayback(secondPlaybackMock),
+            "A song playing on another session must not prevent the session from playing.");
+    }
+
+    @Test
+    void testAwaitPlaybackFinishedReturnsOnceThePlaybackFinishes() throws InterruptedException {
+        Session session = new Session(null);
+        session.startPlayback(firstPlaybackMock);
+
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                session.awaitPlaybackFinished();
+                finished.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+
+        assertFalse(finished.await(100, TimeUnit.MILLISECONDS), "The wait must last while the song is playing.");
+
+        session.finishPlayback(firstPlaybackMock);
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS), "The wait must end once the song finishes.");
+        assertFalse(session.isPlaying(), "The session must not be playing after the song finishes.");
+    }
+}
@@ -0,0 +1,125 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.shard;
+
+import bg.sofia.uni.fmi.mjt.spotify.server.exceptions.NoSuchPlaylistException;
+import bg.sofia.uni.fmi.mjt.spotify.server.storage.Playlist;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PlaylistShardsTest {
+
+    private static final String FIRST_EMAIL = "first@abv.bg";
+    private static final String SECOND_EMAIL = "second@abv.bg";
+
+    private PlaylistShards playlistShards;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Set<Playlist>> playlists = new LinkedHashMap<>();
+        playlists.put(FIRST_EMAIL, new HashSet<>(Set.of(new Playlist(FIRST_EMAIL, "Rock"))));
+        playlists.put(SECOND_EMAIL, new HashSet<>(Set.of(new Playlist(SECOND_EMAIL, "Jazz"))));
+
+        playlistShards = new PlaylistShards(4, playlists);
+        playlistShards.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        playlistShards.close();
+    }
+
+    @Test
+    void testShardOfAlwaysPicksTheSameShardForAnEmail() {
+        assertSame(playlistShards.shardOf(FIRST_EMAIL), playlistShards.shardOf(FIRST_EMAIL),
+            "The playlists of a user must always be on the same shard.");
+        assertEquals(4, playlistShards.getShardCount(), "The number of shards must be the requested one.");
+    }
+
+    @Test
+    void testCallSeesOnlyThePlaylistsAssignedToTheShard() {
+        Set<Playlist> userPlaylists = playlistShards.shardOf(FIRST_EMAIL)
+            .call(playlists -> Set.copyOf(playlists.get(FIRST_EMAIL)));
+
+        assertEquals(Set.of(new Playlist(FIRST_EMAIL, "Rock")), userPlaylists,
+            "The shard of a user must hold the playlists of that user.");
+    }
+
+    @Test
+    void testCallRunsOnTheThreadOwningTheShard() {
+        String threadName = playlistShards.shardOf(FIRST_EMAIL).call(playlists -> Thread.currentThread().getName());
+
+        assertTrue(threadName.startsWith("spotify-playlist-shard-"),
+            "The operations of a shard must run on the thread owning it.");
+    }
+
+    @Test
+    void testCallFromTheOwningThreadRunsInline() throws Exception {
+        PlaylistShard shard = playlistShards.shardOf(FIRST_EMAIL);
+        CompletableFuture<String> threadName = new CompletableFuture<>();
+        shard.execute(() -> threadName.complete(shard.call(playlists -> Thread.currentThread().getName())));
+
+        assertTrue(threadName.get(5, TimeUnit.SECONDS).startsWith("spotify-playlist-shard-"),
+            "A call from the owning thread must run without waiting for itself.");
+    }
+
+    @Test
+    void testCallFromTheThreadOfAnotherShardIsRefused() throws Exception {
+        PlaylistShard shard = playlistShards.shardOf(FIRST_EMAIL);
+        String otherEmail = FIRST_EMAIL;
+        for (int i = 0; playlistShards.shardOf(otherEmail) == shard; i++) {
+            otherEmail = "user" + i + "@abv.bg";
+        }
+        PlaylistShard otherShard = playlistShards.shardOf(otherEmail);
+
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        shard.execute(() -> {
+            try {
+                otherShard.call(playlists -> playlists.size());
+                failure.complete(null);
+            } catch (IllegalStateException e) {
+                failure.complete(e);
+            }
+        });
+
+        assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof IllegalStateException,
+            "IllegalStateException is expected but not thrown.");
+    }
+
+    @Test
+    void testCallRethrowsTheExceptionOfTheTask() {
+        assertThrows(NoSuchPlaylistException.class, () -> playlistShards.shardOf(FIRST_EMAIL).call(playlists -> {
+            throw new NoSuchPlaylistException("There is no such playlist.");
+        }), "NoSuchPlaylistException is expected but not thrown.");
+    }
+
+    @Test
+    void testSnapshotHoldsThePlaylistsOfEveryShard() {
+        playlistShards.shardOf(SECOND_EMAIL).call(playlists ->
+            playlists.get(SECOND_EMAIL).add(new Playlist(SECOND_EMAIL, "Blues")));
+
+        Map<String, Set<Playlist>> snapshot = playlistShards.snapshot();
+
+        assertEquals(Set.of(new Playlist(FIRST_EMAIL, "Rock")), snapshot.get(FIRST_EMAIL),
+            "The snapshot must hold the playlists of the first user.");
+        assertEquals(Set.of(new Playlist(SECOND_EMAIL, "Jazz"), new Playlist(SECOND_EMAIL, "Blues")),
+            snapshot.get(SECOND_EMAIL), "The snapshot must hold the changed playlists of the second user.");
+    }
+
+    @Test
+    void testShardsWithNotPositiveCountAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new PlaylistShards(0, Map.of()),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+}
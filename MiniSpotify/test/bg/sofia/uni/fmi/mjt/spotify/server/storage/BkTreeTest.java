@@ -0,0 +1,54 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BkTreeTest {
+
+    @Test
+    void testDistanceCountsInsertionsDeletionsAndSubstitutions() {
+        assertEquals(0, BkTree.distance("zimmer", "zimmer"), "Equal words must be at no distance.");
+        assertEquals(1, BkTree.distance("zimmmer", "zimmer"), "A deletion must count as one edit.");
+        assertEquals(1, BkTree.distance("bilie", "billie"), "An insertion must count as one edit.");
+        assertEquals(3, BkTree.distance("kitten", "sitting"), "The distance is not the same as the expected.");
+        assertEquals(5, BkTree.distance("", "crown"), "The distance from the empty word must be its length.");
+    }
+
+    @Test
+    void testSearchFindsOnlyTermsWithinTheDistance() {
+        BkTree bkTree = new BkTree();
+        bkTree.add("crown", new int[] {0, 2});
+        bkTree.add("zimmer", new int[] {0});
+        bkTree.add("crowd", new int[] {3});
+        bkTree.add("eilish", new int[] {1});
+
+        List<int[]> matches = new ArrayList<>();
+        bkTree.search("crwn", 1, matches::add);
+
+        assertEquals(1, matches.size(), "Only the terms within the distance must be found.");
+        assertArrayEquals(new int[] {0, 2}, matches.getFirst(), "The positions of the found term must be given.");
+    }
+
+    @Test
+    void testAddKeepsEveryTermOnce() {
+        BkTree bkTree = new BkTree();
+        bkTree.add("crown", new int[] {0});
+        bkTree.add("crown", new int[] {1});
+
+        assertEquals(1, bkTree.size(), "A term added twice must be kept once.");
+    }
+
+    @Test
+    void testSearchOfEmptyTreeFindsNothing() {
+        List<int[]> matches = new ArrayList<>();
+        new BkTree().search("crown", 2, matches::add);
+
+        assertTrue(matches.isEmpty(), "An empty tree must find nothing.");
+    }
+}
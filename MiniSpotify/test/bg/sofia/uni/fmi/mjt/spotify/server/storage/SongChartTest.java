@@ -0,0 +1,94 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SongChartTest {
+
+    @Test
+    void testTopOrdersByPlaysThenByCatalogOrder() {
+        SongEntity first = new SongEntity(new Song("First", "Artist", 100, "pop"), 5);
+        SongEntity second = new SongEntity(new Song("Second", "Artist", 100, "pop"), 9);
+        SongEntity third = new SongEntity(new Song("Third", "Artist", 100, "pop"), 5);
+        SongChart songChart = new SongChart(List.of(first, second, third));
+
+        assertIterableEquals(List.of(second, first, third), songChart.top(3),
+            "Songs must be ranked by plays and, when played as many times, in the order of the catalog.");
+    }
+
+    @Test
+    void testRecordPlayMovesTheSongAndCountsThePlay() {
+        SongEntity first = new SongEntity(new Song("First", "Artist", 100, "pop"), 5);
+        SongEntity second = new SongEntity(new Song("Second", "Artist", 100, "pop"), 5);
+        SongChart songChart = new SongChart(List.of(first, second));
+
+        songChart.recordPlay(second);
+
+        assertEquals(6, second.getListeningTimes(), "A recorded play must be counted.");
+        assertIterableEquals(List.of(second), songChart.top(1),
+            "A played song must move above the songs it has overtaken.");
+    }
+
+    @Test
+    void testTopWithMoreThanTheCatalogReturnsEverySong() {
+        SongEntity only = new SongEntity(new Song("Only", "Artist", 100, "pop"), 1);
+        SongChart songChart = new SongChart(List.of(only));
+
+        assertIterableEquals(List.of(only), songChart.top(10), "Every song must be returned.");
+        assertTrue(songChart.top(0).isEmpty(), "No songs must be returned for zero.");
+    }
+
+    @Test
+    void testTopWithNegativeNumberIsRejected() {
+        SongChart songChart = new SongChart(List.of());
+
+        assertThrows(IllegalArgumentException.class, () -> songChart.top(-1),
+            "IllegalArgumentException is expected but not thrown.");
+    }
+
+    @Test
+    void testParallelPlaysAreAllCountedAndRanked() throws InterruptedException {
+        int songCount = 50;
+        int threadCount = 8;
+        int playsPerThread = 5_000;
+
+        List<SongEntity> songs = new ArrayList<>();
+        for (int i = 0; i < songCount; i++) {
+            songs.add(new SongEntity(new Song("Song " + i, "Artist", 100, "pop"), 0));
+        }
+        SongChart songChart = new SongChart(songs);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        for (int thread = 0; thread < threadCount; thread++) {
+            int offset = thread;
+            executor.execute(() -> {
+                for (int i = 0; i < playsPerThread; i++) {
+                    songChart.recordPlay(songs.get((i * (offset + 1)) % songCount));
+                    songChart.top(5);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES), "The plays did not finish in time.");
+
+        assertEquals(threadCount * playsPerThread, songs.stream().mapToInt(SongEntity::getListeningTimes).sum(),
+            "Every parallel play must be counted exactly once.");
+
+        List<SongEntity> expected = songs.stream()
+            .sorted(Comparator.comparingInt(SongEntity::getListeningTimes).reversed())
+            .toList();
+        assertIterableEquals(expected, songChart.top(songCount),
+            "The ranking after parallel plays must be the same as sorting the counts.");
+    }
+}
@@ -0,0 +1,78 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SongFileTest {
+
+    private static final Path SONG_PATH = Path.of("data", "music", "Hans Zimmer_The Crown - Main title.wav");
+
+    @TempDir
+    Path temporaryDirectory;
+
+    @Test
+    void testIngestLocatesDataOfCatalogSong() throws IOException, UnsupportedAudioFileException {
+        try (SongFile songFile = SongFile.ingest(SONG_PATH);
+             AudioInputStream expected = AudioSystem.getAudioInputStream(SONG_PATH.toFile())) {
+            byte[] expectedData = expected.readAllBytes();
+
+            assertEquals(expected.getFormat().toString(), songFile.getFormat().toString(),
+                "The format must be read from the fmt chunk.");
+            assertEquals(expectedData.length, songFile.getDataLength(), "The data length must be read from the " +
+                "data chunk.");
+
+            ByteBuffer data = ByteBuffer.allocate((int) songFile.getDataLength());
+            songFile.getChannel().read(data, songFile.getDataOffset());
+            assertArrayEquals(expectedData, data.array(), "The data offset must skip exactly the WAV header.");
+        }
+    }
+
+    @Test
+    void testIngestSkipsChunksBeforeData() throws IOException, UnsupportedAudioFileException {
+        byte[] pcm = {1, 2, 3, 4, 5, 6, 7, 8};
+        ByteBuffer wave = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        wave.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(0).put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        wave.put("LIST".getBytes(StandardCharsets.US_ASCII)).putInt(3).put(new byte[] {9, 9, 9, 0});
+        wave.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+            .putShort((short) 1).putShort((short) 1).putInt(8000).putInt(16000).putShort((short) 2)
+            .putShort((short) 16);
+        wave.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(pcm.length);
+        int dataOffset = wave.position();
+        wave.put(pcm);
+
+        Path song = Files.write(temporaryDirectory.resolve("song.wav"),
+            Arrays.copyOf(wave.array(), wave.position()));
+
+        try (SongFile songFile = SongFile.ingest(song)) {
+            assertEquals(dataOffset, songFile.getDataOffset(), "The data must be found after the other chunks, " +
+                "including their padding.");
+            assertEquals(pcm.length, songFile.getDataLength(), "The whole PCM data must be located.");
+            assertEquals(new AudioFormat(8000, 16, 1, true, false).toString(), songFile.getFormat().toString(),
+                "The format must be read from the fmt chunk.");
+        }
+    }
+
+    @Test
+    void testIngestRejectsNonWaveFile() throws IOException {
+        Path notSong = Files.writeString(temporaryDirectory.resolve("song.wav"), "not a wave file");
+
+        assertThrows(UnsupportedAudioFileException.class, () -> SongFile.ingest(notSong),
+            "Only RIFF WAVE files can be ingested.");
+    }
+}
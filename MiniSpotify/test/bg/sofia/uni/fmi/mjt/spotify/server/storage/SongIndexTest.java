@@ -0,0 +1,141 @@
+package bg.sofia.uni.fmi.mjt.spotify.server.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SongIndexTest {
+
+    private static final SongEntity MAIN_TITLE = new SongEntity(new Song("The Crown - Main title", "Hans Zimmer",
+        87, "classical"), 11);
+    private static final SongEntity NO_TIME_TO_DIE = new SongEntity(new Song("No Time To Die", "Billie Eilish",
+        239, "pop"), 7);
+    private static final SongEntity BITTERSWEET_SYMPHONY = new SongEntity(new Song("The Crown - Bittersweet Symphony",
+        "Richard Ashcroft", 248, "modern"), 9);
+
+    private final SongIndex songIndex = new SongIndex(List.of(MAIN_TITLE, NO_TIME_TO_DIE, BITTERSWEET_SYMPHONY));
+
+    @Test
+    void testSearchFindsPartsOfWordsIgnoringCaseInCatalogOrder() {
+        assertIterableEquals(List.of(MAIN_TITLE, BITTERSWEET_SYMPHONY), songIndex.search("ROWN"),
+            "A search must find any part of a title, ignoring case, in the order of the catalog.");
+    }
+
+    @Test
+    void testSearchNeedsEveryWordInTitleOrArtist() {
+        assertIterableEquals(List.of(MAIN_TITLE), songIndex.search("crown zimmer"),
+            "A search must find only the songs holding every word in their title or artist.");
+    }
+
+    @Test
+    void testSearchDoesNotMatchTrigramsSpreadOverTheSong() {
+        assertTrue(songIndex.search("ashcrown").isEmpty(),
+            "A song holding the trigrams of a word but not the word itself must not be found.");
+    }
+
+    @Test
+    void testSearchWithShortWordsChecksEverySong() {
+        assertIterableEquals(List.of(BITTERSWEET_SYMPHONY), songIndex.search("ph i"),
+            "A search with words shorter than a trigram must still check every song.");
+    }
+
+    @Test
+    void testSearchWithUnknownWordFindsNothing() {
+        assertTrue(songIndex.search("crown beethoven").isEmpty(),
+            "A search with a word in no song must find nothing.");
+    }
+
+    @Test
+    void testSearchFindsTheSameSongsAsScanningForEveryPartOfTheCatalog() {
+        List<SongEntity> songs = List.of(MAIN_TITLE, NO_TIME_TO_DIE, BITTERSWEET_SYMPHONY);
+        for (SongEntity currentSongEntity : songs) {
+            String text = currentSongEntity.getSong().getTitle() + currentSongEntity.getSong().getArtist();
+            for (int start = 0; start < text.length(); start++) {
+                for (int end = start + 1; end <= text.length(); end++) {
+                    String query = text.substring(start, end);
+
+                    assertIterableEquals(scan(songs, query), songIndex.search(query),
+                        "A search for \"" + query + "\" must find the same songs as a scan of the catalog.");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSearchWithEmptyQueryFindsEverySong() {
+        assertEquals(songIndex.size(), songIndex.search("").size(),
+            "An empty search must find every song, as the scan of the catalog did.");
+    }
+
+    @Test
+    void testFindByTitleIgnoresCase() {
+        assertSame(NO_TIME_TO_DIE, songIndex.findByTitle("no time TO DIE"),
+            "A song must be found by its title, ignoring case.");
+        assertNull(songIndex.findByTitle("No Time"), "Only whole titles must be found.");
+    }
+
+    @Test
+    void testFindByTitlePicksTheFirstOfSongsWithTheSameTitle() {
+        SongEntity cover = new SongEntity(new Song("No Time To Die", "Cover Band", 240, "pop"), 0);
+        SongIndex withCover = new SongIndex(List.of(MAIN_TITLE, NO_TIME_TO_DIE, cover));
+
+        assertSame(NO_TIME_TO_DIE, withCover.findByTitle("No Time To Die"),
+            "The title of songs of several artists must find the first of them in the catalog.");
+        assertSame(cover, withCover.findBySong(new Song("No Time To Die", "Cover Band", 0, null)),
+            "Each of the songs with the same title must be found by its artist and title.");
+    }
+
+    @Test
+    void testFindBySongNotInCatalogFindsNothing() {
+        assertNull(songIndex.findBySong(new Song("No Time To Die", "Adele", 239, "pop")),
+            "A song whose artist is not in the catalog must not be found.");
+    }
+
+    @Test
+    void testFuzzySearchFindsMisspelledWords() {
+        assertIterableEquals(List.of(NO_TIME_TO_DIE), songIndex.fuzzySearch("Bilie Eilish"),
+            "A word one edit away from a word of an artist must find the song.");
+        assertIterableEquals(List.of(MAIN_TITLE), songIndex.fuzzySearch("zimmmer"),
+            "A word one edit away from a word of an artist must find the song.");
+    }
+
+    @Test
+    void testFuzzySearchStillFindsPartsOfWords() {
+        assertIterableEquals(List.of(MAIN_TITLE), songIndex.fuzzySearch("cro zimmmer"),
+            "A word contained in a title must still match in a fuzzy search.");
+    }
+
+    @Test
+    void testFuzzySearchBoundsTheEditsByTheLengthOfTheWord() {
+        assertTrue(songIndex.fuzzySearch("dye").isEmpty(), "Words shorter than four letters must match exactly.");
+        assertTrue(songIndex.fuzzySearch("zimber").size() == 1 && songIndex.fuzzySearch("zmbr").isEmpty(),
+            "Words of four to seven letters must allow only one edit.");
+    }
+
+    private static List<SongEntity> scan(List<SongEntity> songs, String query) {
+        List<SongEntity> result = new ArrayList<>();
+        for (SongEntity currentSongEntity : songs) {
+            boolean contains = true;
+            for (String currentWord : query.split(" ")) {
+                if (!currentSongEntity.getSong().getTitle().toLowerCase().contains(currentWord.toLowerCase()) &&
+                    !currentSongEntity.getSong().getArtist().toLowerCase().contains(currentWord.toLowerCase())) {
+                    contains = false;
+                    break;
+                }
+            }
+
+            if (contains) {
+                result.add(currentSongEntity);
+            }
+        }
+
+        return result;
+    }
+}